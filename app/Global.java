@@ -0,0 +1,53 @@
+import models.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.Application;
+import play.GlobalSettings;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Hooks into the application lifecycle.
+ */
+public class Global extends GlobalSettings {
+
+    private static final Logger log = LoggerFactory.getLogger(Global.class);
+
+    /**
+     * Maps the tablebase, if any, before the first game needs it, joins the
+     * cluster, failing the startup if it cannot, and restores the games
+     * suspended by the last shutdown.
+     */
+    @Override
+    public void onStart(Application app) {
+        models.tablebase.Tablebase.shared();
+        controllers.Application.getGames();
+        File snapshot = getSnapshotFile();
+        if (snapshot != null && snapshot.isFile())
+            try { controllers.Application.restoreGames(snapshot); }
+            catch (IOException ioe) { log.error("Failed to restore games out of {}.", snapshot, ioe); }
+    }
+
+    /**
+     * Suspends the active games into the snapshot, if any, shuts down the
+     * remaining ones, so that peers get their connections closed, and
+     * flushes the journal.
+     */
+    @Override
+    public void onStop(Application app) {
+        File snapshot = getSnapshotFile();
+        if (snapshot != null)
+            try { controllers.Application.suspendGames(snapshot); }
+            catch (IOException ioe) { log.error("Failed to suspend games into {}.", snapshot, ioe); }
+            catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+        controllers.Application.getGames().shutdownAll();
+        models.journal.Journals.shared().close();
+    }
+
+    private static File getSnapshotFile() {
+        String path = Settings.getString("game.snapshot.path", null);
+        return path == null ? null : new File(path);
+    }
+
+}
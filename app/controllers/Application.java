@@ -1,21 +1,58 @@
 package controllers;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import models.Game;
+import models.Settings;
+import models.bot.BotConnection;
+import models.bot.Bots;
+import models.cluster.ClusterNode;
+import models.cluster.Clusters;
+import models.connection.BinaryConnection;
+import models.connection.Connection;
+import models.connection.JsonConnection;
+import models.event.GameOver;
 import models.event.WaitingForOpponent;
+import models.hint.HintService;
+import models.id.Credentials;
+import models.journal.Journals;
+import models.matchmaking.Matchmaker;
+import models.metrics.Metrics;
+import models.metrics.PrometheusWriter;
 import models.player.ConnectedPlayer;
+import models.player.PairedPlayer;
+import models.player.Protocol;
+import models.rating.Leaderboard;
+import models.rating.Ratings;
+import models.rating.Standing;
+import models.registry.GameRegistry;
+import models.rules.Board;
+import models.rules.Variant;
+import models.session.Session;
+import models.session.Sessions;
+import models.snapshot.Reservation;
+import models.snapshot.Reservations;
+import models.snapshot.SnapshotReader;
+import models.snapshot.SnapshotWriter;
+import models.spectator.Spectator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import play.libs.Json;
 import play.mvc.Controller;
 import play.mvc.Result;
 import play.mvc.WebSocket;
 import views.html.index;
 
 import javax.annotation.concurrent.ThreadSafe;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 @ThreadSafe
 public class Application extends Controller {
@@ -23,75 +60,463 @@ public class Application extends Controller {
     private static final Logger log = LoggerFactory.getLogger(Application.class);
 
     /**
-     * {@link Queue} of players waiting to be paired.
+     * Pairs players waiting for an opponent across the cluster, one matchmaker
+     * per {@link Variant} enabled by {@code game.variants}.
+     *
+     * @see Clusters
+     */
+    private static final ClusterNode cluster = Clusters.start(
+            parseVariants(Settings.getString("game.variants", "6x6,6x4,6x3,4x4")),
+            new ClusterNode.GameStarter() {
+                @Override
+                public void startGame(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+                    Application.onPaired(upperPlayer, lowerPlayer);
+                }
+            });
+
+    /**
+     * Pairs players waiting for an opponent in the {@link Variant#STANDARD}
+     * game, provided that this node coordinates it.
+     */
+    private static final Matchmaker pendingPlayers = cluster.getMatchmaker(Variant.STANDARD);
+
+    /**
+     * Ratings of the players of this node.
+     */
+    private static final Ratings ratings = Ratings.shared();
+
+    /**
+     * Sessions of the players connected to this node, kept for resuming after a disconnect.
+     */
+    private static final Sessions sessions = Sessions.shared();
+
+    /**
+     * Tokens proving the ownership of player ids, handed out along with the ids.
+     */
+    private static final Credentials credentials = Credentials.shared();
+
+    /**
+     * Greatest number of standings served by {@link Application#leaderboard}.
      */
-    private static final Queue<ConnectedPlayer> pendingPlayers = new ConcurrentLinkedQueue<>();
+    private static final int MAX_LEADERBOARD_LIMIT = 1000;
 
     /**
-     * {@link Map} of active {@link Game}s keyed by game ids.
+     * Active {@link Game}s.
      */
-    private static final Map<String, Game> games = new ConcurrentHashMap<>();
+    private static final GameRegistry games = new GameRegistry();
 
-    public static Queue<ConnectedPlayer> getPendingPlayers() { return pendingPlayers; }
+    /**
+     * Time players of restored games are given to reconnect.
+     */
+    private static final long snapshotGraceNanos =
+            Settings.getDuration("game.snapshot.grace", TimeUnit.NANOSECONDS, TimeUnit.SECONDS.toNanos(60));
 
-    public static Map<String, Game> getGames() { return games; }
+    /**
+     * Games restored at startup, waiting for their players to reconnect.
+     */
+    private static final Reservations reservations = new Reservations(
+            new Reservations.Listener() {
+                @Override
+                public void onReservationComplete(Reservation reservation) {
+                    Application.onReservationComplete(reservation);
+                }
+
+                @Override
+                public void onReservationExpired(Reservation reservation) {
+                    // The game never resumes, hence it ends as it was suspended.
+                    Journals.shared().end(reservation.getGameKey(),
+                            new Board(reservation.getVariant(), reservation.getCells()));
+                }
+            },
+            snapshotGraceNanos);
+
+    /**
+     * Schedules bots to join players waiting for too long, and expires reservations.
+     */
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "application-scheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        // Bands of waiting players widen in between joins as well.
+        long rematchMillis = Settings.getDuration("game.rating.rematchInterval", TimeUnit.MILLISECONDS, 1000);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                for (Matchmaker matchmaker : cluster.getMatchmakers()) matchmaker.rematch();
+            }
+        }, rematchMillis, rematchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static Set<Variant> parseVariants(String variantNames) {
+        Set<Variant> variants = new LinkedHashSet<>();
+        variants.add(Variant.STANDARD);
+        for (String name : variantNames.split(",")) {
+            Variant variant = Variant.fromName(name.trim());
+            if (variant == null) log.warn("Ignoring unknown variant {}.", name);
+            else variants.add(variant);
+        }
+        return variants;
+    }
+
+    public static Matchmaker getPendingPlayers() { return pendingPlayers; }
+
+    /**
+     * Returns the number of players waiting for an opponent in any variant.
+     */
+    private static int getPendingCount() {
+        int count = 0;
+        for (Matchmaker matchmaker : cluster.getMatchmakers()) count += matchmaker.size();
+        return count;
+    }
+
+    public static GameRegistry getGames() { return games; }
 
     public static Result index() {
         int gameCount = games.size();
-        int playerCount = pendingPlayers.size() + 2 * gameCount;
+        int playerCount = getPendingCount() + 2 * gameCount;
         return ok(index.render(gameCount, playerCount));
     }
 
     /**
-     * Accepts incoming join requests.
+     * Exposes the engine metrics in the Prometheus text format.
+     */
+    public static Result metrics() {
+        long pairedCount = 0, evictedCount = 0;
+        for (Matchmaker matchmaker : cluster.getMatchmakers()) {
+            pairedCount += matchmaker.getPairedCount();
+            evictedCount += matchmaker.getEvictedCount();
+        }
+        PrometheusWriter writer = new PrometheusWriter()
+                .gauge("lubang_games_active", "Number of active games.", games.size())
+                .counter("lubang_games_started_total", "Number of games started.", games.getStarted())
+                .counter("lubang_games_completed_total", "Number of games shut down.", games.getCompleted())
+                .gauge("lubang_pending_players", "Number of players waiting for an opponent.", getPendingCount())
+                .counter("lubang_players_paired_total", "Number of players paired.", pairedCount)
+                .counter("lubang_players_evicted_total", "Number of players leaving before getting paired.",
+                        evictedCount)
+                .gauge("lubang_hint_cache_entries", "Number of positions in the hint cache.",
+                        HintService.shared().getCache().size())
+                .counter("lubang_hint_cache_evictions_total", "Positions evicted from the hint cache.",
+                        HintService.shared().getCache().getEvictions())
+                .counter("lubang_hint_cache_hits_total", "Lookups finding the position in the hint cache.",
+                        HintService.shared().getCache().getHits())
+                .counter("lubang_hint_cache_misses_total", "Lookups missing the hint cache.",
+                        HintService.shared().getCache().getMisses())
+                .gauge("lubang_rated_players", "Number of rated players of this node.",
+                        ratings.getLeaderboard().size())
+                .counter("lubang_games_rated_total", "Number of games rated by this node.", ratings.getRatedGames())
+                .gauge("lubang_sessions", "Number of player sessions of this node.", sessions.size());
+        Metrics.writeTo(writer);
+        return ok(writer.toString()).as(PrometheusWriter.CONTENT_TYPE);
+    }
+
+    /**
+     * Lists the standings of the given number of the highest rated players of this node in JSON.
+     */
+    public static Result leaderboard(Integer limit) {
+        if (limit < 1 || limit > MAX_LEADERBOARD_LIMIT)
+            return badRequest("Limit out of range [1, " + MAX_LEADERBOARD_LIMIT + "]: " + limit);
+        Leaderboard leaderboard = ratings.getLeaderboard();
+        ObjectNode result = Json.newObject();
+        result.put("players", leaderboard.size());
+        ArrayNode standings = result.putArray("standings");
+        for (Standing standing : leaderboard.top(limit))
+            standings.add(toJson(standing, leaderboard.rankOf(standing.getRating())));
+        return ok(result);
+    }
+
+    /**
+     * Tells the standing of the given player of this node in JSON.
+     */
+    public static Result standing(String playerId) {
+        Leaderboard leaderboard = ratings.getLeaderboard();
+        Standing standing = leaderboard.get(playerId);
+        if (standing == null) return notFound("Unrated player: " + playerId);
+        return ok(toJson(standing, leaderboard.rankOf(standing.getRating())));
+    }
+
+    private static ObjectNode toJson(Standing standing, int rank) {
+        ObjectNode node = Json.newObject();
+        node.put("rank", rank);
+        node.put("playerId", standing.getPlayerId());
+        node.put("rating", standing.getRating());
+        node.put("games", standing.getGames());
+        return node;
+    }
+
+    public static WebSocket<String> join() { return join(Protocol.FULL.name()); }
+
+    public static WebSocket<String> join(String protocolName) { return join(protocolName, ""); }
+
+    public static WebSocket<String> join(String protocolName, String playerId) {
+        return join(protocolName, playerId, Variant.STANDARD.getName());
+    }
+
+    public static WebSocket<String> join(String protocolName, String playerId, String variantName) {
+        return join(protocolName, playerId, variantName, -1L, "");
+    }
+
+    /**
+     * Accepts incoming join requests speaking JSON.
      *
-     * Function either pairs the connection with a pending player, or pushes
-     * it to the pending players queue. Requests are handled in parallel, no
-     * synchronization is necessary.
+     * @param playerId of a player reconnecting to a restored game, or of a rated player, or empty.
+     * @param variantName of the {@link Variant} to play, see {@code game.variants}.
+     * @param received number of frames received by a player resuming its session, zero to open a session, or negative.
+     * @param token of the given player id, see {@link Credentials}.
+     * @see Application#onJoin(Connection, Variant, String, long, String)
+     */
+    public static WebSocket<String> join(
+            String protocolName, final String playerId, String variantName, final Long received, final String token) {
+        final Protocol protocol = Protocol.fromName(protocolName);
+        if (protocol == null)
+            return WebSocket.reject(badRequest("Unknown protocol: " + protocolName));
+        final Variant variant = Variant.fromName(variantName);
+        if (variant == null || !cluster.supports(variant))
+            return WebSocket.reject(badRequest("Unsupported variant: " + variantName));
+        return new WebSocket<String>() {
+            @Override
+            public void onReady(In<String> in, Out<String> out) {
+                onJoin(new JsonConnection(in, out, protocol), variant, playerId, received, token);
+            }
+        };
+    }
+
+    public static WebSocket<byte[]> joinBinary(String protocolName) { return joinBinary(protocolName, ""); }
+
+    public static WebSocket<byte[]> joinBinary(String protocolName, String playerId) {
+        return joinBinary(protocolName, playerId, Variant.STANDARD.getName());
+    }
+
+    public static WebSocket<byte[]> joinBinary(String protocolName, String playerId, String variantName) {
+        return joinBinary(protocolName, playerId, variantName, -1L, "");
+    }
+
+    /**
+     * Accepts incoming join requests speaking the binary frame format.
+     *
+     * @see models.event.BinaryCodec
+     * @see Application#onJoin(Connection, Variant, String, long, String)
+     */
+    public static WebSocket<byte[]> joinBinary(
+            String protocolName, final String playerId, String variantName, final Long received, final String token) {
+        final Protocol protocol = Protocol.fromName(protocolName);
+        if (protocol == null)
+            return WebSocket.reject(badRequest("Unknown protocol: " + protocolName));
+        final Variant variant = Variant.fromName(variantName);
+        if (variant == null || !cluster.supports(variant))
+            return WebSocket.reject(badRequest("Unsupported variant: " + variantName));
+        return new WebSocket<byte[]>() {
+            @Override
+            public void onReady(In<byte[]> in, Out<byte[]> out) {
+                onJoin(new BinaryConnection(in, out, protocol), variant, playerId, received, token);
+            }
+        };
+    }
+
+    /**
+     * Lets a spectator watch the game with the given key in the JSON frame format of {@link Protocol#FULL}.
      */
-    public static WebSocket<JsonNode> join() {
-        return new WebSocket<JsonNode>() {
+    public static WebSocket<String> watch(Long key) {
+        final Game game = games.get(key);
+        if (game == null)
+            return WebSocket.reject(notFound("Unknown game: " + key));
+        return new WebSocket<String>() {
             @Override
-            public void onReady(In<JsonNode> in, Out<JsonNode> out) {
-                ConnectedPlayer lowerPlayer = new ConnectedPlayer(in, out);
-                log.trace("Incoming {}.", lowerPlayer);
-
-                // Tell the player that we are trying to find a pair.
-                new WaitingForOpponent(lowerPlayer.getId()).write(out);
-
-                // Try to pair the incoming player with another player.
-                ConnectedPlayer upperPlayer = pendingPlayers.poll();
-                if (upperPlayer != null) {
-                    Game game = new Game(
-                            upperPlayer, lowerPlayer,
-                            new Game.ShutdownListener() {
-                                @Override
-                                public void onGameShutdown(String gameId) {
-                                    Application.onGameShutdown(gameId);
-                                }
-                            });
-                    game.start();
-                    games.put(game.getId(), game);
-                    log.trace("Started {} with {} and {}.", game, upperPlayer, lowerPlayer);
+            public void onReady(In<String> in, Out<String> out) {
+                game.watch(new Spectator(in, out));
+            }
+        };
+    }
+
+    /**
+     * Handles a newly connected player.
+     *
+     * Function tells the player that an opponent is being searched and
+     * passes it to the {@link Matchmaker} of the chosen {@link Variant}.
+     * Requests are handled in parallel, no synchronization is necessary.
+     * Players of different frame formats and {@link Protocol}s can be paired
+     * with each other. A player reconnecting with the id of a restored game
+     * and the token of its seat waits for its former opponent instead, and
+     * plays the variant of that game. A rated player joining with its id and
+     * token keeps its rating, unless another connection holds the id. Ids
+     * joining without their token are replaced by fresh ones.
+     *
+     * Players joining with a non-negative number of received frames get a
+     * {@link Session}, which they resume by joining with their id, its
+     * token, and the number of frames they received since. Should the
+     * session be gone, they join as usual.
+     */
+    private static void onJoin(Connection socket, Variant variant, String playerId, long received, String token) {
+        Session session = null;
+        if (received >= 0 && sessions.isEnabled()) {
+            if (!playerId.isEmpty() && sessions.resume(playerId, token, socket, received)) return;
+            session = sessions.open(socket);
+        }
+        Connection connection = session == null ? socket : session;
+        // Only the owner of the id, or of a restored seat, keeps it, and learns its token under the current key.
+        if (!playerId.isEmpty()
+                && (credentials.verify(playerId, token) || reservations.verify(playerId, token))
+                && (session == null || sessions.register(playerId, session))) {
+            ConnectedPlayer player = new ConnectedPlayer(connection, variant, playerId, ratings.ratingOf(playerId));
+            boolean reserved = reservations.verify(playerId, token);
+            if (reserved) {
+                // Tell first, since the claim might start the game right away.
+                connection.write(new WaitingForOpponent(playerId, credentials.tokenOf(playerId)));
+                if (reservations.claim(player, token)) {
+                    log.trace("{} reconnected to its restored game.", player);
+                    return;
                 }
+            }
+            if (ratings.reclaim(playerId, token, connection)) {
+                log.trace("Incoming rated {}.", player);
+                if (!reserved) connection.write(new WaitingForOpponent(playerId, credentials.tokenOf(playerId)));
+                enqueue(player);
+                return;
+            }
+            // The reservation expired in the meantime, but the player already learned its id.
+            if (reserved && ratings.claim(playerId, connection)) {
+                log.trace("Incoming {} of an expired reservation.", player);
+                enqueue(player);
+                return;
+            }
+            // Matched neither a reservation nor a rated player, a fresh id is due.
+            if (session != null) sessions.unregister(playerId, session);
+        }
+        ConnectedPlayer player = new ConnectedPlayer(connection, variant);
+        if (session != null) sessions.register(player.getId(), session);
+        ratings.claim(player.getId(), connection);
+        log.trace("Incoming {}.", player);
+        connection.write(new WaitingForOpponent(player.getId(), credentials.tokenOf(player.getId())));
+        enqueue(player);
+    }
 
-                // Else, queue the player into the waiting list.
-                else {
-                    pendingPlayers.add(lowerPlayer);
-                    log.trace("Queued {}.", lowerPlayer);
+    /**
+     * Passes the given player to the {@link Matchmaker} of its variant, on
+     * whichever node of the cluster coordinates it. If a player of the
+     * {@link Variant#STANDARD} game is still waiting on this node after
+     * {@link Bots#getWaitMillis}, a bot joins as well.
+     */
+    private static void enqueue(final ConnectedPlayer player) {
+        final Matchmaker.Ticket ticket = cluster.join(player);
+        if (Bots.isEnabled() && player.getVariant() == Variant.STANDARD && ticket != null && ticket.isWaiting())
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // Joining the queue instead would race with a human taking the player.
+                    if (ticket.isWaiting()) pendingPlayers.pairWith(ticket, Bots.newPlayer(player.getRating()));
+                }
+            }, Bots.getWaitMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a game between the given pair of players.
+     */
+    private static void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+        Game game = new Game(
+                upperPlayer, lowerPlayer,
+                new Game.ShutdownListener() {
+                    @Override
+                    public void onGameShutdown(Game game) {
+                        Application.onGameShutdown(game);
+                    }
+                });
+        // Register the game before it starts to accept moves and closes.
+        games.add(game);
+        game.start();
+        log.trace("Started {} with {} and {}.", game, upperPlayer, lowerPlayer);
+    }
+
+    /**
+     * Resumes a restored game both players of which reconnected.
+     */
+    private static void onReservationComplete(Reservation reservation) {
+        Game game = Game.restore(
+                reservation.getGameKey(), reservation.getVariant(), reservation.getCells(),
+                reservation.getNextSeat(),
+                reservation.getPlayer(0), reservation.getPlayer(1),
+                new Game.ShutdownListener() {
+                    @Override
+                    public void onGameShutdown(Game game) {
+                        Application.onGameShutdown(game);
+                    }
+                });
+        games.add(game);
+        game.start();
+        log.trace("Restored {}.", game);
+    }
+
+    /**
+     * Reads the games written by {@link Application#suspendGames} into
+     * reservations, and deletes the snapshot so that it is not restored twice.
+     * Once the grace period elapses, players whose opponents did not
+     * reconnect are passed to the {@link Matchmaker}, and the games left
+     * behind are recorded as ended in the journal.
+     *
+     * @return the number of restored games.
+     */
+    public static int restoreGames(File file) throws IOException {
+        int count = SnapshotReader.read(file, reservations);
+        if (!file.delete())
+            log.warn("Failed to delete snapshot {}.", file);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                for (ConnectedPlayer player : reservations.expire()) {
+                    log.trace("{} lost its restored game.", player);
+                    enqueue(player);
                 }
             }
-        };
+        }, snapshotGraceNanos, TimeUnit.NANOSECONDS);
+        log.info("Restored {} games out of {}.", count, file);
+        return count;
+    }
+
+    /**
+     * Writes the active games into the given snapshot and shuts them down,
+     * waiting at most {@code game.snapshot.timeout} for them.
+     */
+    public static void suspendGames(File file) throws IOException, InterruptedException {
+        long timeoutMillis = Settings.getDuration("game.snapshot.timeout", TimeUnit.MILLISECONDS,
+                TimeUnit.SECONDS.toMillis(10));
+        try (SnapshotWriter writer = new SnapshotWriter(file, credentials)) {
+            if (!games.suspendAll(writer, timeoutMillis, TimeUnit.MILLISECONDS))
+                log.warn("Timed out suspending games, snapshot is partial.");
+            log.info("Suspended {} games into {}.", writer.getCount(), file);
+        }
     }
 
     /**
-     * Closes player connections and cleans up data structures.
+     * Rates the players of games played to the end or forfeited, closes
+     * player connections and cleans up data structures.
      */
-    public static void onGameShutdown(String gameId) {
-        Game game = games.remove(gameId);
+    public static void onGameShutdown(Game game) {
+        games.remove(game.getKey());
+        GameOver outcome = game.getOutcome();
+        if (outcome != null) rate(game, outcome);
         for (ConnectedPlayer player : game.getPlayers())
-            player.getOutputSocket().close();
+            player.getConnection().close();
         log.trace("Closed {}.", game);
     }
 
+    /**
+     * Updates the ratings of the players of the given game, except for bots.
+     */
+    private static void rate(Game game, GameOver outcome) {
+        Iterator<PairedPlayer> players = game.getPlayers().iterator();
+        PairedPlayer upper = players.next(), lower = players.next();
+        double upperScore = outcome.winnerId == null ? 0.5 : outcome.winnerId.equals(upper.getId()) ? 1 : 0;
+        int[] rated = ratings.rate(upper.getRating(), lower.getRating(), upperScore);
+        if (!(upper.getConnection() instanceof BotConnection)) cluster.updateRating(upper, rated[0]);
+        if (!(lower.getConnection() instanceof BotConnection)) cluster.updateRating(lower, rated[1]);
+        log.trace("Rated {}: {} {} -> {}, {} {} -> {}.", game,
+                upper, upper.getRating(), rated[0], lower, lower.getRating(), rated[1]);
+    }
+
 }
@@ -1,32 +1,80 @@
 package models;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import models.concurrent.GameExecutor;
+import models.concurrent.Mailbox;
+import models.connection.Connection;
+import models.event.BoardDelta;
+import models.event.BoardSnapshot;
 import models.event.BoardState;
 import models.event.GameOver;
+import models.event.Hint;
 import models.event.IllegalMove;
 import models.event.ReadyToStart;
+import models.hint.HintService;
+import models.id.Ids;
+import models.journal.Journal;
+import models.journal.Journals;
+import models.metrics.Metrics;
+import models.metrics.Metrics.IllegalMoveReason;
 import models.player.ConnectedPlayer;
 import models.player.PairedPlayer;
+import models.player.Protocol;
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.rules.Variant;
+import models.snapshot.SnapshotWriter;
+import models.spectator.Audience;
+import models.spectator.Spectator;
+import models.timer.Timers;
+import models.timer.TimingWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import play.libs.F;
-import play.mvc.WebSocket;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Notifies players of the game start and performs coordination of the moves between peers.
  *
  * The caller is expected to call {@link Game#start} to notify peers of the
- * game start and install {@link WebSocket} message handlers. Next, each peer
- * move is directed to {@link Game#onMove(String, com.fasterxml.jackson.databind.JsonNode)},
+ * game start and install {@link Connection} message handlers. Next, each peer
+ * move is directed to {@link Game#onMove(int, int)},
  * where the move is validated, board state is updated, game completion is checked,
  * and finally the board state update is sent back to the peers.
  *
- * Client-server messaging is performed in JSON messages described by
- * {@link models.event.Event} classes.
+ * Client-server messaging is performed in messages described by
+ * {@link models.event.Event} classes, encoded by the {@link Connection} of
+ * each peer.
+ *
+ * Games are played by the {@link Variant} of the upper player, which the
+ * matchmaker pairs with players of the same variant only.
+ *
+ * Players ask for a hint on their turn, which the shared {@link HintService}
+ * evaluates off the mailbox on a copy of the board. At most one hint per
+ * seat is in flight, and a hint is dropped if a move got accepted meanwhile.
+ *
+ * Started games record their start, accepted moves and end into a
+ * {@link Journal}.
+ *
+ * A player forfeits by leaving, that is once its connection closes for
+ * good. The player to move forfeits once its turn clock runs out, and games
+ * neither player sends a frame to for the idle time are aborted, as
+ * configured by {@link Timers}. Rather than rearming a timer on every move,
+ * each clock keeps a single timer on the {@link TimingWheel}, which
+ * re-arms itself for the rest of the time if the deadline moved meanwhile.
+ *
+ * Rather than locking, every game owns a {@link Mailbox}: the start, inbound
+ * moves and connection closes are posted to it and handled one at a time
+ * on the game {@link Executor}. Hence socket callbacks never block, and
+ * writes to the peers and the {@link ShutdownListener} run outside of any
+ * critical section. Fields marked as confined are only accessed from
+ * within the mailbox.
  *
  * @see models.event.Event
  */
@@ -34,145 +82,587 @@ import java.util.*;
 public class Game {
 
     private final static Logger log = LoggerFactory.getLogger(Game.class);
-    protected final String id = UUID.randomUUID().toString();
-    protected final Map<String, PairedPlayer> players;
+    /**
+     * Keys start at the startup time in milliseconds shifted by 10 bits.
+     * Keys therefore stay unique across restarts, say, in the journal, unless a
+     * run starts more than 1024 games per millisecond. They also stay below
+     * 2^53, so JavaScript can represent them exactly.
+     */
+    private final static AtomicLong keySequence = new AtomicLong(System.currentTimeMillis() << 10);
+
+    /** Number of illegal moves in a row answered, see {@code game.inbound.illegalReplies}. */
+    static final int ILLEGAL_REPLIES = Settings.getInt("game.inbound.illegalReplies", 5);
+    /** Number of illegal moves in a row forfeiting the game, see {@code game.inbound.illegalLimit}. */
+    static final int ILLEGAL_LIMIT = Settings.getInt("game.inbound.illegalLimit", 100);
+
+    /** Replies to illegal moves shared by every game, encoded once. */
+    private final static IllegalMove OPPONENT_TURN_MOVE = new IllegalMove("It is opponent's turn.");
+    private final static IllegalMove[] EMPTY_PIT_MOVES = new IllegalMove[Variant.MAX_PITS];
+
+    static {
+        for (int pos = 0; pos < Variant.MAX_PITS; pos++)
+            EMPTY_PIT_MOVES[pos] = new IllegalMove("No stones available at pit %d.", pos);
+    }
+    protected final long key;
+    protected final String id;
+    /** Players indexed by seats. */
+    protected final PairedPlayer[] players = new PairedPlayer[2];
+    protected final Mailbox mailbox;
+    /** Confined. */
+    protected final Board board;
+    /** Player ids indexed by seats. */
+    protected final String[] seats = new String[2];
+    protected final Collection<PairedPlayer> playerList = Collections.unmodifiableList(Arrays.asList(players));
+    /** Confined. Board cells as of the last {@link BoardDelta} sent. */
+    protected final int[] lastCells;
     protected final ShutdownListener shutdownListener;
-    @GuardedBy("this") protected String nextPlayerId;
-    @GuardedBy("this") protected boolean started;
+    protected final Journal journal;
+    /** Written in the mailbox, readable from anywhere. */
+    protected volatile int nextSeat;
+    /** Confined. */
+    protected boolean started;
+    /** Confined. */
+    protected long startedNanos;
+    /** Confined. */
+    protected boolean shutdown;
+    /** Set if the game is restored out of a snapshot. */
+    protected final boolean restored;
+    /** Confined. Set if the game is written into a snapshot rather than ended. */
+    protected boolean suspended;
+    /** Confined. Outcome of a game played to the end or forfeited. */
+    protected GameOver outcome;
+    /** Confined. Created along with the first spectator. */
+    protected Audience audience;
+    protected TimingWheel timers;
+    /** Turn and idle time limits, zero if disabled. */
+    protected long turnNanos, idleNanos;
+    /** Confined. Deadline of the current turn. */
+    protected long turnDeadlineNanos;
+    /** Confined. Arrival of the last frame from either player. */
+    protected long lastActivityNanos;
+    /** Confined. Number of illegal moves in a row indexed by seats. */
+    protected final int[] illegalStreaks = new int[2];
+    /** Confined. Set for the seats waiting for a hint. */
+    protected final boolean[] hintsPending = new boolean[2];
+    /** Confined. Number of accepted moves. */
+    protected int moveCount;
+    /** Confined. Pending timers, if any. */
+    protected TimingWheel.Timeout turnTimeout, idleTimeout;
 
     public interface ShutdownListener {
-        public void onGameShutdown(String gameId);
+        public void onGameShutdown(Game game);
     }
 
     public Game(
             ConnectedPlayer upperPlayer,
             ConnectedPlayer lowerPlayer,
             ShutdownListener shutdownListener) {
+        this(upperPlayer, lowerPlayer, shutdownListener, GameExecutor.shared());
+    }
+
+    public Game(
+            ConnectedPlayer upperPlayer,
+            ConnectedPlayer lowerPlayer,
+            ShutdownListener shutdownListener,
+            Executor executor) {
+        this(upperPlayer, lowerPlayer, shutdownListener, executor, Journals.shared());
+    }
+
+    public Game(
+            ConnectedPlayer upperPlayer,
+            ConnectedPlayer lowerPlayer,
+            ShutdownListener shutdownListener,
+            Executor executor,
+            Journal journal) {
+        this(keySequence.incrementAndGet(), new Board(upperPlayer.getVariant()), 0, false,
+                upperPlayer, lowerPlayer, shutdownListener, executor, journal);
+    }
+
+    protected Game(
+            long key,
+            Board board,
+            int nextSeat,
+            boolean restored,
+            ConnectedPlayer upperPlayer,
+            ConnectedPlayer lowerPlayer,
+            ShutdownListener shutdownListener,
+            Executor executor,
+            Journal journal) {
+        this.key = key;
+        this.id = Ids.ofGame(key);
+        this.board = board;
+        this.restored = restored;
+
         // Initialize players.
-        PairedPlayer upperPairedPlayer = upperPlayer.upgrade(lowerPlayer.getId());
-        PairedPlayer lowerPairedPlayer = lowerPlayer.upgrade(upperPlayer.getId());
-        Map<String, PairedPlayer> players = new HashMap<>();
-        players.put(upperPairedPlayer.getId(), upperPairedPlayer);
-        players.put(lowerPairedPlayer.getId(), lowerPairedPlayer);
-        this.players = Collections.unmodifiableMap(players);
-
-        // Set shutdown listener.
+        players[0] = upperPlayer.upgrade(lowerPlayer.getId(), board, 0);
+        players[1] = lowerPlayer.upgrade(upperPlayer.getId(), board, 1);
+        seats[0] = players[0].getId();
+        seats[1] = players[1].getId();
+        this.lastCells = new int[board.size()];
+        board.copyTo(lastCells);
+
+        // Set shutdown listener and the mailbox.
         this.shutdownListener = shutdownListener;
+        this.mailbox = new Mailbox(executor);
+        this.journal = journal;
 
-        // Initialize the next player id.
-        this.nextPlayerId = upperPairedPlayer.getId();
+        // Upper player starts, unless restored.
+        this.nextSeat = nextSeat;
 
-        // Turn started flag off.
+        // Turn started and shutdown flags off.
         this.started = false;
+        this.shutdown = false;
+
+        this.turnNanos = Timers.getTurnNanos();
+        this.idleNanos = Timers.getIdleNanos();
+        this.timers = turnNanos > 0 || idleNanos > 0 ? Timers.shared() : null;
+    }
+
+    /**
+     * Overrides the configured {@link Timers}, where a zero time limit
+     * disables the respective clock. To be called before {@link Game#start}.
+     */
+    public Game withTimers(TimingWheel timers, long turnNanos, long idleNanos) {
+        this.timers = timers;
+        this.turnNanos = turnNanos;
+        this.idleNanos = idleNanos;
+        return this;
+    }
+
+    /**
+     * Restores a game written by {@link Game#suspend} with the given reconnected players.
+     *
+     * Restored games keep their keys, and continue recording into the journal
+     * without a new start record.
+     */
+    public static Game restore(
+            long key,
+            Variant variant,
+            int[] cells,
+            int nextSeat,
+            ConnectedPlayer upperPlayer,
+            ConnectedPlayer lowerPlayer,
+            ShutdownListener shutdownListener) {
+        // Keep keys of new games clear of the restored ones.
+        long last;
+        while ((last = keySequence.get()) < key && !keySequence.compareAndSet(last, key)) ;
+        return new Game(key, new Board(variant, cells), nextSeat, true, upperPlayer, lowerPlayer,
+                shutdownListener, GameExecutor.shared(), Journals.shared());
     }
 
     public String getId() { return id; }
 
-    public Collection<PairedPlayer> getPlayers() { return players.values(); }
+    /**
+     * Returns the compact numeric key of the game, unique within the process.
+     */
+    public long getKey() { return key; }
+
+    public Collection<PairedPlayer> getPlayers() { return playerList; }
+
+    public String getNextPlayerId() { return seats[nextSeat]; }
+
+    /**
+     * Returns the outcome of the game if it is played to the end, forfeited
+     * or left, or null if it is aborted or suspended. To be called by
+     * the {@link ShutdownListener}.
+     */
+    public GameOver getOutcome() { return outcome; }
 
     /**
-     * Notifies peers of the game start and installs {@link WebSocket} message handlers.
+     * Notifies peers of the game start and installs {@link Connection} message handlers.
      */
-    public synchronized void start() {
-        if (!started) {
-            for (final PairedPlayer player : players.values()) {
-                new ReadyToStart(player.getOpponentId(), nextPlayerId)
-                        .write(player.getOutputSocket());
-                player.getInputSocket().onMessage(new F.Callback<JsonNode>() {
+    public void start() {
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() { onStart(); }
+        });
+    }
+
+    private void onStart() {
+        if (!started && !shutdown) {
+            long now = System.nanoTime();
+            lastActivityNanos = now;
+            startTurn(now);
+            if (idleNanos > 0) armIdleTimer(idleNanos);
+            BoardSnapshot boardSnapshot = null;
+            for (final PairedPlayer player : players) {
+                Connection connection = player.getConnection();
+                connection.write(new ReadyToStart(player.getOpponentId(), seats[nextSeat], board.getVariant()));
+                if (player.getProtocol() == Protocol.DELTA) {
+                    if (boardSnapshot == null)
+                        boardSnapshot = new BoardSnapshot(seats, board, nextSeat);
+                    connection.write(boardSnapshot);
+                }
+                // Clients of a restored game start with the board as it was.
+                else if (restored) connection.write(newBoardState());
+                connection.onMove(new Connection.MoveListener() {
+                    @Override
+                    public void onMove(final int pos) {
+                        final long receivedNanos = System.nanoTime();
+                        mailbox.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                Game.this.onMove(player.getSeat(), pos);
+                                Metrics.recordMove(System.nanoTime() - receivedNanos);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onMalformedMove(final String move) {
+                        mailbox.post(new Runnable() {
+                            @Override
+                            public void run() { Game.this.onMalformedMove(player.getSeat(), move); }
+                        });
+                    }
+
                     @Override
-                    public void invoke(JsonNode move) throws Throwable {
-                        onMove(player.getId(), move);
+                    public void onHint() {
+                        mailbox.post(new Runnable() {
+                            @Override
+                            public void run() { Game.this.onHint(player.getSeat()); }
+                        });
                     }
                 });
-                player.getInputSocket().onClose(new F.Callback0() {
+                connection.onClose(new F.Callback0() {
                     @Override
                     public void invoke() throws Throwable {
-                        shutdownListener.onGameShutdown(id);
+                        mailbox.post(new Runnable() {
+                            @Override
+                            public void run() { onLeave(player.getSeat()); }
+                        });
                     }
                 });
             }
             started = true;
+            startedNanos = System.nanoTime();
+            if (!restored) journal.start(key, id, seats, board.getVariant());
             log.trace("{} is started. (Pair information is pushed.)", this);
         }
     }
 
     /**
-     * Checks if game is over and invokes {@link Game#shutdownListener} on success.
+     * Requests the game to shut down without an outcome, unlike a peer closing its connection.
+     */
+    public void close() {
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() { shutdown(); }
+        });
+    }
+
+    /**
+     * Adds the given spectator, who gets the current board right away and
+     * every board update and the end of the game afterwards.
      */
-    private synchronized void complete() {
-        boolean over = false;
-        for (PairedPlayer player : players.values())
-            if (player.isOver()) {
-                over = true;
-                break;
+    public void watch(final Spectator spectator) {
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                if (shutdown) {
+                    spectator.close();
+                    return;
+                }
+                if (audience == null) audience = new Audience();
+                audience.add(spectator, newBoardState().toJson());
             }
-        if (over) {
-            int winnerScore = 0;
-            String winnerId = null;
-            for (PairedPlayer player : players.values()) {
-                int score = player.score();
-                if (winnerScore < score) {
-                    winnerScore = score;
-                    winnerId = player.getId();
+        });
+    }
+
+    /**
+     * Writes the game into the given snapshot and shuts it down, unless it is
+     * already shut down. Counts the given latch down either way.
+     */
+    public void suspend(final SnapshotWriter writer, final CountDownLatch latch) {
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (started && !shutdown) {
+                        writer.write(key, seats, board, nextSeat);
+                        suspended = true;
+                        shutdown();
+                    }
                 }
+                catch (IOException ioe) { log.error("Failed to snapshot {}.", Game.this, ioe); }
+                finally { latch.countDown(); }
             }
-            GameOver go = new GameOver(winnerId);
-            for (PairedPlayer player : players.values()) {
-                go.write(player.getOutputSocket());
+        });
+    }
+
+    /**
+     * Invokes the {@link Game#shutdownListener} once, ignoring any further messages.
+     */
+    private void shutdown() {
+        if (!shutdown) {
+            shutdown = true;
+            if (started) {
+                Metrics.recordGameDuration(System.nanoTime() - startedNanos);
+                // Suspended games go on after the restart.
+                if (!suspended) journal.end(key, board);
             }
+            if (turnTimeout != null) turnTimeout.cancel();
+            if (idleTimeout != null) idleTimeout.cancel();
+            if (audience != null) audience.close();
+            shutdownListener.onGameShutdown(this);
+        }
+    }
+
+    /**
+     * Checks if game is over and invokes {@link Game#shutdownListener} on success.
+     */
+    private void complete() {
+        if (board.isOver()) {
+            int upperScore = players[0].score(), lowerScore = players[1].score();
+            // Equal stores are a draw, as scored by the bots and the simulator.
+            String winnerId = upperScore > lowerScore ? players[0].getId()
+                    : lowerScore > upperScore ? players[1].getId() : null;
+            outcome = new GameOver(winnerId);
+            announce(outcome);
             log.trace("{} is completed. Calling shutdown listener...", this);
-            shutdownListener.onGameShutdown(id);
+            shutdown();
+        }
+    }
+
+    private void announce(GameOver go) {
+        for (PairedPlayer player : players) {
+            player.getConnection().write(go);
+        }
+        if (audience != null) audience.broadcast(go.toJson());
+    }
+
+    /**
+     * Gives the next seat a full turn.
+     */
+    private void startTurn(long now) {
+        if (turnNanos <= 0) return;
+        turnDeadlineNanos = now + turnNanos;
+        if (turnTimeout == null) armTurnTimer(turnNanos);
+    }
+
+    private int remainingMillis() {
+        if (turnNanos <= 0) return 0;
+        return (int) TimeUnit.NANOSECONDS.toMillis(Math.max(0, turnDeadlineNanos - System.nanoTime()));
+    }
+
+    private BoardState newBoardState() { return new BoardState(playerList, seats[nextSeat], remainingMillis()); }
+
+    private void armTurnTimer(long delayNanos) {
+        turnTimeout = timers.schedule(new Runnable() {
+            @Override
+            public void run() {
+                mailbox.post(new Runnable() {
+                    @Override
+                    public void run() { onTurnTimer(); }
+                });
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void armIdleTimer(long delayNanos) {
+        idleTimeout = timers.schedule(new Runnable() {
+            @Override
+            public void run() {
+                mailbox.post(new Runnable() {
+                    @Override
+                    public void run() { onIdleTimer(); }
+                });
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Forfeits the player to move if its turn is over, or waits for the rest of the turn.
+     */
+    private void onTurnTimer() {
+        turnTimeout = null;
+        if (shutdown) return;
+        long remainingNanos = turnDeadlineNanos - System.nanoTime();
+        if (remainingNanos > 0) {
+            armTurnTimer(remainingNanos);
+            return;
+        }
+        Metrics.recordTurnTimeout();
+        log.trace("{} ran out of time in {}.", players[nextSeat], this);
+        forfeit(nextSeat);
+    }
+
+    /**
+     * Forfeits the game of the given seat, whose connection closed or whose
+     * session expired, unless the game is already over.
+     */
+    private void onLeave(int seat) {
+        if (shutdown) return;
+        log.trace("{} left {}.", players[seat], this);
+        forfeit(seat);
+    }
+
+    /**
+     * Ends the game in favor of the opponent of the given seat.
+     */
+    private void forfeit(int seat) {
+        outcome = new GameOver(players[seat].getOpponentId(), GameOver.FORFEIT);
+        announce(outcome);
+        shutdown();
+    }
+
+    /**
+     * Aborts the game if neither player sent a frame for the idle time, or waits for the rest of it.
+     */
+    private void onIdleTimer() {
+        idleTimeout = null;
+        if (shutdown) return;
+        long remainingNanos = lastActivityNanos + idleNanos - System.nanoTime();
+        if (remainingNanos > 0) {
+            armIdleTimer(remainingNanos);
+            return;
         }
+        Metrics.recordIdleGame();
+        log.trace("{} is idle. Aborting...", this);
+        announce(new GameOver(null, GameOver.IDLE));
+        shutdown();
     }
 
     /**
      * Validates the given move, updates board state, checks if game is over, and notifies peers.
+     *
+     * @see SowingEngine
      */
-    private synchronized void onMove(String playerId, int pos) {
-        PairedPlayer player = players.get(playerId);
-        WebSocket.Out<JsonNode> out = player.getOutputSocket();
-        int[] pits = player.getPits();
-        if (pos < 0 || pos > pits.length - 2)
-            new IllegalMove("Invalid pit index: %d", pos).write(out);
-        else if (pits[pos] < 1)
-            new IllegalMove("No stones available at pit %d.", pos).write(out);
+    private void sow(PairedPlayer player, int pos) {
+        Connection connection = player.getConnection();
+        int result = SowingEngine.move(board, player.getSeat(), pos);
+        if (result == SowingEngine.INVALID_PIT) {
+            if (reject(player, IllegalMoveReason.INVALID_PIT))
+                connection.write(new IllegalMove("Invalid pit index: %d", pos));
+        }
+        else if (result == SowingEngine.EMPTY_PIT) {
+            if (reject(player, IllegalMoveReason.EMPTY_PIT))
+                connection.write(EMPTY_PIT_MOVES[pos]);
+        }
         else {
-            int size = pits[pos];
-            pits[pos] = 0;
-            for (int i = 0; i < size; i++)
-                pits[(pos + i + 1) % pits.length]++;
-            int lastPos = (pos + size) % pits.length;
-            if (lastPos != pits.length - 1) {
-                nextPlayerId = player.getOpponentId();
-                if (pits[lastPos] == 1) {
-                    int[] opponentsPits = players.get(player.getOpponentId()).getPits();
-                    int opponentsPos = pits.length - lastPos - 2;
-                    int opponentsSize = opponentsPits[opponentsPos];
-                    opponentsPits[opponentsPos] = 0;
-                    pits[lastPos] = 0;
-                    pits[pits.length - 1] += opponentsSize + 1;
-                }
-            }
-            BoardState boardState = new BoardState(players.values(), nextPlayerId);
-            for (PairedPlayer pairedPlayer : players.values())
-                boardState.write(pairedPlayer.getOutputSocket());
+            illegalStreaks[player.getSeat()] = 0;
+            moveCount++;
+            journal.move(key, player.getSeat(), pos);
+            if ((result & SowingEngine.EXTRA_TURN) == 0)
+                nextSeat = Board.opponentOf(nextSeat);
+            startTurn(System.nanoTime());
+            broadcastBoard();
         }
         complete();
     }
 
     /**
-     * Validates the given move and passes the control to {@link Game#onMove(String, int).}
+     * Sends the board update to the peers, each in the form its protocol
+     * dictates, and to the spectators in the full form.
+     */
+    private void broadcastBoard() {
+        BoardState boardState = null;
+        BoardDelta boardDelta = null;
+        for (PairedPlayer player : players) {
+            if (player.getProtocol() == Protocol.DELTA) {
+                if (boardDelta == null)
+                    boardDelta = BoardDelta.diff(lastCells, board, nextSeat);
+                player.getConnection().write(boardDelta);
+            }
+            else {
+                if (boardState == null)
+                    boardState = newBoardState();
+                player.getConnection().write(boardState);
+            }
+        }
+        if (audience != null && !audience.isEmpty()) {
+            if (boardState == null)
+                boardState = newBoardState();
+            // Encoded once for the players and every spectator.
+            audience.broadcast(boardState.toJson());
+        }
+    }
+
+    /**
+     * Checks the turn and passes the control to {@link Game#sow(PairedPlayer, int)}.
+     */
+    private void onMove(int seat, int pos) {
+        if (shutdown) return;
+        lastActivityNanos = System.nanoTime();
+        PairedPlayer player = players[seat];
+        log.trace("New move from {}: {}", player, pos);
+        if (nextSeat != seat) {
+            if (reject(player, IllegalMoveReason.OPPONENT_TURN))
+                player.getConnection().write(OPPONENT_TURN_MOVE);
+        }
+        else sow(player, pos);
+    }
+
+    /**
+     * Rejects a move that does not denote a pit index.
+     */
+    private void onMalformedMove(int seat, String move) {
+        if (shutdown) return;
+        lastActivityNanos = System.nanoTime();
+        PairedPlayer player = players[seat];
+        log.trace("New malformed move from {}: {}", player, move);
+        Connection connection = player.getConnection();
+        if (nextSeat != seat) {
+            if (reject(player, IllegalMoveReason.OPPONENT_TURN))
+                connection.write(OPPONENT_TURN_MOVE);
+        }
+        else if (reject(player, IllegalMoveReason.MALFORMED))
+            // Cast prevents resolving to the (type, reason) JSON creator.
+            connection.write(new IllegalMove("Invalid pit index: %s", (Object) move));
+    }
+
+    /**
+     * Asks the {@link HintService} for the move of the given seat, unless it is the turn of the opponent.
+     */
+    private void onHint(final int seat) {
+        if (shutdown) return;
+        lastActivityNanos = System.nanoTime();
+        PairedPlayer player = players[seat];
+        log.trace("New hint request from {}.", player);
+        // Not a move, hence neither counted nor forfeiting.
+        if (nextSeat != seat) {
+            player.getConnection().write(OPPONENT_TURN_MOVE);
+            return;
+        }
+        if (hintsPending[seat]) return;
+        hintsPending[seat] = true;
+        final int requestedMoveCount = moveCount;
+        Board copy = new Board(board.getVariant());
+        copy.copyFrom(board);
+        HintService.shared().request(copy, seat, new HintService.Listener() {
+            @Override
+            public void onHint(final int pos) {
+                mailbox.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        hintsPending[seat] = false;
+                        // Hints of former positions are of no use.
+                        if (!shutdown && moveCount == requestedMoveCount)
+                            players[seat].getConnection().write(new Hint(pos));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Counts an illegal move of the given player and tells whether to answer
+     * it. Only the first {@link Game#ILLEGAL_REPLIES} illegal moves in a row
+     * are answered, and the player forfeits once it makes
+     * {@link Game#ILLEGAL_LIMIT} in a row.
      */
-    private synchronized void onMove(String playerId, JsonNode move) {
-        ConnectedPlayer player = players.get(playerId);
-        log.trace("New move from {}: {}", player, move);
-        WebSocket.Out<JsonNode> out = player.getOutputSocket();
-        if (!nextPlayerId.equals(playerId))
-            new IllegalMove("It is opponent's turn.").write(out);
-        else try { onMove(playerId, Integer.parseInt(move.asText())); }
-        catch (NumberFormatException nfe) {
-            new IllegalMove("Invalid pit index: %s", move).write(out);
+    private boolean reject(PairedPlayer player, IllegalMoveReason reason) {
+        Metrics.recordIllegalMove(reason);
+        int streak = ++illegalStreaks[player.getSeat()];
+        if (ILLEGAL_LIMIT > 0 && streak >= ILLEGAL_LIMIT) {
+            Metrics.recordIllegalMoveForfeit();
+            log.debug("{} made {} illegal moves in a row in {}.", player, streak, this);
+            forfeit(player.getSeat());
+            return false;
         }
+        if (streak <= ILLEGAL_REPLIES) return true;
+        Metrics.recordSilencedIllegalMove();
+        return false;
     }
 
     @Override
@@ -0,0 +1,49 @@
+package models;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access to the game engine settings in {@code application.conf}.
+ *
+ * The configuration is read from the classpath directly rather than through
+ * the running Play application, so that the engine can be used outside of
+ * one, e.g., in unit tests and benchmarks. Missing settings resolve to the
+ * given defaults.
+ */
+public final class Settings {
+
+    private Settings() {}
+
+    private static final Config config = ConfigFactory.load();
+
+    public static int getInt(String path, int defaultValue) {
+        return config.hasPath(path) ? config.getInt(path) : defaultValue;
+    }
+
+    public static double getDouble(String path, double defaultValue) {
+        return config.hasPath(path) ? config.getDouble(path) : defaultValue;
+    }
+
+    public static long getLong(String path, long defaultValue) {
+        return config.hasPath(path) ? config.getLong(path) : defaultValue;
+    }
+
+    public static boolean getBoolean(String path, boolean defaultValue) {
+        return config.hasPath(path) ? config.getBoolean(path) : defaultValue;
+    }
+
+    public static String getString(String path, String defaultValue) {
+        return config.hasPath(path) ? config.getString(path) : defaultValue;
+    }
+
+    /**
+     * Returns the duration at the given path in the given unit.
+     */
+    public static long getDuration(String path, TimeUnit unit, long defaultValue) {
+        return config.hasPath(path) ? config.getDuration(path, unit) : defaultValue;
+    }
+
+}
@@ -0,0 +1,255 @@
+package models.bot;
+
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.tablebase.Tablebase;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Picks moves by iterative-deepening alpha-beta search over the {@link SowingEngine} rules.
+ *
+ * Scores are the store difference from the point of view of the seat to
+ * move, and finished games score {@link AlphaBetaSearch#WIN} on top of that.
+ * Since a move ending in the store grants an extra turn, the child score of
+ * such a move is not negated, as the same seat moves next.
+ *
+ * Every iteration searches the first root move on its own to establish a
+ * bound, and then the remaining root moves in parallel as fork-join tasks
+ * sharing the {@link TranspositionTable}. The search has to be invoked from
+ * within a {@link java.util.concurrent.ForkJoinPool} for the latter to run
+ * in parallel. Once the time budget elapses, the running iteration is
+ * abandoned and the best move of the last complete one is returned.
+ *
+ * Positions covered by the optional {@link Tablebase} are not searched,
+ * but scored as finished games right away.
+ */
+@ThreadSafe
+public class AlphaBetaSearch {
+
+    static final int WIN = 1000;
+    static final int INFINITY = 10000;
+    static final int MAX_DEPTH = 64;
+
+    /** Number of nodes between deadline checks. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final TranspositionTable table;
+    private final Tablebase tablebase;
+
+    public AlphaBetaSearch(TranspositionTable table) { this(table, null); }
+
+    /**
+     * @param tablebase of exact values, or null if there is none.
+     */
+    public AlphaBetaSearch(TranspositionTable table, Tablebase tablebase) {
+        this.table = table;
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * State shared by the tasks of a single search.
+     */
+    private static final class Deadline {
+
+        final long nanos;
+        volatile boolean expired;
+
+        Deadline(long nanos) { this.nanos = nanos; }
+
+    }
+
+    /**
+     * Returns the best move found for the given seat within the given time budget.
+     *
+     * @throws IllegalArgumentException if the given seat has no legal moves.
+     */
+    public int bestMove(Board board, int seat, long budgetNanos) {
+        Deadline deadline = new Deadline(System.nanoTime() + budgetNanos);
+        int[] moves = legalMoves(board, seat);
+        if (moves.length == 0)
+            throw new IllegalArgumentException("No legal moves for seat " + seat + '.');
+        int bestMove = moves[0];
+        if (moves.length == 1) return bestMove;
+        if (tablebase != null && tablebase.covers(board)) return tablebase.bestMove(board, seat);
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            int[] result = searchRoot(board, seat, depth, moves, deadline);
+            if (deadline.expired) break;
+            bestMove = result[0];
+            if (Math.abs(result[1]) >= WIN) break;
+            // Search the best move first in the next iteration.
+            for (int i = 0; i < moves.length; i++)
+                if (moves[i] == bestMove) {
+                    moves[i] = moves[0];
+                    moves[0] = bestMove;
+                    break;
+                }
+        }
+        return bestMove;
+    }
+
+    private static int[] legalMoves(Board board, int seat) {
+        int count = 0;
+        int[] moves = new int[Board.PITS];
+        for (int pos = Board.PITS - 1; pos >= 0; pos--)
+            if (board.pit(seat, pos) > 0) moves[count++] = pos;
+        int[] legal = new int[count];
+        System.arraycopy(moves, 0, legal, 0, count);
+        return legal;
+    }
+
+    /**
+     * Returns the best move along with its score at the given depth.
+     */
+    private int[] searchRoot(Board board, int seat, int depth, int[] moves, Deadline deadline) {
+        final RootTask first = new RootTask(board, seat, depth, moves[0], -INFINITY, deadline);
+        first.compute();
+        List<RootTask> rest = new ArrayList<>(moves.length - 1);
+        for (int i = 1; i < moves.length; i++)
+            rest.add(new RootTask(board, seat, depth, moves[i], first.score, deadline));
+        ForkJoinTask.invokeAll(rest);
+        int bestMove = first.move, bestScore = first.score;
+        for (RootTask task : rest)
+            if (task.score > bestScore) {
+                bestScore = task.score;
+                bestMove = task.move;
+            }
+        return new int[]{bestMove, bestScore};
+    }
+
+    @SuppressWarnings("serial")
+    private final class RootTask extends RecursiveAction {
+
+        final int move;
+        int score;
+        private final Searcher searcher;
+        private final int seat;
+        private final int depth;
+        private final int alpha;
+
+        RootTask(Board board, int seat, int depth, int move, int alpha, Deadline deadline) {
+            this.searcher = new Searcher(board, deadline);
+            this.seat = seat;
+            this.depth = depth;
+            this.move = move;
+            this.alpha = alpha;
+        }
+
+        @Override
+        protected void compute() { score = searcher.searchMove(seat, depth, move, alpha); }
+
+    }
+
+    /**
+     * Single-threaded alpha-beta search over a preallocated stack of boards.
+     */
+    private final class Searcher {
+
+        private final Board[] stack = new Board[MAX_DEPTH + 2];
+        private final Deadline deadline;
+        private int nodes;
+
+        Searcher(Board board, Deadline deadline) {
+            for (int ply = 0; ply < stack.length; ply++) stack[ply] = new Board();
+            stack[0].copyFrom(board);
+            this.deadline = deadline;
+        }
+
+        /**
+         * Returns the score of the given root move, or a bound at most the given alpha.
+         */
+        int searchMove(int seat, int depth, int move, int alpha) {
+            return child(0, seat, depth, move, alpha, INFINITY);
+        }
+
+        /**
+         * Makes the given move on top of the given ply, and scores the outcome for the mover.
+         * Returns {@link Integer#MIN_VALUE} if the move is illegal.
+         */
+        private int child(int ply, int seat, int depth, int move, int alpha, int beta) {
+            Board board = stack[ply + 1];
+            board.copyFrom(stack[ply]);
+            int result = SowingEngine.move(board, seat, move);
+            if (result < 0) return Integer.MIN_VALUE;
+            if ((result & SowingEngine.GAME_OVER) != 0) return terminal(board, seat);
+            if ((result & SowingEngine.EXTRA_TURN) != 0)
+                return search(ply + 1, seat, depth - 1, alpha, beta);
+            int opponent = Board.opponentOf(seat);
+            return -search(ply + 1, opponent, depth - 1, -beta, -alpha);
+        }
+
+        private int search(int ply, int seat, int depth, int alpha, int beta) {
+            if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline.nanos)
+                deadline.expired = true;
+            if (deadline.expired) return 0;
+            Board board = stack[ply];
+            if (tablebase != null && tablebase.covers(board))
+                return outcome(evaluate(board, seat) + tablebase.value(board, seat));
+            if (depth == 0) return evaluate(board, seat);
+
+            long hash = Zobrist.hash(board, seat);
+            long entry = table.probe(hash);
+            int hashMove = TranspositionTable.NO_MOVE;
+            if (entry != 0) {
+                hashMove = TranspositionTable.moveOf(entry);
+                if (TranspositionTable.depthOf(entry) >= depth) {
+                    int score = TranspositionTable.scoreOf(entry);
+                    switch (TranspositionTable.boundOf(entry)) {
+                        case TranspositionTable.EXACT: return score;
+                        case TranspositionTable.LOWER: alpha = Math.max(alpha, score); break;
+                        case TranspositionTable.UPPER: beta = Math.min(beta, score); break;
+                    }
+                    if (alpha >= beta) return score;
+                }
+            }
+
+            int originalAlpha = alpha;
+            int bestScore = -INFINITY, bestMove = TranspositionTable.NO_MOVE;
+            // Hash move first, then the pits closest to the store.
+            for (int i = -1; i < Board.PITS; i++) {
+                int move = i < 0 ? hashMove : Board.PITS - 1 - i;
+                if (move == TranspositionTable.NO_MOVE || (i >= 0 && move == hashMove)) continue;
+                int score = child(ply, seat, depth, move, alpha, beta);
+                if (score == Integer.MIN_VALUE) continue;
+                if (deadline.expired) return 0;
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                    if (score > alpha) alpha = score;
+                    if (alpha >= beta) break;
+                }
+            }
+
+            int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER
+                    : bestScore >= beta ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT;
+            table.store(hash, bestScore, depth, bound, bestMove);
+            return bestScore;
+        }
+
+    }
+
+    /**
+     * Scores an unfinished board for the given seat.
+     */
+    static int evaluate(Board board, int seat) {
+        return board.score(seat) - board.score(Board.opponentOf(seat));
+    }
+
+    /**
+     * Scores a finished board for the given seat, where the higher store wins.
+     */
+    static int terminal(Board board, int seat) { return outcome(evaluate(board, seat)); }
+
+    /**
+     * Scores the given final store difference.
+     */
+    static int outcome(int difference) {
+        return difference > 0 ? WIN + difference : difference < 0 ? difference - WIN : 0;
+    }
+
+}
@@ -0,0 +1,102 @@
+package models.bot;
+
+import models.connection.Connection;
+import models.event.BoardDelta;
+import models.event.BoardSnapshot;
+import models.event.Event;
+import models.player.Protocol;
+import models.rules.Board;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+
+/**
+ * In-process {@link Connection} of a bot, standing in for a socket pair.
+ *
+ * The bot speaks the {@link Protocol#DELTA} protocol, keeping the packed
+ * board up to date out of {@link BoardSnapshot}s and {@link BoardDelta}s.
+ * Whenever it is the turn of the bot, the board is searched on the given
+ * executor and the chosen move is passed to the {@link MoveListener}, just
+ * as if it was decoded out of an inbound frame. Events are written by the
+ * game one at a time, and the listener is installed by the game in between,
+ * hence the board needs no synchronization.
+ */
+public class BotConnection extends Connection {
+
+    private static final Logger log = LoggerFactory.getLogger(BotConnection.class);
+
+    private final AlphaBetaSearch search;
+    private final Executor executor;
+    private final long budgetNanos;
+    private final int[] cells = new int[Board.SIZE];
+    private volatile String playerId;
+    private volatile MoveListener listener;
+    private int seat = -1;
+    /** Set if the turn of the bot came before the listener was installed. */
+    private boolean pending;
+
+    public BotConnection(AlphaBetaSearch search, Executor executor, long budgetNanos) {
+        super(Protocol.DELTA);
+        this.search = search;
+        this.executor = executor;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Tells the connection the id of the player it belongs to, so that it can find its seat.
+     */
+    public void bind(String playerId) { this.playerId = playerId; }
+
+    @Override
+    public void write(Event event) {
+        if (event instanceof BoardSnapshot) {
+            BoardSnapshot snapshot = (BoardSnapshot) event;
+            System.arraycopy(snapshot.pits, 0, cells, 0, Board.SIZE);
+            for (int i = 0; i < snapshot.seats.length; i++)
+                if (snapshot.seats[i].equals(playerId)) seat = i;
+            onBoard(snapshot.next);
+        }
+        else if (event instanceof BoardDelta) {
+            BoardDelta delta = (BoardDelta) event;
+            for (int i = 0; i < delta.changes.length; i += 2)
+                cells[delta.changes[i]] = delta.changes[i + 1];
+            onBoard(delta.next);
+        }
+        else log.trace("{} received {}.", this, event);
+    }
+
+    private void onBoard(int next) {
+        if (next != seat || !isOpen()) return;
+        if (listener == null) pending = true;
+        else think();
+    }
+
+    private void think() {
+        final Board board = new Board(cells);
+        if (board.isOver()) return;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int move = search.bestMove(board, seat, budgetNanos);
+                if (isOpen()) listener.onMove(move);
+            }
+        });
+    }
+
+    @Override
+    public void close() { onClosed(); }
+
+    @Override
+    public void onMove(MoveListener listener) {
+        this.listener = listener;
+        if (pending) {
+            pending = false;
+            think();
+        }
+    }
+
+    @Override
+    public String toString() { return String.format("BotConnection[%s]", playerId); }
+
+}
@@ -0,0 +1,59 @@
+package models.bot;
+
+import models.Settings;
+import models.player.ConnectedPlayer;
+import models.rating.Ratings;
+import models.rules.Variant;
+import models.tablebase.Tablebase;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates bot players filling empty seats, configured in {@code application.conf}.
+ *
+ * Bots search on a fork-join pool of their own, sized by
+ * {@code game.bot.parallelism}, hence bot games cannot starve the game
+ * executor of threads. Every move is given {@code game.bot.budget} time,
+ * and all searches share a {@link TranspositionTable} of
+ * {@code game.bot.tableSize} entries along with the shared {@link Tablebase},
+ * if any.
+ */
+public final class Bots {
+
+    private Bots() {}
+
+    private static final class Holder {
+        static final ForkJoinPool pool = new ForkJoinPool(Settings.getInt(
+                "game.bot.parallelism",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+        static final AlphaBetaSearch search = new AlphaBetaSearch(
+                new TranspositionTable(Settings.getInt("game.bot.tableSize", 1 << 20)),
+                Tablebase.shared());
+        static final long budgetNanos = Settings.getDuration("game.bot.budget", TimeUnit.NANOSECONDS,
+                TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    /**
+     * Checks if a bot should join players that waited for {@link Bots#getWaitMillis} in vain.
+     */
+    public static boolean isEnabled() { return Settings.getBoolean("game.bot.enabled", true); }
+
+    public static long getWaitMillis() {
+        return Settings.getDuration("game.bot.wait", TimeUnit.MILLISECONDS, 10000);
+    }
+
+    public static ConnectedPlayer newPlayer() { return newPlayer(Ratings.INITIAL_RATING); }
+
+    /**
+     * Creates a bot posing as a player of the given rating, so that it fits
+     * in the band of the player it joins for. Bots are not rated themselves.
+     */
+    public static ConnectedPlayer newPlayer(int rating) {
+        BotConnection connection = new BotConnection(Holder.search, Holder.pool, Holder.budgetNanos);
+        ConnectedPlayer player = new ConnectedPlayer(connection, Variant.STANDARD, rating);
+        connection.bind(player.getId());
+        return player;
+    }
+
+}
@@ -0,0 +1,73 @@
+package models.bot;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, fixed-size cache of search results shared by concurrent searches.
+ *
+ * Every slot is a pair of longs: the packed entry, and the position hash
+ * xor'ed with the entry. A reader accepts an entry only if xor'ing both
+ * words gives back the hash it probes for, hence torn writes of racing
+ * searches are detected as misses rather than being read as corrupt
+ * entries. Entries are always replaced, which favours recent searches.
+ *
+ * An entry packs the score (16 bits), the remaining depth (8 bits), the
+ * {@link TranspositionTable#EXACT}, {@link TranspositionTable#LOWER} or
+ * {@link TranspositionTable#UPPER} bound type (2 bits) and the best move
+ * (4 bits). A zero entry never denotes a stored result, since stored depths
+ * are positive.
+ */
+@ThreadSafe
+public class TranspositionTable {
+
+    static final int EXACT = 0;
+    static final int LOWER = 1;
+    static final int UPPER = 2;
+
+    static final int NO_MOVE = 0xF;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * @param capacity number of entries, rounded up to a power of two.
+     */
+    public TranspositionTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicLongArray(2 * size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the entry stored for the given hash, or zero if there is none.
+     */
+    long probe(long hash) {
+        int slot = 2 * ((int) (hash ^ (hash >>> 32)) & mask);
+        long entry = slots.get(slot + 1);
+        return (slots.get(slot) ^ entry) == hash ? entry : 0;
+    }
+
+    void store(long hash, int score, int depth, int bound, int move) {
+        int slot = 2 * ((int) (hash ^ (hash >>> 32)) & mask);
+        long entry = pack(score, depth, bound, move);
+        slots.lazySet(slot + 1, entry);
+        slots.lazySet(slot, hash ^ entry);
+    }
+
+    static long pack(int score, int depth, int bound, int move) {
+        return ((score + 0x8000) & 0xFFFFL)
+                | ((long) (depth & 0xFF) << 16)
+                | ((long) bound << 24)
+                | ((long) (move & 0xF) << 26);
+    }
+
+    static int scoreOf(long entry) { return (int) (entry & 0xFFFF) - 0x8000; }
+
+    static int depthOf(long entry) { return (int) (entry >>> 16) & 0xFF; }
+
+    static int boundOf(long entry) { return (int) (entry >>> 24) & 0x3; }
+
+    static int moveOf(long entry) { return (int) (entry >>> 26) & 0xF; }
+
+}
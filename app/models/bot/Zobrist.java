@@ -0,0 +1,38 @@
+package models.bot;
+
+import models.rules.Board;
+
+import java.util.Random;
+
+/**
+ * Zobrist hashing of positions, that is, a board along with the seat to move.
+ *
+ * Every (cell, stone count) pair is assigned a random 64-bit key, and the
+ * hash of a position is the exclusive or of the keys of its cells, flipped
+ * by {@link Zobrist#SEAT_KEY} if the upper seat is not to move.
+ */
+final class Zobrist {
+
+    private Zobrist() {}
+
+    /** Total number of stones in the game, hence the highest count of a cell. */
+    static final int MAX_STONES = 2 * Board.PITS * Board.INITIAL_STONES;
+
+    private static final long[] KEYS = new long[Board.SIZE * (MAX_STONES + 1)];
+    private static final long SEAT_KEY;
+
+    static {
+        // Fixed seed keeps hashes reproducible across runs.
+        Random random = new Random(0x5EED);
+        for (int i = 0; i < KEYS.length; i++) KEYS[i] = random.nextLong();
+        SEAT_KEY = random.nextLong();
+    }
+
+    static long hash(Board board, int seat) {
+        long hash = seat == 0 ? 0 : SEAT_KEY;
+        for (int i = 0; i < Board.SIZE; i++)
+            hash ^= KEYS[i * (MAX_STONES + 1) + board.cell(i)];
+        return hash;
+    }
+
+}
@@ -0,0 +1,220 @@
+package models.cluster;
+
+import models.player.Protocol;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Message exchanged by {@link ClusterNode}s, concerning a single player.
+ *
+ * Messages are encoded as
+ *
+ * <pre>
+ * u8 type, string playerId, type-specific fields...
+ * JOIN            string variant, u8 protocol, u16 rating
+ * PAIR            string variant, string opponentId, string opponentNode, u8 opponent protocol,
+ *                 u16 opponent rating
+ * EVENT           u16 frame length, frame bytes
+ * MOVE            i32 pos
+ * MALFORMED_MOVE  string move
+ * CLOSE
+ * HINT
+ * RATING          u16 rating
+ * JOINED
+ * </pre>
+ *
+ * where strings are in modified UTF-8 as written by {@link DataOutput#writeUTF}.
+ */
+@Immutable
+public final class ClusterMessage {
+
+    public enum Type {
+        /** Player of the sender looks for an opponent through the coordinator of the variant. */
+        JOIN,
+        /** Coordinator hands over a pair to the node of the player, which is to host the game. */
+        PAIR,
+        /** Game sends a {@link models.event.BinaryCodec} frame to the node of the player. */
+        EVENT,
+        /** Node of the player passes a move on to the game. */
+        MOVE,
+        MALFORMED_MOVE,
+        /** Either side of a remote player tells the other that the player is gone. */
+        CLOSE,
+        /** Node of the player passes a hint request on to the game. */
+        HINT,
+        /** Game tells the node of the player its rating after the game. */
+        RATING,
+        /** Coordinator acknowledges a JOIN, see {@link ClusterNode#join}. */
+        JOINED
+    }
+
+    private static final Type[] TYPES = Type.values();
+    private static final Protocol[] PROTOCOLS = Protocol.values();
+
+    static final int MAX_MOVE_LENGTH = 256;
+
+    public final Type type;
+    public final String playerId;
+    /** Variant name of JOIN and PAIR. */
+    public final String variant;
+    /** Protocol of the player of JOIN, of the opponent of PAIR. */
+    public final Protocol protocol;
+    /** Opponent player of PAIR, and the node it is connected to. */
+    public final String opponentId;
+    public final String opponentNode;
+    /** Frame of EVENT. */
+    public final byte[] frame;
+    /** Pit index of MOVE. */
+    public final int pos;
+    /** Textual representation of MALFORMED_MOVE. */
+    public final String move;
+    /** Rating of the player of JOIN and RATING, of the opponent of PAIR. */
+    public final int rating;
+
+    private ClusterMessage(
+            Type type, String playerId, String variant, Protocol protocol,
+            String opponentId, String opponentNode, byte[] frame, int pos, String move, int rating) {
+        this.type = type;
+        this.playerId = playerId;
+        this.variant = variant;
+        this.protocol = protocol;
+        this.opponentId = opponentId;
+        this.opponentNode = opponentNode;
+        this.frame = frame;
+        this.pos = pos;
+        this.move = move;
+        this.rating = rating;
+    }
+
+    public static ClusterMessage join(String playerId, String variant, Protocol protocol, int rating) {
+        return new ClusterMessage(Type.JOIN, playerId, variant, protocol, null, null, null, 0, null, rating);
+    }
+
+    public static ClusterMessage pair(
+            String playerId, String variant, String opponentId, String opponentNode, Protocol opponentProtocol,
+            int opponentRating) {
+        return new ClusterMessage(Type.PAIR, playerId, variant, opponentProtocol, opponentId, opponentNode,
+                null, 0, null, opponentRating);
+    }
+
+    public static ClusterMessage event(String playerId, byte[] frame) {
+        return new ClusterMessage(Type.EVENT, playerId, null, null, null, null, frame, 0, null, 0);
+    }
+
+    public static ClusterMessage move(String playerId, int pos) {
+        return new ClusterMessage(Type.MOVE, playerId, null, null, null, null, null, pos, null, 0);
+    }
+
+    /**
+     * Creates a MALFORMED_MOVE message, truncating the move to {@link ClusterMessage#MAX_MOVE_LENGTH} characters.
+     */
+    public static ClusterMessage malformedMove(String playerId, String move) {
+        if (move.length() > MAX_MOVE_LENGTH) move = move.substring(0, MAX_MOVE_LENGTH);
+        return new ClusterMessage(Type.MALFORMED_MOVE, playerId, null, null, null, null, null, 0, move, 0);
+    }
+
+    public static ClusterMessage close(String playerId) {
+        return new ClusterMessage(Type.CLOSE, playerId, null, null, null, null, null, 0, null, 0);
+    }
+
+    public static ClusterMessage hint(String playerId) {
+        return new ClusterMessage(Type.HINT, playerId, null, null, null, null, null, 0, null, 0);
+    }
+
+    public static ClusterMessage rating(String playerId, int rating) {
+        return new ClusterMessage(Type.RATING, playerId, null, null, null, null, null, 0, null, rating);
+    }
+
+    public static ClusterMessage joined(String playerId) {
+        return new ClusterMessage(Type.JOINED, playerId, null, null, null, null, null, 0, null, 0);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeUTF(playerId);
+        switch (type) {
+            case JOIN:
+                out.writeUTF(variant);
+                out.writeByte(protocol.ordinal());
+                out.writeShort(rating);
+                break;
+            case PAIR:
+                out.writeUTF(variant);
+                out.writeUTF(opponentId);
+                out.writeUTF(opponentNode);
+                out.writeByte(protocol.ordinal());
+                out.writeShort(rating);
+                break;
+            case EVENT:
+                out.writeShort(frame.length);
+                out.write(frame);
+                break;
+            case MOVE:
+                out.writeInt(pos);
+                break;
+            case MALFORMED_MOVE:
+                out.writeUTF(move);
+                break;
+            case RATING:
+                out.writeShort(rating);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Reads a message written by {@link ClusterMessage#writeTo}.
+     *
+     * @throws IOException if the input is not a message.
+     */
+    public static ClusterMessage readFrom(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= TYPES.length) throw new IOException("Unknown message type: " + ordinal);
+        String playerId = in.readUTF();
+        switch (TYPES[ordinal]) {
+            case JOIN: {
+                String variant = in.readUTF();
+                Protocol protocol = readProtocol(in);
+                return join(playerId, variant, protocol, in.readUnsignedShort());
+            }
+            case PAIR: {
+                String variant = in.readUTF();
+                String opponentId = in.readUTF();
+                String opponentNode = in.readUTF();
+                Protocol protocol = readProtocol(in);
+                return pair(playerId, variant, opponentId, opponentNode, protocol, in.readUnsignedShort());
+            }
+            case EVENT: {
+                byte[] frame = new byte[in.readUnsignedShort()];
+                in.readFully(frame);
+                return event(playerId, frame);
+            }
+            case MOVE:
+                return move(playerId, in.readInt());
+            case MALFORMED_MOVE:
+                return malformedMove(playerId, in.readUTF());
+            case HINT:
+                return hint(playerId);
+            case RATING:
+                return rating(playerId, in.readUnsignedShort());
+            case JOINED:
+                return joined(playerId);
+            default:
+                return close(playerId);
+        }
+    }
+
+    private static Protocol readProtocol(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= PROTOCOLS.length) throw new IOException("Unknown protocol: " + ordinal);
+        return PROTOCOLS[ordinal];
+    }
+
+    @Override
+    public String toString() { return String.format("%s[%s]", type, playerId); }
+
+}
@@ -0,0 +1,418 @@
+package models.cluster;
+
+import models.Settings;
+import models.connection.Connection;
+import models.event.BinaryCodec;
+import models.matchmaking.Matchmaker;
+import models.player.ConnectedPlayer;
+import models.rating.Ratings;
+import models.rules.Variant;
+import models.timer.Timers;
+import models.timer.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.libs.F;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Node of a cluster sharing the players of every {@link Variant}.
+ *
+ * Each variant has a coordinator node, picked by hashing its name over the
+ * sorted node names, hence every node agrees on it without talking to the
+ * others. Players of a variant join the {@link Matchmaker} of its
+ * coordinator: local players right away, remote ones through a
+ * {@link RemoteConnection} standing in for their connection.
+ *
+ * The coordinator acknowledges every JOIN. A node that gets no
+ * acknowledgement within {@code game.cluster.joinTimeout} suspects the
+ * coordinator to be down for {@link ClusterNode#SUSPICION_NANOS}, or until
+ * it hears from it again, and joins the player again, through the next node
+ * it does not suspect in the sorted order, which might be itself. Nodes
+ * suspecting different coordinators pair their players apart meanwhile, but
+ * no player is left waiting on a node that is gone.
+ *
+ * Games are started on the node of one of their players, so that at most
+ * one hop separates a game from each of its players:
+ *
+ * <ul>
+ *     <li>If either player of a pair is connected to the coordinator, the game is started there.</li>
+ *     <li>Otherwise the pair is handed over to the node of the upper player,
+ *     which starts the game unless either player left in the meantime.
+ *     The one left behind then joins again, if connected to that node.</li>
+ * </ul>
+ *
+ * Once a game is started, its events flow to the node of each remote player,
+ * and the moves of the player flow back to the node of the game, until
+ * either side tells the other that the player is gone.
+ *
+ * Players are rated by their own nodes: joins carry the rating of the
+ * player to the coordinator, and the node of a game passes the ratings
+ * after the game back to the nodes of its remote players.
+ */
+@ThreadSafe
+public class ClusterNode implements MessageBus.Receiver {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterNode.class);
+
+    static final long SUSPICION_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final class Defaults {
+        static final long joinTimeoutNanos = Settings.getDuration(
+                "game.cluster.joinTimeout", TimeUnit.NANOSECONDS, TimeUnit.SECONDS.toNanos(2));
+    }
+
+    /**
+     * Starts the games of the pairs formed by the cluster, on this node.
+     */
+    public interface GameStarter {
+
+        /**
+         * Called with the longer waiting player as the upper player.
+         */
+        public void startGame(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer);
+
+    }
+
+    /**
+     * Local player whose game, or matchmaker, is on another node.
+     */
+    private final class Forward implements Connection.MoveListener {
+
+        final ConnectedPlayer player;
+        /** Node to send the moves and the close of the player to. */
+        volatile String route;
+        final AtomicBoolean routed = new AtomicBoolean(false);
+        /** Set once the coordinator acknowledges the JOIN. */
+        volatile boolean joined;
+
+        Forward(ConnectedPlayer player, String route) {
+            this.player = player;
+            this.route = route;
+        }
+
+        /**
+         * Writes the event of the given frame, and sends the moves of the player to the sending node from now on.
+         */
+        void relay(String from, byte[] frame) {
+            route = from;
+            Connection connection = player.getConnection();
+            // Connections add rather than replace listeners, hence install once and read the route on every move.
+            if (routed.compareAndSet(false, true)) connection.onMove(this);
+            connection.write(BinaryCodec.decode(frame));
+        }
+
+        @Override
+        public void onMove(int pos) { bus.send(route, ClusterMessage.move(player.getId(), pos)); }
+
+        @Override
+        public void onMalformedMove(String move) {
+            bus.send(route, ClusterMessage.malformedMove(player.getId(), move));
+        }
+
+        @Override
+        public void onHint() { bus.send(route, ClusterMessage.hint(player.getId())); }
+
+    }
+
+    private final MessageBus bus;
+    private final String nodeId;
+    private final List<String> nodeIds;
+    private final Map<Variant, Matchmaker> matchmakers;
+    private final GameStarter starter;
+    private final Ratings ratings;
+    private final TimingWheel timers;
+    private final long joinTimeoutNanos;
+    /** Nodes that did not acknowledge a JOIN in time, along with when they did not. */
+    private final ConcurrentMap<String, Long> suspects = new ConcurrentHashMap<>();
+    /** Remote players paired or waiting on this node, by their ids. */
+    private final ConcurrentMap<String, RemoteConnection> stubs = new ConcurrentHashMap<>();
+    /** Local players paired or waiting on other nodes, by their ids. */
+    private final ConcurrentMap<String, Forward> forwards = new ConcurrentHashMap<>();
+
+    /**
+     * @param nodeIds names of every node of the cluster including this one.
+     * @param variants supported by the cluster.
+     */
+    public ClusterNode(MessageBus bus, Collection<String> nodeIds, Collection<Variant> variants, GameStarter starter) {
+        this(bus, nodeIds, variants, starter, Ratings.shared());
+    }
+
+    /**
+     * @param ratings of the players of this node.
+     */
+    public ClusterNode(
+            MessageBus bus, Collection<String> nodeIds, Collection<Variant> variants, GameStarter starter,
+            Ratings ratings) {
+        this(bus, nodeIds, variants, starter, ratings, Timers.shared(), Defaults.joinTimeoutNanos);
+    }
+
+    /**
+     * @param timers timing the acknowledgements of JOINs.
+     * @param joinTimeoutNanos time the coordinator has to acknowledge a JOIN.
+     */
+    public ClusterNode(
+            MessageBus bus, Collection<String> nodeIds, Collection<Variant> variants, GameStarter starter,
+            Ratings ratings, TimingWheel timers, long joinTimeoutNanos) {
+        this.bus = bus;
+        this.nodeId = bus.getNodeId();
+        List<String> sorted = new ArrayList<>(new TreeSet<>(nodeIds));
+        if (!sorted.contains(nodeId))
+            throw new IllegalArgumentException("Node " + nodeId + " is not in the cluster " + sorted);
+        this.nodeIds = Collections.unmodifiableList(sorted);
+        Matchmaker.PairingListener listener = new Matchmaker.PairingListener() {
+            @Override
+            public void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+                ClusterNode.this.onPaired(upperPlayer, lowerPlayer);
+            }
+        };
+        Map<Variant, Matchmaker> matchmakers = new LinkedHashMap<>();
+        for (Variant variant : variants)
+            if (!matchmakers.containsKey(variant)) matchmakers.put(variant, new Matchmaker(listener));
+        this.matchmakers = Collections.unmodifiableMap(matchmakers);
+        this.starter = starter;
+        this.ratings = ratings;
+        this.timers = timers;
+        this.joinTimeoutNanos = joinTimeoutNanos;
+    }
+
+    /**
+     * Starts receiving messages from the other nodes.
+     */
+    public ClusterNode start() {
+        bus.start(this);
+        return this;
+    }
+
+    public void close() { bus.close(); }
+
+    public String getNodeId() { return nodeId; }
+
+    public List<String> getNodeIds() { return nodeIds; }
+
+    public boolean supports(Variant variant) { return matchmakers.containsKey(variant); }
+
+    /**
+     * Returns the matchmaker of the given variant, which pairs players only if this node coordinates the variant.
+     */
+    public Matchmaker getMatchmaker(Variant variant) { return matchmakers.get(variant); }
+
+    public Collection<Matchmaker> getMatchmakers() { return matchmakers.values(); }
+
+    /**
+     * Returns the name of the node pairing the players of the given variant:
+     * the one its name hashes to, or the next one not suspected to be down.
+     */
+    public String getCoordinator(Variant variant) {
+        int first = (variant.hashCode() & 0x7fffffff) % nodeIds.size();
+        long now = System.nanoTime();
+        for (int i = 0; i < nodeIds.size(); i++) {
+            String candidate = nodeIds.get((first + i) % nodeIds.size());
+            if (candidate.equals(nodeId) || !isSuspect(candidate, now)) return candidate;
+        }
+        return nodeId;
+    }
+
+    private boolean isSuspect(String node, long now) {
+        Long since = suspects.get(node);
+        if (since == null) return false;
+        if (now - since < SUSPICION_NANOS) return true;
+        suspects.remove(node, since);
+        return false;
+    }
+
+    /**
+     * Looks for an opponent of the given local player.
+     *
+     * @return the ticket of the player if this node coordinates its variant, null otherwise.
+     */
+    public Matchmaker.Ticket join(ConnectedPlayer player) {
+        String coordinator = getCoordinator(player.getVariant());
+        if (coordinator.equals(nodeId)) return matchmakers.get(player.getVariant()).join(player);
+        final String id = player.getId();
+        final Forward forward = new Forward(player, coordinator);
+        forwards.put(id, forward);
+        bus.send(coordinator, ClusterMessage.join(
+                id, player.getVariant().getName(), player.getProtocol(), player.getRating()));
+        timers.schedule(new Runnable() {
+            @Override
+            public void run() { onJoinTimeout(forward); }
+        }, joinTimeoutNanos, TimeUnit.NANOSECONDS);
+        player.getConnection().onClose(new F.Callback0() {
+            @Override
+            public void invoke() throws Throwable {
+                if (forwards.remove(id, forward)) bus.send(forward.route, ClusterMessage.close(id));
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Joins the given player again, through another coordinator, unless the JOIN is acknowledged by now.
+     */
+    private void onJoinTimeout(Forward forward) {
+        String id = forward.player.getId();
+        if (forward.joined || !forwards.remove(id, forward)) return;
+        String coordinator = forward.route;
+        suspects.put(coordinator, System.nanoTime());
+        log.warn("Node {} did not acknowledge {} in time, joining elsewhere.", coordinator, forward.player);
+        // In case it is merely slow.
+        bus.send(coordinator, ClusterMessage.close(id));
+        if (forward.player.getConnection().isOpen()) join(forward.player);
+    }
+
+    /**
+     * Records the rating of the given player after a game on this node, on the node of the player.
+     */
+    public void updateRating(ConnectedPlayer player, int rating) {
+        Connection connection = player.getConnection();
+        if (connection instanceof RemoteConnection)
+            bus.send(((RemoteConnection) connection).getHome(), ClusterMessage.rating(player.getId(), rating));
+        else ratings.update(player.getId(), rating);
+    }
+
+    void send(String to, ClusterMessage message) { bus.send(to, message); }
+
+    /**
+     * Forgets the given remote player, telling its node to close the actual connection if so requested.
+     *
+     * @return false if the player was already forgotten.
+     */
+    boolean release(RemoteConnection stub, boolean notify) {
+        if (!stubs.remove(stub.getPlayerId(), stub)) return false;
+        if (notify) bus.send(stub.getHome(), ClusterMessage.close(stub.getPlayerId()));
+        return true;
+    }
+
+    private RemoteConnection newStub(String home, String playerId, ClusterMessage message) {
+        RemoteConnection stub = new RemoteConnection(this, home, playerId, message.protocol);
+        RemoteConnection previous = stubs.put(playerId, stub);
+        if (previous != null) previous.onPeerClosed();
+        return stub;
+    }
+
+    private void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+        Connection upper = upperPlayer.getConnection();
+        Connection lower = lowerPlayer.getConnection();
+        if (!(upper instanceof RemoteConnection) || !(lower instanceof RemoteConnection)) {
+            starter.startGame(upperPlayer, lowerPlayer);
+            return;
+        }
+        RemoteConnection upperStub = (RemoteConnection) upper;
+        RemoteConnection lowerStub = (RemoteConnection) lower;
+        if (!upper.isOpen() || !lower.isOpen()) {
+            // Closed while being paired, the other player joins again.
+            if (upper.isOpen()) matchmakers.get(upperPlayer.getVariant()).join(upperPlayer);
+            if (lower.isOpen()) matchmakers.get(lowerPlayer.getVariant()).join(lowerPlayer);
+            return;
+        }
+        // Closes racing with the hand over are left to the node of the upper player, which knows better.
+        release(upperStub, false);
+        release(lowerStub, false);
+        bus.send(upperStub.getHome(), ClusterMessage.pair(
+                upperPlayer.getId(), upperPlayer.getVariant().getName(),
+                lowerPlayer.getId(), lowerStub.getHome(), lowerStub.getProtocol(), lowerPlayer.getRating()));
+        log.trace("Handed {} and {} over to {}.", upperPlayer, lowerPlayer, upperStub.getHome());
+    }
+
+    @Override
+    public void onMessage(String from, ClusterMessage message) {
+        String playerId = message.playerId;
+        // Heard from, hence not down.
+        if (!suspects.isEmpty()) suspects.remove(from);
+        switch (message.type) {
+            case JOIN: {
+                Variant variant = Variant.fromName(message.variant);
+                if (variant == null || !supports(variant)) {
+                    log.warn("Node {} sent a player of unsupported variant {}.", from, message.variant);
+                    bus.send(from, ClusterMessage.close(playerId));
+                    return;
+                }
+                bus.send(from, ClusterMessage.joined(playerId));
+                RemoteConnection stub = newStub(from, playerId, message);
+                matchmakers.get(variant).join(new ConnectedPlayer(stub, variant, playerId, message.rating));
+                return;
+            }
+            case PAIR:
+                onPair(message);
+                return;
+            case EVENT: {
+                Forward forward = forwards.get(playerId);
+                if (forward == null) {
+                    // Player left, the close might still be on its way to the previous route.
+                    bus.send(from, ClusterMessage.close(playerId));
+                    return;
+                }
+                forward.relay(from, message.frame);
+                return;
+            }
+            case MOVE: {
+                RemoteConnection stub = stubs.get(playerId);
+                if (stub != null && stub.getHome().equals(from)) stub.deliverMove(message.pos);
+                return;
+            }
+            case MALFORMED_MOVE: {
+                RemoteConnection stub = stubs.get(playerId);
+                if (stub != null && stub.getHome().equals(from)) stub.deliverMalformedMove(message.move);
+                return;
+            }
+            case HINT: {
+                RemoteConnection stub = stubs.get(playerId);
+                if (stub != null && stub.getHome().equals(from)) stub.deliverHint();
+                return;
+            }
+            case RATING:
+                // Sent before the close of the player, if any, hence the player might have left already.
+                ratings.update(playerId, message.rating);
+                return;
+            case JOINED: {
+                Forward forward = forwards.get(playerId);
+                if (forward != null && forward.route.equals(from)) forward.joined = true;
+                return;
+            }
+            case CLOSE: {
+                RemoteConnection stub = stubs.get(playerId);
+                if (stub != null && stub.getHome().equals(from) && release(stub, false)) stub.onPeerClosed();
+                Forward forward = forwards.remove(playerId);
+                if (forward != null) forward.player.getConnection().close();
+                return;
+            }
+            default:
+                log.warn("Node {} sent unknown {}.", from, message);
+        }
+    }
+
+    /**
+     * Starts the game of a pair handed over by the coordinator.
+     */
+    private void onPair(ClusterMessage message) {
+        Variant variant = Variant.fromName(message.variant);
+        Forward upper = forwards.remove(message.playerId);
+        ConnectedPlayer lowerPlayer;
+        boolean lowerIsLocal = message.opponentNode.equals(nodeId);
+        if (lowerIsLocal) {
+            Forward lower = forwards.remove(message.opponentId);
+            lowerPlayer = lower == null ? null : lower.player;
+        }
+        else lowerPlayer = new ConnectedPlayer(
+                newStub(message.opponentNode, message.opponentId, message), variant, message.opponentId,
+                message.rating);
+
+        if (upper != null && lowerPlayer != null) {
+            starter.startGame(upper.player, lowerPlayer);
+            log.trace("Started the game of {} and {} handed over.", upper.player, lowerPlayer);
+        }
+        else if (upper != null) join(upper.player);
+        else if (lowerPlayer != null) {
+            // Remote lower players cannot join on behalf of their node, hence close.
+            if (lowerIsLocal) join(lowerPlayer);
+            else lowerPlayer.getConnection().close();
+        }
+    }
+
+}
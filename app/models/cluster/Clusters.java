@@ -0,0 +1,92 @@
+package models.cluster;
+
+import models.Settings;
+import models.rules.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Provides the {@link ClusterNode} of this process out of {@code application.conf}.
+ *
+ * The cluster is listed by {@code game.cluster.nodes} as comma separated
+ * {@code name=host:port} entries, and this node is the one named by
+ * {@code game.ids.node}. The nodes prove to each other that they are part of
+ * the cluster by the shared {@code game.cluster.secret}, see {@link TcpBus}. Without a list, the node stands alone on a
+ * {@link LoopbackBus}. A node listed in a cluster never falls back to
+ * standing alone, which would split the players of the cluster without
+ * anyone noticing, but fails to start instead.
+ */
+public final class Clusters {
+
+    private Clusters() {}
+
+    private static final Logger log = LoggerFactory.getLogger(Clusters.class);
+
+    static final String STANDALONE = "local";
+
+    /**
+     * Parses the given {@code name=host:port} list.
+     *
+     * @throws IllegalArgumentException if an entry is malformed.
+     */
+    public static Map<String, InetSocketAddress> parseNodes(String nodes) {
+        Map<String, InetSocketAddress> addresses = new LinkedHashMap<>();
+        if (nodes == null) return addresses;
+        for (String entry : nodes.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+            int eq = entry.indexOf('=');
+            int colon = entry.lastIndexOf(':');
+            if (eq <= 0 || colon < eq)
+                throw new IllegalArgumentException("Invalid cluster node, expected name=host:port: " + entry);
+            try {
+                addresses.put(entry.substring(0, eq).trim(), new InetSocketAddress(
+                        entry.substring(eq + 1, colon).trim(), Integer.parseInt(entry.substring(colon + 1).trim())));
+            }
+            catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException("Invalid cluster node port: " + entry, nfe);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Creates this node out of the settings, and starts it.
+     *
+     * @param variants supported by the cluster, expected to be the same on every node.
+     * @throws IllegalStateException if a cluster is listed, but this node is not named, there is no
+     *         secret, or the node cannot join it.
+     */
+    public static ClusterNode start(Collection<Variant> variants, ClusterNode.GameStarter starter) {
+        String nodeId = Settings.getString("game.ids.node", "");
+        Map<String, InetSocketAddress> nodes = parseNodes(Settings.getString("game.cluster.nodes", null));
+        if (!nodes.isEmpty()) {
+            if (nodeId.isEmpty())
+                throw new IllegalStateException("game.ids.node must name this node of the cluster " + nodes.keySet());
+            String secret = Settings.getString("game.cluster.secret", "");
+            if (secret.isEmpty())
+                throw new IllegalStateException("game.cluster.secret must be shared by the cluster " + nodes.keySet());
+            try {
+                ClusterNode node = new ClusterNode(new TcpBus(nodeId, nodes, secret.getBytes(StandardCharsets.UTF_8)),
+                        nodes.keySet(), variants, starter);
+                log.info("Node {} joined the cluster of {}.", nodeId, nodes.keySet());
+                return node.start();
+            }
+            catch (IOException | IllegalArgumentException e) {
+                throw new IllegalStateException("Node " + nodeId + " cannot join the cluster of " + nodes.keySet(), e);
+            }
+        }
+        if (nodeId.isEmpty()) nodeId = STANDALONE;
+        return new ClusterNode(new LoopbackBus.Network().join(nodeId), Collections.singleton(nodeId), variants, starter)
+                .start();
+    }
+
+}
@@ -0,0 +1,91 @@
+package models.cluster;
+
+import models.concurrent.GameExecutor;
+import models.concurrent.Mailbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link MessageBus} between nodes sharing a process, e.g., the single node
+ * of a standalone deployment, or the nodes of a cluster in a test.
+ *
+ * Messages are passed by reference, and delivered through a {@link Mailbox}
+ * per destination, hence in the order they are sent and off the sending thread.
+ */
+@ThreadSafe
+public class LoopbackBus implements MessageBus {
+
+    private static final Logger log = LoggerFactory.getLogger(LoopbackBus.class);
+
+    /**
+     * Nodes reachable from each other.
+     */
+    public static final class Network {
+
+        private final Map<String, LoopbackBus> buses = new ConcurrentHashMap<>();
+        private final Executor executor;
+
+        /**
+         * @param executor delivering the messages.
+         */
+        public Network(Executor executor) { this.executor = executor; }
+
+        public Network() { this(GameExecutor.shared()); }
+
+        /**
+         * Returns the bus of a new node with the given name.
+         */
+        public LoopbackBus join(String nodeId) {
+            LoopbackBus bus = new LoopbackBus(this, nodeId);
+            if (buses.putIfAbsent(nodeId, bus) != null)
+                throw new IllegalArgumentException("Node already exists: " + nodeId);
+            return bus;
+        }
+
+    }
+
+    private final Network network;
+    private final String nodeId;
+    private final Mailbox mailbox;
+    private volatile Receiver receiver;
+
+    private LoopbackBus(Network network, String nodeId) {
+        this.network = network;
+        this.nodeId = nodeId;
+        this.mailbox = new Mailbox(network.executor);
+    }
+
+    @Override
+    public String getNodeId() { return nodeId; }
+
+    @Override
+    public void start(Receiver receiver) { this.receiver = receiver; }
+
+    @Override
+    public void send(String to, final ClusterMessage message) {
+        final LoopbackBus destination = network.buses.get(to);
+        if (destination == null) {
+            log.debug("Dropping {} to unknown node {}.", message, to);
+            return;
+        }
+        destination.mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                Receiver receiver = destination.receiver;
+                if (receiver != null) receiver.onMessage(nodeId, message);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        network.buses.remove(nodeId, this);
+        receiver = null;
+    }
+
+}
@@ -0,0 +1,45 @@
+package models.cluster;
+
+/**
+ * Transport of {@link ClusterMessage}s between the nodes of a cluster.
+ *
+ * Messages from one node to another are delivered in the order they are
+ * sent, at most once, and one at a time to the {@link Receiver} of the
+ * destination. Sending never blocks on the network, hence games may send
+ * from within their mailboxes. Messages to unreachable nodes are dropped.
+ *
+ * @see LoopbackBus
+ * @see TcpBus
+ */
+public interface MessageBus {
+
+    /**
+     * Receives the messages sent to this node.
+     */
+    public interface Receiver {
+
+        /**
+         * Called with the name of the sending node, and expected not to block.
+         */
+        public void onMessage(String from, ClusterMessage message);
+
+    }
+
+    /**
+     * Returns the name of this node.
+     */
+    public String getNodeId();
+
+    /**
+     * Starts delivering the messages sent to this node to the given receiver.
+     */
+    public void start(Receiver receiver);
+
+    public void send(String to, ClusterMessage message);
+
+    /**
+     * Stops sending and receiving messages, and releases the resources.
+     */
+    public void close();
+
+}
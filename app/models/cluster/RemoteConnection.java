@@ -0,0 +1,77 @@
+package models.cluster;
+
+import models.connection.Connection;
+import models.event.BinaryCodec;
+import models.event.Event;
+import models.player.Protocol;
+
+/**
+ * Stand-in for the {@link Connection} of a player connected to another node.
+ *
+ * Events are passed on to the home node of the player as {@link BinaryCodec}
+ * frames, which decodes and writes them to the actual connection. Moves
+ * arrive the other way around, and reach the {@link MoveListener} on the bus
+ * thread. Inbound frames are already admitted by the actual connection.
+ */
+public class RemoteConnection extends Connection {
+
+    private final ClusterNode node;
+    private final String home;
+    private final String playerId;
+    private volatile MoveListener listener;
+
+    RemoteConnection(ClusterNode node, String home, String playerId, Protocol protocol) {
+        super(protocol);
+        this.node = node;
+        this.home = home;
+        this.playerId = playerId;
+    }
+
+    /**
+     * Returns the name of the node the player is connected to.
+     */
+    public String getHome() { return home; }
+
+    public String getPlayerId() { return playerId; }
+
+    @Override
+    public void write(Event event) {
+        if (isOpen()) node.send(home, ClusterMessage.event(playerId, event.toBinary()));
+    }
+
+    /**
+     * Tells the home node to close the actual connection, unless it is the one closing.
+     */
+    @Override
+    public void close() {
+        node.release(this, true);
+        onClosed();
+    }
+
+    @Override
+    public void onMove(MoveListener listener) { this.listener = listener; }
+
+    void deliverMove(int pos) {
+        MoveListener listener = this.listener;
+        if (listener != null) listener.onMove(pos);
+    }
+
+    void deliverMalformedMove(String move) {
+        MoveListener listener = this.listener;
+        if (listener != null) listener.onMalformedMove(move);
+    }
+
+    void deliverHint() {
+        MoveListener listener = this.listener;
+        if (listener != null) listener.onHint();
+    }
+
+    /**
+     * Called once the home node tells that the actual connection is closed.
+     */
+    void onPeerClosed() { onClosed(); }
+
+    @Override
+    public String toString() { return String.format("RemoteConnection[%s@%s]", playerId, home); }
+
+}
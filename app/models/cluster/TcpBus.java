@@ -0,0 +1,313 @@
+package models.cluster;
+
+import models.id.Credentials;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * {@link MessageBus} over plain TCP connections between the nodes of a static cluster.
+ *
+ * Every node listens on its own address, and opens a single connection to
+ * each node it sends to. The listening node starts the connection with a
+ * random challenge of two i64, which the sender answers with its name and
+ * the HMAC of its name and the challenge under the secret shared by the
+ * cluster, see {@link Credentials}. Connections of unknown nodes, or of
+ * nodes not knowing the secret, are dropped, hence no one but the nodes of
+ * the cluster can pass for one of them. Messages are framed by their u32
+ * length. Sends append to a bounded queue per
+ * destination, drained by a writer thread that flushes once the queue runs
+ * dry, hence a burst of messages costs a single write. Every inbound
+ * connection is read by a thread of its own, delivering the messages in the
+ * order they arrive.
+ *
+ * Messages that do not fit into the queue, or that are sent while the
+ * destination is unreachable, are dropped. Writers reconnect after
+ * {@link TcpBus#RECONNECT_DELAY_MILLIS}.
+ */
+@ThreadSafe
+public class TcpBus implements MessageBus {
+
+    private static final Logger log = LoggerFactory.getLogger(TcpBus.class);
+
+    static final int QUEUE_CAPACITY = 1 << 16;
+    static final int MAX_FRAME_LENGTH = 1 << 20;
+    static final long RECONNECT_DELAY_MILLIS = 100;
+    static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private final String nodeId;
+    private final Map<String, InetSocketAddress> nodes;
+    /** Proofs of knowing the cluster secret. */
+    private final Credentials credentials;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentMap<String, Peer> peers = new ConcurrentHashMap<>();
+    private final Set<Socket> inbound = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private volatile boolean running = true;
+    private volatile Receiver receiver;
+    private final ServerSocket serverSocket;
+
+    /**
+     * Binds the address of this node.
+     *
+     * @param nodes addresses of every node of the cluster including this one, by their names.
+     * @param secret shared by every node of the cluster.
+     * @throws IOException if the address cannot be bound.
+     */
+    public TcpBus(String nodeId, Map<String, InetSocketAddress> nodes, byte[] secret) throws IOException {
+        if (!nodes.containsKey(nodeId))
+            throw new IllegalArgumentException("No address for node " + nodeId + ": " + nodes);
+        if (secret.length == 0) throw new IllegalArgumentException("Empty cluster secret.");
+        this.nodeId = nodeId;
+        this.nodes = new HashMap<>(nodes);
+        this.credentials = new Credentials(secret);
+        serverSocket = new ServerSocket();
+        try {
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(nodes.get(nodeId));
+        }
+        catch (IOException ioe) {
+            closeQuietly(serverSocket);
+            throw ioe;
+        }
+    }
+
+    @Override
+    public String getNodeId() { return nodeId; }
+
+    /**
+     * Starts accepting connections.
+     */
+    @Override
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+        startThread("bus-acceptor-" + nodeId, new Runnable() {
+            @Override
+            public void run() { accept(); }
+        });
+        log.info("Node {} listening on {}.", nodeId, serverSocket.getLocalSocketAddress());
+    }
+
+    private static void startThread(String name, Runnable body) {
+        Thread thread = new Thread(body, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void send(String to, ClusterMessage message) {
+        if (!running) return;
+        Peer peer = peers.get(to);
+        if (peer == null) {
+            InetSocketAddress address = nodes.get(to);
+            if (address == null) {
+                log.debug("Dropping {} to unknown node {}.", message, to);
+                return;
+            }
+            Peer created = new Peer(to, address);
+            peer = peers.putIfAbsent(to, created);
+            if (peer == null) {
+                peer = created;
+                peer.start();
+            }
+        }
+        if (!peer.queue.offer(message))
+            log.warn("Dropping {} to node {} lagging {} messages behind.", message, to, QUEUE_CAPACITY);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverSocket);
+        for (Peer peer : peers.values()) peer.stop();
+        for (Socket socket : inbound) closeQuietly(socket);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try { closeable.close(); }
+        catch (IOException ignored) {}
+    }
+
+    /**
+     * Returns what the given node signs to answer the given challenge.
+     */
+    private static String challengeOf(String node, long fst, long snd) {
+        return node + ':' + Long.toHexString(fst) + ':' + Long.toHexString(snd);
+    }
+
+    /**
+     * Body of the acceptor thread.
+     */
+    private void accept() {
+        while (running) {
+            final Socket socket;
+            try { socket = serverSocket.accept(); }
+            catch (IOException ioe) {
+                if (running) log.error("Node {} stopped accepting connections.", nodeId, ioe);
+                return;
+            }
+            inbound.add(socket);
+            startThread("bus-reader-" + nodeId, new Runnable() {
+                @Override
+                public void run() { read(socket); }
+            });
+        }
+    }
+
+    /**
+     * Body of the reader thread of an inbound connection.
+     */
+    private void read(Socket socket) {
+        String from = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            socket.setTcpNoDelay(true);
+            from = handshake(socket, in);
+            if (from == null) return;
+            byte[] bytes = new byte[256];
+            while (running) {
+                int length = in.readInt();
+                if (length <= 0 || length > MAX_FRAME_LENGTH)
+                    throw new IOException("Invalid frame length: " + length);
+                if (bytes.length < length) bytes = new byte[Math.max(length, 2 * bytes.length)];
+                in.readFully(bytes, 0, length);
+                ClusterMessage message = ClusterMessage.readFrom(
+                        new DataInputStream(new ByteArrayInputStream(bytes, 0, length)));
+                Receiver receiver = this.receiver;
+                if (receiver != null)
+                    try { receiver.onMessage(from, message); }
+                    catch (Throwable t) { log.error("Failed to receive {} from {}.", message, from, t); }
+            }
+        }
+        catch (EOFException | SocketException e) { log.debug("Connection from {} closed.", from); }
+        catch (IOException ioe) { log.warn("Dropping the connection from {}.", from, ioe); }
+        finally {
+            inbound.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Challenges the node on the other end of the given inbound connection.
+     *
+     * @return the name of the node, or null if it is unknown or fails the challenge.
+     */
+    private String handshake(Socket socket, DataInputStream in) throws IOException {
+        long fst = random.nextLong(), snd = random.nextLong();
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeLong(fst);
+        out.writeLong(snd);
+        out.flush();
+        socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+        String from = in.readUTF();
+        String proof = in.readUTF();
+        socket.setSoTimeout(0);
+        if (nodes.containsKey(from) && !from.equals(nodeId)
+                && credentials.verify(challengeOf(from, fst, snd), proof)) return from;
+        log.warn("Rejecting a connection from {} claiming to be node {}.", socket.getRemoteSocketAddress(), from);
+        return null;
+    }
+
+    /**
+     * Outbound connection to a node along with the queue of messages to it.
+     */
+    private final class Peer implements Runnable {
+
+        final String name;
+        final InetSocketAddress address;
+        final BlockingQueue<ClusterMessage> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        final Thread thread;
+        /** Confined to the writer thread. */
+        final ByteArrayOutputStream frame = new ByteArrayOutputStream(256);
+        /** Written by the writer thread, and closed by {@link Peer#stop} to unblock it. */
+        volatile Socket socket;
+        DataOutputStream out;
+
+        Peer(String name, InetSocketAddress address) {
+            this.name = name;
+            this.address = address;
+            this.thread = new Thread(this, "bus-writer-" + nodeId + "-" + name);
+            thread.setDaemon(true);
+        }
+
+        void start() { thread.start(); }
+
+        void stop() {
+            thread.interrupt();
+            Socket socket = this.socket;
+            if (socket != null) closeQuietly(socket);
+        }
+
+        /**
+         * Body of the writer thread.
+         */
+        @Override
+        public void run() {
+            while (running) {
+                ClusterMessage message;
+                try { message = queue.take(); }
+                catch (InterruptedException ie) { break; }
+                try {
+                    if (socket == null) connect();
+                    do write(message);
+                    while ((message = queue.poll()) != null);
+                    out.flush();
+                }
+                catch (IOException ioe) {
+                    log.warn("Lost connection to node {} at {}, dropping messages.", name, address, ioe);
+                    disconnect();
+                    try { Thread.sleep(RECONNECT_DELAY_MILLIS); }
+                    catch (InterruptedException ie) { break; }
+                }
+            }
+            disconnect();
+        }
+
+        private void connect() throws IOException {
+            Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                this.socket = socket;
+                if (!running) throw new SocketException("Bus closed.");
+                socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                long fst = in.readLong(), snd = in.readLong();
+                socket.setSoTimeout(0);
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                out.writeUTF(nodeId);
+                out.writeUTF(credentials.tokenOf(challengeOf(nodeId, fst, snd)));
+            }
+            catch (IOException ioe) {
+                closeQuietly(socket);
+                this.socket = null;
+                throw ioe;
+            }
+        }
+
+        private void write(ClusterMessage message) throws IOException {
+            frame.reset();
+            message.writeTo(new DataOutputStream(frame));
+            out.writeInt(frame.size());
+            frame.writeTo(out);
+        }
+
+        private void disconnect() {
+            if (socket != null) closeQuietly(socket);
+            socket = null;
+            out = null;
+        }
+
+    }
+
+}
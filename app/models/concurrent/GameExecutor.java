@@ -0,0 +1,56 @@
+package models.concurrent;
+
+import models.Settings;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Provides the {@link Executor}s draining game {@link Mailbox}es and outbound queues.
+ */
+public final class GameExecutor {
+
+    private GameExecutor() {}
+
+    /**
+     * Runs tasks in the calling thread. Re-entrant posts are still serialized
+     * by the {@link Mailbox}, since the draining thread owns it.
+     */
+    public static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable task) { task.run(); }
+    };
+
+    private static final class Holder {
+        static final Executor shared = new ForkJoinPool(
+                Settings.getInt(
+                        "game.executor.parallelism",
+                        Runtime.getRuntime().availableProcessors()),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                null,
+                // FIFO scheduling for event-style tasks that are never joined.
+                true);
+    }
+
+    /**
+     * Returns the executor shared by the games, configured by {@code game.executor.parallelism}.
+     */
+    public static Executor shared() { return Holder.shared; }
+
+    private static final class WritersHolder {
+        static final Executor writers = new ForkJoinPool(
+                Settings.getInt(
+                        "game.writers.parallelism",
+                        Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                null,
+                true);
+    }
+
+    /**
+     * Returns the executor writing frames to sockets off the game threads,
+     * configured by {@code game.writers.parallelism}.
+     */
+    public static Executor writers() { return WritersHolder.writers; }
+
+}
@@ -0,0 +1,61 @@
+package models.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lock-free single-consumer queue of tasks run on an {@link Executor}.
+ *
+ * Tasks can be posted from any thread. At most one thread drains the
+ * mailbox at a time, hence tasks are run one after another in the order
+ * they are posted and need no synchronization among each other. A drain
+ * runs at most {@link Mailbox#BATCH_SIZE} tasks before yielding the
+ * executor thread to other mailboxes.
+ */
+@ThreadSafe
+public final class Mailbox implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(Mailbox.class);
+
+    static final int BATCH_SIZE = 64;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final Executor executor;
+
+    public Mailbox(Executor executor) { this.executor = executor; }
+
+    public void post(Runnable task) {
+        tasks.offer(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true))
+            executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Runnable task = tasks.poll();
+                if (task == null) break;
+                try { task.run(); }
+                catch (Throwable t) { log.error("Mailbox task failed.", t); }
+            }
+        }
+        finally {
+            scheduled.set(false);
+            // Pick up tasks posted after the last poll, or left over from the batch.
+            if (!tasks.isEmpty()) schedule();
+        }
+    }
+
+}
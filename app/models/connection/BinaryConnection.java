@@ -0,0 +1,89 @@
+package models.connection;
+
+import models.concurrent.GameExecutor;
+import models.event.BinaryCodec;
+import models.event.Event;
+import models.metrics.Metrics;
+import models.player.Protocol;
+import play.libs.F;
+import play.mvc.WebSocket;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Connection} exchanging binary frames.
+ *
+ * @see BinaryCodec
+ */
+public class BinaryConnection extends Connection {
+
+    protected final WebSocket.In<byte[]> inputSocket;
+    protected final WebSocket.Out<byte[]> outputSocket;
+    protected final OutboundQueue outbound;
+
+    public BinaryConnection(
+            WebSocket.In<byte[]> inputSocket,
+            WebSocket.Out<byte[]> outputSocket,
+            Protocol protocol) {
+        this(inputSocket, outputSocket, protocol, GameExecutor.writers());
+    }
+
+    /**
+     * @param writer executor draining the {@link OutboundQueue} into the output socket.
+     */
+    public BinaryConnection(
+            WebSocket.In<byte[]> inputSocket,
+            final WebSocket.Out<byte[]> outputSocket,
+            Protocol protocol,
+            Executor writer) {
+        super(protocol);
+        this.inputSocket = inputSocket;
+        this.outputSocket = outputSocket;
+        this.outbound = new OutboundQueue(writer, new OutboundQueue.Sink() {
+            @Override
+            public void send(Event event) {
+                long start = System.nanoTime();
+                outputSocket.write(event.toBinary());
+                Metrics.recordWrite(event, System.nanoTime() - start);
+                sent(event);
+            }
+
+            @Override
+            public void close() { outputSocket.close(); }
+
+            @Override
+            public void disconnect() {
+                outputSocket.close();
+                onClosed();
+            }
+        });
+        inputSocket.onClose(new F.Callback0() {
+            @Override
+            public void invoke() throws Throwable { onClosed(); }
+        });
+    }
+
+    @Override
+    public void write(Event event) { outbound.offer(event); }
+
+    @Override
+    public void replay(Event event) { outbound.replay(event); }
+
+    @Override
+    public void close() { outbound.close(); }
+
+    @Override
+    public void onMove(final MoveListener listener) {
+        inputSocket.onMessage(new F.Callback<byte[]>() {
+            @Override
+            public void invoke(byte[] frame) throws Throwable {
+                if (!admit()) return;
+                int pos = BinaryCodec.decodeMove(frame);
+                if (pos < 0) listener.onMalformedMove(BinaryCodec.toHex(frame));
+                else if (pos == BinaryCodec.HINT_REQUEST) listener.onHint();
+                else listener.onMove(pos);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,170 @@
+package models.connection;
+
+import models.Settings;
+import models.event.Event;
+import models.metrics.Metrics;
+import models.player.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.libs.F;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transport of a player, hiding the frame format of the underlying {@code WebSocket}.
+ *
+ * Outbound {@link Event}s are encoded by the connection, and inbound frames
+ * are decoded into moves before they reach the {@link MoveListener}. The
+ * {@link Protocol} tells which board update events the player expects.
+ *
+ * The connection keeps track of whether the peer closed it. Close callbacks
+ * registered after the fact are invoked right away, hence a close can never
+ * slip through while the player is handed over, say, from the matchmaker to
+ * its game.
+ *
+ * Inbound frames pass a {@link TokenBucket} of {@code game.inbound.rate}
+ * frames per second and {@code game.inbound.burst} capacity before they are
+ * decoded. Frames beyond that are dropped, and connections dropping
+ * {@code game.inbound.throttleLimit} frames before their bucket fills up
+ * again are aborted. A client that recovers from a burst, letting its
+ * bucket fill up, starts over with a clean slate.
+ */
+public abstract class Connection {
+
+    private static final Logger log = LoggerFactory.getLogger(Connection.class);
+
+    /**
+     * Receives the moves decoded out of inbound frames.
+     */
+    public interface MoveListener {
+
+        public void onMove(int pos);
+
+        /**
+         * Called for frames that do not denote a pit index, along with their textual representation.
+         */
+        public void onMalformedMove(String move);
+
+        /**
+         * Called for frames asking for a {@link models.event.Hint}.
+         */
+        public void onHint();
+
+    }
+
+    /**
+     * Receives the events a connection sends to the peer, in the order they are sent.
+     */
+    public interface SendListener {
+
+        public void onSent(Connection connection, Event event);
+
+    }
+
+    private static final class Limits {
+        static final double rate = Settings.getDouble("game.inbound.rate", 20);
+        static final int burst = Settings.getInt("game.inbound.burst", 40);
+        static final int throttleLimit = Settings.getInt("game.inbound.throttleLimit", 200);
+    }
+
+    protected final Protocol protocol;
+    /** Null if inbound frames are not limited. */
+    private final TokenBucket inboundBucket = Limits.rate > 0 ? new TokenBucket(Limits.rate, Limits.burst) : null;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final Queue<F.Callback0> closeCallbacks = new ConcurrentLinkedQueue<>();
+    private volatile SendListener sendListener;
+
+    protected Connection(Protocol protocol) { this.protocol = protocol; }
+
+    public Protocol getProtocol() { return protocol; }
+
+    /**
+     * Passes the given event on to the peer without blocking on the socket.
+     *
+     * @see OutboundQueue
+     */
+    public abstract void write(Event event);
+
+    /**
+     * Passes an event the peer missed on a former connection on, see {@link OutboundQueue#replay}.
+     */
+    public void replay(Event event) { write(event); }
+
+    /**
+     * Closes the outbound side of the connection once the events written so far are sent.
+     */
+    public abstract void close();
+
+    public abstract void onMove(MoveListener listener);
+
+    /**
+     * Installs the listener told of every event once it is sent, replacing the former one.
+     *
+     * Board states superseded in the {@link OutboundQueue}, and events it
+     * drops, are never sent, hence never told.
+     */
+    public void onSend(SendListener listener) { this.sendListener = listener; }
+
+    /**
+     * To be called by implementations once an event is written to the socket.
+     */
+    protected void sent(Event event) {
+        SendListener listener = sendListener;
+        if (listener != null) listener.onSent(this, event);
+    }
+
+    /**
+     * To be called by implementations for every inbound frame before decoding it.
+     *
+     * @return false if the frame is to be dropped.
+     */
+    protected boolean admit() {
+        if (inboundBucket == null || inboundBucket.tryAcquire()) return true;
+        Metrics.recordThrottledFrame();
+        if (inboundBucket.getRejected() == Limits.throttleLimit) {
+            log.debug("Aborting a connection flooding {} frames over the limit.", Limits.throttleLimit);
+            Metrics.recordFloodAbort();
+            abort();
+        }
+        return false;
+    }
+
+    /**
+     * Closes the connection as if the peer did, e.g., once it misbehaves.
+     */
+    public void abort() {
+        close();
+        onClosed();
+    }
+
+    /**
+     * Returns false once the peer has closed the connection.
+     */
+    public boolean isOpen() { return !closed.get(); }
+
+    /**
+     * Registers a callback to be invoked once the peer closes the connection.
+     */
+    public void onClose(F.Callback0 callback) {
+        closeCallbacks.add(callback);
+        if (closed.get()) runCloseCallbacks();
+    }
+
+    /**
+     * To be called by implementations when the peer closes the connection.
+     */
+    protected void onClosed() {
+        if (closed.compareAndSet(false, true)) runCloseCallbacks();
+    }
+
+    private void runCloseCallbacks() {
+        // Polling ensures that every callback runs once, even if racing with onClose().
+        F.Callback0 callback;
+        while ((callback = closeCallbacks.poll()) != null)
+            try { callback.invoke(); }
+            catch (Throwable t) { log.error("Close callback failed.", t); }
+    }
+
+}
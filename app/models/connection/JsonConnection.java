@@ -0,0 +1,114 @@
+package models.connection;
+
+import models.concurrent.GameExecutor;
+import models.event.Event;
+import models.metrics.Metrics;
+import models.player.Protocol;
+import play.libs.F;
+import play.mvc.WebSocket;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Connection} exchanging JSON text frames.
+ *
+ * A move is a JSON number or a JSON string denoting the pit index, and
+ * the JSON string {@code "hint"} asks for a hint.
+ *
+ * @see models.event.EventEncoder
+ */
+public class JsonConnection extends Connection {
+
+    protected final WebSocket.In<String> inputSocket;
+    protected final WebSocket.Out<String> outputSocket;
+    protected final OutboundQueue outbound;
+
+    public JsonConnection(
+            WebSocket.In<String> inputSocket,
+            WebSocket.Out<String> outputSocket,
+            Protocol protocol) {
+        this(inputSocket, outputSocket, protocol, GameExecutor.writers());
+    }
+
+    /**
+     * @param writer executor draining the {@link OutboundQueue} into the output socket.
+     */
+    public JsonConnection(
+            WebSocket.In<String> inputSocket,
+            final WebSocket.Out<String> outputSocket,
+            Protocol protocol,
+            Executor writer) {
+        super(protocol);
+        this.inputSocket = inputSocket;
+        this.outputSocket = outputSocket;
+        this.outbound = new OutboundQueue(writer, new OutboundQueue.Sink() {
+            @Override
+            public void send(Event event) {
+                long start = System.nanoTime();
+                outputSocket.write(event.toJson());
+                Metrics.recordWrite(event, System.nanoTime() - start);
+                sent(event);
+            }
+
+            @Override
+            public void close() { outputSocket.close(); }
+
+            @Override
+            public void disconnect() {
+                outputSocket.close();
+                onClosed();
+            }
+        });
+        inputSocket.onClose(new F.Callback0() {
+            @Override
+            public void invoke() throws Throwable { onClosed(); }
+        });
+    }
+
+    @Override
+    public void write(Event event) { outbound.offer(event); }
+
+    @Override
+    public void replay(Event event) { outbound.replay(event); }
+
+    @Override
+    public void close() { outbound.close(); }
+
+    @Override
+    public void onMove(final MoveListener listener) {
+        inputSocket.onMessage(new F.Callback<String>() {
+            @Override
+            public void invoke(String move) throws Throwable {
+                if (!admit()) return;
+                if (isHintRequest(move)) {
+                    listener.onHint();
+                    return;
+                }
+                int pos;
+                try { pos = parsePitIndex(move); }
+                catch (NumberFormatException nfe) {
+                    listener.onMalformedMove(move);
+                    return;
+                }
+                listener.onMove(pos);
+            }
+        });
+    }
+
+    static boolean isHintRequest(String move) {
+        String text = move.trim();
+        return text.equals("\"hint\"") || text.equals("hint");
+    }
+
+    /**
+     * Parses the pit index out of the raw JSON text of a move without building a tree.
+     */
+    static int parsePitIndex(String move) {
+        String text = move.trim();
+        int length = text.length();
+        if (length > 1 && text.charAt(0) == '"' && text.charAt(length - 1) == '"')
+            text = text.substring(1, length - 1);
+        return Integer.parseInt(text);
+    }
+
+}
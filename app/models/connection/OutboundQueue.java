@@ -0,0 +1,230 @@
+package models.connection;
+
+import models.Settings;
+import models.concurrent.GameExecutor;
+import models.event.BoardState;
+import models.event.Event;
+import models.event.Hint;
+import models.event.IllegalMove;
+import models.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Bounded queue of events on their way to a socket, drained on an {@link Executor}.
+ *
+ * Games only ever append to the queue, hence encoding and writing frames
+ * happen off the game thread, and a slow client cannot hold up its game.
+ * A {@link BoardState} describes the whole board, hence a newer one
+ * supersedes one that is still queued. It moves to the tail of the queue
+ * unless it is there already, so that it never overtakes events queued
+ * after the state it supersedes, e.g., an {@link models.event.IllegalMove}
+ * about the older board. Other events count against the capacity, and once
+ * a client falls that far behind, the {@link OverflowPolicy} decides on its
+ * fate. Either way, the events held here per client stay bounded.
+ *
+ * The bound ends at the socket, though: Play buffers the frames written to
+ * a {@link play.mvc.WebSocket.Out} without ever blocking, hence a client that
+ * stops reading while its queue keeps being drained still grows the buffers
+ * of the transport. Neither the capacity nor the policy cover those.
+ *
+ * At most one thread drains the queue at a time, writing at most
+ * {@link OutboundQueue#BATCH_SIZE} events before yielding the executor.
+ */
+@ThreadSafe
+public class OutboundQueue implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundQueue.class);
+
+    static final int BATCH_SIZE = 64;
+
+    /**
+     * What to do with a client whose queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Closes the connection, as if the peer did. */
+        DISCONNECT,
+        /**
+         * Discards the event, keeping the connection, as long as the client
+         * can do without it. Events that cannot be made up for later, e.g.,
+         * a {@link models.event.BoardDelta}, still close the connection.
+         */
+        DROP
+    }
+
+    /**
+     * Socket end of the queue.
+     */
+    public interface Sink {
+
+        public void send(Event event);
+
+        /**
+         * Called once the queued events are sent after {@link OutboundQueue#close}.
+         */
+        public void close();
+
+        /**
+         * Called once, when the {@link OverflowPolicy} gives up on the client.
+         */
+        public void disconnect();
+
+    }
+
+    /** Placeholder for the latest {@link BoardState} in the queue. */
+    private static final Event LATEST_STATE = new Event() {};
+
+    private static final class Defaults {
+        static final int capacity = Settings.getInt("game.outbound.capacity", 64);
+        static final OverflowPolicy policy = OverflowPolicy.valueOf(
+                Settings.getString("game.outbound.overflow", "disconnect").toUpperCase());
+    }
+
+    private final Executor executor;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Sink sink;
+    @GuardedBy("this") private final ArrayDeque<Event> events = new ArrayDeque<>();
+    @GuardedBy("this") private BoardState latestState;
+    /** Replayed events at the head of the queue, not counted against the capacity. */
+    @GuardedBy("this") private int replays;
+    @GuardedBy("this") private boolean scheduled;
+    @GuardedBy("this") private boolean closing;
+    @GuardedBy("this") private boolean closed;
+
+    public OutboundQueue(Executor executor, int capacity, OverflowPolicy policy, Sink sink) {
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.sink = sink;
+    }
+
+    /**
+     * Creates a queue configured by {@code game.outbound.capacity} and {@code game.outbound.overflow}.
+     */
+    public OutboundQueue(Executor executor, Sink sink) {
+        this(executor, Defaults.capacity, Defaults.policy, sink);
+    }
+
+    /**
+     * Creates a queue drained on {@link GameExecutor#writers}.
+     */
+    public OutboundQueue(Sink sink) { this(GameExecutor.writers(), sink); }
+
+    /**
+     * Returns the number of events waiting to be sent.
+     */
+    public synchronized int size() { return events.size(); }
+
+    public void offer(Event event) { offer(event, false); }
+
+    /**
+     * Queues an event the client missed on a former socket. Replays go ahead
+     * of any events offered later, and do not count against the capacity,
+     * hence a client catching up on more than that is not taken for a slow one.
+     */
+    public void replay(Event event) { offer(event, true); }
+
+    private void offer(Event event, boolean replay) {
+        boolean overflow = false, disconnect = false, schedule = false;
+        synchronized (this) {
+            if (closing) return;
+            if (event instanceof BoardState && latestState != null) {
+                latestState = (BoardState) event;
+                if (events.peekLast() != LATEST_STATE) {
+                    events.removeFirstOccurrence(LATEST_STATE);
+                    events.add(LATEST_STATE);
+                }
+                Metrics.recordCoalescedWrite();
+                return;
+            }
+            if (!replay && events.size() - replays >= capacity) {
+                overflow = true;
+                disconnect = policy == OverflowPolicy.DISCONNECT || !isDroppable(event);
+                if (disconnect) {
+                    closing = closed = true;
+                    events.clear();
+                    latestState = null;
+                    replays = 0;
+                }
+            }
+            else {
+                if (event instanceof BoardState) {
+                    latestState = (BoardState) event;
+                    events.add(LATEST_STATE);
+                }
+                else events.add(event);
+                if (replay) replays++;
+            }
+            if (!overflow && !scheduled) scheduled = schedule = true;
+        }
+        if (overflow) onOverflow(event, disconnect);
+        else if (schedule) executor.execute(this);
+    }
+
+    /**
+     * Checks if the client gets by without the given event: a later board
+     * state covers a missed one, and the illegal moves and hints answer
+     * requests the client may repeat.
+     */
+    private static boolean isDroppable(Event event) {
+        return event instanceof BoardState || event instanceof IllegalMove || event instanceof Hint;
+    }
+
+    private void onOverflow(Event event, boolean disconnect) {
+        Metrics.recordWriteOverflow();
+        if (disconnect) {
+            log.debug("Disconnecting a client {} events behind.", capacity);
+            sink.disconnect();
+        }
+        else log.debug("Dropping {} to a client {} events behind.", event, capacity);
+    }
+
+    /**
+     * Closes the sink once the events queued so far are sent, ignoring any further events.
+     */
+    public void close() {
+        boolean schedule = false;
+        synchronized (this) {
+            if (closing) return;
+            closing = true;
+            if (!scheduled) scheduled = schedule = true;
+        }
+        if (schedule) executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Event event;
+            synchronized (this) {
+                event = events.poll();
+                if (event == null) break;
+                if (replays > 0) replays--;
+                if (event == LATEST_STATE) {
+                    event = latestState;
+                    latestState = null;
+                }
+            }
+            try { sink.send(event); }
+            catch (Throwable t) { log.error("Failed to send {}.", event, t); }
+        }
+        boolean reschedule, close = false;
+        synchronized (this) {
+            // Pick up events left over from the batch.
+            reschedule = !closed && !events.isEmpty();
+            if (!reschedule) {
+                scheduled = false;
+                if (closing && !closed) closed = close = true;
+            }
+        }
+        if (reschedule) executor.execute(this);
+        else if (close) sink.close();
+    }
+
+}
@@ -0,0 +1,67 @@
+package models.connection;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket refilled at a fixed rate up to a fixed capacity.
+ *
+ * The bucket is kept in its virtual scheduling form: rather than a token
+ * count and a refill timestamp, it tracks the time at which the bucket would
+ * be full again, advancing it by the refill interval per token taken. A
+ * token is available if that time is at most a full bucket ahead of now.
+ * Hence the whole state is a single number, and taking a token is a single
+ * compare-and-set.
+ *
+ * Rejections are counted since the bucket was last full, hence a client
+ * that bursts now and then, but lets the bucket fill up in between, never
+ * piles them up.
+ */
+@ThreadSafe
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullNanos;
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    /**
+     * Creates a full bucket.
+     */
+    public TokenBucket(double tokensPerSecond, int capacity) {
+        if (tokensPerSecond <= 0 || capacity < 1)
+            throw new IllegalArgumentException("Invalid rate or capacity: " + tokensPerSecond + ", " + capacity);
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+        this.capacityNanos = capacity * intervalNanos;
+        this.fullNanos = new AtomicLong(System.nanoTime());
+    }
+
+    public boolean tryAcquire() { return tryAcquire(System.nanoTime()); }
+
+    /**
+     * Takes a token, if any, as of the given {@link System#nanoTime}.
+     */
+    public boolean tryAcquire(long nowNanos) {
+        for (;;) {
+            long full = fullNanos.get();
+            long next = (full - nowNanos > 0 ? full : nowNanos) + intervalNanos;
+            if (next - nowNanos > capacityNanos) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (fullNanos.compareAndSet(full, next)) {
+                // Taken out of a full bucket.
+                if (full - nowNanos <= 0 && rejected.get() != 0) rejected.set(0);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times a token was not available since the bucket was last full.
+     */
+    public int getRejected() { return rejected.get(); }
+
+}
@@ -0,0 +1,295 @@
+package models.event;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes {@link Event}s into, and decodes them from, fixed-layout binary frames.
+ *
+ * Every outbound frame starts with a single type byte, followed by the
+ * fields of the event in declaration order. Numbers are big-endian, so that
+ * browsers can read them through a {@code DataView} over an
+ * {@code ArrayBuffer}. Layouts are as follows:
+ *
+ * <pre>
+ * string             u16 byte length (0xFFFF for null), UTF-8 bytes
+ * WaitingForOpponent 0x01, string playerId, string token
+ * ReadyToStart       0x02, string opponentId, string nextPlayerId, string variant
+ * IllegalMove        0x03, string reason
+ * BoardState         0x04, string nextPlayerId, u8 player count,
+ *                    (string playerId, u8 pit count, u16 pits...)...,
+ *                    u32 remainingMillis
+ * GameOver           0x05, string winnerId, string reason
+ * BoardSnapshot      0x06, u8 seat count, string playerIds..., u8 next,
+ *                    u8 pit count, u16 pits...
+ * BoardDelta         0x07, u8 next, u8 change count, (u8 index, u16 count)...
+ * Hint               0x08, u8 pit
+ * </pre>
+ *
+ * Inbound frames consist of a single unsigned byte denoting the pit index,
+ * or {@link BinaryCodec#HINT_REQUEST} asking for a hint.
+ */
+@ThreadSafe
+public final class BinaryCodec {
+
+    private BinaryCodec() {}
+
+    public static final byte WAITING_FOR_OPPONENT = 0x01;
+    public static final byte READY_TO_START = 0x02;
+    public static final byte ILLEGAL_MOVE = 0x03;
+    public static final byte BOARD_STATE = 0x04;
+    public static final byte GAME_OVER = 0x05;
+    public static final byte BOARD_SNAPSHOT = 0x06;
+    public static final byte BOARD_DELTA = 0x07;
+    public static final byte HINT = 0x08;
+
+    /** Inbound byte asking for a {@link Hint} rather than denoting a pit. */
+    public static final int HINT_REQUEST = 0xFF;
+
+    private static final int NULL_STRING = 0xFFFF;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Growable byte buffer reused by the encoding thread.
+     */
+    private static final class Buffer {
+
+        private static final int INITIAL_CAPACITY = 256;
+        private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+        byte[] bytes = new byte[INITIAL_CAPACITY];
+        int length = 0;
+
+        void reset() {
+            if (bytes.length > MAX_RETAINED_CAPACITY)
+                bytes = new byte[INITIAL_CAPACITY];
+            length = 0;
+        }
+
+        void ensureCapacity(int extra) {
+            if (length + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+        }
+
+        Buffer u8(int value) {
+            if (value < 0 || value > 0xFF)
+                throw new IllegalArgumentException("Out of u8 range: " + value);
+            ensureCapacity(1);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        Buffer u16(int value) {
+            if (value < 0 || value > 0xFFFF)
+                throw new IllegalArgumentException("Out of u16 range: " + value);
+            ensureCapacity(2);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        Buffer u32(int value) {
+            if (value < 0)
+                throw new IllegalArgumentException("Out of u32 range: " + value);
+            ensureCapacity(4);
+            bytes[length++] = (byte) (value >>> 24);
+            bytes[length++] = (byte) (value >>> 16);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        Buffer string(String text) {
+            if (text == null) return u16(NULL_STRING);
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            if (utf8.length >= NULL_STRING)
+                throw new IllegalArgumentException("String too long: " + utf8.length + " bytes");
+            u16(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+            return this;
+        }
+
+        Buffer u16s(int[] values) {
+            u8(values.length);
+            for (int value : values) u16(value);
+            return this;
+        }
+
+        byte[] toByteArray() { return Arrays.copyOf(bytes, length); }
+
+    }
+
+    private static final ThreadLocal<Buffer> buffers = new ThreadLocal<Buffer>() {
+        @Override
+        protected Buffer initialValue() { return new Buffer(); }
+    };
+
+    /**
+     * Returns the binary frame of the given event.
+     *
+     * @throws IllegalArgumentException if the event type is not supported or
+     *         its content does not fit into the layout
+     */
+    public static byte[] encode(Event event) {
+        Buffer buffer = buffers.get();
+        buffer.reset();
+        if (event instanceof BoardDelta) {
+            BoardDelta delta = (BoardDelta) event;
+            buffer.u8(BOARD_DELTA).u8(delta.next).u8(delta.changes.length / 2);
+            for (int i = 0; i < delta.changes.length; i += 2)
+                buffer.u8(delta.changes[i]).u16(delta.changes[i + 1]);
+        }
+        else if (event instanceof BoardState) {
+            BoardState state = (BoardState) event;
+            buffer.u8(BOARD_STATE).string(state.nextPlayerId).u8(state.board.size());
+            for (Map.Entry<String, int[]> entry : state.board.entrySet())
+                buffer.string(entry.getKey()).u16s(entry.getValue());
+            buffer.u32(state.remainingMillis);
+        }
+        else if (event instanceof IllegalMove)
+            buffer.u8(ILLEGAL_MOVE).string(((IllegalMove) event).reason);
+        else if (event instanceof BoardSnapshot) {
+            BoardSnapshot snapshot = (BoardSnapshot) event;
+            buffer.u8(BOARD_SNAPSHOT).u8(snapshot.seats.length);
+            for (String playerId : snapshot.seats) buffer.string(playerId);
+            buffer.u8(snapshot.next).u16s(snapshot.pits);
+        }
+        else if (event instanceof ReadyToStart) {
+            ReadyToStart rts = (ReadyToStart) event;
+            buffer.u8(READY_TO_START).string(rts.opponentId).string(rts.nextPlayerId).string(rts.variant);
+        }
+        else if (event instanceof WaitingForOpponent) {
+            WaitingForOpponent waiting = (WaitingForOpponent) event;
+            buffer.u8(WAITING_FOR_OPPONENT).string(waiting.playerId).string(waiting.token);
+        }
+        else if (event instanceof GameOver) {
+            GameOver gameOver = (GameOver) event;
+            buffer.u8(GAME_OVER).string(gameOver.winnerId).string(gameOver.reason);
+        }
+        else if (event instanceof Hint)
+            buffer.u8(HINT).u8(((Hint) event).pit);
+        else throw new IllegalArgumentException("Unsupported event: " + event.getClass().getName());
+        return buffer.toByteArray();
+    }
+
+    private static String readString(ByteBuffer frame) {
+        int length = frame.getShort() & 0xFFFF;
+        if (length == NULL_STRING) return null;
+        if (length > frame.remaining())
+            throw new IllegalArgumentException("Truncated string of " + length + " bytes.");
+        String text = new String(frame.array(), frame.position(), length, StandardCharsets.UTF_8);
+        frame.position(frame.position() + length);
+        return text;
+    }
+
+    private static int[] readU16s(ByteBuffer frame) {
+        int[] values = new int[frame.get() & 0xFF];
+        for (int i = 0; i < values.length; i++)
+            values[i] = frame.getShort() & 0xFFFF;
+        return values;
+    }
+
+    /**
+     * Decodes an outbound frame back into its event.
+     *
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static Event decode(byte[] bytes) {
+        ByteBuffer frame = ByteBuffer.wrap(bytes);
+        try {
+            Event event;
+            byte type = frame.get();
+            switch (type) {
+                case WAITING_FOR_OPPONENT: {
+                    String playerId = readString(frame);
+                    event = new WaitingForOpponent(playerId, readString(frame));
+                    break;
+                }
+                case READY_TO_START: {
+                    String opponentId = readString(frame);
+                    String nextPlayerId = readString(frame);
+                    event = new ReadyToStart(opponentId, nextPlayerId, readString(frame));
+                    break;
+                }
+                case ILLEGAL_MOVE:
+                    event = new IllegalMove("%s", (Object) readString(frame));
+                    break;
+                case BOARD_STATE: {
+                    String nextPlayerId = readString(frame);
+                    int count = frame.get() & 0xFF;
+                    Map<String, int[]> board = new LinkedHashMap<>();
+                    for (int i = 0; i < count; i++) {
+                        String playerId = readString(frame);
+                        board.put(playerId, readU16s(frame));
+                    }
+                    event = new BoardState(board, nextPlayerId, frame.getInt());
+                    break;
+                }
+                case GAME_OVER:
+                    event = new GameOver(readString(frame), readString(frame));
+                    break;
+                case BOARD_SNAPSHOT: {
+                    String[] seats = new String[frame.get() & 0xFF];
+                    for (int i = 0; i < seats.length; i++)
+                        seats[i] = readString(frame);
+                    int next = frame.get() & 0xFF;
+                    event = new BoardSnapshot(seats, readU16s(frame), next);
+                    break;
+                }
+                case BOARD_DELTA: {
+                    int next = frame.get() & 0xFF;
+                    int[] changes = new int[2 * (frame.get() & 0xFF)];
+                    for (int i = 0; i < changes.length; i += 2) {
+                        changes[i] = frame.get() & 0xFF;
+                        changes[i + 1] = frame.getShort() & 0xFFFF;
+                    }
+                    event = new BoardDelta(changes, next);
+                    break;
+                }
+                case HINT:
+                    event = new Hint(frame.get() & 0xFF);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown frame type: " + type);
+            }
+            if (frame.hasRemaining())
+                throw new IllegalArgumentException(frame.remaining() + " trailing bytes.");
+            return event;
+        }
+        catch (BufferUnderflowException bue) {
+            throw new IllegalArgumentException("Truncated frame: " + toHex(bytes), bue);
+        }
+    }
+
+    public static byte[] encodeMove(int pos) {
+        if (pos < 0 || pos > 0xFF)
+            throw new IllegalArgumentException("Out of u8 range: " + pos);
+        return new byte[] {(byte) pos};
+    }
+
+    /**
+     * Returns the pit index of an inbound frame, or -1 if the frame is malformed.
+     */
+    public static int decodeMove(byte[] frame) {
+        return (frame != null && frame.length == 1) ? (frame[0] & 0xFF) : -1;
+    }
+
+    public static String toHex(byte[] bytes) {
+        if (bytes == null) return "null";
+        char[] chars = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,70 @@
+package models.event;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import models.rules.Board;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.validation.constraints.NotNull;
+import java.util.Arrays;
+
+/**
+ * Entity for storing the pits changed by a move along with the seat of the next player.
+ *
+ * Changes are flattened into {@code [index, count, index, count, ...]}
+ * pairs, where indices refer to the packed layout of {@link BoardSnapshot}.
+ */
+@ThreadSafe
+public class BoardDelta extends Event {
+
+    public final String type = "BoardDelta";
+
+    @NotNull public final int[] changes;
+    public final int next;
+
+    public BoardDelta(int[] changes, int next) {
+        this.changes = changes;
+        this.next = next;
+    }
+
+    @JsonCreator
+    public BoardDelta(
+            @JsonProperty("type") String type,
+            @JsonProperty("changes") int[] changes,
+            @JsonProperty("next") int next) {
+        this(changes, next);
+    }
+
+    /**
+     * Creates the delta between the given previous cells and the board, and
+     * updates the previous cells to the current state.
+     */
+    public static BoardDelta diff(int[] previous, Board board, int next) {
+        int count = 0;
+        int size = board.size();
+        for (int i = 0; i < size; i++)
+            if (previous[i] != board.cell(i)) count++;
+        int[] changes = new int[2 * count];
+        for (int i = 0, j = 0; i < size; i++) {
+            int cell = board.cell(i);
+            if (previous[i] != cell) {
+                changes[j++] = i;
+                changes[j++] = cell;
+                previous[i] = cell;
+            }
+        }
+        return new BoardDelta(changes, next);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BoardDelta)) return false;
+        BoardDelta that = (BoardDelta) o;
+        return (next == that.next && Arrays.equals(changes, that.changes));
+    }
+
+    @Override
+    public int hashCode() { return Arrays.hashCode(changes) * 31 + next; }
+
+}
@@ -0,0 +1,65 @@
+package models.event;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import models.rules.Board;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.validation.constraints.NotNull;
+import java.util.Arrays;
+
+/**
+ * Entity for storing the complete board in packed form, sent once at game start in delta mode.
+ *
+ * Player ids are listed in the order of their seats. Both sides are of the
+ * same length {@code n = pits.length / 2}, e.g., 7 in the standard 6x6 game:
+ * pits of the seat {@code s} are found at {@code pits[s * n]} through
+ * {@code pits[s * n + n - 1]}, where the last one is the Lubang Menggali.
+ *
+ * @see BoardDelta
+ */
+@ThreadSafe
+public class BoardSnapshot extends Event {
+
+    public final String type = "BoardSnapshot";
+
+    @NotNull public final String[] seats;
+    @NotNull public final int[] pits;
+    public final int next;
+
+    public BoardSnapshot(String[] seats, int[] pits, int next) {
+        this.seats = seats;
+        this.pits = pits;
+        this.next = next;
+    }
+
+    public BoardSnapshot(String[] seats, Board board, int next) {
+        this(seats, new int[board.size()], next);
+        board.copyTo(pits);
+    }
+
+    @JsonCreator
+    public BoardSnapshot(
+            @JsonProperty("type") String type,
+            @JsonProperty("seats") String[] seats,
+            @JsonProperty("pits") int[] pits,
+            @JsonProperty("next") int next) {
+        this(seats, pits, next);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BoardSnapshot)) return false;
+        BoardSnapshot that = (BoardSnapshot) o;
+        return (next == that.next &&
+                Arrays.equals(seats, that.seats) &&
+                Arrays.equals(pits, that.pits));
+    }
+
+    @Override
+    public int hashCode() {
+        return (Arrays.hashCode(seats) * 31 + Arrays.hashCode(pits)) * 31 + next;
+    }
+
+}
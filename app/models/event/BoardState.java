@@ -9,7 +9,8 @@ import javax.validation.constraints.NotNull;
 import java.util.*;
 
 /**
- * Entity for storing the board state and the next player.
+ * Entity for storing the board state, the next player, and the milliseconds
+ * left for its move, which is zero if turns are not timed.
  */
 @ThreadSafe
 public class BoardState extends Event {
@@ -18,28 +19,37 @@ public class BoardState extends Event {
 
     @NotNull public final Map<String, int[]> board;
     @NotNull public final String nextPlayerId;
+    public final int remainingMillis;
 
     @JsonCreator
     public BoardState(
             @JsonProperty("board") Map<String, int[]> board,
-            @JsonProperty("nextPlayerId") String nextPlayerId) {
+            @JsonProperty("nextPlayerId") String nextPlayerId,
+            @JsonProperty("remainingMillis") int remainingMillis) {
         this.board = board;
         this.nextPlayerId = nextPlayerId;
+        this.remainingMillis = remainingMillis;
     }
 
-    public BoardState(Collection<PairedPlayer> players, String nextPlayerId) {
+    public BoardState(Map<String, int[]> board, String nextPlayerId) { this(board, nextPlayerId, 0); }
+
+    public BoardState(Collection<PairedPlayer> players, String nextPlayerId, int remainingMillis) {
         Map<String, int[]> board = new HashMap<>();
         for (PairedPlayer player : players) board.put(player.getId(), player.getPits());
         this.board = Collections.unmodifiableMap(board);
         this.nextPlayerId = nextPlayerId;
+        this.remainingMillis = remainingMillis;
     }
 
+    public BoardState(Collection<PairedPlayer> players, String nextPlayerId) { this(players, nextPlayerId, 0); }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof BoardState)) return false;
         BoardState that = (BoardState) o;
         if (!nextPlayerId.equals(that.nextPlayerId)) return false;
+        if (remainingMillis != that.remainingMillis) return false;
         if (!board.keySet().equals(that.board.keySet())) return false;
         for (String playerId : board.keySet())
             if (!Arrays.equals(board.get(playerId), that.board.get(playerId)))
@@ -49,7 +59,7 @@ public class BoardState extends Event {
 
     @Override
     public int hashCode() {
-        return (board.hashCode() * 31 + nextPlayerId.hashCode());
+        return (board.hashCode() * 31 + nextPlayerId.hashCode()) * 31 + remainingMillis;
     }
 
 }
@@ -1,20 +1,47 @@
 package models.event;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import play.mvc.WebSocket;
 
 import javax.validation.constraints.NotNull;
 
 /**
  * Base class for describing client-server messaging in JSON.
+ *
+ * Events are immutable, hence the frames they encode into are memoized, and
+ * an event written to many sockets, e.g., a {@link BoardState} broadcast to
+ * the spectators of a game, is encoded once per frame format. Racing threads
+ * might both encode an event, but they produce the same frame either way.
+ * The memos are volatile, so that a thread reading a memo set by another one
+ * sees the array contents written before it was published.
+ *
+ * @see EventEncoder
+ * @see BinaryCodec
  */
 abstract public class Event {
 
-    protected final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile String json;
+    private volatile byte[] binary;
 
-    public void write(@NotNull WebSocket.Out<JsonNode> out) {
-        out.write(objectMapper.valueToTree(this));
+    public void write(@NotNull WebSocket.Out<String> out) {
+        out.write(toJson());
+    }
+
+    /**
+     * Returns the JSON text frame of the event.
+     */
+    public String toJson() {
+        String frame = json;
+        if (frame == null) json = frame = EventEncoder.encode(this);
+        return frame;
+    }
+
+    /**
+     * Returns the binary frame of the event, which must not be modified.
+     */
+    public byte[] toBinary() {
+        byte[] frame = binary;
+        if (frame == null) binary = frame = BinaryCodec.encode(this);
+        return frame;
     }
 
 }
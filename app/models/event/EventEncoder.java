@@ -0,0 +1,153 @@
+package models.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import play.libs.Json;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Encodes {@link Event}s into their JSON wire representation.
+ *
+ * Each event class has a dedicated writer emitting the text directly into a
+ * thread-local {@link JsonBuffer}, hence neither an intermediate
+ * {@code JsonNode} tree nor reflection is involved in the process. The output
+ * is byte-for-byte identical to the one of serializing the event through
+ * Jackson, including the property order. Unknown {@link Event} subclasses
+ * fall back to a shared {@link ObjectMapper}.
+ */
+@ThreadSafe
+public final class EventEncoder {
+
+    private EventEncoder() {}
+
+    /**
+     * Writes a single event class into the given buffer.
+     */
+    interface Writer<E extends Event> {
+        void write(E event, JsonBuffer buffer);
+    }
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final ThreadLocal<JsonBuffer> buffers = new ThreadLocal<JsonBuffer>() {
+        @Override
+        protected JsonBuffer initialValue() { return new JsonBuffer(); }
+    };
+
+    private static final Map<Class<? extends Event>, Writer<? extends Event>> writers;
+
+    static {
+        Map<Class<? extends Event>, Writer<? extends Event>> map = new IdentityHashMap<>();
+
+        map.put(WaitingForOpponent.class, new Writer<WaitingForOpponent>() {
+            private final char[] head = "{\"type\":\"WaitingForOpponent\",\"playerId\":".toCharArray();
+            private final char[] token = ",\"token\":".toCharArray();
+            @Override
+            public void write(WaitingForOpponent event, JsonBuffer buffer) {
+                buffer.raw(head).string(event.playerId).raw(token).string(event.token).raw('}');
+            }
+        });
+
+        map.put(ReadyToStart.class, new Writer<ReadyToStart>() {
+            private final char[] head = "{\"type\":\"ReadyToStart\",\"opponentId\":".toCharArray();
+            private final char[] nextPlayerId = ",\"nextPlayerId\":".toCharArray();
+            private final char[] variant = ",\"variant\":".toCharArray();
+            @Override
+            public void write(ReadyToStart event, JsonBuffer buffer) {
+                buffer.raw(head).string(event.opponentId)
+                        .raw(nextPlayerId).string(event.nextPlayerId)
+                        .raw(variant).string(event.variant)
+                        .raw('}');
+            }
+        });
+
+        map.put(BoardState.class, new Writer<BoardState>() {
+            private final char[] head = "{\"board\":{".toCharArray();
+            private final char[] nextPlayerId = "},\"nextPlayerId\":".toCharArray();
+            private final char[] remainingMillis = ",\"remainingMillis\":".toCharArray();
+            private final char[] tail = ",\"type\":\"BoardState\"}".toCharArray();
+            @Override
+            public void write(BoardState event, JsonBuffer buffer) {
+                buffer.raw(head);
+                boolean first = true;
+                for (Map.Entry<String, int[]> entry : event.board.entrySet()) {
+                    if (!first) buffer.raw(',');
+                    buffer.string(entry.getKey()).raw(':').numbers(entry.getValue());
+                    first = false;
+                }
+                buffer.raw(nextPlayerId).string(event.nextPlayerId)
+                        .raw(remainingMillis).number(event.remainingMillis)
+                        .raw(tail);
+            }
+        });
+
+        map.put(IllegalMove.class, new Writer<IllegalMove>() {
+            private final char[] head = "{\"type\":\"IllegalMove\",\"reason\":".toCharArray();
+            @Override
+            public void write(IllegalMove event, JsonBuffer buffer) {
+                buffer.raw(head).string(event.reason).raw('}');
+            }
+        });
+
+        map.put(GameOver.class, new Writer<GameOver>() {
+            private final char[] head = "{\"type\":\"GameOver\",\"winnerId\":".toCharArray();
+            private final char[] reason = ",\"reason\":".toCharArray();
+            @Override
+            public void write(GameOver event, JsonBuffer buffer) {
+                buffer.raw(head).string(event.winnerId).raw(reason).string(event.reason).raw('}');
+            }
+        });
+
+        map.put(Hint.class, new Writer<Hint>() {
+            private final char[] head = "{\"type\":\"Hint\",\"pit\":".toCharArray();
+            @Override
+            public void write(Hint event, JsonBuffer buffer) {
+                buffer.raw(head).number(event.pit).raw('}');
+            }
+        });
+
+        map.put(BoardSnapshot.class, new Writer<BoardSnapshot>() {
+            private final char[] head = "{\"type\":\"BoardSnapshot\",\"seats\":".toCharArray();
+            private final char[] pits = ",\"pits\":".toCharArray();
+            private final char[] next = ",\"next\":".toCharArray();
+            @Override
+            public void write(BoardSnapshot event, JsonBuffer buffer) {
+                buffer.raw(head).strings(event.seats)
+                        .raw(pits).numbers(event.pits)
+                        .raw(next).number(event.next)
+                        .raw('}');
+            }
+        });
+
+        map.put(BoardDelta.class, new Writer<BoardDelta>() {
+            private final char[] head = "{\"type\":\"BoardDelta\",\"changes\":".toCharArray();
+            private final char[] next = ",\"next\":".toCharArray();
+            @Override
+            public void write(BoardDelta event, JsonBuffer buffer) {
+                buffer.raw(head).numbers(event.changes)
+                        .raw(next).number(event.next)
+                        .raw('}');
+            }
+        });
+
+        writers = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Returns the JSON representation of the given event.
+     */
+    @SuppressWarnings("unchecked")
+    public static String encode(Event event) {
+        Writer<Event> writer = (Writer<Event>) writers.get(event.getClass());
+        if (writer == null)
+            return Json.stringify(objectMapper.valueToTree(event));
+        JsonBuffer buffer = buffers.get();
+        buffer.reset();
+        writer.write(event, buffer);
+        return buffer.toString();
+    }
+
+}
@@ -7,22 +7,41 @@ import javax.annotation.concurrent.ThreadSafe;
 import javax.validation.constraints.NotNull;
 
 /**
- * Entity for storing the game over event along with the winning player.
+ * Entity for storing the game over event along with the winning player and
+ * the reason the game ended for.
+ *
+ * A null winner of a game played to the {@link GameOver#END} is a draw, while
+ * a game aborted for being {@link GameOver#IDLE} has no winner at all.
  */
 @ThreadSafe
 public class GameOver extends Event {
 
+    /** The game is played to the end. */
+    public static final String END = "end";
+    /** The loser ran out of time, made too many illegal moves, or left. */
+    public static final String FORFEIT = "forfeit";
+    /** Neither player sent a frame for the idle time, see {@link models.timer.Timers}. */
+    public static final String IDLE = "idle";
+
     public final String type = "GameOver";
 
     @NotNull public final String winnerId;
 
-    public GameOver(String winnerId) { this.winnerId = winnerId; }
+    public final String reason;
+
+    public GameOver(String winnerId) { this(winnerId, END); }
+
+    public GameOver(String winnerId, String reason) {
+        this.winnerId = winnerId;
+        this.reason = reason;
+    }
 
     @JsonCreator
     public GameOver(
             @JsonProperty("type") String type,
-            @JsonProperty("winnerId") String winnerId) {
-        this(winnerId);
+            @JsonProperty("winnerId") String winnerId,
+            @JsonProperty("reason") String reason) {
+        this(winnerId, reason);
     }
 
     @Override
@@ -30,10 +49,14 @@ public class GameOver extends Event {
         if (this == o) return true;
         if (!(o instanceof GameOver)) return false;
         GameOver gameOver = (GameOver) o;
-        return winnerId.equals(gameOver.winnerId);
+        // Winner is null in case of a draw or an abort.
+        return (winnerId == null ? gameOver.winnerId == null : winnerId.equals(gameOver.winnerId))
+                && (reason == null ? gameOver.reason == null : reason.equals(gameOver.reason));
     }
 
     @Override
-    public int hashCode() { return winnerId.hashCode(); }
+    public int hashCode() {
+        return 31 * (winnerId == null ? 0 : winnerId.hashCode()) + (reason == null ? 0 : reason.hashCode());
+    }
 
 }
@@ -0,0 +1,38 @@
+package models.event;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Entity for suggesting the pit to move to the player who asked for a hint.
+ */
+@ThreadSafe
+public class Hint extends Event {
+
+    public final String type = "Hint";
+
+    public final int pit;
+
+    public Hint(int pit) { this.pit = pit; }
+
+    @JsonCreator
+    public Hint(
+            @JsonProperty("type") String type,
+            @JsonProperty("pit") int pit) {
+        this(pit);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Hint)) return false;
+        Hint hint = (Hint) o;
+        return pit == hint.pit;
+    }
+
+    @Override
+    public int hashCode() { return pit; }
+
+}
@@ -0,0 +1,145 @@
+package models.event;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Growable character buffer specialized for emitting compact JSON.
+ *
+ * Escaping rules mirror the ones of Jackson's default {@code ObjectMapper},
+ * so that the produced text is identical to what {@code Json.stringify}
+ * would have generated for the same content. Instances are meant to be
+ * reused, see {@link EventEncoder}.
+ */
+@NotThreadSafe
+final class JsonBuffer {
+
+    /**
+     * Buffers grown beyond this size are shrunk back on {@link JsonBuffer#reset}.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final char[] NULL = "null".toCharArray();
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private int length = 0;
+
+    void reset() {
+        if (chars.length > MAX_RETAINED_CAPACITY)
+            chars = new char[INITIAL_CAPACITY];
+        length = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = length + extra;
+        if (required > chars.length) {
+            char[] grown = new char[Math.max(required, chars.length * 2)];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+    }
+
+    /**
+     * Appends pre-escaped content as is.
+     */
+    JsonBuffer raw(char[] text) {
+        ensureCapacity(text.length);
+        System.arraycopy(text, 0, chars, length, text.length);
+        length += text.length;
+        return this;
+    }
+
+    JsonBuffer raw(char c) {
+        ensureCapacity(1);
+        chars[length++] = c;
+        return this;
+    }
+
+    /**
+     * Appends the given text as a quoted and escaped JSON string, or {@code null}.
+     */
+    JsonBuffer string(String text) {
+        if (text == null) return raw(NULL);
+        int size = text.length();
+        // Reserve room for the common case of no escaping at all.
+        ensureCapacity(size + 2);
+        chars[length++] = '"';
+        for (int i = 0; i < size; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                if (length == chars.length) ensureCapacity(size - i + 1);
+                chars[length++] = c;
+            }
+            else escape(c);
+        }
+        ensureCapacity(1);
+        chars[length++] = '"';
+        return this;
+    }
+
+    private void escape(char c) {
+        ensureCapacity(6);
+        chars[length++] = '\\';
+        switch (c) {
+            case '"': chars[length++] = '"'; break;
+            case '\\': chars[length++] = '\\'; break;
+            case '\b': chars[length++] = 'b'; break;
+            case '\t': chars[length++] = 't'; break;
+            case '\f': chars[length++] = 'f'; break;
+            case '\n': chars[length++] = 'n'; break;
+            case '\r': chars[length++] = 'r'; break;
+            default:
+                chars[length++] = 'u';
+                chars[length++] = '0';
+                chars[length++] = '0';
+                chars[length++] = HEX_DIGITS[c >> 4];
+                chars[length++] = HEX_DIGITS[c & 0xF];
+        }
+    }
+
+    JsonBuffer number(int value) {
+        // Integer.MIN_VALUE has no positive counterpart, fall back to the JDK.
+        if (value == Integer.MIN_VALUE) return raw(Integer.toString(value).toCharArray());
+        ensureCapacity(11);
+        if (value < 0) {
+            chars[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) digits++;
+        int pos = length + digits;
+        length = pos;
+        do {
+            chars[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        return this;
+    }
+
+    JsonBuffer numbers(int[] values) {
+        if (values == null) return raw(NULL);
+        raw('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) raw(',');
+            number(values[i]);
+        }
+        return raw(']');
+    }
+
+    JsonBuffer strings(String[] values) {
+        if (values == null) return raw(NULL);
+        raw('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) raw(',');
+            string(values[i]);
+        }
+        return raw(']');
+    }
+
+    @Override
+    public String toString() { return new String(chars, 0, length); }
+
+}
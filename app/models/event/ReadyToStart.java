@@ -2,12 +2,14 @@ package models.event;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import models.rules.Variant;
 
 import javax.annotation.concurrent.ThreadSafe;
 import javax.validation.constraints.NotNull;
 
 /**
- * Entity for describing the start of a game along with the next and opponent player information.
+ * Entity for describing the start of a game along with the next and opponent player information,
+ * and the name of the {@link Variant} played.
  */
 @ThreadSafe
 public class ReadyToStart extends Event {
@@ -16,18 +18,29 @@ public class ReadyToStart extends Event {
 
     @NotNull public final String opponentId;
     @NotNull public final String nextPlayerId;
+    @NotNull public final String variant;
 
-    public ReadyToStart(String opponentId, String nextPlayerId) {
+    public ReadyToStart(String opponentId, String nextPlayerId, String variant) {
         this.opponentId = opponentId;
         this.nextPlayerId = nextPlayerId;
+        this.variant = variant != null ? variant : Variant.STANDARD.getName();
+    }
+
+    public ReadyToStart(String opponentId, String nextPlayerId, Variant variant) {
+        this(opponentId, nextPlayerId, variant.getName());
+    }
+
+    public ReadyToStart(String opponentId, String nextPlayerId) {
+        this(opponentId, nextPlayerId, Variant.STANDARD);
     }
 
     @JsonCreator
     public ReadyToStart(
             @JsonProperty("type") String type,
             @JsonProperty("opponentId") String opponentId,
-            @JsonProperty("nextPlayerId") String nextPlayerId) {
-        this(opponentId, nextPlayerId);
+            @JsonProperty("nextPlayerId") String nextPlayerId,
+            @JsonProperty("variant") String variant) {
+        this(opponentId, nextPlayerId, variant);
     }
 
     @Override
@@ -36,12 +49,13 @@ public class ReadyToStart extends Event {
         if (!(o instanceof ReadyToStart)) return false;
         ReadyToStart that = (ReadyToStart) o;
         return (nextPlayerId.equals(that.nextPlayerId) &&
-                opponentId.equals(that.opponentId));
+                opponentId.equals(that.opponentId) &&
+                variant.equals(that.variant));
     }
 
     @Override
     public int hashCode() {
-        return opponentId.hashCode() * 31 + nextPlayerId.hashCode();
+        return (opponentId.hashCode() * 31 + nextPlayerId.hashCode()) * 31 + variant.hashCode();
     }
 
 }
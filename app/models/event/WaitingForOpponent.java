@@ -8,6 +8,9 @@ import javax.validation.constraints.NotNull;
 
 /**
  * Entity for describing the pending state of a player along with its id.
+ *
+ * The token proves the ownership of the id when the player comes back, say,
+ * to resume its session, see {@link models.id.Credentials}.
  */
 @ThreadSafe
 public class WaitingForOpponent extends Event {
@@ -16,13 +19,21 @@ public class WaitingForOpponent extends Event {
 
     @NotNull public final String playerId;
 
-    public WaitingForOpponent(String playerId) { this.playerId = playerId; }
+    public final String token;
+
+    public WaitingForOpponent(String playerId) { this(playerId, null); }
+
+    public WaitingForOpponent(String playerId, String token) {
+        this.playerId = playerId;
+        this.token = token;
+    }
 
     @JsonCreator
     public WaitingForOpponent(
             @JsonProperty("type") String type,
-            @JsonProperty("playerId") String playerId) {
-        this(playerId);
+            @JsonProperty("playerId") String playerId,
+            @JsonProperty("token") String token) {
+        this(playerId, token);
     }
 
     @Override
@@ -30,10 +41,10 @@ public class WaitingForOpponent extends Event {
         if (this == o) return true;
         if (!(o instanceof WaitingForOpponent)) return false;
         WaitingForOpponent that = (WaitingForOpponent) o;
-        return playerId.equals(that.playerId);
+        return playerId.equals(that.playerId) && (token == null ? that.token == null : token.equals(that.token));
     }
 
     @Override
-    public int hashCode() { return playerId.hashCode(); }
+    public int hashCode() { return 31 * playerId.hashCode() + (token == null ? 0 : token.hashCode()); }
 
 }
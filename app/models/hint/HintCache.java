@@ -0,0 +1,103 @@
+package models.hint;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the best moves of evaluated positions, keyed by position hashes.
+ *
+ * Keys are spread over a power of two number of shards, each being an
+ * access-ordered map evicting its least recently used entry once it holds
+ * {@code capacity / shards} entries. Every shard has a lock of its own,
+ * hence concurrent lookups rarely contend, and a lookup holds the lock only
+ * for a map access. Lookups count the hits and misses exported as metrics.
+ */
+@ThreadSafe
+public class HintCache {
+
+    public static final int MISS = -1;
+
+    @SuppressWarnings("serial")
+    private static final class Shard extends LinkedHashMap<Long, Integer> {
+
+        private final int capacity;
+        private final AtomicLong evictions;
+
+        Shard(int capacity, AtomicLong evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            if (size() <= capacity) return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+
+    }
+
+    private final Shard[] shards;
+    private final int mask;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity total number of entries.
+     * @param shardCount number of shards, a power of two.
+     */
+    public HintCache(int capacity, int shardCount) {
+        if (shardCount < 1 || Integer.bitCount(shardCount) != 1)
+            throw new IllegalArgumentException("Shard count must be a power of two: " + shardCount);
+        this.shards = new Shard[shardCount];
+        int shardCapacity = Math.max(1, capacity / shardCount);
+        for (int i = 0; i < shardCount; i++) shards[i] = new Shard(shardCapacity, evictions);
+        this.mask = shardCount - 1;
+    }
+
+    private Shard shardOf(long key) { return shards[(int) (key ^ (key >>> 32)) & mask]; }
+
+    /**
+     * Returns the move cached for the given key, or {@link HintCache#MISS} if there is none.
+     */
+    public int get(long key) {
+        Shard shard = shardOf(key);
+        Integer move;
+        synchronized (shard) { move = shard.get(key); }
+        if (move == null) {
+            misses.incrementAndGet();
+            return MISS;
+        }
+        hits.incrementAndGet();
+        return move;
+    }
+
+    public void put(long key, int move) {
+        Shard shard = shardOf(key);
+        synchronized (shard) { shard.put(key, move); }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards)
+            synchronized (shard) { size += shard.size(); }
+        return size;
+    }
+
+    public long getHits() { return hits.get(); }
+
+    public long getMisses() { return misses.get(); }
+
+    /**
+     * Returns the number of entries evicted to make room for newer ones.
+     */
+    public long getEvictions() { return evictions.get(); }
+
+}
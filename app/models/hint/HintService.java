@@ -0,0 +1,145 @@
+package models.hint;
+
+import models.Settings;
+import models.bot.AlphaBetaSearch;
+import models.bot.TranspositionTable;
+import models.metrics.Metrics;
+import models.rules.Board;
+import models.rules.Variant;
+import models.simulation.Policies;
+import models.simulation.Policy;
+import models.tablebase.Tablebase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suggests moves to players, configured in {@code application.conf}.
+ *
+ * Suggested moves are cached in a {@link HintCache} of
+ * {@code game.hint.cacheSize} positions, hence a position is evaluated once
+ * no matter how many players ask for it. Cache hits are answered right away
+ * on the calling thread, while misses are evaluated on an executor of their
+ * own, a fork-join pool of {@code game.hint.parallelism} threads by default,
+ * hence hints never hold up moves or bots. {@link Variant#STANDARD}
+ * positions are searched by an {@link AlphaBetaSearch} within
+ * {@code game.hint.budget}, with a {@link TranspositionTable} of
+ * {@code game.hint.tableSize} entries, and positions of other variants get
+ * the pick of the greedy policy.
+ *
+ * Positions are keyed by the variant and the cells seen by the player to
+ * move, hence both seats share the hints of mirrored positions.
+ */
+@ThreadSafe
+public class HintService {
+
+    private static final Logger log = LoggerFactory.getLogger(HintService.class);
+
+    /**
+     * Receives the suggested pit, on the calling thread or on the executor.
+     */
+    public interface Listener {
+        public void onHint(int pos);
+    }
+
+    private static final class Holder {
+        static final HintService instance = new HintService(
+                new ForkJoinPool(Settings.getInt(
+                        "game.hint.parallelism",
+                        Math.max(1, Runtime.getRuntime().availableProcessors() / 4))),
+                new AlphaBetaSearch(
+                        new TranspositionTable(Settings.getInt("game.hint.tableSize", 1 << 18)),
+                        Tablebase.shared()),
+                Settings.getDuration("game.hint.budget", TimeUnit.NANOSECONDS, TimeUnit.MILLISECONDS.toNanos(50)),
+                new HintCache(Settings.getInt("game.hint.cacheSize", 1 << 16), 16));
+    }
+
+    public static HintService shared() { return Holder.instance; }
+
+    private final Executor executor;
+    private final AlphaBetaSearch search;
+    private final long budgetNanos;
+    private final HintCache cache;
+
+    /**
+     * @param executor evaluating positions, a {@link ForkJoinPool} if it is to run the search.
+     */
+    public HintService(Executor executor, AlphaBetaSearch search, long budgetNanos, HintCache cache) {
+        this.executor = executor;
+        this.search = search;
+        this.budgetNanos = budgetNanos;
+        this.cache = cache;
+    }
+
+    public HintCache getCache() { return cache; }
+
+    /**
+     * Passes the suggested move of the given seat to the given listener.
+     *
+     * @param board owned by the service from now on, which is not to be modified.
+     * @throws IllegalArgumentException if the given seat has no legal moves.
+     */
+    public void request(final Board board, final int seat, final Listener listener) {
+        final long startNanos = System.nanoTime();
+        if (board.pitStones(seat) == 0)
+            throw new IllegalArgumentException("No legal moves for seat " + seat + '.');
+        final long key = keyOf(board, seat);
+        int cached = cache.get(key);
+        // A colliding key of another position may point to an empty pit.
+        if (cached != HintCache.MISS && board.pit(seat, cached) > 0) {
+            Metrics.recordHint(System.nanoTime() - startNanos);
+            listener.onHint(cached);
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int pos = evaluate(board, seat, key);
+                cache.put(key, pos);
+                Metrics.recordHint(System.nanoTime() - startNanos);
+                log.trace("Evaluated pit {} for seat {}.", pos, seat);
+                listener.onHint(pos);
+            }
+        });
+    }
+
+    private int evaluate(Board board, int seat, long key) {
+        Variant variant = board.getVariant();
+        if (variant == Variant.STANDARD) return search.bestMove(board, seat, budgetNanos);
+        // Seeded by the position, hence ties are broken the same way every time.
+        Policy greedy = Policies.newPolicy(Policies.Kind.GREEDY, variant, null, 0);
+        return greedy.move(board, seat, new Random(key));
+    }
+
+    /**
+     * Returns a 64-bit hash of the variant and the cells of the given board,
+     * starting with the side of the given seat.
+     */
+    static long keyOf(Board board, int seat) {
+        long hash = board.getVariant().hashCode();
+        int size = board.size(), side = board.sideSize(), offset = seat * side;
+        for (int i = 0; i < size; i++) {
+            int cell = board.cell((offset + i) % size);
+            hash = (hash ^ cell) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreading every input bit over the whole key.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
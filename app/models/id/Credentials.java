@@ -0,0 +1,81 @@
+package models.id;
+
+import models.Settings;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Secret tokens proving that a client owns a player id.
+ *
+ * The token of an id is the first 128 bits of its HMAC-SHA256 under a key
+ * of this node, in URL-safe Base64. The key is {@code game.ids.secret} if set,
+ * and otherwise drawn at startup. Tokens are therefore never stored, yet a
+ * client cannot forge the token of an id it was not told, even if ids are
+ * sequential. Players are told their tokens along with their ids, see
+ * {@link models.event.WaitingForOpponent}. Tokens are compared in constant
+ * time.
+ */
+@ThreadSafe
+public class Credentials {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_BYTES = 16;
+
+    private static final class Holder {
+        static final Credentials instance = new Credentials(keyOf(Settings.getString("game.ids.secret", null)));
+    }
+
+    public static Credentials shared() { return Holder.instance; }
+
+    private static byte[] keyOf(String secret) {
+        if (secret != null) return secret.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            }
+            catch (GeneralSecurityException gse) { throw new IllegalStateException(gse); }
+        }
+    };
+
+    public Credentials(byte[] key) { this.key = new SecretKeySpec(key, ALGORITHM); }
+
+    /**
+     * Returns the token of the given player id.
+     */
+    public String tokenOf(String playerId) {
+        byte[] digest = macs.get().doFinal(playerId.getBytes(StandardCharsets.UTF_8));
+        return TokenIdGenerator.encode(Arrays.copyOf(digest, TOKEN_BYTES));
+    }
+
+    /**
+     * Checks in constant time if the given token is the one of the given player id.
+     */
+    public boolean verify(String playerId, String token) { return matches(tokenOf(playerId), token); }
+
+    /**
+     * Checks in constant time if the given tokens are equal, where a null or empty token never matches.
+     */
+    public static boolean matches(String expected, String token) {
+        if (expected == null || expected.isEmpty() || token == null) return false;
+        return MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
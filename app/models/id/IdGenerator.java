@@ -0,0 +1,15 @@
+package models.id;
+
+/**
+ * Source of unique, printable identifiers.
+ *
+ * @see Ids
+ */
+public interface IdGenerator {
+
+    /**
+     * Returns an identifier that was never returned before by this generator.
+     */
+    public String nextId();
+
+}
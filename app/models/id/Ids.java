@@ -0,0 +1,43 @@
+package models.id;
+
+import models.Settings;
+
+/**
+ * Identifier generators configured in {@code application.conf}.
+ *
+ * Player identifiers are generated by either a {@link SequentialIdGenerator}
+ * ({@code game.ids.players = sequential}, the default) or a
+ * {@link TokenIdGenerator} ({@code game.ids.players = token}). Setting
+ * {@code game.snapshot.path} forces tokens, since a counter starting over
+ * after a restart would hand out the ids of the restored players. Games are
+ * identified by their numeric keys, printed the same way as sequential
+ * identifiers, both prefixed by {@code game.ids.node}.
+ */
+public final class Ids {
+
+    private Ids() {}
+
+    private static final String prefix =
+            SequentialIdGenerator.prefixOf(Settings.getString("game.ids.node", ""));
+
+    private static final IdGenerator players = newGenerator(
+            Settings.getString("game.snapshot.path", null) != null
+                    ? "token" : Settings.getString("game.ids.players", "sequential"),
+            Settings.getInt("game.ids.tokenPoolSize", 1024));
+
+    private static IdGenerator newGenerator(String kind, int tokenPoolSize) {
+        switch (kind) {
+            case "sequential": return new SequentialIdGenerator(Settings.getString("game.ids.node", ""));
+            case "token": return new TokenIdGenerator(tokenPoolSize);
+            default: throw new IllegalArgumentException("Unknown identifier generator: " + kind);
+        }
+    }
+
+    public static IdGenerator players() { return players; }
+
+    /**
+     * Returns the printable identifier of the game with the given key.
+     */
+    public static String ofGame(long key) { return SequentialIdGenerator.format(prefix, key); }
+
+}
@@ -0,0 +1,36 @@
+package models.id;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates identifiers from a monotonic counter prefixed by the node name.
+ *
+ * The counter is printed in radix 36, hence identifiers stay a few
+ * characters long, e.g., {@code "a.2bx"} on node {@code "a"}. Unlike
+ * {@link java.util.UUID#randomUUID}, no shared random number generator is
+ * involved. Identifiers are predictable though, see {@link TokenIdGenerator}
+ * for when this matters.
+ */
+@ThreadSafe
+public class SequentialIdGenerator implements IdGenerator {
+
+    private final String prefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * @param node name distinguishing this node from the others sharing the
+     *             identifier space, or an empty string if there are none.
+     */
+    public SequentialIdGenerator(String node) { this.prefix = prefixOf(node); }
+
+    @Override
+    public String nextId() { return format(prefix, counter.incrementAndGet()); }
+
+    static String prefixOf(String node) { return node.isEmpty() ? "" : node + '.'; }
+
+    static String format(String prefix, long value) {
+        return prefix.concat(Long.toString(value, Character.MAX_RADIX));
+    }
+
+}
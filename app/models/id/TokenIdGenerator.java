@@ -0,0 +1,76 @@
+package models.id;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Generates unguessable 128-bit tokens in URL-safe Base64.
+ *
+ * Tokens are drawn from a {@link SecureRandom} by a background daemon thread
+ * and buffered in a bounded pool, so that callers on the hot path merely
+ * poll the pool. Callers only draw tokens themselves when the pool runs dry.
+ */
+@ThreadSafe
+public class TokenIdGenerator implements IdGenerator {
+
+    private final static Logger log = LoggerFactory.getLogger(TokenIdGenerator.class);
+    private final static char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private final static int TOKEN_BYTES = 16;
+
+    private final SecureRandom random = new SecureRandom();
+    private final BlockingQueue<String> pool;
+
+    public TokenIdGenerator(int poolSize) {
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        Thread refiller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) pool.put(newToken());
+                }
+                catch (InterruptedException ie) {
+                    log.debug("Token pool refiller is interrupted.");
+                }
+            }
+        }, "token-pool-refiller");
+        refiller.setDaemon(true);
+        refiller.start();
+    }
+
+    @Override
+    public String nextId() {
+        String token = pool.poll();
+        return token != null ? token : newToken();
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return encode(bytes);
+    }
+
+    /**
+     * Encodes the given bytes in unpadded URL-safe Base64.
+     */
+    static String encode(byte[] bytes) {
+        char[] chars = new char[(bytes.length * 8 + 5) / 6];
+        int bits = 0, buffer = 0, i = 0;
+        for (byte b : bytes) {
+            buffer = (buffer << 8) | (b & 0xFF);
+            bits += 8;
+            while (bits >= 6) {
+                bits -= 6;
+                chars[i++] = ALPHABET[(buffer >>> bits) & 0x3F];
+            }
+        }
+        if (bits > 0) chars[i] = ALPHABET[(buffer << (6 - bits)) & 0x3F];
+        return new String(chars);
+    }
+
+}
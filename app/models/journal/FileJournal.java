@@ -0,0 +1,224 @@
+package models.journal;
+
+import models.rules.Board;
+import models.rules.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * {@link Journal} appending to a directory of segment files with group commit.
+ *
+ * Appenders encode records into an in-memory buffer under a lock held for a
+ * few dozen bytes of copying. A writer thread swaps that buffer with a second
+ * one every flush interval, and writes the collected records to the current
+ * segment as a single batch, forcing it to disk if {@code fsync} is set.
+ * Hence appenders never wait on disk, and a single {@code write} and
+ * {@code force} pair covers every move made within a flush interval. The
+ * buffers grow as needed rather than blocking appenders.
+ *
+ * Once a segment exceeds the segment size, the writer rolls over to a new
+ * one. Segments are named after their sequence numbers, and consist of a
+ * {@link FileJournal#MAGIC} header followed by batches. Every batch is
+ * framed by its length and CRC-32, so that {@link JournalReader} can tell a
+ * batch torn by a crash from a complete one. Within a batch, records are
+ *
+ * <pre>
+ * START  0x01, i64 game key, i64 epoch millis, string game id, string seat 0 id, string seat 1 id,
+ *        string variant
+ * MOVE   0x02, i64 game key, u8 seat, u8 pit
+ * END    0x03, i64 game key, u8 completed (1) or aborted (0), u8 store 0, u8 store 1
+ * </pre>
+ *
+ * where strings are prefixed by their u16 UTF-8 length, and numbers are big-endian.
+ */
+@ThreadSafe
+public class FileJournal implements Journal {
+
+    private static final Logger log = LoggerFactory.getLogger(FileJournal.class);
+
+    static final int MAGIC = 0x4C4D4A32;  // "LMJ2"
+    static final byte START = 0x01;
+    static final byte MOVE = 0x02;
+    static final byte END = 0x03;
+
+    /** Length and CRC-32 of a batch. */
+    static final int BATCH_HEADER_SIZE = 8;
+
+    static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    static final long DEFAULT_FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final int INITIAL_BUFFER_SIZE = 64 << 10;
+
+    private final File directory;
+    private final long segmentSize;
+    private final long flushIntervalNanos;
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition closing = lock.newCondition();
+    @GuardedBy("lock") private ByteBuffer active = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    @GuardedBy("lock") private boolean closed;
+
+    /** Confined to the writer thread. */
+    private ByteBuffer flushing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final ByteBuffer batchHeader = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileChannel segment;
+    private long segmentSequence;
+
+    private final Thread writer;
+
+    public FileJournal(File directory, long segmentSize, long flushIntervalNanos, boolean fsync) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create journal directory: " + directory);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushIntervalNanos = flushIntervalNanos;
+        this.fsync = fsync;
+        File[] segments = JournalReader.segmentsOf(directory);
+        this.segmentSequence = segments.length == 0 ? 0 : JournalReader.sequenceOf(segments[segments.length - 1]);
+        roll();
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() { write(); }
+        }, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Reserves room for a record of the given length in the active buffer.
+     */
+    @GuardedBy("lock")
+    private ByteBuffer reserve(int length) {
+        if (active.remaining() < length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * active.capacity(), active.position() + length));
+            active.flip();
+            grown.put(active);
+            active = grown;
+        }
+        return active;
+    }
+
+    @Override
+    public void start(long gameKey, String gameId, String[] seats, Variant variant) {
+        byte[] id = gameId.getBytes(StandardCharsets.UTF_8);
+        byte[] upperId = seats[0].getBytes(StandardCharsets.UTF_8);
+        byte[] lowerId = seats[1].getBytes(StandardCharsets.UTF_8);
+        byte[] variantName = variant.getName().getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (closed) return;
+            ByteBuffer buffer = reserve(1 + 8 + 8 + 8 + id.length + upperId.length + lowerId.length + variantName.length);
+            buffer.put(START).putLong(gameKey).putLong(now);
+            buffer.putShort((short) id.length).put(id);
+            buffer.putShort((short) upperId.length).put(upperId);
+            buffer.putShort((short) lowerId.length).put(lowerId);
+            buffer.putShort((short) variantName.length).put(variantName);
+        }
+        finally { lock.unlock(); }
+    }
+
+    @Override
+    public void move(long gameKey, int seat, int pos) {
+        lock.lock();
+        try {
+            if (!closed) reserve(1 + 8 + 2).put(MOVE).putLong(gameKey).put((byte) seat).put((byte) pos);
+        }
+        finally { lock.unlock(); }
+    }
+
+    @Override
+    public void end(long gameKey, Board board) {
+        lock.lock();
+        try {
+            if (!closed)
+                reserve(1 + 8 + 3).put(END).putLong(gameKey)
+                        .put((byte) (board.isOver() ? 1 : 0))
+                        .put((byte) board.score(0))
+                        .put((byte) board.score(1));
+        }
+        finally { lock.unlock(); }
+    }
+
+    /**
+     * Stops accepting records, waits for the writer to flush the remaining ones, and closes the segment.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            closing.signal();
+        }
+        finally { lock.unlock(); }
+        try { writer.join(); }
+        catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+    }
+
+    /**
+     * Body of the writer thread, flushing a batch every flush interval until closed.
+     */
+    private void write() {
+        boolean done = false;
+        while (!done) {
+            lock.lock();
+            try {
+                if (!closed)
+                    try { closing.awaitNanos(flushIntervalNanos); }
+                    catch (InterruptedException ie) { closed = true; }
+                done = closed;
+                ByteBuffer swap = active;
+                active = flushing;
+                flushing = swap;
+            }
+            finally { lock.unlock(); }
+            flushing.flip();
+            try { if (flushing.hasRemaining()) flush(); }
+            catch (IOException ioe) { log.error("Journal batch of {} bytes is lost.", flushing.remaining(), ioe); }
+            flushing.clear();
+        }
+        try { segment.close(); }
+        catch (IOException ioe) { log.error("Failed to close the journal segment.", ioe); }
+    }
+
+    private void flush() throws IOException {
+        crc.reset();
+        crc.update(flushing.array(), 0, flushing.limit());
+        batchHeader.clear();
+        batchHeader.putInt(flushing.limit()).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] batch = {batchHeader, flushing};
+        while (flushing.hasRemaining()) segment.write(batch);
+        if (fsync) segment.force(false);
+        if (segment.position() >= segmentSize) roll();
+    }
+
+    /**
+     * Closes the current segment, if any, and starts the next one.
+     */
+    private void roll() throws IOException {
+        if (segment != null) segment.close();
+        File file = new File(directory, JournalReader.nameOf(++segmentSequence));
+        segment = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC);
+        header.flip();
+        while (header.hasRemaining()) segment.write(header);
+        log.debug("Journal rolled over to {}.", file);
+    }
+
+}
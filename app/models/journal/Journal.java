@@ -0,0 +1,36 @@
+package models.journal;
+
+import models.rules.Board;
+import models.rules.Variant;
+
+/**
+ * Append-only record of game starts, accepted moves and game ends.
+ *
+ * Implementations must not block the caller on disk, since games append
+ * from within their mailboxes.
+ *
+ * @see Journals
+ */
+public interface Journal {
+
+    /**
+     * Records the start of the game with the given key, id, player ids indexed by seats, and variant.
+     */
+    public void start(long gameKey, String gameId, String[] seats, Variant variant);
+
+    /**
+     * Records a move accepted by the rules.
+     */
+    public void move(long gameKey, int seat, int pos);
+
+    /**
+     * Records the end of a started game, either completed or aborted, along with the final board.
+     */
+    public void end(long gameKey, Board board);
+
+    /**
+     * Makes the records appended so far durable, and releases the resources.
+     */
+    public void close();
+
+}
@@ -0,0 +1,154 @@
+package models.journal;
+
+import models.rules.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Sequential reader of the segments written by {@link FileJournal}.
+ *
+ * Segments are memory-mapped and decoded one batch at a time.
+ * A batch whose length or CRC-32 does not check out, as left behind by a
+ * crash in the middle of a write, ends the segment.
+ */
+public class JournalReader {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalReader.class);
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    /**
+     * Receives the records in the order they were appended.
+     */
+    public interface Visitor {
+
+        public void onStart(long gameKey, long epochMillis, String gameId, String[] seats, Variant variant);
+
+        public void onMove(long gameKey, int seat, int pos);
+
+        public void onEnd(long gameKey, boolean completed, int upperScore, int lowerScore);
+
+    }
+
+    private JournalReader() {}
+
+    static String nameOf(long sequence) { return String.format("%s%016d%s", PREFIX, sequence, SUFFIX); }
+
+    static long sequenceOf(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Returns the segments in the given directory in the order they were written.
+     */
+    static File[] segmentsOf(File directory) {
+        File[] segments = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                String name = file.getName();
+                return file.isFile() && name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }
+        });
+        if (segments == null) return new File[0];
+        // Sequence numbers are zero-padded, hence names sort in sequence order.
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Passes every record in the journal at the given directory to the given visitor.
+     *
+     * @return the number of records read.
+     */
+    public static long read(File directory, Visitor visitor) throws IOException {
+        long count = 0;
+        for (File segment : segmentsOf(directory))
+            count += readSegment(segment, visitor);
+        return count;
+    }
+
+    private static long readSegment(File segment, Visitor visitor) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "r");
+             FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int magic = buffer.remaining() < 4 ? 0 : buffer.getInt();
+        if (magic != FileJournal.MAGIC)
+            throw new IOException("Not a journal segment: " + segment);
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[0];
+        long count = 0;
+        while (buffer.remaining() >= FileJournal.BATCH_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                log.warn("Torn batch at offset {} of {}.", buffer.position() - FileJournal.BATCH_HEADER_SIZE, segment);
+                break;
+            }
+            // Checksumming a heap copy is way faster than a byte at a time off the mapping.
+            if (bytes.length < length) bytes = new byte[Math.max(length, 2 * bytes.length)];
+            buffer.get(bytes, 0, length);
+            crc.reset();
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Corrupt batch at offset {} of {}.",
+                        buffer.position() - length - FileJournal.BATCH_HEADER_SIZE, segment);
+                break;
+            }
+            ByteBuffer batch = ByteBuffer.wrap(bytes, 0, length);
+            while (batch.hasRemaining()) {
+                readRecord(batch, visitor);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void readRecord(ByteBuffer batch, Visitor visitor) throws IOException {
+        byte type = batch.get();
+        long gameKey = batch.getLong();
+        switch (type) {
+            case FileJournal.START:
+                long epochMillis = batch.getLong();
+                String gameId = readString(batch);
+                String[] seats = {readString(batch), readString(batch)};
+                String variantName = readString(batch);
+                Variant variant = Variant.fromName(variantName);
+                if (variant == null) throw new IOException("Unknown variant: " + variantName);
+                visitor.onStart(gameKey, epochMillis, gameId, seats, variant);
+                break;
+            case FileJournal.MOVE:
+                int seat = batch.get() & 0xFF;
+                visitor.onMove(gameKey, seat, batch.get() & 0xFF);
+                break;
+            case FileJournal.END:
+                boolean completed = batch.get() != 0;
+                int upperScore = batch.get() & 0xFF;
+                visitor.onEnd(gameKey, completed, upperScore, batch.get() & 0xFF);
+                break;
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer batch) {
+        byte[] bytes = new byte[batch.getShort() & 0xFFFF];
+        batch.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
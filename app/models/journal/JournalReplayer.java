@@ -0,0 +1,116 @@
+package models.journal;
+
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.rules.Variant;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replays journaled games through the {@link SowingEngine}, checking that
+ * every move is legal in turn and that the final boards match the recorded ones.
+ *
+ * Boards of the games in flight are kept in memory until their end record.
+ * Type
+ *
+ *   $ activator "runMain models.journal.JournalReplayer journal"
+ *
+ * to audit the journal in the {@code journal} directory, or append a game
+ * key to print the moves and the final board of that game only.
+ */
+public class JournalReplayer implements JournalReader.Visitor {
+
+    /** Game to report on, or zero to audit all of them. */
+    private final long traceKey;
+    private final Map<Long, Board> boards = new HashMap<>();
+    private final Map<Long, Integer> nextSeats = new HashMap<>();
+    private long started;
+    private long completed;
+    private long aborted;
+    private long moves;
+    private long inconsistencies;
+
+    public JournalReplayer(long traceKey) { this.traceKey = traceKey; }
+
+    @Override
+    public void onStart(long gameKey, long epochMillis, String gameId, String[] seats, Variant variant) {
+        started++;
+        boards.put(gameKey, new Board(variant));
+        nextSeats.put(gameKey, 0);
+        if (gameKey == traceKey)
+            System.out.printf("Game %s of %s started at %tc between %s and %s.%n",
+                    gameId, variant, epochMillis, seats[0], seats[1]);
+    }
+
+    @Override
+    public void onMove(long gameKey, int seat, int pos) {
+        moves++;
+        Board board = boards.get(gameKey);
+        if (board == null || nextSeats.get(gameKey) != seat) {
+            inconsistent(gameKey, "move out of turn or of an unknown game");
+            return;
+        }
+        int result = SowingEngine.move(board, seat, pos);
+        if (result < 0) {
+            inconsistent(gameKey, "illegal move " + seat + '/' + pos);
+            return;
+        }
+        if ((result & SowingEngine.EXTRA_TURN) == 0) nextSeats.put(gameKey, Board.opponentOf(seat));
+        if (gameKey == traceKey)
+            System.out.printf("Seat %d sowed pit %d: %s | %s%n",
+                    seat, pos, sideOf(board, 0), sideOf(board, 1));
+    }
+
+    @Override
+    public void onEnd(long gameKey, boolean completed, int upperScore, int lowerScore) {
+        Board board = boards.remove(gameKey);
+        nextSeats.remove(gameKey);
+        if (completed) this.completed++;
+        else aborted++;
+        if (board == null) inconsistent(gameKey, "end of an unknown game");
+        else if (board.isOver() != completed || board.score(0) != upperScore || board.score(1) != lowerScore)
+            inconsistent(gameKey, "recorded end does not match the replayed board");
+        if (gameKey == traceKey)
+            System.out.printf("Game %s with %d:%d.%n", completed ? "completed" : "aborted", upperScore, lowerScore);
+    }
+
+    private void inconsistent(long gameKey, String reason) {
+        inconsistencies++;
+        System.out.printf("Game %d: %s.%n", gameKey, reason);
+    }
+
+    private static String sideOf(Board board, int seat) {
+        StringBuilder builder = new StringBuilder();
+        for (int pos = 0; pos < board.sideSize(); pos++) {
+            if (pos > 0) builder.append(pos == board.pits() ? " [" : " ");
+            builder.append(board.pit(seat, pos));
+        }
+        return builder.append(']').toString();
+    }
+
+    public long getInconsistencies() { return inconsistencies; }
+
+    /**
+     * Returns the number of games started but not ended in the journal.
+     */
+    public int getInFlight() { return boards.size(); }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JournalReplayer <journal directory> [game key]");
+            System.exit(1);
+        }
+        JournalReplayer replayer = new JournalReplayer(args.length > 1 ? Long.parseLong(args[1]) : 0);
+        long start = System.nanoTime();
+        long records = JournalReader.read(new File(args[0]), replayer);
+        System.out.printf(
+                "Replayed %d records in %.1f s: %d games started, %d completed, %d aborted, " +
+                        "%d in flight, %d moves, %d inconsistencies.%n",
+                records, (System.nanoTime() - start) / 1e9, replayer.started, replayer.completed,
+                replayer.aborted, replayer.getInFlight(), replayer.moves, replayer.inconsistencies);
+    }
+
+}
@@ -0,0 +1,66 @@
+package models.journal;
+
+import models.Settings;
+import models.rules.Board;
+import models.rules.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the {@link Journal}s games record into.
+ */
+public final class Journals {
+
+    private Journals() {}
+
+    private static final Logger log = LoggerFactory.getLogger(Journals.class);
+
+    /**
+     * Discards every record.
+     */
+    public static final Journal NOOP = new Journal() {
+        @Override
+        public void start(long gameKey, String gameId, String[] seats, Variant variant) {}
+
+        @Override
+        public void move(long gameKey, int seat, int pos) {}
+
+        @Override
+        public void end(long gameKey, Board board) {}
+
+        @Override
+        public void close() {}
+    };
+
+    private static final class Holder {
+        static final Journal shared = load(Settings.getString("game.journal.path", null));
+    }
+
+    private static Journal load(String path) {
+        if (path == null) return NOOP;
+        try {
+            Journal journal = new FileJournal(
+                    new File(path),
+                    Settings.getLong("game.journal.segmentSize", FileJournal.DEFAULT_SEGMENT_SIZE),
+                    Settings.getDuration("game.journal.flushInterval", TimeUnit.NANOSECONDS,
+                            FileJournal.DEFAULT_FLUSH_INTERVAL_NANOS),
+                    Settings.getBoolean("game.journal.fsync", true));
+            log.info("Journaling games into {}.", path);
+            return journal;
+        }
+        catch (IOException ioe) {
+            log.error("Journal at " + path + " is not available, games will not be journaled.", ioe);
+            return NOOP;
+        }
+    }
+
+    /**
+     * Returns the journal in the {@code game.journal.path} directory, or {@link Journals#NOOP} if there is none.
+     */
+    public static Journal shared() { return Holder.shared; }
+
+}
@@ -0,0 +1,382 @@
+package models.matchmaking;
+
+import models.Settings;
+import models.metrics.Metrics;
+import models.player.ConnectedPlayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.libs.F;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pairs joining players of close ratings, in arrival order.
+ *
+ * Joins are appended to a lock-free arrivals queue. Whichever joining thread
+ * manages to take the pairing lock drains the arrivals on behalf of everyone
+ * else, in batches of at most {@link Matchmaker#BATCH_SIZE}, matching each
+ * arrival with the closest rated waiting player within its rating band, the
+ * longest waiting one among equal ratings. Pairs are announced to the
+ * {@link PairingListener} after the lock is released. Since the drainer
+ * re-checks the arrivals after releasing the lock, no join can be left
+ * behind unpaired while another player in its band is waiting.
+ *
+ * Waiting players are kept in FIFO buckets of equal ratings, in a tree map
+ * by rating, hence the closest rated players are found in O(log n) time.
+ * Another FIFO of every waiting player in arrival order lets
+ * {@link Matchmaker#rematch} visit the longest waiting players first.
+ *
+ * Two players fit in a band if their ratings differ by at most
+ * {@code game.rating.band}, widening by {@code game.rating.bandGrowth} for
+ * every second the longer waiting one waited, hence nobody waits forever
+ * for an equal. Since bands widen in between arrivals as well, waiting
+ * players are to be matched with each other every now and then by
+ * {@link Matchmaker#rematch}. Players of equal ratings are paired in plain
+ * arrival order.
+ *
+ * Players whose connection closes while waiting are evicted: they leave
+ * the queue depth right away and are skipped by the drainer.
+ */
+@ThreadSafe
+public class Matchmaker {
+
+    private static final Logger log = LoggerFactory.getLogger(Matchmaker.class);
+
+    static final int BATCH_SIZE = 256;
+
+    /**
+     * Receives the pairs formed by the matchmaker.
+     */
+    public interface PairingListener {
+
+        /**
+         * Called with the longer waiting player as the upper player.
+         */
+        public void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer);
+
+    }
+
+    /**
+     * Queue entry of a player.
+     */
+    public static final class Ticket {
+
+        static final int WAITING = 0;
+        static final int PAIRED = 1;
+        static final int EVICTED = 2;
+
+        final ConnectedPlayer player;
+        final int rating;
+        final long enqueuedNanos = System.nanoTime();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Ticket(ConnectedPlayer player) {
+            this.player = player;
+            this.rating = player.getRating();
+        }
+
+        /**
+         * Checks if the player is neither paired nor evicted yet.
+         */
+        public boolean isWaiting() { return state.get() == WAITING; }
+
+    }
+
+    private final PairingListener listener;
+    private final int band;
+    private final int bandGrowth;
+    private final Queue<Ticket> arrivals = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Waiting tickets by rating, in arrival order. */
+    @GuardedBy("lock") private final TreeMap<Integer, ArrayDeque<Ticket>> buckets = new TreeMap<>();
+    /** Waiting tickets in arrival order, along with tickets paired or evicted since. */
+    @GuardedBy("lock") private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong pairedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong totalTimeToPairNanos = new AtomicLong();
+
+    /**
+     * Creates a matchmaker of the rating bands configured in {@code application.conf}.
+     */
+    public Matchmaker(PairingListener listener) {
+        this(listener, Settings.getInt("game.rating.band", 200), Settings.getInt("game.rating.bandGrowth", 50));
+    }
+
+    /**
+     * @param band rating difference allowed right away.
+     * @param bandGrowth rating difference allowed more for every second of waiting.
+     */
+    public Matchmaker(PairingListener listener, int band, int bandGrowth) {
+        this.listener = listener;
+        this.band = band;
+        this.bandGrowth = bandGrowth;
+    }
+
+    /**
+     * Queues the given player for pairing.
+     */
+    public Ticket join(ConnectedPlayer player) {
+        final Ticket ticket = new Ticket(player);
+        depth.incrementAndGet();
+        player.getConnection().onClose(new F.Callback0() {
+            @Override
+            public void invoke() throws Throwable { evict(ticket); }
+        });
+        arrivals.offer(ticket);
+        drain();
+        return ticket;
+    }
+
+    private void evict(Ticket ticket) {
+        if (ticket.state.compareAndSet(Ticket.WAITING, Ticket.EVICTED)) {
+            depth.decrementAndGet();
+            evictedCount.incrementAndGet();
+            log.trace("Evicted {}.", ticket.player);
+        }
+    }
+
+    /**
+     * Drains the arrivals unless another thread is already doing so.
+     */
+    private void drain() {
+        List<Ticket> pairs = new ArrayList<>();
+        do {
+            if (!lock.tryLock()) return;
+            try { pair(pairs); }
+            finally { lock.unlock(); }
+            announce(pairs);
+        } while (!arrivals.isEmpty());
+    }
+
+    @GuardedBy("lock")
+    private void pair(List<Ticket> pairs) {
+        long now = System.nanoTime();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Ticket arrival = arrivals.poll();
+            if (arrival == null) break;
+            if (!arrival.player.getConnection().isOpen()) {
+                evict(arrival);
+                continue;
+            }
+            // Hold the arrival while looking for an opponent, unless it got evicted in the meantime.
+            if (!arrival.state.compareAndSet(Ticket.WAITING, Ticket.PAIRED)) continue;
+            Ticket candidate = pollCandidate(arrival, now);
+            if (candidate == null) park(arrival);
+            else {
+                pairs.add(candidate);
+                pairs.add(arrival);
+            }
+        }
+    }
+
+    /**
+     * Pairs the given player with the player of the given ticket right away,
+     * provided that the ticket is still waiting, e.g., for a bot to take on a
+     * player left waiting. The given player is never queued.
+     *
+     * @return false if the ticket got paired or evicted already.
+     */
+    public boolean pairWith(Ticket ticket, ConnectedPlayer player) {
+        List<Ticket> pairs = new ArrayList<>(2);
+        lock.lock();
+        try {
+            if (!ticket.state.compareAndSet(Ticket.WAITING, Ticket.PAIRED)) return false;
+            unbucket(ticket);
+            if (!ticket.player.getConnection().isOpen()) {
+                // Count the eviction, which the close failed to do while the ticket was held.
+                ticket.state.set(Ticket.WAITING);
+                evict(ticket);
+                return false;
+            }
+            // Counted as joining, since announcing takes both players off the depth.
+            depth.incrementAndGet();
+            pairs.add(ticket);
+            pairs.add(new Ticket(player));
+        }
+        finally { lock.unlock(); }
+        announce(pairs);
+        return true;
+    }
+
+    /**
+     * Matches the waiting players whose bands widened enough since they
+     * joined, the longest waiting ones first. Does nothing if another thread
+     * is pairing already.
+     */
+    public void rematch() {
+        List<Ticket> pairs = new ArrayList<>();
+        if (!lock.tryLock()) return;
+        try {
+            long now = System.nanoTime();
+            // Every ticket is taken off the head once, and parked at the tail unless matched.
+            for (int remaining = waiting.size(); remaining > 0; remaining--) {
+                Ticket ticket = waiting.pollFirst();
+                // Paired or evicted tickets already left their buckets.
+                if (!ticket.isWaiting()) continue;
+                unbucket(ticket);
+                if (!ticket.player.getConnection().isOpen()) {
+                    evict(ticket);
+                    continue;
+                }
+                if (!ticket.state.compareAndSet(Ticket.WAITING, Ticket.PAIRED)) continue;
+                Ticket candidate = pollCandidate(ticket, now);
+                if (candidate == null) park(ticket);
+                else {
+                    pairs.add(ticket);
+                    pairs.add(candidate);
+                }
+            }
+        }
+        finally { lock.unlock(); }
+        announce(pairs);
+        if (!arrivals.isEmpty()) drain();
+    }
+
+    /**
+     * Takes the closest rated live ticket within the band of the given
+     * ticket and moves it to the paired state, evicting dead tickets on the
+     * way. A farther rated ticket is taken only if the closer one does not
+     * fit, since a longer wait widened its band. Returns null if nobody fits.
+     */
+    @GuardedBy("lock")
+    private Ticket pollCandidate(Ticket ticket, long now) {
+        while (true) {
+            Ticket below = null, above = null;
+            Map.Entry<Integer, ArrayDeque<Ticket>> entry = buckets.floorEntry(ticket.rating);
+            while (entry != null && (below = liveHead(entry)) == null)
+                entry = buckets.lowerEntry(entry.getKey());
+            entry = buckets.higherEntry(ticket.rating);
+            while (entry != null && (above = liveHead(entry)) == null)
+                entry = buckets.higherEntry(entry.getKey());
+
+            Ticket nearer = below, farther = above;
+            if (below == null || (above != null && (above.rating - ticket.rating < ticket.rating - below.rating
+                    || above.rating - ticket.rating == ticket.rating - below.rating
+                    && above.enqueuedNanos < below.enqueuedNanos))) {
+                nearer = above;
+                farther = below;
+            }
+            Ticket candidate = nearer != null && fits(nearer, ticket, now) ? nearer
+                    : farther != null && fits(farther, ticket, now) ? farther : null;
+            if (candidate == null) return null;
+            unbucket(candidate);
+            // Evicted unless the transition succeeds, in which case look again.
+            if (candidate.state.compareAndSet(Ticket.WAITING, Ticket.PAIRED)) return candidate;
+        }
+    }
+
+    /**
+     * Returns the longest waiting live ticket of the given bucket, dropping
+     * the dead ones before it, or null if there is none, dropping the bucket.
+     */
+    @GuardedBy("lock")
+    private Ticket liveHead(Map.Entry<Integer, ArrayDeque<Ticket>> entry) {
+        ArrayDeque<Ticket> bucket = entry.getValue();
+        Ticket head;
+        while ((head = bucket.peekFirst()) != null) {
+            if (!head.player.getConnection().isOpen()) evict(head);
+            else if (head.isWaiting()) return head;
+            bucket.pollFirst();
+        }
+        buckets.remove(entry.getKey());
+        return null;
+    }
+
+    /**
+     * Takes the given ticket out of its bucket, where it is expected near the head.
+     */
+    @GuardedBy("lock")
+    private void unbucket(Ticket ticket) {
+        ArrayDeque<Ticket> bucket = buckets.get(ticket.rating);
+        if (bucket == null) return;
+        bucket.removeFirstOccurrence(ticket);
+        if (bucket.isEmpty()) buckets.remove(ticket.rating);
+    }
+
+    /**
+     * Lets a held ticket wait for an opponent.
+     */
+    @GuardedBy("lock")
+    private void park(Ticket ticket) {
+        ticket.state.set(Ticket.WAITING);
+        // A close while the ticket was held failed to evict it, hence check the connection once more.
+        if (!ticket.player.getConnection().isOpen()) {
+            evict(ticket);
+            return;
+        }
+        ArrayDeque<Ticket> bucket = buckets.get(ticket.rating);
+        if (bucket == null) buckets.put(ticket.rating, bucket = new ArrayDeque<>());
+        bucket.addLast(ticket);
+        waiting.addLast(ticket);
+        // Drop the tickets paired or evicted since, unless rematches do so often enough.
+        if (waiting.size() > 2 * depth.get() + BATCH_SIZE) {
+            Iterator<Ticket> iterator = waiting.iterator();
+            while (iterator.hasNext())
+                if (!iterator.next().isWaiting()) iterator.remove();
+        }
+    }
+
+    /**
+     * Checks if the ratings of the given tickets are close enough, given the longer wait of the two.
+     */
+    private boolean fits(Ticket older, Ticket newer, long now) {
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(now - Math.min(older.enqueuedNanos, newer.enqueuedNanos));
+        return Math.abs(older.rating - newer.rating) <= band + bandGrowth * waitMillis / 1000;
+    }
+
+    private void announce(List<Ticket> pairs) {
+        long now = System.nanoTime();
+        for (int i = 0; i < pairs.size(); i += 2) {
+            Ticket upper = pairs.get(i);
+            Ticket lower = pairs.get(i + 1);
+            depth.addAndGet(-2);
+            pairedCount.addAndGet(2);
+            long upperWait = now - upper.enqueuedNanos;
+            long lowerWait = now - lower.enqueuedNanos;
+            totalTimeToPairNanos.addAndGet(upperWait + lowerWait);
+            Metrics.recordJoinToPair(upperWait);
+            Metrics.recordJoinToPair(lowerWait);
+            try { listener.onPaired(upper.player, lower.player); }
+            catch (Throwable t) { log.error("Pairing listener failed.", t); }
+        }
+        pairs.clear();
+    }
+
+    /**
+     * Returns the number of players waiting to be paired.
+     */
+    public int size() { return depth.get(); }
+
+    /**
+     * Returns the number of players paired so far.
+     */
+    public long getPairedCount() { return pairedCount.get(); }
+
+    /**
+     * Returns the number of players evicted due to closed connections so far.
+     */
+    public long getEvictedCount() { return evictedCount.get(); }
+
+    /**
+     * Returns the mean time between joining and getting paired in nanoseconds.
+     */
+    public long getMeanTimeToPairNanos() {
+        long count = pairedCount.get();
+        return count == 0 ? 0 : totalTimeToPairNanos.get() / count;
+    }
+
+}
@@ -0,0 +1,77 @@
+package models.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative long values, e.g., latencies in nanoseconds.
+ *
+ * Values below {@link Histogram#SUB_BUCKETS} get a bucket of their own.
+ * Every larger power of two range is split into {@link Histogram#SUB_BUCKETS}
+ * equally wide buckets, bounding the relative error of quantiles by
+ * 1/{@link Histogram#SUB_BUCKETS}. Recording takes a few atomic increments
+ * and never allocates, whereas reading quantiles walks all buckets.
+ * Quantiles reported while values are being recorded are approximate.
+ */
+@ThreadSafe
+public class Histogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+    }
+
+    public long getCount() { return count.get(); }
+
+    public long getSum() { return sum.get(); }
+
+    /**
+     * Returns the upper bound of the bucket holding the value at the given
+     * quantile, or zero if nothing is recorded.
+     *
+     * @param quantile in the range [0, 1].
+     */
+    public long quantile(double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += buckets.get(i);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return upperBoundOf(i);
+        }
+        // Buckets were incremented while walking.
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + mantissa;
+    }
+
+    static long lowerBoundOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = (index >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long mantissa = SUB_BUCKETS + (index & (SUB_BUCKETS - 1));
+        return mantissa << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBoundOf(int index) {
+        return index == BUCKETS - 1 ? Long.MAX_VALUE : lowerBoundOf(index + 1) - 1;
+    }
+
+}
@@ -0,0 +1,195 @@
+package models.metrics;
+
+import models.event.*;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide instrumentation of the game engine.
+ *
+ * Recording methods are lock-free and allocation-free, hence they can be
+ * called on the move path in production. Gauges owned by the application,
+ * such as the number of active games, are written next to these by the
+ * metrics endpoint.
+ *
+ * @see PrometheusWriter
+ */
+public final class Metrics {
+
+    private Metrics() {}
+
+    /**
+     * Kinds of rejected moves.
+     */
+    public enum IllegalMoveReason {
+        OPPONENT_TURN, INVALID_PIT, EMPTY_PIT, MALFORMED
+    }
+
+    private static final Histogram joinToPair = new Histogram();
+    private static final Histogram moveLatency = new Histogram();
+    private static final Histogram writeLatency = new Histogram();
+    private static final Histogram gameDuration = new Histogram();
+    private static final Histogram hintLatency = new Histogram();
+
+    private static final AtomicLong coalescedWrites = new AtomicLong();
+    private static final AtomicLong writeOverflows = new AtomicLong();
+    private static final AtomicLong turnTimeouts = new AtomicLong();
+    private static final AtomicLong idleGames = new AtomicLong();
+    private static final AtomicLong throttledFrames = new AtomicLong();
+    private static final AtomicLong floodAborts = new AtomicLong();
+    private static final AtomicLong silencedIllegalMoves = new AtomicLong();
+    private static final AtomicLong illegalMoveForfeits = new AtomicLong();
+    private static final AtomicLong sessionResumes = new AtomicLong();
+    private static final AtomicLong sessionExpiries = new AtomicLong();
+    private static final AtomicLong replayedFrames = new AtomicLong();
+
+    private static final String[] illegalMoveReasons = new String[IllegalMoveReason.values().length];
+    private static final AtomicLongArray illegalMoves = new AtomicLongArray(illegalMoveReasons.length);
+
+    /** Populated once, and only read afterwards. */
+    private static final Map<Class<?>, Integer> eventIndices = new IdentityHashMap<>();
+    private static final String[] eventTypes;
+    private static final AtomicLongArray eventsWritten;
+
+    static {
+        for (IllegalMoveReason reason : IllegalMoveReason.values())
+            illegalMoveReasons[reason.ordinal()] = reason.name().toLowerCase();
+        Class<?>[] eventClasses = {
+                WaitingForOpponent.class, ReadyToStart.class, IllegalMove.class, BoardState.class,
+                BoardSnapshot.class, BoardDelta.class, GameOver.class, Hint.class};
+        eventTypes = new String[eventClasses.length];
+        for (int i = 0; i < eventClasses.length; i++) {
+            eventIndices.put(eventClasses[i], i);
+            eventTypes[i] = eventClasses[i].getSimpleName();
+        }
+        eventsWritten = new AtomicLongArray(eventClasses.length);
+    }
+
+    /**
+     * Records the time a player waited in the matchmaker.
+     */
+    public static void recordJoinToPair(long nanos) { joinToPair.record(nanos); }
+
+    /**
+     * Records the time from the arrival of a move until its handling is complete.
+     */
+    public static void recordMove(long nanos) { moveLatency.record(nanos); }
+
+    public static void recordGameDuration(long nanos) { gameDuration.record(nanos); }
+
+    public static void recordIllegalMove(IllegalMoveReason reason) {
+        illegalMoves.incrementAndGet(reason.ordinal());
+    }
+
+    /**
+     * Records that the given event took the given time to be encoded and written.
+     */
+    public static void recordWrite(Event event, long nanos) {
+        Integer index = eventIndices.get(event.getClass());
+        if (index != null) eventsWritten.incrementAndGet(index);
+        writeLatency.record(nanos);
+    }
+
+    /**
+     * Records that a queued board state got superseded by a newer one before being written.
+     */
+    public static void recordCoalescedWrite() { coalescedWrites.incrementAndGet(); }
+
+    /**
+     * Records that an event found the outbound queue of its client full.
+     */
+    public static void recordWriteOverflow() { writeOverflows.incrementAndGet(); }
+
+    /**
+     * Records that a player forfeited by running out of time.
+     */
+    public static void recordTurnTimeout() { turnTimeouts.incrementAndGet(); }
+
+    /**
+     * Records that a game was aborted since neither player sent a frame for the idle time.
+     */
+    public static void recordIdleGame() { idleGames.incrementAndGet(); }
+
+    /**
+     * Records that an inbound frame got dropped by the rate limit of its connection.
+     */
+    public static void recordThrottledFrame() { throttledFrames.incrementAndGet(); }
+
+    /**
+     * Records that a connection got aborted for exceeding its rate limit too often.
+     */
+    public static void recordFloodAbort() { floodAborts.incrementAndGet(); }
+
+    /**
+     * Records that an illegal move went unanswered, being one of too many in a row.
+     */
+    public static void recordSilencedIllegalMove() { silencedIllegalMoves.incrementAndGet(); }
+
+    /**
+     * Records that a player forfeited by making too many illegal moves in a row.
+     */
+    public static void recordIllegalMoveForfeit() { illegalMoveForfeits.incrementAndGet(); }
+
+    /**
+     * Records the time from a hint request until the hint is found, either in the cache or by evaluation.
+     *
+     * Cache hits and misses are counted by the {@link models.hint.HintCache} itself.
+     */
+    public static void recordHint(long nanos) { hintLatency.record(nanos); }
+
+    /**
+     * Records that a player resumed its session, catching up on the given number of events.
+     */
+    public static void recordSessionResume(int replayed) {
+        sessionResumes.incrementAndGet();
+        replayedFrames.addAndGet(replayed);
+    }
+
+    /**
+     * Records that a session ended since its player did not resume within the grace period.
+     */
+    public static void recordSessionExpiry() { sessionExpiries.incrementAndGet(); }
+
+    public static void writeTo(PrometheusWriter writer) {
+        writer.summary("lubang_join_to_pair_seconds", "Time players wait for an opponent.", joinToPair)
+                .summary("lubang_move_seconds", "Time from the arrival of a move until it is handled.", moveLatency)
+                .summary("lubang_write_seconds", "Time to encode and write an event.", writeLatency)
+                .summary("lubang_game_duration_seconds", "Duration of started games.", gameDuration)
+                .summary("lubang_hint_seconds", "Time from a hint request until the hint is found.", hintLatency)
+                .counter("lubang_illegal_moves_total", "Rejected moves by reason.",
+                        "reason", illegalMoveReasons, snapshot(illegalMoves))
+                .counter("lubang_events_written_total", "Events written to players by type.",
+                        "type", eventTypes, snapshot(eventsWritten))
+                .counter("lubang_writes_coalesced_total", "Board states superseded before being written.",
+                        coalescedWrites.get())
+                .counter("lubang_write_overflows_total", "Events finding the outbound queue full.",
+                        writeOverflows.get())
+                .counter("lubang_turn_timeouts_total", "Games forfeited by running out of time.",
+                        turnTimeouts.get())
+                .counter("lubang_idle_games_total", "Games aborted for neither player sending a frame.",
+                        idleGames.get())
+                .counter("lubang_throttled_frames_total", "Inbound frames dropped by rate limits.",
+                        throttledFrames.get())
+                .counter("lubang_flood_aborts_total", "Connections aborted for flooding.", floodAborts.get())
+                .counter("lubang_illegal_moves_silenced_total", "Illegal moves left unanswered.",
+                        silencedIllegalMoves.get())
+                .counter("lubang_illegal_move_forfeits_total", "Games forfeited by too many illegal moves.",
+                        illegalMoveForfeits.get())
+                .counter("lubang_sessions_resumed_total", "Sessions resumed after a disconnect.",
+                        sessionResumes.get())
+                .counter("lubang_sessions_expired_total", "Sessions not resumed within the grace period.",
+                        sessionExpiries.get())
+                .counter("lubang_events_replayed_total", "Events written again to resuming players.",
+                        replayedFrames.get());
+    }
+
+    private static long[] snapshot(AtomicLongArray array) {
+        long[] values = new long[array.length()];
+        for (int i = 0; i < values.length; i++) values[i] = array.get(i);
+        return values;
+    }
+
+}
@@ -0,0 +1,66 @@
+package models.metrics;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Renders metrics in the Prometheus text exposition format.
+ *
+ * Durations are recorded in nanoseconds, but exposed in seconds as
+ * Prometheus conventions dictate.
+ */
+@NotThreadSafe
+public class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final StringBuilder builder = new StringBuilder(4096);
+
+    private PrometheusWriter header(String name, String help, String type) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter gauge(String name, String help, long value) {
+        header(name, help, "gauge");
+        builder.append(name).append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter counter(String name, String help, long value) {
+        header(name, help, "counter");
+        builder.append(name).append(' ').append(value).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes a counter broken down by the values of the given label.
+     */
+    public PrometheusWriter counter(String name, String help, String label, String[] labelValues, long[] values) {
+        header(name, help, "counter");
+        for (int i = 0; i < values.length; i++)
+            builder.append(name).append('{').append(label).append("=\"")
+                    .append(labelValues[i]).append("\"} ").append(values[i]).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes a summary of the durations in the given histogram.
+     */
+    public PrometheusWriter summary(String name, String help, Histogram histogram) {
+        header(name, help, "summary");
+        for (double quantile : QUANTILES)
+            builder.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.quantile(quantile) / NANOS_PER_SECOND).append('\n');
+        builder.append(name).append("_sum ").append(histogram.getSum() / NANOS_PER_SECOND).append('\n');
+        builder.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        return this;
+    }
+
+    @Override
+    public String toString() { return builder.toString(); }
+
+}
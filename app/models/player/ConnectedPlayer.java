@@ -1,28 +1,72 @@
 package models.player;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import play.mvc.WebSocket;
+import models.connection.Connection;
+import models.rating.Ratings;
+import models.rules.Board;
+import models.rules.Variant;
 
 /**
  * Represents a pending (that is, unpaired) player.
  */
 public class ConnectedPlayer extends Player {
 
-    protected final WebSocket.In<JsonNode> inputSocket;
-    protected final WebSocket.Out<JsonNode> outputSocket;
+    protected final Connection connection;
+    protected final Variant variant;
+    protected int rating = Ratings.INITIAL_RATING;
 
-    public ConnectedPlayer(WebSocket.In<JsonNode> inputSocket, WebSocket.Out<JsonNode> outputSocket) {
-        this.inputSocket = inputSocket;
-        this.outputSocket = outputSocket;
+    public ConnectedPlayer(Connection connection) { this(connection, Variant.STANDARD); }
+
+    /**
+     * Creates a player looking for a game of the given variant.
+     */
+    public ConnectedPlayer(Connection connection, Variant variant) {
+        this.connection = connection;
+        this.variant = variant;
+    }
+
+    /**
+     * Creates a player of the given rating looking for a game of the given variant.
+     */
+    public ConnectedPlayer(Connection connection, Variant variant, int rating) {
+        this(connection, variant);
+        this.rating = rating;
+    }
+
+    /**
+     * Creates a player reusing the given id, e.g., of a player reconnecting to a restored game.
+     */
+    public ConnectedPlayer(Connection connection, String id) { this(connection, Variant.STANDARD, id); }
+
+    public ConnectedPlayer(Connection connection, Variant variant, String id) {
+        super(id);
+        this.connection = connection;
+        this.variant = variant;
+    }
+
+    /**
+     * Creates a player of the given rating, reusing the given id.
+     */
+    public ConnectedPlayer(Connection connection, Variant variant, String id, int rating) {
+        this(connection, variant, id);
+        this.rating = rating;
     }
 
-    public WebSocket.In<JsonNode> getInputSocket() { return inputSocket; }
+    public Connection getConnection() { return connection; }
+
+    public Variant getVariant() { return variant; }
+
+    public Protocol getProtocol() { return connection.getProtocol(); }
 
-    public WebSocket.Out<JsonNode> getOutputSocket() { return outputSocket; }
+    /**
+     * Returns the rating of the player as of joining.
+     *
+     * @see Ratings
+     */
+    public int getRating() { return rating; }
 
-    public PairedPlayer upgrade(String opponentId) {
-        PairedPlayer pp = new PairedPlayer(inputSocket, outputSocket, opponentId);
-        pp.id = this.id;
+    public PairedPlayer upgrade(String opponentId, Board board, int seat) {
+        PairedPlayer pp = new PairedPlayer(connection, id, opponentId, board, seat);
+        pp.rating = this.rating;
         return pp;
     }
 
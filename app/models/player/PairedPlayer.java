@@ -1,36 +1,46 @@
 package models.player;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import play.mvc.WebSocket;
+import models.connection.Connection;
+import models.rules.Board;
 
 /**
  * Represents a paired player along with the opponent and the board information.
+ *
+ * The pits are stored in the {@link Board} shared with the opponent, on the
+ * side denoted by the seat of the player.
  */
 public class PairedPlayer extends ConnectedPlayer {
 
     protected final String opponentId;
-    protected final int[] pits;
+    protected final Board board;
+    protected final int seat;
 
     protected PairedPlayer(
-            WebSocket.In<JsonNode> inputSocket,
-            WebSocket.Out<JsonNode> outputSocket,
-            String opponentId) {
-        super(inputSocket, outputSocket);
+            Connection connection,
+            String id,
+            String opponentId,
+            Board board,
+            int seat) {
+        super(connection, board.getVariant(), id);
         this.opponentId = opponentId;
-        this.pits = new int[] {6, 6, 6, 6, 6, 6, 0};
+        this.board = board;
+        this.seat = seat;
     }
 
     public String getOpponentId() { return opponentId; }
 
-    public int[] getPits() { return pits; }
+    public Board getBoard() { return board; }
 
-    public boolean isOver() {
-        int size = 0;
-        for (int i = 0; i < pits.length - 1; i++) size += pits[i];
-        return (size == 0);
-    }
+    public int getSeat() { return seat; }
+
+    /**
+     * Returns a copy of the pits of the player, where the last one is the Lubang Menggali.
+     */
+    public int[] getPits() { return board.side(seat); }
+
+    public boolean isOver() { return board.pitStones(seat) == 0; }
 
-    public int score() { return pits[pits.length - 1]; }
+    public int score() { return board.score(seat); }
 
     @Override
     public String toString() { return String.format("PairedPlayer[%s]", id); }
@@ -1,13 +1,20 @@
 package models.player;
 
-import java.util.UUID;
+import models.id.Ids;
 
 /**
  * Base class representing a player in the game.
  */
 public abstract class Player {
 
-    protected String id = UUID.randomUUID().toString();
+    protected final String id;
+
+    /**
+     * Creates a player under a fresh id.
+     */
+    protected Player() { this(Ids.players().nextId()); }
+
+    protected Player(String id) { this.id = id; }
 
     public String getId() { return id; }
 
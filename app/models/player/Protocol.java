@@ -0,0 +1,30 @@
+package models.player;
+
+/**
+ * Flavors of the JSON protocol a player can negotiate while joining.
+ */
+public enum Protocol {
+
+    /**
+     * Every board update is a {@link models.event.BoardState} keyed by player ids.
+     */
+    FULL,
+
+    /**
+     * The board is sent once in a {@link models.event.BoardSnapshot} at game
+     * start, followed by {@link models.event.BoardDelta}s of changed pits, where
+     * players are referred to by their seats.
+     */
+    DELTA;
+
+    /**
+     * Returns the protocol with the given case-insensitive name, or {@code null} if there is none.
+     */
+    public static Protocol fromName(String name) {
+        for (Protocol protocol : values())
+            if (protocol.name().equalsIgnoreCase(name))
+                return protocol;
+        return null;
+    }
+
+}
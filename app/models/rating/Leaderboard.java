@@ -0,0 +1,105 @@
+package models.rating;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Standings of the rated players, ordered by their ratings.
+ *
+ * The current standing of every player is kept in a hash map, and every
+ * standing in a skip list in descending order, hence an update takes
+ * O(log n) and the top N standings are read in O(log n + N) without
+ * sorting. Ranks are counted by a Fenwick tree of the number of players of
+ * every rating up to {@link Leaderboard#MAX_RATING}, hence telling the rank
+ * of a player takes O(log {@link Leaderboard#MAX_RATING}) rather than a walk
+ * down the skip list. Neither updates nor reads lock.
+ *
+ * Updates of distinct players run concurrently, while updates of a player
+ * are expected one at a time, which holds since a player plays a single
+ * game at a time. Readers racing with an update may miss the updated player,
+ * or count it under its former rating.
+ */
+@ThreadSafe
+public class Leaderboard {
+
+    public static final int MAX_RATING = 0xFFFF;
+
+    private final ConcurrentMap<String, Standing> standings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Standing> ordered = new ConcurrentSkipListSet<>();
+    /** Fenwick tree of player counts by rating, 1-based. */
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(MAX_RATING + 2);
+
+    /**
+     * Records the given rating of the given player, counting a game played.
+     *
+     * @throws IllegalArgumentException if the rating is out of the range [0, {@link Leaderboard#MAX_RATING}].
+     */
+    public Standing update(String playerId, int rating) {
+        if (rating < 0 || rating > MAX_RATING)
+            throw new IllegalArgumentException("Rating out of range: " + rating);
+        Standing former = standings.get(playerId);
+        Standing standing = new Standing(playerId, rating, former == null ? 1 : former.getGames() + 1);
+        standings.put(playerId, standing);
+        ordered.add(standing);
+        count(rating, 1);
+        if (former != null) {
+            ordered.remove(former);
+            count(former.getRating(), -1);
+        }
+        return standing;
+    }
+
+    /**
+     * Returns the standing of the given player, or null if it is not rated.
+     */
+    public Standing get(String playerId) { return standings.get(playerId); }
+
+    /**
+     * Returns the number of rated players.
+     */
+    public int size() { return standings.size(); }
+
+    /**
+     * Returns at most the given number of standings with the highest ratings, in descending order.
+     */
+    public List<Standing> top(int limit) {
+        List<Standing> top = new ArrayList<>(Math.min(limit, 64));
+        Iterator<Standing> iterator = ordered.iterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            Standing standing = iterator.next();
+            // Skip the former standing of a player being updated.
+            if (standings.get(standing.getPlayerId()) == standing) top.add(standing);
+        }
+        return top;
+    }
+
+    /**
+     * Returns the one-based rank of the given player, where players of equal
+     * ratings share a rank, or zero if the player is not rated.
+     */
+    public int rankOf(String playerId) {
+        Standing standing = standings.get(playerId);
+        return standing == null ? 0 : rankOf(standing.getRating());
+    }
+
+    /**
+     * Returns the one-based rank of the given rating, that is, one more than the number of players rated higher.
+     */
+    public int rankOf(int rating) {
+        int higher = 0;
+        for (int i = MAX_RATING + 1; i > 0; i -= i & -i) higher += counts.get(i);
+        for (int i = rating + 1; i > 0; i -= i & -i) higher -= counts.get(i);
+        return higher + 1;
+    }
+
+    private void count(int rating, int delta) {
+        for (int i = rating + 1; i <= MAX_RATING + 1; i += i & -i) counts.addAndGet(i, delta);
+    }
+
+}
@@ -0,0 +1,108 @@
+package models.rating;
+
+import models.Settings;
+import models.connection.Connection;
+import models.id.Credentials;
+import play.libs.F;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Elo ratings of the players of this node, configured in {@code application.conf}.
+ *
+ * Players start at {@link Ratings#INITIAL_RATING}, and after every rated
+ * game each player gains {@code game.rating.k} times the difference between
+ * its score (1 for a win, 0.5 for a draw, 0 for a loss) and the score
+ * expected by the rating difference. Ratings are kept in memory, on the
+ * {@link Leaderboard}.
+ *
+ * A rated player keeps its rating across games by joining with its id
+ * and the token of the id again, see {@link Credentials}, which only one
+ * connection at a time may claim.
+ */
+@ThreadSafe
+public class Ratings {
+
+    public static final int INITIAL_RATING = 1500;
+
+    private static final class Holder {
+        static final Ratings instance = new Ratings(Credentials.shared(), Settings.getInt("game.rating.k", 32));
+    }
+
+    public static Ratings shared() { return Holder.instance; }
+
+    private final Credentials credentials;
+    private final int k;
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final Set<String> claimed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicLong ratedGames = new AtomicLong();
+
+    public Ratings(Credentials credentials, int k) {
+        this.credentials = credentials;
+        this.k = k;
+    }
+
+    public Leaderboard getLeaderboard() { return leaderboard; }
+
+    /**
+     * Returns the rating of the given player, or {@link Ratings#INITIAL_RATING} if it is not rated.
+     */
+    public int ratingOf(String playerId) {
+        Standing standing = leaderboard.get(playerId);
+        return standing == null ? INITIAL_RATING : standing.getRating();
+    }
+
+    /**
+     * Claims the id of a rated player for the given connection until it closes.
+     *
+     * @return false if the token is not the one of the player, the player
+     *         is not rated, or its id is claimed by another connection.
+     */
+    public boolean reclaim(String playerId, String token, Connection connection) {
+        return credentials.verify(playerId, token) && leaderboard.get(playerId) != null && claim(playerId, connection);
+    }
+
+    /**
+     * Claims the given id for the given connection until it closes, keeping others from reclaiming it.
+     *
+     * @return false if the id is already claimed.
+     */
+    public boolean claim(final String playerId, Connection connection) {
+        if (!claimed.add(playerId)) return false;
+        connection.onClose(new F.Callback0() {
+            @Override
+            public void invoke() throws Throwable { claimed.remove(playerId); }
+        });
+        return true;
+    }
+
+    /**
+     * Returns the ratings of the given players after a game between them.
+     *
+     * @param upperScore of the upper player: 1 for a win, 0.5 for a draw, or 0 for a loss.
+     * @return the ratings of the upper and the lower player, in this order.
+     */
+    public int[] rate(int upperRating, int lowerRating, double upperScore) {
+        ratedGames.incrementAndGet();
+        double upperExpected = 1 / (1 + Math.pow(10, (lowerRating - upperRating) / 400.0));
+        int delta = (int) Math.round(k * (upperScore - upperExpected));
+        return new int[]{clamp(upperRating + delta), clamp(lowerRating - delta)};
+    }
+
+    private static int clamp(int rating) { return Math.max(0, Math.min(Leaderboard.MAX_RATING, rating)); }
+
+    /**
+     * Records the given rating of the given player of this node.
+     */
+    public void update(String playerId, int rating) { leaderboard.update(playerId, rating); }
+
+    /**
+     * Returns the number of games rated by this node.
+     */
+    public long getRatedGames() { return ratedGames.get(); }
+
+}
@@ -0,0 +1,53 @@
+package models.rating;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Rating of a player on the {@link Leaderboard}, along with the number of rated games it played.
+ *
+ * Standings are ordered by descending ratings, by player ids among equal
+ * ratings, and by the number of games among standings of the same player,
+ * hence the former and the latter standing of a player never collide.
+ */
+@Immutable
+public final class Standing implements Comparable<Standing> {
+
+    private final String playerId;
+    private final int rating;
+    private final int games;
+
+    public Standing(String playerId, int rating, int games) {
+        this.playerId = playerId;
+        this.rating = rating;
+        this.games = games;
+    }
+
+    public String getPlayerId() { return playerId; }
+
+    public int getRating() { return rating; }
+
+    public int getGames() { return games; }
+
+    @Override
+    public int compareTo(Standing other) {
+        if (rating != other.rating) return rating > other.rating ? -1 : 1;
+        int order = playerId.compareTo(other.playerId);
+        if (order != 0) return order;
+        return games < other.games ? -1 : games == other.games ? 0 : 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Standing)) return false;
+        Standing standing = (Standing) o;
+        return rating == standing.rating && games == standing.games && playerId.equals(standing.playerId);
+    }
+
+    @Override
+    public int hashCode() { return 31 * (31 * playerId.hashCode() + rating) + games; }
+
+    @Override
+    public String toString() { return String.format("Standing[%s, %d, %d]", playerId, rating, games); }
+
+}
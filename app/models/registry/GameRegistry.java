@@ -0,0 +1,198 @@
+package models.registry;
+
+import models.Game;
+import models.Settings;
+import models.snapshot.SnapshotWriter;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of active {@link Game}s partitioned into shards by {@link Game#getKey()}.
+ *
+ * Each {@link Shard} has its own map and counters, hence concurrent
+ * registrations of different games rarely touch the same memory, and
+ * statistics are answered from the counters without scanning any map.
+ * Shards are also meant to be the unit of partitioning work, e.g., pinning
+ * executors or assigning games to nodes.
+ */
+@ThreadSafe
+public final class GameRegistry implements Iterable<Game> {
+
+    /**
+     * Partition of the registry.
+     */
+    @ThreadSafe
+    public static final class Shard {
+
+        private final int index;
+        private final ConcurrentHashMap<Long, Game> games = new ConcurrentHashMap<>();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+
+        private Shard(int index) { this.index = index; }
+
+        public int getIndex() { return index; }
+
+        /**
+         * Returns the number of games currently in the shard.
+         */
+        public int getActive() { return active.get(); }
+
+        /**
+         * Returns the number of games ever added to the shard.
+         */
+        public long getStarted() { return started.get(); }
+
+        /**
+         * Returns the number of games ever removed from the shard.
+         */
+        public long getCompleted() { return completed.get(); }
+
+        public Iterable<Game> getGames() { return games.values(); }
+
+    }
+
+    private final Shard[] shards;
+    private final int mask;
+
+    public GameRegistry(int shardCount) {
+        if (shardCount < 1 || Integer.bitCount(shardCount) != 1)
+            throw new IllegalArgumentException("Shard count must be a power of two: " + shardCount);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) shards[i] = new Shard(i);
+        this.mask = shardCount - 1;
+    }
+
+    /**
+     * Creates a registry with {@code game.registry.shards} shards, defaulting
+     * to the smallest power of two not less than twice the processor count.
+     */
+    public GameRegistry() {
+        this(Settings.getInt(
+                "game.registry.shards",
+                Integer.highestOneBit(Math.max(1, 4 * Runtime.getRuntime().availableProcessors() - 1))));
+    }
+
+    public int getShardCount() { return shards.length; }
+
+    public Shard getShard(int index) { return shards[index]; }
+
+    public Shard shardOf(long key) {
+        // Mix the bits, since consecutive keys are expected.
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return shards[(int) (hash >>> 32) & mask];
+    }
+
+    public void add(Game game) {
+        Shard shard = shardOf(game.getKey());
+        if (shard.games.putIfAbsent(game.getKey(), game) == null) {
+            shard.active.incrementAndGet();
+            shard.started.incrementAndGet();
+        }
+    }
+
+    public Game get(long key) { return shardOf(key).games.get(key); }
+
+    /**
+     * Removes the game with the given key and returns it, or {@code null} if there is none.
+     */
+    public Game remove(long key) {
+        Shard shard = shardOf(key);
+        Game game = shard.games.remove(key);
+        if (game != null) {
+            shard.active.decrementAndGet();
+            shard.completed.incrementAndGet();
+        }
+        return game;
+    }
+
+    /**
+     * Returns the number of active games in constant time with respect to the number of games.
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) size += shard.active.get();
+        return size;
+    }
+
+    public long getStarted() {
+        long started = 0;
+        for (Shard shard : shards) started += shard.started.get();
+        return started;
+    }
+
+    public long getCompleted() {
+        long completed = 0;
+        for (Shard shard : shards) completed += shard.completed.get();
+        return completed;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the games of all shards.
+     */
+    @Override
+    public Iterator<Game> iterator() {
+        return new Iterator<Game>() {
+
+            private int index = 0;
+            private Iterator<Game> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && index < shards.length)
+                    current = shards[index++].games.values().iterator();
+                return current.hasNext();
+            }
+
+            @Override
+            public Game next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+
+            @Override
+            public void remove() { throw new UnsupportedOperationException(); }
+
+        };
+    }
+
+    /**
+     * Requests every registered game to shut down and returns the games requested.
+     *
+     * Games leave the registry through their shutdown listeners as usual.
+     */
+    public List<Game> shutdownAll() {
+        List<Game> games = new ArrayList<>();
+        for (Game game : this) {
+            game.close();
+            games.add(game);
+        }
+        return games;
+    }
+
+    /**
+     * Writes every started game into the given snapshot and shuts it down,
+     * waiting at most the given time for the games to do so.
+     *
+     * @return false if the time elapsed before every game is written.
+     */
+    public boolean suspendAll(SnapshotWriter writer, long timeout, TimeUnit unit) throws InterruptedException {
+        List<Game> games = new ArrayList<>();
+        for (Game game : this) games.add(game);
+        CountDownLatch latch = new CountDownLatch(games.size());
+        for (Game game : games) game.suspend(writer, latch);
+        return latch.await(timeout, unit);
+    }
+
+}
@@ -0,0 +1,128 @@
+package models.rules;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Packed two-sided board.
+ *
+ * Both sides are stored in a single array of {@link Board#size} cells. Seat
+ * {@code s} owns the cells starting at {@code s * side}: its
+ * {@link Board#pits} regular pits followed by its Lubang Menggali (store).
+ * Stone counts of the regular pits of each side are maintained as the board
+ * is updated, hence end-of-game detection does not need to scan the pits.
+ *
+ * The static constants describe the layout of the {@link Variant#STANDARD}
+ * board, which bots and the tablebase are restricted to.
+ *
+ * @see SowingEngine
+ */
+@NotThreadSafe
+public final class Board {
+
+    public static final int PITS = 6;
+    public static final int SIDE = PITS + 1;
+    public static final int STORE = PITS;
+    public static final int SIZE = 2 * SIDE;
+    public static final int INITIAL_STONES = 6;
+
+    final Variant variant;
+    final int pits;
+    final int side;
+    final int[] cells;
+    final int[] pitStones = new int[2];
+
+    public Board() { this(Variant.STANDARD); }
+
+    public Board(Variant variant) {
+        this.variant = variant;
+        this.pits = variant.getPits();
+        this.side = pits + 1;
+        this.cells = new int[2 * side];
+        for (int seat = 0; seat < 2; seat++) {
+            for (int pos = 0; pos < pits; pos++)
+                cells[seat * side + pos] = variant.getStones();
+            pitStones[seat] = pits * variant.getStones();
+        }
+    }
+
+    /**
+     * Creates a {@link Variant#STANDARD} board out of the given {@link Board#SIZE} packed cells.
+     */
+    public Board(int[] cells) { this(Variant.STANDARD, cells); }
+
+    /**
+     * Creates a board of the given variant out of the given packed cells.
+     */
+    public Board(Variant variant, int[] cells) {
+        this.variant = variant;
+        this.pits = variant.getPits();
+        this.side = pits + 1;
+        this.cells = new int[2 * side];
+        System.arraycopy(cells, 0, this.cells, 0, this.cells.length);
+        for (int seat = 0; seat < 2; seat++)
+            for (int pos = 0; pos < pits; pos++)
+                pitStones[seat] += cells[seat * side + pos];
+    }
+
+    public static int opponentOf(int seat) { return 1 - seat; }
+
+    public Variant getVariant() { return variant; }
+
+    /**
+     * Returns the number of regular pits per side.
+     */
+    public int pits() { return pits; }
+
+    /**
+     * Returns the number of cells per side, that is, the regular pits and the store.
+     */
+    public int sideSize() { return side; }
+
+    /**
+     * Returns the number of cells of both sides.
+     */
+    public int size() { return cells.length; }
+
+    /**
+     * Overwrites this board with the given one of the same variant, allocating nothing.
+     */
+    public void copyFrom(Board other) {
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        pitStones[0] = other.pitStones[0];
+        pitStones[1] = other.pitStones[1];
+    }
+
+    public int pit(int seat, int pos) { return cells[seat * side + pos]; }
+
+    /**
+     * Returns the stone count of the cell at the given packed index.
+     */
+    public int cell(int index) { return cells[index]; }
+
+    /**
+     * Copies all {@link Board#size} cells into the given array.
+     */
+    public void copyTo(int[] target) { System.arraycopy(cells, 0, target, 0, cells.length); }
+
+    public int score(int seat) { return cells[seat * side + pits]; }
+
+    /**
+     * Returns the number of stones left in the regular pits of the given seat.
+     */
+    public int pitStones(int seat) { return pitStones[seat]; }
+
+    /**
+     * Checks if either side ran out of stones in its regular pits.
+     */
+    public boolean isOver() { return pitStones[0] == 0 || pitStones[1] == 0; }
+
+    /**
+     * Returns a copy of the pits (including the store) of the given seat.
+     */
+    public int[] side(int seat) {
+        int[] copy = new int[side];
+        System.arraycopy(cells, seat * side, copy, 0, side);
+        return copy;
+    }
+
+}
@@ -0,0 +1,162 @@
+package models.rules;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Applies moves to a {@link Board}.
+ *
+ * Stones picked up from a pit are sown on the pits of the mover's own side
+ * including its store, wrapping around as necessary. Rather than dropping one
+ * stone at a time, the distribution is computed in closed form: every cell of
+ * the side receives {@code stones / SIDE} stones for the full laps, and the
+ * {@code stones % SIDE} cells following the picked pit receive one more.
+ * If the last stone does not land in the store, the turn passes to the
+ * opponent and, in case the last stone landed in an empty pit, that stone
+ * along with the stones in the opposite pit are moved to the mover's store.
+ *
+ * Variants without the capture or the extra turn rule skip the respective
+ * step. {@link Variant#STANDARD} boards take a specialized path, where the
+ * loops over the cells of a side are fully unrolled against the fixed
+ * layout, and other boards take the generic one.
+ *
+ * Moves allocate nothing. The outcome is reported as a bit set of
+ * {@link SowingEngine#EXTRA_TURN}, {@link SowingEngine#CAPTURE} and
+ * {@link SowingEngine#GAME_OVER} flags, or as one of the negative
+ * {@link SowingEngine#INVALID_PIT} and {@link SowingEngine#EMPTY_PIT} codes
+ * if the move is rejected.
+ */
+@ThreadSafe
+public final class SowingEngine {
+
+    private SowingEngine() {}
+
+    public static final int INVALID_PIT = -1;
+    public static final int EMPTY_PIT = -2;
+
+    public static final int EXTRA_TURN = 1;
+    public static final int CAPTURE = 1 << 1;
+    public static final int GAME_OVER = 1 << 2;
+
+    /**
+     * Maps {@code pos + remainder} to the side-relative landing cell of a {@link Variant#STANDARD} board.
+     */
+    private static final int[] LANDING = Variant.STANDARD.landing;
+
+    /**
+     * Picks up the stones at the given pit of the given seat and sows them.
+     */
+    public static int move(Board board, int seat, int pos) {
+        return board.variant == Variant.STANDARD ? moveStandard(board, seat, pos) : moveGeneric(board, seat, pos);
+    }
+
+    /**
+     * Specialized path of {@link SowingEngine#move} for {@link Variant#STANDARD} boards.
+     */
+    @SuppressWarnings("fallthrough")
+    private static int moveStandard(Board board, int seat, int pos) {
+        if (pos < 0 || pos >= Board.PITS) return INVALID_PIT;
+        int[] cells = board.cells;
+        int base = seat * Board.SIDE;
+        int stones = cells[base + pos];
+        if (stones < 1) return EMPTY_PIT;
+        cells[base + pos] = 0;
+
+        // Full laps.
+        int laps = stones / Board.SIDE;
+        if (laps > 0) {
+            cells[base] += laps;
+            cells[base + 1] += laps;
+            cells[base + 2] += laps;
+            cells[base + 3] += laps;
+            cells[base + 4] += laps;
+            cells[base + 5] += laps;
+            cells[base + 6] += laps;
+        }
+
+        // Remainder, one stone per cell following the picked pit, wrapping around.
+        // Every case falls through to the ones below it on purpose.
+        int remainder = stones - laps * Board.SIDE;
+        switch (remainder) {
+            case 6: cells[base + LANDING[pos + 6]]++;
+            case 5: cells[base + LANDING[pos + 5]]++;
+            case 4: cells[base + LANDING[pos + 4]]++;
+            case 3: cells[base + LANDING[pos + 3]]++;
+            case 2: cells[base + LANDING[pos + 2]]++;
+            case 1: cells[base + LANDING[pos + 1]]++;
+        }
+        int end = pos + remainder;
+        board.pitStones[seat] -= end >= Board.STORE ? laps + 1 : laps;
+
+        int last = LANDING[end];
+        if (last == Board.STORE)
+            return EXTRA_TURN | (board.isOver() ? GAME_OVER : 0);
+
+        int result = 0;
+        if (cells[base + last] == 1) {
+            int opponent = Board.opponentOf(seat);
+            int opposite = opponent * Board.SIDE + Board.PITS - 1 - last;
+            int captured = cells[opposite];
+            cells[opposite] = 0;
+            cells[base + last] = 0;
+            cells[base + Board.STORE] += captured + 1;
+            board.pitStones[seat]--;
+            board.pitStones[opponent] -= captured;
+            result = CAPTURE;
+        }
+        return result | (board.isOver() ? GAME_OVER : 0);
+    }
+
+    /**
+     * Applies the move by the path serving every variant. {@link SowingEngine#move}
+     * is to be preferred, this one is exposed to benchmark the specialized path against.
+     */
+    public static int moveGeneric(Board board, int seat, int pos) {
+        int pits = board.pits;
+        if (pos < 0 || pos >= pits) return INVALID_PIT;
+        int side = board.side;
+        int[] cells = board.cells;
+        int base = seat * side;
+        int stones = cells[base + pos];
+        if (stones < 1) return EMPTY_PIT;
+        cells[base + pos] = 0;
+
+        // Full laps.
+        int laps = stones / side;
+        if (laps > 0)
+            for (int i = base; i < base + side; i++)
+                cells[i] += laps;
+
+        // Remainder, split into the run up to the store and the wrapped run.
+        int remainder = stones - laps * side;
+        int end = pos + remainder;
+        int stored = laps;
+        if (end < side)
+            for (int i = base + pos + 1; i <= base + end; i++) cells[i]++;
+        else {
+            for (int i = base + pos + 1; i < base + side; i++) cells[i]++;
+            for (int i = base; i <= base + end - side; i++) cells[i]++;
+        }
+        if (end >= pits) stored++;
+        board.pitStones[seat] -= stored;
+
+        Variant variant = board.variant;
+        int last = variant.landing[end];
+        if (last == pits)
+            return (variant.hasExtraTurn() ? EXTRA_TURN : 0) | (board.isOver() ? GAME_OVER : 0);
+
+        int result = 0;
+        if (variant.hasCapture() && cells[base + last] == 1) {
+            int opponent = Board.opponentOf(seat);
+            int opposite = opponent * side + pits - 1 - last;
+            int captured = cells[opposite];
+            cells[opposite] = 0;
+            cells[base + last] = 0;
+            cells[base + pits] += captured + 1;
+            board.pitStones[seat]--;
+            board.pitStones[opponent] -= captured;
+            result = CAPTURE;
+        }
+        return result | (board.isOver() ? GAME_OVER : 0);
+    }
+
+}
@@ -0,0 +1,116 @@
+package models.rules;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Rules of a game: the number of pits per side, the stones each pit starts
+ * with, and whether the capture and extra turn rules are in effect.
+ *
+ * Variants are named {@code <pits>x<stones>}, optionally followed by
+ * {@code -nocapture} and {@code -noextra}, e.g., {@code 6x4-nocapture}.
+ * {@link Variant#STANDARD} is the 6x6 game with both rules, which the
+ * {@link SowingEngine} has a specialized path for. Variants equal to it are
+ * always represented by that very instance, hence can be compared by
+ * reference.
+ */
+@Immutable
+public final class Variant {
+
+    /** Bounds keeping every stone count within a byte of the snapshots and the journal. */
+    public static final int MAX_PITS = 8;
+    public static final int MAX_STONES = 8;
+
+    public static final Variant STANDARD = new Variant(6, 6, true, true);
+
+    private final int pits;
+    private final int stones;
+    private final boolean capture;
+    private final boolean extraTurn;
+    private final String name;
+    /** Maps {@code pos + remainder} to the side-relative landing cell, avoiding a modulo. */
+    final int[] landing;
+
+    private Variant(int pits, int stones, boolean capture, boolean extraTurn) {
+        this.pits = pits;
+        this.stones = stones;
+        this.capture = capture;
+        this.extraTurn = extraTurn;
+        this.name = pits + "x" + stones + (capture ? "" : "-nocapture") + (extraTurn ? "" : "-noextra");
+        int side = pits + 1;
+        this.landing = new int[2 * side];
+        for (int i = 0; i < landing.length; i++) landing[i] = i % side;
+    }
+
+    /**
+     * Returns the variant with the given rules.
+     *
+     * @throws IllegalArgumentException if the pit or stone count is out of bounds.
+     */
+    public static Variant of(int pits, int stones, boolean capture, boolean extraTurn) {
+        if (pits < 1 || pits > MAX_PITS || stones < 1 || stones > MAX_STONES)
+            throw new IllegalArgumentException("Unsupported board: " + pits + "x" + stones);
+        if (pits == STANDARD.pits && stones == STANDARD.stones &&
+                capture == STANDARD.capture && extraTurn == STANDARD.extraTurn)
+            return STANDARD;
+        return new Variant(pits, stones, capture, extraTurn);
+    }
+
+    /**
+     * Returns the variant with the given name, or {@code null} if the name is malformed or out of bounds.
+     */
+    public static Variant fromName(String name) {
+        String[] parts = name.split("-");
+        int separator = parts[0].indexOf('x');
+        if (separator < 1) return null;
+        boolean capture = true, extraTurn = true;
+        for (int i = 1; i < parts.length; i++) {
+            if (capture && "nocapture".equals(parts[i])) capture = false;
+            else if (extraTurn && "noextra".equals(parts[i])) extraTurn = false;
+            else return null;
+        }
+        try {
+            int pits = Integer.parseInt(parts[0].substring(0, separator));
+            int stones = Integer.parseInt(parts[0].substring(separator + 1));
+            return of(pits, stones, capture, extraTurn);
+        }
+        catch (IllegalArgumentException iae) { return null; }
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * Returns the number of regular pits per side.
+     */
+    public int getPits() { return pits; }
+
+    /**
+     * Returns the number of stones every regular pit starts with.
+     */
+    public int getStones() { return stones; }
+
+    /**
+     * Checks if a last stone landing in an empty pit of the mover captures the opposite pit.
+     */
+    public boolean hasCapture() { return capture; }
+
+    /**
+     * Checks if a last stone landing in the store of the mover gives another turn.
+     */
+    public boolean hasExtraTurn() { return extraTurn; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Variant)) return false;
+        Variant that = (Variant) o;
+        return pits == that.pits && stones == that.stones &&
+                capture == that.capture && extraTurn == that.extraTurn;
+    }
+
+    @Override
+    public int hashCode() { return name.hashCode(); }
+
+    @Override
+    public String toString() { return name; }
+
+}
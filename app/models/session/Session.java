@@ -0,0 +1,236 @@
+package models.session;
+
+import models.connection.Connection;
+import models.event.Event;
+import models.metrics.Metrics;
+import models.timer.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.libs.F;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Connection} of a player outliving its sockets, hence a player can resume its game after a disconnect.
+ *
+ * Frames are numbered from one in the order the sockets of the player send
+ * them, and the last {@code bufferSize} frames are kept in a ring. Events
+ * written but not sent yet are kept as well. Once the socket closes, the
+ * session keeps collecting events for the grace period before it reports
+ * the close. A player connecting again within the grace period tells the
+ * number of frames it received, along with the token of its id, and the
+ * session writes the frames it missed, followed by the events it was not
+ * sent, to the new socket. A player may also take over its session before
+ * the former socket is found closed, which is then closed.
+ * Catching up takes neither the game nor a snapshot of the board.
+ *
+ * Numbers are handed out as frames leave the {@link
+ * models.connection.OutboundQueue}, hence board states it supersedes and
+ * events it drops are never numbered, and the count of the client matches
+ * the one of the session. Sessions waiting for their player are closed
+ * once more than {@code bufferSize} events pile up.
+ */
+@ThreadSafe
+public class Session extends Connection {
+
+    private static final Logger log = LoggerFactory.getLogger(Session.class);
+
+    private final Sessions sessions;
+    private final int mask;
+    private volatile String playerId;
+    @GuardedBy("this") private Connection transport;
+    @GuardedBy("this") private boolean attached = true;
+    @GuardedBy("this") private boolean ended;
+    /** Ring of the sent frames, by their numbers. */
+    @GuardedBy("this") private final Event[] frames;
+    @GuardedBy("this") private long sentCount;
+    /** Events written but not sent yet, in the order they are written. */
+    @GuardedBy("this") private final ArrayDeque<Event> unsent = new ArrayDeque<>();
+    @GuardedBy("this") private final List<MoveListener> listeners = new ArrayList<>();
+    @GuardedBy("this") private TimingWheel.Timeout graceTimeout;
+
+    private final SendListener sendListener = new SendListener() {
+        @Override
+        public void onSent(Connection connection, Event event) { Session.this.onSent(connection, event); }
+    };
+
+    /**
+     * @param bufferSize number of frames kept for resuming, a power of two.
+     */
+    Session(Sessions sessions, Connection transport, int bufferSize) {
+        super(transport.getProtocol());
+        if (Integer.bitCount(bufferSize) != 1)
+            throw new IllegalArgumentException("Buffer size not a power of two: " + bufferSize);
+        this.sessions = sessions;
+        this.mask = bufferSize - 1;
+        this.frames = new Event[bufferSize];
+        this.transport = transport;
+        transport.onSend(sendListener);
+        transport.onClose(closeCallback(transport));
+    }
+
+    /**
+     * Returns the id the session is registered under, or null.
+     */
+    public String getPlayerId() { return playerId; }
+
+    void setPlayerId(String playerId) { this.playerId = playerId; }
+
+    /**
+     * Returns the number of frames sent so far.
+     */
+    public synchronized long getSentCount() { return sentCount; }
+
+    @Override
+    public void write(Event event) {
+        synchronized (this) {
+            if (ended) return;
+            unsent.add(event);
+            if (attached) {
+                transport.write(event);
+                return;
+            }
+            if (unsent.size() <= frames.length) return;
+            end();
+        }
+        log.debug("Closing the session of {} for falling {} events behind.", playerId, frames.length);
+        sessions.onEnded(this);
+        onClosed();
+    }
+
+    /**
+     * Ends the session, closing its socket once the events written so far are sent.
+     */
+    @Override
+    public void close() {
+        Connection closing;
+        synchronized (this) {
+            if (ended) return;
+            end();
+            closing = attached ? transport : null;
+        }
+        sessions.onEnded(this);
+        // The close of the socket reports the close of the session.
+        if (closing != null) closing.close();
+        else onClosed();
+    }
+
+    @Override
+    public void onMove(MoveListener listener) {
+        Connection current;
+        synchronized (this) {
+            listeners.add(listener);
+            current = transport;
+        }
+        current.onMove(listener);
+    }
+
+    /**
+     * Takes the given socket over, after writing the frames following the given number of received frames to it.
+     *
+     * The token of the player is to be checked by the caller, see {@link Sessions#resume}.
+     *
+     * @return false if the session ended, the socket speaks another
+     *         protocol, or the frames following the received ones are no longer kept.
+     */
+    boolean resume(Connection socket, long received) {
+        Connection former;
+        int replayed;
+        synchronized (this) {
+            if (ended || socket.getProtocol() != protocol) return false;
+            if (received > sentCount || received < sentCount - frames.length) return false;
+            former = transport;
+            transport = socket;
+            attached = true;
+            if (graceTimeout != null) {
+                graceTimeout.cancel();
+                graceTimeout = null;
+            }
+            // Frames the player missed are sent again, hence numbered again.
+            ArrayDeque<Event> replay = new ArrayDeque<>(unsent.size() + (int) (sentCount - received));
+            for (long number = received + 1; number <= sentCount; number++)
+                replay.add(frames[(int) ((number - 1) & mask)]);
+            replay.addAll(unsent);
+            unsent.clear();
+            sentCount = received;
+            socket.onSend(sendListener);
+            for (Event event : replay) {
+                unsent.add(event);
+                socket.replay(event);
+            }
+            replayed = replay.size();
+            for (MoveListener listener : listeners) socket.onMove(listener);
+        }
+        log.trace("{} resumed after {} frames, {} to catch up.", playerId, received, replayed);
+        Metrics.recordSessionResume(replayed);
+        if (former != socket) former.close();
+        socket.onClose(closeCallback(socket));
+        return true;
+    }
+
+    private F.Callback0 closeCallback(final Connection socket) {
+        return new F.Callback0() {
+            @Override
+            public void invoke() throws Throwable { onSocketClosed(socket); }
+        };
+    }
+
+    private void onSocketClosed(Connection socket) {
+        synchronized (this) {
+            // Ignore sockets taken over by another one.
+            if (socket != transport) return;
+            if (!ended) {
+                attached = false;
+                graceTimeout = sessions.getTimers().schedule(new Runnable() {
+                    @Override
+                    public void run() { expire(); }
+                }, sessions.getGraceNanos(), TimeUnit.NANOSECONDS);
+                log.trace("{} disconnected, waiting for it to resume.", playerId);
+                return;
+            }
+        }
+        onClosed();
+    }
+
+    private void expire() {
+        synchronized (this) {
+            if (ended || attached) return;
+            end();
+        }
+        log.trace("{} did not resume in time.", playerId);
+        Metrics.recordSessionExpiry();
+        sessions.onEnded(this);
+        onClosed();
+    }
+
+    @GuardedBy("this")
+    private void end() {
+        ended = true;
+        if (graceTimeout != null) {
+            graceTimeout.cancel();
+            graceTimeout = null;
+        }
+    }
+
+    private synchronized void onSent(Connection socket, Event event) {
+        // Frames of a socket taken over never reach the player.
+        if (socket != transport) return;
+        frames[(int) (sentCount++ & mask)] = event;
+        // Forget the event, along with whatever the outbound queue let go
+        // before it. The queue sends events in the order they are written,
+        // except for board states superseded by a later one, which are never sent.
+        Iterator<Event> iterator = unsent.iterator();
+        while (iterator.hasNext()) {
+            Event written = iterator.next();
+            iterator.remove();
+            if (written == event) break;
+        }
+    }
+
+}
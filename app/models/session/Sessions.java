@@ -0,0 +1,97 @@
+package models.session;
+
+import models.Settings;
+import models.connection.Connection;
+import models.id.Credentials;
+import models.timer.Timers;
+import models.timer.TimingWheel;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Session}s of the players of this node by their ids, configured in {@code application.conf}.
+ *
+ * Sessions wait {@code game.session.grace} for their players to resume, a
+ * zero duration disabling resumes, and keep the last
+ * {@code game.session.bufferSize} frames, a power of two. A session is
+ * registered once its player is told its id, and leaves the registry once
+ * it ends. Resuming takes the token of the id, see {@link Credentials}.
+ */
+@ThreadSafe
+public class Sessions {
+
+    private static final class Holder {
+        static final Sessions instance = new Sessions(
+                Credentials.shared(),
+                Timers.shared(),
+                Settings.getDuration("game.session.grace", TimeUnit.NANOSECONDS, TimeUnit.SECONDS.toNanos(30)),
+                Settings.getInt("game.session.bufferSize", 64));
+    }
+
+    public static Sessions shared() { return Holder.instance; }
+
+    private final Credentials credentials;
+    private final TimingWheel timers;
+    private final long graceNanos;
+    private final int bufferSize;
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public Sessions(Credentials credentials, TimingWheel timers, long graceNanos, int bufferSize) {
+        this.credentials = credentials;
+        this.timers = timers;
+        this.graceNanos = graceNanos;
+        this.bufferSize = bufferSize;
+    }
+
+    public boolean isEnabled() { return graceNanos > 0; }
+
+    TimingWheel getTimers() { return timers; }
+
+    long getGraceNanos() { return graceNanos; }
+
+    /**
+     * Returns the number of registered sessions.
+     */
+    public int size() { return sessions.size(); }
+
+    /**
+     * Opens a session on the given socket, to be registered once its player gets an id.
+     */
+    public Session open(Connection socket) { return new Session(this, socket, bufferSize); }
+
+    /**
+     * Registers the given session under the given player id.
+     *
+     * @return false if another session holds the id.
+     */
+    public boolean register(String playerId, Session session) {
+        session.setPlayerId(playerId);
+        return sessions.putIfAbsent(playerId, session) == null;
+    }
+
+    /**
+     * Unregisters the given session, e.g., once its player gets another id.
+     */
+    public void unregister(String playerId, Session session) { sessions.remove(playerId, session); }
+
+    /**
+     * Passes the given socket on to the session of the given player, see {@link Session#resume}.
+     *
+     * @return false if the token is not the one of the player, there is no
+     *         such session, or it cannot resume after the given number of received frames.
+     */
+    public boolean resume(String playerId, String token, Connection socket, long received) {
+        if (!credentials.verify(playerId, token)) return false;
+        Session session = sessions.get(playerId);
+        return session != null && session.resume(socket, received);
+    }
+
+    void onEnded(Session session) {
+        String playerId = session.getPlayerId();
+        if (playerId != null) unregister(playerId, session);
+    }
+
+}
@@ -0,0 +1,127 @@
+package models.simulation;
+
+import models.bot.AlphaBetaSearch;
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.rules.Variant;
+
+import java.util.Random;
+
+/**
+ * The {@link Policy}s {@link SelfPlay} games pit against each other.
+ */
+public final class Policies {
+
+    private Policies() {}
+
+    public enum Kind {
+
+        /**
+         * Picks a non-empty pit uniformly at random.
+         */
+        RANDOM,
+
+        /**
+         * Picks the move dropping the most stones into the store, preferring
+         * extra turns among equal gains and breaking the remaining ties at random.
+         */
+        GREEDY,
+
+        /**
+         * Picks the move of an {@link AlphaBetaSearch} within a time budget,
+         * hence plays {@link Variant#STANDARD} games only.
+         */
+        SEARCH;
+
+        /**
+         * Returns the kind with the given case-insensitive name, or {@code null} if there is none.
+         */
+        public static Kind fromName(String name) {
+            for (Kind kind : values())
+                if (kind.name().equalsIgnoreCase(name))
+                    return kind;
+            return null;
+        }
+
+    }
+
+    /**
+     * Creates a policy of the given kind for boards of the given variant.
+     *
+     * @param search shared by {@link Kind#SEARCH} policies, ignored by others.
+     * @throws IllegalArgumentException if the kind does not support the variant.
+     */
+    public static Policy newPolicy(Kind kind, Variant variant, AlphaBetaSearch search, long budgetNanos) {
+        switch (kind) {
+            case RANDOM:
+                return new RandomPolicy();
+            case GREEDY:
+                return new GreedyPolicy(variant);
+            default:
+                if (variant != Variant.STANDARD)
+                    throw new IllegalArgumentException("Search plays " + Variant.STANDARD + " games only.");
+                return new SearchPolicy(search, budgetNanos);
+        }
+    }
+
+    private static final class RandomPolicy implements Policy {
+
+        @Override
+        public int move(Board board, int seat, Random random) {
+            int choice = random.nextInt(countMoves(board, seat));
+            for (int pos = 0; ; pos++)
+                if (board.pit(seat, pos) > 0 && choice-- == 0) return pos;
+        }
+
+    }
+
+    private static int countMoves(Board board, int seat) {
+        int count = 0;
+        for (int pos = 0; pos < board.pits(); pos++)
+            if (board.pit(seat, pos) > 0) count++;
+        return count;
+    }
+
+    private static final class GreedyPolicy implements Policy {
+
+        private final Board scratch;
+
+        GreedyPolicy(Variant variant) { this.scratch = new Board(variant); }
+
+        @Override
+        public int move(Board board, int seat, Random random) {
+            int bestMove = -1, bestValue = Integer.MIN_VALUE, ties = 0;
+            for (int pos = 0; pos < board.pits(); pos++) {
+                if (board.pit(seat, pos) == 0) continue;
+                scratch.copyFrom(board);
+                int result = SowingEngine.move(scratch, seat, pos);
+                int value = 2 * (scratch.score(seat) - board.score(seat)) + (result & SowingEngine.EXTRA_TURN);
+                if (value > bestValue) {
+                    bestMove = pos;
+                    bestValue = value;
+                    ties = 1;
+                }
+                // Reservoir sampling keeps each of the tied moves with equal probability.
+                else if (value == bestValue && random.nextInt(++ties) == 0) bestMove = pos;
+            }
+            return bestMove;
+        }
+
+    }
+
+    private static final class SearchPolicy implements Policy {
+
+        private final AlphaBetaSearch search;
+        private final long budgetNanos;
+
+        SearchPolicy(AlphaBetaSearch search, long budgetNanos) {
+            this.search = search;
+            this.budgetNanos = budgetNanos;
+        }
+
+        @Override
+        public int move(Board board, int seat, Random random) { return search.bestMove(board, seat, budgetNanos); }
+
+    }
+
+}
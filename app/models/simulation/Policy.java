@@ -0,0 +1,23 @@
+package models.simulation;
+
+import models.rules.Board;
+
+import java.util.Random;
+
+/**
+ * Picks the moves of a seat in a {@link SelfPlay} game.
+ *
+ * Instances may keep scratch state, and are confined to a single thread.
+ *
+ * @see Policies
+ */
+public interface Policy {
+
+    /**
+     * Returns a non-empty pit of the given seat to move on the given board, which is not over.
+     *
+     * @param random source of randomness, seeded per game for reproducible runs.
+     */
+    public int move(Board board, int seat, Random random);
+
+}
@@ -0,0 +1,170 @@
+package models.simulation;
+
+import models.Settings;
+import models.bot.AlphaBetaSearch;
+import models.bot.TranspositionTable;
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.rules.Variant;
+import models.tablebase.Tablebase;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays batches of games between two {@link Policy}s straight on the
+ * {@link SowingEngine} rules, without any players, connections or games.
+ *
+ * A batch is split in halves as fork-join tasks down to
+ * {@link SelfPlay#LEAF_GAMES} games, each leaf playing its games in a row on
+ * a board and policies of its own, and recording them into its own
+ * {@link SimulationStats}. Statistics are merged up the task tree as the
+ * tasks complete, hence nothing is shared between the workers but the
+ * search of {@link Policies.Kind#SEARCH} policies.
+ *
+ * The policies take turns at moving first, the first policy moving first in
+ * even games. Every game seeds the random source with its index, hence runs
+ * of policies other than {@link Policies.Kind#SEARCH} are reproducible
+ * regardless of the parallelism. Type
+ *
+ *   $ activator "runMain models.simulation.SelfPlay 1000000 greedy random 6x4"
+ *
+ * to play a million games of the given policies and variant on every
+ * processor, or {@code game.simulation.parallelism} of them.
+ */
+@ThreadSafe
+public class SelfPlay {
+
+    static final int LEAF_GAMES = 256;
+
+    private final Variant variant;
+    private final Policies.Kind[] kinds;
+    private final AlphaBetaSearch search;
+    private final long budgetNanos;
+    private final long seed;
+
+    /**
+     * @param search shared by {@link Policies.Kind#SEARCH} policies, or null if there are none.
+     * @param budgetNanos of every search move.
+     * @throws IllegalArgumentException if a policy does not support the variant.
+     */
+    public SelfPlay(
+            Variant variant, Policies.Kind first, Policies.Kind second,
+            AlphaBetaSearch search, long budgetNanos, long seed) {
+        this.variant = variant;
+        this.kinds = new Policies.Kind[]{first, second};
+        this.search = search;
+        this.budgetNanos = budgetNanos;
+        this.seed = seed;
+        if ((first == Policies.Kind.SEARCH || second == Policies.Kind.SEARCH) && search == null)
+            throw new IllegalArgumentException("Search policies need a search.");
+        newPolicies();
+    }
+
+    private Policy[] newPolicies() {
+        return new Policy[]{
+                Policies.newPolicy(kinds[0], variant, search, budgetNanos),
+                Policies.newPolicy(kinds[1], variant, search, budgetNanos)};
+    }
+
+    /**
+     * Plays the given number of games on the given pool, and waits for them.
+     */
+    public SimulationStats run(ForkJoinPool pool, long games) { return pool.invoke(new Batch(0, games)); }
+
+    /**
+     * Games of the given index range.
+     */
+    @SuppressWarnings("serial")
+    private final class Batch extends RecursiveTask<SimulationStats> {
+
+        private final long from;
+        private final long to;
+
+        Batch(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from > LEAF_GAMES) {
+                long middle = (from + to) >>> 1;
+                Batch left = new Batch(from, middle);
+                left.fork();
+                SimulationStats stats = new Batch(middle, to).compute();
+                stats.merge(left.join());
+                return stats;
+            }
+            SimulationStats stats = new SimulationStats();
+            Policy[] policies = newPolicies();
+            Board initial = new Board(variant);
+            Board board = new Board(variant);
+            Random random = new Random();
+            for (long index = from; index < to; index++) {
+                board.copyFrom(initial);
+                random.setSeed(seed + index * 0x9E3779B97F4A7C15L);
+                play(index, board, policies, random, stats);
+            }
+            return stats;
+        }
+
+    }
+
+    /**
+     * Plays the game of the given index out of the given initial board.
+     */
+    private void play(long index, Board board, Policy[] policies, Random random, SimulationStats stats) {
+        int firstPolicySeat = (int) (index & 1);
+        int seat = 0, plies = 0, captures = 0, extraTurns = 0;
+        while (!board.isOver()) {
+            int player = seat == firstPolicySeat ? 0 : 1;
+            int pos = policies[player].move(board, seat, random);
+            int result = SowingEngine.move(board, seat, pos);
+            if (result < 0)
+                throw new IllegalStateException(String.format(
+                        "Game %d: %s policy picked illegal pit %d of seat %d.", index, kinds[player], pos, seat));
+            plies++;
+            if ((result & SowingEngine.CAPTURE) != 0) captures++;
+            if ((result & SowingEngine.EXTRA_TURN) != 0) extraTurns++;
+            else seat = Board.opponentOf(seat);
+        }
+        int upperScore = board.score(0), lowerScore = board.score(1);
+        int winnerSeat = upperScore == lowerScore ? -1 : upperScore > lowerScore ? 0 : 1;
+        stats.record(winnerSeat, firstPolicySeat, plies, captures, extraTurns);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: SelfPlay <games> <first policy> <second policy> [variant]");
+            System.err.println("Policies: random, greedy, search");
+            System.exit(1);
+        }
+        long games = Long.parseLong(args[0]);
+        Policies.Kind first = Policies.Kind.fromName(args[1]);
+        Policies.Kind second = Policies.Kind.fromName(args[2]);
+        Variant variant = args.length > 3 ? Variant.fromName(args[3]) : Variant.STANDARD;
+        if (first == null || second == null || variant == null) {
+            System.err.println("Unknown policy or variant.");
+            System.exit(1);
+        }
+        AlphaBetaSearch search = new AlphaBetaSearch(
+                new TranspositionTable(Settings.getInt("game.bot.tableSize", 1 << 20)), Tablebase.shared());
+        long budgetNanos = Settings.getDuration("game.simulation.budget", TimeUnit.NANOSECONDS,
+                TimeUnit.MILLISECONDS.toNanos(1));
+        ForkJoinPool pool = new ForkJoinPool(Settings.getInt(
+                "game.simulation.parallelism", Runtime.getRuntime().availableProcessors()));
+
+        long start = System.nanoTime();
+        SimulationStats stats = new SelfPlay(variant, first, second, search, budgetNanos, 0).run(pool, games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s vs %s on %s, %d threads.%n", first, second, variant, pool.getParallelism());
+        System.out.println(stats);
+        System.out.printf("Played %d games in %.1f s, %.0f games/s.%n", games, seconds, games / seconds);
+        pool.shutdown();
+    }
+
+}
@@ -0,0 +1,137 @@
+package models.simulation;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Aggregate outcome of a batch of {@link SelfPlay} games.
+ *
+ * Games are recorded one at a time and forgotten right away, hence the
+ * footprint does not grow with the number of games. Each fork-join task
+ * records into a statistics object of its own, which is merged into its
+ * parent once the task completes.
+ *
+ * Game lengths are counted in plies, that is, moves of either seat, and
+ * games longer than {@link SimulationStats#MAX_PLIES} share the last
+ * bucket of the length distribution.
+ */
+@NotThreadSafe
+public class SimulationStats {
+
+    public static final int MAX_PLIES = 1024;
+
+    private long games;
+    /** Wins of the seat moving first, and of the other one. */
+    private final long[] seatWins = new long[2];
+    /** Wins of the first policy, and of the second one, whichever seat they played. */
+    private final long[] policyWins = new long[2];
+    private long draws;
+    private long plies;
+    private long captures;
+    private long extraTurns;
+    private final long[] lengths = new long[MAX_PLIES + 1];
+
+    /**
+     * Records a finished game.
+     *
+     * @param winnerSeat of the winner, or -1 in case of a draw.
+     * @param firstPolicySeat seat played by the first policy.
+     */
+    public void record(int winnerSeat, int firstPolicySeat, int plies, int captures, int extraTurns) {
+        games++;
+        if (winnerSeat < 0) draws++;
+        else {
+            seatWins[winnerSeat]++;
+            policyWins[winnerSeat == firstPolicySeat ? 0 : 1]++;
+        }
+        this.plies += plies;
+        this.captures += captures;
+        this.extraTurns += extraTurns;
+        lengths[Math.min(plies, MAX_PLIES)]++;
+    }
+
+    /**
+     * Adds the games of the given statistics to this one.
+     */
+    public void merge(SimulationStats other) {
+        games += other.games;
+        for (int i = 0; i < 2; i++) {
+            seatWins[i] += other.seatWins[i];
+            policyWins[i] += other.policyWins[i];
+        }
+        draws += other.draws;
+        plies += other.plies;
+        captures += other.captures;
+        extraTurns += other.extraTurns;
+        for (int i = 0; i <= MAX_PLIES; i++) lengths[i] += other.lengths[i];
+    }
+
+    public long getGames() { return games; }
+
+    /**
+     * Returns the number of games won by the seat moving first ({@code 0}) or second ({@code 1}).
+     */
+    public long getSeatWins(int seat) { return seatWins[seat]; }
+
+    /**
+     * Returns the number of games won by the first ({@code 0}) or second ({@code 1}) policy.
+     */
+    public long getPolicyWins(int policy) { return policyWins[policy]; }
+
+    public long getDraws() { return draws; }
+
+    public long getPlies() { return plies; }
+
+    public long getCaptures() { return captures; }
+
+    public long getExtraTurns() { return extraTurns; }
+
+    /**
+     * Returns the share of the games won by the seat moving first.
+     */
+    public double getFirstSeatWinRate() { return games == 0 ? 0 : (double) seatWins[0] / games; }
+
+    public double getMeanPlies() { return games == 0 ? 0 : (double) plies / games; }
+
+    /**
+     * Returns the mean number of captures per game.
+     */
+    public double getCaptureRate() { return games == 0 ? 0 : (double) captures / games; }
+
+    /**
+     * Returns the number of games of the given length in plies.
+     */
+    public long getLengthCount(int plies) { return lengths[Math.min(plies, MAX_PLIES)]; }
+
+    /**
+     * Returns the least game length in plies not exceeded by the given share of the games, or zero if there are none.
+     *
+     * @param quantile in the range [0, 1].
+     */
+    public int lengthQuantile(double quantile) {
+        if (games == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * games));
+        long seen = 0;
+        for (int i = 0; i < MAX_PLIES; i++) {
+            seen += lengths[i];
+            if (seen >= rank) return i;
+        }
+        return MAX_PLIES;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d games: first seat won %.2f%%, second seat %.2f%%, draws %.2f%%; " +
+                        "first policy won %d, second policy %d; " +
+                        "plies mean %.1f, p50 %d, p90 %d, p99 %d, max %d; " +
+                        "captures per game %.2f, extra turns per game %.2f",
+                games, percentOf(seatWins[0]), percentOf(seatWins[1]), percentOf(draws),
+                policyWins[0], policyWins[1],
+                getMeanPlies(), lengthQuantile(0.5), lengthQuantile(0.9), lengthQuantile(0.99),
+                lengthQuantile(1),
+                getCaptureRate(), games == 0 ? 0 : (double) extraTurns / games);
+    }
+
+    private double percentOf(long count) { return games == 0 ? 0 : 100.0 * count / games; }
+
+}
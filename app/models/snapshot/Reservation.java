@@ -0,0 +1,93 @@
+package models.snapshot;
+
+import models.id.Credentials;
+import models.player.ConnectedPlayer;
+import models.rules.Variant;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A restored game holding the seats of its players until they reconnect
+ * with the tokens of their seats.
+ */
+@ThreadSafe
+public class Reservation {
+
+    private final long gameKey;
+    private final Variant variant;
+    private final String[] seats;
+    private final String[] tokens;
+    private final int[] cells;
+    private final int nextSeat;
+    private final long deadlineNanos;
+    @GuardedBy("this") private final ConnectedPlayer[] players = new ConnectedPlayer[2];
+    @GuardedBy("this") private boolean done;
+
+    static final int REJECTED = 0;
+    static final int SEATED = 1;
+    static final int COMPLETE = 2;
+
+    Reservation(long gameKey, Variant variant, String[] seats, String[] tokens, int[] cells, int nextSeat,
+                long deadlineNanos) {
+        this.gameKey = gameKey;
+        this.variant = variant;
+        this.seats = seats;
+        this.tokens = tokens;
+        this.cells = cells;
+        this.nextSeat = nextSeat;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public long getGameKey() { return gameKey; }
+
+    public Variant getVariant() { return variant; }
+
+    public int[] getCells() { return cells; }
+
+    public int getNextSeat() { return nextSeat; }
+
+    long getDeadlineNanos() { return deadlineNanos; }
+
+    /**
+     * Checks in constant time if the given token is the one of the seat of the given player id.
+     */
+    boolean verify(String playerId, String token) {
+        for (int seat = 0; seat < 2; seat++)
+            if (seats[seat].equals(playerId)) return Credentials.matches(tokens[seat], token);
+        return false;
+    }
+
+    /**
+     * Returns the player reconnected to the given seat.
+     */
+    public synchronized ConnectedPlayer getPlayer(int seat) { return players[seat]; }
+
+    /**
+     * Seats the given player. Returns {@link Reservation#COMPLETE} to the
+     * player seated last, {@link Reservation#SEATED} to the first one, and
+     * {@link Reservation#REJECTED} once the reservation is expired or complete.
+     */
+    synchronized int seat(ConnectedPlayer player) {
+        if (done) return REJECTED;
+        for (int seat = 0; seat < 2; seat++)
+            if (seats[seat].equals(player.getId())) players[seat] = player;
+        done = players[0] != null && players[1] != null;
+        return done ? COMPLETE : SEATED;
+    }
+
+    /**
+     * Marks the reservation as expired, returning the players seated so far,
+     * or null if it is already expired or complete.
+     */
+    synchronized ConnectedPlayer[] expire() {
+        if (done) return null;
+        done = true;
+        int count = (players[0] != null ? 1 : 0) + (players[1] != null ? 1 : 0);
+        ConnectedPlayer[] seated = new ConnectedPlayer[count];
+        for (int seat = 0, i = 0; seat < 2; seat++)
+            if (players[seat] != null) seated[i++] = players[seat];
+        return seated;
+    }
+
+}
@@ -0,0 +1,111 @@
+package models.snapshot;
+
+import models.player.ConnectedPlayer;
+import models.rules.Variant;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Restored games waiting for their players to reconnect within a grace period.
+ *
+ * Reservations are indexed by the ids of both of their players, and a
+ * player claims its seat with the token of the seat. Once both
+ * players reconnect, the reservation is handed over to be turned into a
+ * game. Reservations not completed by their deadline are expired, and the
+ * players that did reconnect are handed back, to be paired with others.
+ */
+@ThreadSafe
+public class Reservations implements SnapshotReader.Visitor {
+
+    /**
+     * Receives the reservations both players reconnected to, and the ones expired before that.
+     */
+    public interface Listener {
+        public void onReservationComplete(Reservation reservation);
+
+        /**
+         * Called once per expired reservation, before its players are handed back.
+         */
+        public void onReservationExpired(Reservation reservation);
+    }
+
+    private final Map<String, Reservation> byPlayerId = new ConcurrentHashMap<>();
+    private final Listener listener;
+    private final long graceNanos;
+
+    public Reservations(Listener listener, long graceNanos) {
+        this.listener = listener;
+        this.graceNanos = graceNanos;
+    }
+
+    @Override
+    public void onGame(long gameKey, Variant variant, String[] seats, String[] tokens, int[] cells, int nextSeat) {
+        int[] copy = new int[2 * (variant.getPits() + 1)];
+        System.arraycopy(cells, 0, copy, 0, copy.length);
+        Reservation reservation = new Reservation(
+                gameKey, variant, seats, tokens, copy, nextSeat, System.nanoTime() + graceNanos);
+        byPlayerId.put(seats[0], reservation);
+        byPlayerId.put(seats[1], reservation);
+    }
+
+    /**
+     * Returns the number of players yet to reconnect or expire.
+     */
+    public int size() { return byPlayerId.size(); }
+
+    /**
+     * Checks if the given token is the one of the live reservation of the given player id.
+     */
+    public boolean verify(String playerId, String token) {
+        Reservation reservation = byPlayerId.get(playerId);
+        return reservation != null && reservation.verify(playerId, token);
+    }
+
+    /**
+     * Seats the given reconnecting player in its reservation, and passes the
+     * reservation to the {@link Listener} if the opponent is already seated.
+     * A wrong token leaves the reservation to the rightful player.
+     *
+     * @return false if there is no live reservation for the player, or the token is not the one of its seat.
+     */
+    public boolean claim(ConnectedPlayer player, String token) {
+        Reservation reservation = byPlayerId.get(player.getId());
+        if (reservation == null || !reservation.verify(player.getId(), token)
+                || !byPlayerId.remove(player.getId(), reservation)) return false;
+        switch (reservation.seat(player)) {
+            case Reservation.COMPLETE:
+                listener.onReservationComplete(reservation);
+                return true;
+            case Reservation.SEATED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Expires the reservations past their deadline, returning the players that reconnected to them.
+     */
+    public List<ConnectedPlayer> expire() {
+        long now = System.nanoTime();
+        List<ConnectedPlayer> orphans = new ArrayList<>();
+        for (Iterator<Reservation> iterator = byPlayerId.values().iterator(); iterator.hasNext(); ) {
+            Reservation reservation = iterator.next();
+            if (now - reservation.getDeadlineNanos() >= 0) {
+                iterator.remove();
+                // Reservations of players yet to reconnect are indexed twice.
+                ConnectedPlayer[] seated = reservation.expire();
+                if (seated == null) continue;
+                listener.onReservationExpired(reservation);
+                for (ConnectedPlayer player : seated) orphans.add(player);
+            }
+        }
+        return orphans;
+    }
+
+}
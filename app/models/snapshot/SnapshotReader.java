@@ -0,0 +1,58 @@
+package models.snapshot;
+
+import models.rules.Variant;
+
+import java.io.*;
+
+/**
+ * Streams the games out of a file written by {@link SnapshotWriter}.
+ */
+public final class SnapshotReader {
+
+    private SnapshotReader() {}
+
+    /**
+     * Receives the games in the snapshot.
+     */
+    public interface Visitor {
+
+        /**
+         * Called with a cells array that is reused for the next game, and
+         * might be longer than the board of the given variant.
+         */
+        public void onGame(long gameKey, Variant variant, String[] seats, String[] tokens, int[] cells, int nextSeat);
+
+    }
+
+    /**
+     * Passes every game in the given snapshot file to the given visitor.
+     *
+     * @return the number of games read.
+     * @throws IOException if the file is not a complete snapshot of the current format.
+     */
+    public static int read(File file, Visitor visitor) throws IOException {
+        int count = 0;
+        int[] cells = new int[2 * (Variant.MAX_PITS + 1)];
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != SnapshotWriter.MAGIC)
+                throw new IOException("Not a game snapshot: " + file);
+            while (in.readUnsignedByte() == SnapshotWriter.GAME) {
+                long gameKey = in.readLong();
+                String variantName = in.readUTF();
+                Variant variant = Variant.fromName(variantName);
+                if (variant == null)
+                    throw new IOException("Unknown variant " + variantName + " in " + file);
+                int nextSeat = in.readUnsignedByte();
+                int size = 2 * (variant.getPits() + 1);
+                for (int i = 0; i < size; i++) cells[i] = in.readUnsignedByte();
+                String[] seats = {in.readUTF(), in.readUTF()};
+                String[] tokens = {in.readUTF(), in.readUTF()};
+                visitor.onGame(gameKey, variant, seats, tokens, cells, nextSeat);
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
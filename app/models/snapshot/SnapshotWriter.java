@@ -0,0 +1,72 @@
+package models.snapshot;
+
+import models.id.Credentials;
+import models.rules.Board;
+import models.rules.Variant;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+
+/**
+ * Streams snapshots of live games into a file.
+ *
+ * The file starts with the {@link SnapshotWriter#MAGIC} header, followed by
+ * one record per game
+ *
+ * <pre>
+ * u8 1, i64 game key, string variant, u8 next seat, u8[] board cells,
+ * string seat 0 id, string seat 1 id, string seat 0 token, string seat 1 token
+ * </pre>
+ *
+ * and a terminating {@code u8 0}, where strings are in modified UTF-8 as
+ * written by {@link DataOutputStream#writeUTF}, and the number of cells
+ * follows from the {@link Variant} name. The token of a seat is the one its
+ * player was told along with its id, see {@link Credentials}, and claiming
+ * the seat after a restart takes it, even if the key of the tokens changed.
+ * Games write their records
+ * from within their own mailboxes, hence writes are serialized by the writer.
+ *
+ * @see SnapshotReader
+ */
+@ThreadSafe
+public class SnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x4C4D5333;  // "LMS3"
+    static final int GAME = 1;
+    static final int END = 0;
+
+    private final Credentials credentials;
+    private final DataOutputStream out;
+    private int count;
+
+    public SnapshotWriter(File file, Credentials credentials) throws IOException {
+        this.credentials = credentials;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+    }
+
+    public synchronized void write(long gameKey, String[] seats, Board board, int nextSeat) throws IOException {
+        out.writeByte(GAME);
+        out.writeLong(gameKey);
+        out.writeUTF(board.getVariant().getName());
+        out.writeByte(nextSeat);
+        for (int i = 0; i < board.size(); i++) out.writeByte(board.cell(i));
+        out.writeUTF(seats[0]);
+        out.writeUTF(seats[1]);
+        out.writeUTF(credentials.tokenOf(seats[0]));
+        out.writeUTF(credentials.tokenOf(seats[1]));
+        count++;
+    }
+
+    /**
+     * Returns the number of games written so far.
+     */
+    public synchronized int getCount() { return count; }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.writeByte(END);
+        out.close();
+    }
+
+}
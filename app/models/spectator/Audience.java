@@ -0,0 +1,99 @@
+package models.spectator;
+
+import models.concurrent.GameExecutor;
+import models.concurrent.Mailbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Spectator}s of a single game.
+ *
+ * Frames are handed over already encoded, and the very same frame is
+ * written to every spectator. The fan-out runs in a {@link Mailbox} of its
+ * own on a separate executor, hence a broadcast costs the game a single
+ * post no matter how many spectators there are, and spectators can neither
+ * delay the players nor starve other games of executor threads. Spectators
+ * closed by their peers are dropped on the next broadcast.
+ */
+@ThreadSafe
+public class Audience {
+
+    private static final Logger log = LoggerFactory.getLogger(Audience.class);
+
+    private final Mailbox mailbox;
+    /** Confined to the mailbox. */
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Creates an audience fanning out on {@link GameExecutor#writers}.
+     */
+    public Audience() { this(GameExecutor.writers()); }
+
+    public Audience(Executor executor) { this.mailbox = new Mailbox(executor); }
+
+    /**
+     * Returns the number of spectators, including the ones closed since the last broadcast.
+     */
+    public int size() { return size.get(); }
+
+    public boolean isEmpty() { return size.get() == 0; }
+
+    /**
+     * Adds the given spectator, writing the given frame describing the current state to it alone.
+     */
+    public void add(final Spectator spectator, final String frame) {
+        size.incrementAndGet();
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                spectators.add(spectator);
+                spectator.write(frame);
+            }
+        });
+    }
+
+    /**
+     * Writes the given frame to every open spectator.
+     */
+    public void broadcast(final String frame) {
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Iterator<Spectator> iterator = spectators.iterator(); iterator.hasNext(); ) {
+                    Spectator spectator = iterator.next();
+                    if (spectator.isOpen())
+                        try {
+                            spectator.write(frame);
+                            continue;
+                        }
+                        catch (RuntimeException re) { log.debug("Dropping {}.", spectator, re); }
+                    iterator.remove();
+                    size.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Closes every spectator once the frames broadcast so far are written.
+     */
+    public void close() {
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Spectator spectator : spectators) spectator.close();
+                size.addAndGet(-spectators.size());
+                spectators.clear();
+            }
+        });
+    }
+
+}
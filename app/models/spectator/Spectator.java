@@ -0,0 +1,39 @@
+package models.spectator;
+
+import play.libs.F;
+import play.mvc.WebSocket;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Read-only watcher of a game, receiving the JSON frames broadcast by its {@link Audience}.
+ *
+ * Inbound frames are ignored.
+ */
+@ThreadSafe
+public class Spectator {
+
+    private final WebSocket.Out<String> outputSocket;
+    private volatile boolean open = true;
+
+    public Spectator(WebSocket.In<String> inputSocket, WebSocket.Out<String> outputSocket) {
+        this.outputSocket = outputSocket;
+        inputSocket.onClose(new F.Callback0() {
+            @Override
+            public void invoke() throws Throwable { open = false; }
+        });
+    }
+
+    /**
+     * Returns false once the peer has closed the connection.
+     */
+    public boolean isOpen() { return open; }
+
+    public void write(String frame) { outputSocket.write(frame); }
+
+    public void close() {
+        open = false;
+        outputSocket.close();
+    }
+
+}
@@ -0,0 +1,187 @@
+package models.tablebase;
+
+import models.Settings;
+import models.rules.Board;
+import models.rules.SowingEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Exact values of positions with few stones left in the pits, read from a memory-mapped file.
+ *
+ * Stores only ever grow, and the rules do not depend on them, hence the
+ * stones the side to move can still gain over its opponent depend only on
+ * the {@code 2 * PITS} regular pits. The value of a position is that gain
+ * under perfect play of both sides, where the side to move is normalized to
+ * seat 0 by swapping the sides of the board. Adding the value to the current
+ * store difference gives the final store difference of the game.
+ *
+ * The file consists of a {@link Tablebase#HEADER_SIZE} byte header, followed
+ * by one signed byte per position of at most {@link Tablebase#getMaxStones}
+ * stones, at the offset given by {@link Tablebase#indexOf}: positions are
+ * ordered by stone count, and ranked within a count by the combinatorial
+ * number system over their stars and bars representation. Lookups hence
+ * take constant time, and the pages of the file are shared by every JVM on
+ * the host mapping it.
+ *
+ * @see TablebaseGenerator
+ */
+@ThreadSafe
+public class Tablebase {
+
+    private static final Logger log = LoggerFactory.getLogger(Tablebase.class);
+
+    static final int MAGIC = 0x4C4D5442;  // "LMTB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    /** Number of regular pits on the board. */
+    static final int CELLS = 2 * Board.PITS;
+
+    /** Largest stone count binomials are tabulated for. */
+    static final int MAX_STONES = 2 * Board.PITS * Board.INITIAL_STONES;
+
+    private static final long[][] BINOMIALS = new long[MAX_STONES + CELLS + 1][CELLS + 1];
+
+    static {
+        for (int n = 0; n < BINOMIALS.length; n++) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, CELLS); k++)
+                BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + (k <= n - 1 ? BINOMIALS[n - 1][k] : 0);
+        }
+    }
+
+    private final ByteBuffer values;
+    private final int maxStones;
+
+    Tablebase(ByteBuffer values, int maxStones) {
+        this.values = values;
+        this.maxStones = maxStones;
+    }
+
+    /**
+     * Maps the tablebase in the given file.
+     *
+     * @throws IOException if the file cannot be read or is not a tablebase.
+     */
+    public static Tablebase map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException("Not a version " + VERSION + " tablebase: " + file);
+            int maxStones = header.getInt(8);
+            if (maxStones < 0 || maxStones > MAX_STONES)
+                throw new IOException("Stone count out of range [0, " + MAX_STONES + "]: " + maxStones);
+            long size = positionCount(maxStones);
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Tablebase too large to map: " + file);
+            if (channel.size() != HEADER_SIZE + size)
+                throw new IOException("Truncated tablebase: " + file);
+            // The mapping stays valid after the channel is closed.
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, size), maxStones);
+        }
+    }
+
+    private static final class Holder {
+        static final Tablebase shared = load(Settings.getString("game.tablebase.path", null));
+    }
+
+    private static Tablebase load(String path) {
+        if (path == null) return null;
+        try {
+            Tablebase tablebase = map(new File(path));
+            log.info("Mapped tablebase of up to {} stones at {}.", tablebase.maxStones, path);
+            return tablebase;
+        }
+        catch (IOException ioe) {
+            log.warn("Tablebase at " + path + " is not available.", ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the tablebase configured by {@code game.tablebase.path}, or null if there is none.
+     */
+    public static Tablebase shared() { return Holder.shared; }
+
+    /**
+     * Returns the highest number of stones left in the pits of a covered position.
+     */
+    public int getMaxStones() { return maxStones; }
+
+    /**
+     * Checks if the given position is in the tablebase.
+     */
+    public boolean covers(Board board) {
+        return board.pitStones(0) + board.pitStones(1) <= maxStones;
+    }
+
+    /**
+     * Returns the value of the given covered position for the given seat to move.
+     */
+    public int value(Board board, int seat) { return values.get((int) indexOf(board, seat)); }
+
+    /**
+     * Returns a move of the given seat leading to the highest final store difference.
+     *
+     * @throws IllegalArgumentException if the position is not covered or the seat has no moves.
+     */
+    public int bestMove(Board board, int seat) {
+        if (!covers(board))
+            throw new IllegalArgumentException("Position is not covered by the tablebase.");
+        Board child = new Board();
+        int bestMove = -1, bestValue = Integer.MIN_VALUE;
+        for (int pos = 0; pos < Board.PITS; pos++) {
+            child.copyFrom(board);
+            int result = SowingEngine.move(child, seat, pos);
+            if (result < 0) continue;
+            int value = child.score(seat) - board.score(seat);
+            if ((result & SowingEngine.GAME_OVER) == 0)
+                value += (result & SowingEngine.EXTRA_TURN) != 0
+                        ? value(child, seat)
+                        : -value(child, Board.opponentOf(seat));
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = pos;
+            }
+        }
+        if (bestMove < 0)
+            throw new IllegalArgumentException("No legal moves for seat " + seat + '.');
+        return bestMove;
+    }
+
+    /**
+     * Returns the number of positions of at most the given number of stones.
+     */
+    static long positionCount(int maxStones) { return BINOMIALS[maxStones + CELLS][CELLS]; }
+
+    /**
+     * Returns the offset of the given position with the given seat to move.
+     *
+     * Positions of {@code n} stones follow the {@code C(n + 11, 12)} positions
+     * of fewer stones. Within them, the pits are ranked by the positions of the
+     * 11 bars separating them among {@code n + 11} stars and bars.
+     */
+    static long indexOf(Board board, int seat) {
+        int base = seat * Board.SIDE;
+        int opponentBase = Board.opponentOf(seat) * Board.SIDE;
+        long rank = 0;
+        int bar = -1;
+        for (int i = 0; i < CELLS - 1; i++) {
+            int cell = i < Board.PITS ? base + i : opponentBase + i - Board.PITS;
+            bar += board.cell(cell) + 1;
+            rank += BINOMIALS[bar][i + 1];
+        }
+        int stones = board.pitStones(0) + board.pitStones(1);
+        return (stones == 0 ? 0 : BINOMIALS[stones - 1 + CELLS][CELLS]) + rank;
+    }
+
+}
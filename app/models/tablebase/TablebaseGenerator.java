@@ -0,0 +1,143 @@
+package models.tablebase;
+
+import models.rules.Board;
+import models.rules.SowingEngine;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Offline generator of {@link Tablebase} files.
+ *
+ * Every move either drops stones into the store of the mover, shrinking the
+ * number of stones in the pits, or moves stones towards the store, hence
+ * positions form a directed acyclic graph that bottoms out at finished games.
+ * Positions are solved in increasing order of stone count, each by a
+ * memoized depth-first search whose successors are either solved in an
+ * earlier round or reached by moves towards the store. Type
+ *
+ *   $ activator "runMain models.tablebase.TablebaseGenerator 14 tablebase.bin"
+ *
+ * to solve every position of at most 14 stones into {@code tablebase.bin},
+ * and point {@code game.tablebase.path} to it.
+ */
+public class TablebaseGenerator {
+
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+
+    private final int maxStones;
+    private final byte[] values;
+    /** Boards of the search, one per depth. */
+    private final List<Board> stack = new ArrayList<>();
+
+    public TablebaseGenerator(int maxStones) {
+        if (maxStones < 0 || maxStones > Tablebase.MAX_STONES
+                || Tablebase.positionCount(maxStones) > Integer.MAX_VALUE - Tablebase.HEADER_SIZE)
+            throw new IllegalArgumentException("Unsupported stone count: " + maxStones);
+        this.maxStones = maxStones;
+        this.values = new byte[(int) Tablebase.positionCount(maxStones)];
+        Arrays.fill(values, UNSOLVED);
+    }
+
+    /**
+     * Solves every position and returns the values in {@link Tablebase#indexOf} order.
+     */
+    public byte[] generate() {
+        int[] cells = new int[Board.SIZE];
+        for (int stones = 0; stones <= maxStones; stones++)
+            enumerate(cells, 0, stones);
+        return values;
+    }
+
+    /**
+     * Distributes the given stones over the pits starting at the given one, and solves the outcomes.
+     */
+    private void enumerate(int[] cells, int pit, int stones) {
+        int cell = pit < Board.PITS ? pit : Board.SIDE + pit - Board.PITS;
+        if (pit == Tablebase.CELLS - 1) {
+            cells[cell] = stones;
+            board(0).copyFrom(new Board(cells));
+            solve(0);
+            return;
+        }
+        for (int count = stones; count >= 0; count--) {
+            cells[cell] = count;
+            enumerate(cells, pit + 1, stones - count);
+        }
+    }
+
+    private Board board(int depth) {
+        while (stack.size() <= depth) stack.add(new Board());
+        return stack.get(depth);
+    }
+
+    /**
+     * Returns the value of the board at the given depth for seat 0 to move.
+     */
+    private int solve(int depth) {
+        Board board = board(depth);
+        int index = (int) Tablebase.indexOf(board, 0);
+        if (values[index] != UNSOLVED) return values[index];
+        int best = 0;
+        if (!board.isOver()) {
+            best = Integer.MIN_VALUE;
+            Board child = board(depth + 1);
+            for (int pos = 0; pos < Board.PITS; pos++) {
+                child.copyFrom(board);
+                int result = SowingEngine.move(child, 0, pos);
+                if (result < 0) continue;
+                int value = child.score(0) - board.score(0);
+                if ((result & SowingEngine.GAME_OVER) == 0)
+                    value += (result & SowingEngine.EXTRA_TURN) != 0
+                            ? solve(depth + 1)
+                            : -solveSwapped(depth + 1);
+                best = Math.max(best, value);
+            }
+        }
+        values[index] = (byte) best;
+        return best;
+    }
+
+    /**
+     * Returns the value of the board at the given depth for seat 1 to move.
+     */
+    private int solveSwapped(int depth) {
+        Board board = board(depth);
+        int[] cells = new int[Board.SIZE];
+        for (int i = 0; i < Board.SIZE; i++)
+            cells[i] = board.cell((i + Board.SIDE) % Board.SIZE);
+        board.copyFrom(new Board(cells));
+        return solve(depth);
+    }
+
+    /**
+     * Writes the tablebase header and the given values into the given file.
+     */
+    public static void write(File file, int maxStones, byte[] values) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE)
+                .putInt(Tablebase.MAGIC)
+                .putInt(Tablebase.VERSION)
+                .putInt(maxStones);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            out.write(header.array());
+            out.write(values);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TablebaseGenerator <max stones> <output file>");
+            System.exit(1);
+        }
+        int maxStones = Integer.parseInt(args[0]);
+        long start = System.nanoTime();
+        byte[] values = new TablebaseGenerator(maxStones).generate();
+        write(new File(args[1]), maxStones, values);
+        System.out.printf("Solved %d positions of at most %d stones in %.1f s.%n",
+                values.length, maxStones, (System.nanoTime() - start) / 1e9);
+    }
+
+}
@@ -0,0 +1,43 @@
+package models.timer;
+
+import models.Settings;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Game timers configured in {@code application.conf}.
+ *
+ * Every game keeps a turn clock, forfeiting the player to move once
+ * {@code game.timers.turn} elapses without a move, and an idle clock,
+ * aborting the game once neither player sends a frame for
+ * {@code game.timers.idle}. Either is disabled by a zero duration. Both run
+ * on a single {@link TimingWheel} ticking every {@code game.timers.tick}.
+ *
+ * A turn shorter than the idle time, as with the defaults of 60 seconds and
+ * 5 minutes, forfeits a silent game long before the idle clock could abort
+ * it. The idle clock is then a backstop, and matters once turns are
+ * disabled or longer than the idle time.
+ */
+public final class Timers {
+
+    private Timers() {}
+
+    private static final class Holder {
+        static final TimingWheel shared = new TimingWheel(
+                Settings.getDuration("game.timers.tick", TimeUnit.MILLISECONDS, 100),
+                TimeUnit.MILLISECONDS,
+                Settings.getInt("game.timers.wheelSize", 512),
+                "timing-wheel");
+    }
+
+    public static TimingWheel shared() { return Holder.shared; }
+
+    public static long getTurnNanos() {
+        return Settings.getDuration("game.timers.turn", TimeUnit.NANOSECONDS, TimeUnit.SECONDS.toNanos(60));
+    }
+
+    public static long getIdleNanos() {
+        return Settings.getDuration("game.timers.idle", TimeUnit.NANOSECONDS, TimeUnit.MINUTES.toNanos(5));
+    }
+
+}
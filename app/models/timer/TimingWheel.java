@@ -0,0 +1,204 @@
+package models.timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel running timeouts at tick granularity on a single thread.
+ *
+ * The wheel is a ring of buckets, each holding a doubly-linked list of the
+ * timeouts due at ticks congruent to its index, along with the number of
+ * full revolutions left until they are due. Arming and cancelling a timeout
+ * only appends it to a lock-free queue, and the wheel thread moves it into,
+ * or unlinks it from, its bucket on the next tick, hence both take constant
+ * time no matter how many timeouts are pending. Every tick, the wheel thread
+ * visits a single bucket.
+ *
+ * Tasks run on the wheel thread, and are expected to merely hand the work
+ * over to another thread, e.g., by posting to a {@link models.concurrent.Mailbox}.
+ * Timeouts fire at most one tick late.
+ */
+@ThreadSafe
+public class TimingWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public final class Timeout {
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        /** Confined to the wheel thread. */
+        private long rounds;
+        private Timeout prev, next;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Prevents the task from running.
+         *
+         * @return false if the task already ran or got cancelled.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            cancelled.offer(this);
+            return true;
+        }
+
+        public boolean isExpired() { return state.get() == EXPIRED; }
+
+    }
+
+    /**
+     * Doubly-linked list of timeouts, confined to the wheel thread.
+     */
+    private static final class Bucket {
+
+        Timeout head, tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (tail == null) head = tail = timeout;
+            else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) timeout.prev.next = timeout.next;
+            else head = timeout.next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+            else tail = timeout.prev;
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final Bucket[] buckets;
+    private final Queue<Timeout> armed = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    private final Thread thread;
+    private volatile boolean running = true;
+    /** Confined to the wheel thread. */
+    private long tick;
+
+    /**
+     * @param wheelSize number of buckets, must be a power of two.
+     */
+    public TimingWheel(long tick, TimeUnit unit, int wheelSize, String name) {
+        if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1)
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        this.tickNanos = Math.max(1, unit.toNanos(tick));
+        this.mask = wheelSize - 1;
+        this.buckets = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) buckets[i] = new Bucket();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() { turn(); }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the number of timeouts neither run nor cancelled yet.
+     */
+    public int size() { return size.get(); }
+
+    /**
+     * Runs the given task on the wheel thread once the given delay elapses.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(delay));
+        size.incrementAndGet();
+        armed.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread, dropping the pending timeouts.
+     */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    /**
+     * Body of the wheel thread.
+     */
+    private void turn() {
+        while (running) {
+            long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0)
+                try { TimeUnit.NANOSECONDS.sleep(sleepNanos); }
+                catch (InterruptedException ie) { continue; }
+            unlinkCancelled();
+            transferArmed();
+            expire(buckets[(int) tick & mask]);
+            tick++;
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            // Timeouts cancelled before their transfer are dropped there.
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+            size.decrementAndGet();
+        }
+    }
+
+    private void transferArmed() {
+        Timeout timeout;
+        while ((timeout = armed.poll()) != null) {
+            if (timeout.state.get() != PENDING) continue;
+            long dueTick = (timeout.deadlineNanos - startNanos) / tickNanos;
+            // Overdue timeouts go into the current bucket.
+            long ticks = Math.max(dueTick, tick);
+            timeout.rounds = (ticks - tick) / buckets.length;
+            buckets[(int) ticks & mask].add(timeout);
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds > 0) timeout.rounds--;
+            else {
+                bucket.remove(timeout);
+                if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                    size.decrementAndGet();
+                    try { timeout.task.run(); }
+                    catch (Throwable t) { log.error("Timeout task failed.", t); }
+                }
+            }
+            timeout = next;
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package benchmarks;
+
+import models.connection.JsonConnection;
+import models.event.*;
+import models.player.ConnectedPlayer;
+import models.player.PairedPlayer;
+import models.player.Protocol;
+import models.rules.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BoardState} construction and {@link EventEncoder#encode} of
+ * every event type, along with the {@link BinaryCodec} counterparts of board
+ * updates. Events memoize their frames, hence writing the same event over
+ * and over would not measure the encoding.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventBenchmark {
+
+    private final StubSockets.Output<String> output = new StubSockets.Output<>();
+    private List<PairedPlayer> players;
+    private String upperId;
+    private String lowerId;
+    private BoardState boardState;
+    private WaitingForOpponent waitingForOpponent;
+    private ReadyToStart readyToStart;
+    private IllegalMove illegalMove;
+    private GameOver gameOver;
+    private BoardDelta boardDelta;
+
+    @Setup
+    public void setUp() {
+        ConnectedPlayer upperPlayer = new ConnectedPlayer(
+                new JsonConnection(new StubSockets.Input<String>(), output, Protocol.FULL));
+        ConnectedPlayer lowerPlayer = new ConnectedPlayer(
+                new JsonConnection(new StubSockets.Input<String>(), output, Protocol.FULL));
+        upperId = upperPlayer.getId();
+        lowerId = lowerPlayer.getId();
+        Board board = new Board();
+        players = Arrays.asList(upperPlayer.upgrade(lowerId, board, 0), lowerPlayer.upgrade(upperId, board, 1));
+        boardState = new BoardState(players, upperId);
+        waitingForOpponent = new WaitingForOpponent(upperId);
+        readyToStart = new ReadyToStart(lowerId, upperId);
+        illegalMove = new IllegalMove("No stones available at pit %d.", 3);
+        gameOver = new GameOver(upperId);
+        boardDelta = new BoardDelta(new int[] {0, 0, 1, 7, 2, 7, 3, 7, 4, 7, 5, 7, 6, 1}, 0);
+    }
+
+    @Benchmark
+    public BoardState newBoardState() { return new BoardState(players, upperId); }
+
+    @Benchmark
+    public long writeBoardState() {
+        output.write(EventEncoder.encode(boardState));
+        return output.frames;
+    }
+
+    @Benchmark
+    public long newAndWriteBoardState() {
+        new BoardState(players, lowerId).write(output);
+        return output.frames;
+    }
+
+    @Benchmark
+    public long writeWaitingForOpponent() {
+        output.write(EventEncoder.encode(waitingForOpponent));
+        return output.frames;
+    }
+
+    @Benchmark
+    public long writeReadyToStart() {
+        output.write(EventEncoder.encode(readyToStart));
+        return output.frames;
+    }
+
+    @Benchmark
+    public long writeIllegalMove() {
+        output.write(EventEncoder.encode(illegalMove));
+        return output.frames;
+    }
+
+    @Benchmark
+    public long writeGameOver() {
+        output.write(EventEncoder.encode(gameOver));
+        return output.frames;
+    }
+
+    @Benchmark
+    public long writeBoardDelta() {
+        output.write(EventEncoder.encode(boardDelta));
+        return output.frames;
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryBoardState() { return BinaryCodec.encode(boardState); }
+
+    @Benchmark
+    public byte[] encodeBinaryBoardDelta() { return BinaryCodec.encode(boardDelta); }
+
+}
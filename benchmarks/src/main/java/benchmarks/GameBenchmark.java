@@ -0,0 +1,173 @@
+package benchmarks;
+
+import models.Game;
+import models.concurrent.GameExecutor;
+import models.connection.BinaryConnection;
+import models.connection.Connection;
+import models.connection.JsonConnection;
+import models.event.BinaryCodec;
+import models.player.ConnectedPlayer;
+import models.player.PairedPlayer;
+import models.player.Protocol;
+import models.rules.Board;
+import models.rules.Variant;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a single accepted move, starting from the inbound
+ * socket callback down to the {@code BoardState} written to both players.
+ *
+ * Every invocation plays one random legal move in one of {@link #gameCount}
+ * concurrently running games, visited in round-robin fashion. Finished games
+ * are replaced by fresh ones, hence the reported figures include the amortized
+ * cost of pairing and {@code GameOver} notification as well. Both players
+ * speak the {@link Protocol} given by the {@link #protocol} parameter over
+ * the frame format given by {@link #format}, and play the {@link #variant}
+ * given by its name, where {@code 6x6} takes the unrolled sowing path and
+ * {@code 6x4} the generic one. Games drain their mailboxes
+ * and outbound queues in the benchmark thread. Run with {@code -prof gc} to
+ * get the bytes allocated per move.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class GameBenchmark {
+
+    public enum Format { JSON, BINARY }
+
+    private static final String[] JSON_MOVES = new String[Variant.MAX_PITS];
+
+    private static final byte[][] BINARY_MOVES = new byte[Variant.MAX_PITS][];
+
+    static {
+        for (int i = 0; i < Variant.MAX_PITS; i++) {
+            JSON_MOVES[i] = String.valueOf(i);
+            BINARY_MOVES[i] = BinaryCodec.encodeMove(i);
+        }
+    }
+
+    @Param({"1", "1024"})
+    public int gameCount;
+
+    @Param({"FULL", "DELTA"})
+    public Protocol protocol;
+
+    @Param({"JSON", "BINARY"})
+    public Format format;
+
+    @Param({"6x6", "6x4"})
+    public String variant;
+
+    private Table[] tables;
+    private int cursor;
+    private long seed = 0x2545F4914F6CDD1DL;
+
+    /**
+     * A single game along with the stub sockets of its players, indexed by seats.
+     */
+    private static final class Table implements Game.ShutdownListener {
+
+        final Format format;
+        final Protocol protocol;
+        final Variant variant;
+        final StubSockets.Input<String>[] jsonInputs = newInputs();
+        final StubSockets.Input<byte[]>[] binaryInputs = newInputs();
+        final StubSockets.Output<String> jsonOutput = new StubSockets.Output<>();
+        final StubSockets.Output<byte[]> binaryOutput = new StubSockets.Output<>();
+        Game game;
+        boolean over;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <A> StubSockets.Input<A>[] newInputs() {
+            return new StubSockets.Input[] {new StubSockets.Input<A>(), new StubSockets.Input<A>()};
+        }
+
+        Table(Format format, Protocol protocol, Variant variant) {
+            this.format = format;
+            this.protocol = protocol;
+            this.variant = variant;
+            reset();
+        }
+
+        private Connection connect(int seat) {
+            if (format == Format.JSON) {
+                jsonInputs[seat].reset();
+                return new JsonConnection(jsonInputs[seat], jsonOutput, protocol, GameExecutor.DIRECT);
+            }
+            binaryInputs[seat].reset();
+            return new BinaryConnection(binaryInputs[seat], binaryOutput, protocol, GameExecutor.DIRECT);
+        }
+
+        void reset() {
+            ConnectedPlayer upperPlayer = new ConnectedPlayer(connect(0), variant);
+            ConnectedPlayer lowerPlayer = new ConnectedPlayer(connect(1), variant);
+            game = new Game(upperPlayer, lowerPlayer, this, GameExecutor.DIRECT);
+            game.start();
+            over = false;
+        }
+
+        long frames() { return jsonOutput.frames + binaryOutput.frames; }
+
+        void push(int seat, int pos) throws Throwable {
+            if (format == Format.JSON) jsonInputs[seat].push(JSON_MOVES[pos]);
+            else binaryInputs[seat].push(BINARY_MOVES[pos]);
+        }
+
+        @Override
+        public void onGameShutdown(Game game) { over = true; }
+
+    }
+
+    @Setup
+    public void setUp() {
+        tables = new Table[gameCount];
+        for (int i = 0; i < gameCount; i++)
+            tables[i] = new Table(format, protocol, Variant.fromName(variant));
+    }
+
+    /**
+     * Plays a random legal move in the next table and returns the number of frames written so far.
+     */
+    private long move() throws Throwable {
+        Table table = tables[cursor];
+        cursor = (cursor + 1) % tables.length;
+        if (table.over) table.reset();
+
+        String nextPlayerId = table.game.getNextPlayerId();
+        PairedPlayer player = null;
+        for (PairedPlayer candidate : table.game.getPlayers())
+            if (candidate.getId().equals(nextPlayerId))
+                player = candidate;
+
+        // Pick a random non-empty pit by probing from a random offset.
+        Board board = player.getBoard();
+        int seat = player.getSeat();
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        int pits = board.pits();
+        int offset = (int) ((seed >>> 1) % pits);
+        int pos = offset;
+        for (int i = 0; i < pits; i++) {
+            pos = (offset + i) % pits;
+            if (board.pit(seat, pos) > 0) break;
+        }
+
+        table.push(seat, pos);
+        return table.frames();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long movesPerSecond() throws Throwable { return move(); }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long nanosPerMove() throws Throwable { return move(); }
+
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.rules.Variant;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single {@link SowingEngine} move on its own, comparing the
+ * specialized path of the {@link Variant#STANDARD} board against the generic
+ * one serving every other {@link #variant}. The {@link #path} parameter
+ * picks {@link SowingEngine#move}, which takes the specialized path if there
+ * is one, or {@link SowingEngine#moveGeneric}.
+ *
+ * Every invocation plays one random legal move, starting over from the
+ * initial board once the game is over.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SowingBenchmark {
+
+    public enum Path { DISPATCHED, GENERIC }
+
+    @Param({"6x6", "6x4", "4x4"})
+    public String variant;
+
+    @Param({"DISPATCHED", "GENERIC"})
+    public Path path;
+
+    private Board initial;
+    private Board board;
+    private int pits;
+    private int seat;
+    private long seed = 0x2545F4914F6CDD1DL;
+
+    @Setup
+    public void setUp() {
+        initial = new Board(Variant.fromName(variant));
+        board = new Board(initial.getVariant());
+        pits = initial.pits();
+    }
+
+    @Benchmark
+    public int move() {
+        if (board.isOver()) {
+            board.copyFrom(initial);
+            seat = 0;
+        }
+
+        // Pick a random non-empty pit by probing from a random offset.
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        int offset = (int) ((seed >>> 1) % pits);
+        int pos = offset;
+        for (int i = 0; i < pits; i++) {
+            pos = (offset + i) % pits;
+            if (board.pit(seat, pos) > 0) break;
+        }
+
+        int result = path == Path.DISPATCHED
+                ? SowingEngine.move(board, seat, pos)
+                : SowingEngine.moveGeneric(board, seat, pos);
+        if ((result & SowingEngine.EXTRA_TURN) == 0) seat = Board.opponentOf(seat);
+        return result;
+    }
+
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import play.libs.F;
+import play.mvc.WebSocket;
+
+/**
+ * In-process {@link WebSocket} endpoints for driving the game engine without a server.
+ */
+final class StubSockets {
+
+    private StubSockets() {}
+
+    /**
+     * Input socket that lets the benchmark push frames into the registered callbacks.
+     */
+    static final class Input<A> extends WebSocket.In<A> {
+
+        void push(A frame) throws Throwable {
+            for (F.Callback<A> callback : callbacks)
+                callback.invoke(frame);
+        }
+
+        void reset() {
+            callbacks.clear();
+            closeCallbacks.clear();
+        }
+
+    }
+
+    /**
+     * Output socket that discards frames, only keeping a count to defeat dead-code elimination.
+     */
+    static final class Output<A> implements WebSocket.Out<A> {
+
+        long frames;
+
+        @Override
+        public void write(A frame) { frames++; }
+
+        @Override
+        public void close() {}
+
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Decoder and encoder of the binary frame format of the /join/binary endpoint.
+ *
+ * Decoded frames have the same shape as their JSON counterparts, see
+ * models.event.BinaryCodec for the layouts.
+ */
+var LubangBinary = (function() {
+    "use strict";
+
+    var Reader = function(buffer) {
+        this.view = new DataView(buffer);
+        this.bytes = new Uint8Array(buffer);
+        this.pos = 0;
+    };
+
+    Reader.prototype.u8 = function() { return this.view.getUint8(this.pos++); };
+
+    Reader.prototype.u16 = function() {
+        var value = this.view.getUint16(this.pos);
+        this.pos += 2;
+        return value;
+    };
+
+    Reader.prototype.u32 = function() {
+        var value = this.view.getUint32(this.pos);
+        this.pos += 4;
+        return value;
+    };
+
+    Reader.prototype.string = function() {
+        var length = this.u16();
+        if (length == 0xFFFF) return null;
+        var encoded = "";
+        for (var i = 0; i < length; i++)
+            encoded += "%" + ("0" + this.bytes[this.pos + i].toString(16)).slice(-2);
+        this.pos += length;
+        return decodeURIComponent(encoded);
+    };
+
+    Reader.prototype.u16s = function() {
+        var values = [];
+        for (var i = this.u8(); i > 0; i--) values.push(this.u16());
+        return values;
+    };
+
+    var decoders = {
+        1: function(r) { return {type: "WaitingForOpponent", playerId: r.string(), token: r.string()}; },
+        2: function(r) { return {type: "ReadyToStart", opponentId: r.string(), nextPlayerId: r.string(), variant: r.string()}; },
+        3: function(r) { return {type: "IllegalMove", reason: r.string()}; },
+        4: function(r) {
+            var data = {type: "BoardState", nextPlayerId: r.string(), board: {}};
+            for (var i = r.u8(); i > 0; i--) data.board[r.string()] = r.u16s();
+            data.remainingMillis = r.u32();
+            return data;
+        },
+        5: function(r) { return {type: "GameOver", winnerId: r.string(), reason: r.string()}; },
+        6: function(r) {
+            var seats = [];
+            for (var i = r.u8(); i > 0; i--) seats.push(r.string());
+            var next = r.u8();
+            return {type: "BoardSnapshot", seats: seats, next: next, pits: r.u16s()};
+        },
+        7: function(r) {
+            var data = {type: "BoardDelta", next: r.u8(), changes: []};
+            for (var i = r.u8(); i > 0; i--) data.changes.push(r.u8(), r.u16());
+            return data;
+        },
+        8: function(r) { return {type: "Hint", pit: r.u8()}; }
+    };
+
+    return {
+        decode: function(buffer) {
+            var reader = new Reader(buffer);
+            var decoder = decoders[reader.u8()];
+            return decoder ? decoder(reader) : {};
+        },
+        encodeMove: function(pos) { return new Uint8Array([pos]).buffer; },
+        encodeHintRequest: function() { return new Uint8Array([0xFF]).buffer; }
+    };
+})();
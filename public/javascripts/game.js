@@ -2,7 +2,7 @@ $(document).ready(function() {
     "use strict";
 
     // Hide board elements initially.
-    $.each(["playerId", "opponentId", "nextPlayerId", "board"], function(_, selector) {
+    $.each(["playerId", "opponentId", "nextPlayerId", "board", "hint"], function(_, selector) {
         $("#" + selector).hide();
     });
 
@@ -14,10 +14,15 @@ $(document).ready(function() {
     // Set initial status.
     updateStatus("Connecting...");
 
-    var playerId, opponentId, nextPlayerId;
+    var playerId, token, opponentId, nextPlayerId, gameOver = false;
+
+    // Frames received in the current session, see models.session.Session.
+    var received = 0, resuming = false, resumes = 0;
 
     var handleWaitingForOpponent = function(data) {
         playerId = data.playerId;
+        // Proves the ownership of the id when resuming, see models.id.Credentials.
+        token = data.token;
         $("#playerId span").text(playerId);
         $("#playerId").show();
         updateStatus("Connected. Waiting for opponent...");
@@ -36,7 +41,9 @@ $(document).ready(function() {
             if (playerId == nextPlayerId && count > 0) $(selector).removeAttr("disabled");
             else $(selector).attr("disabled", true);
             if (setCallbacks) $(selector).click(function() {
-                ws.send(JSON.stringify(pos));
+                ws.send(ws.binaryType == "arraybuffer"
+                    ? LubangBinary.encodeMove(pos)
+                    : JSON.stringify(pos));
                 updateStatus("Pit " + pos + " is clicked.");
             });
         });
@@ -63,6 +70,11 @@ $(document).ready(function() {
             : {player: "gray", opponent: "green"});
 
         $("#board").show();
+        $("#hint").show().click(function() {
+            ws.send(ws.binaryType == "arraybuffer"
+                ? LubangBinary.encodeHintRequest()
+                : JSON.stringify("hint"));
+        });
         var board = {};
         board[playerId] = board[opponentId] = [6, 6, 6, 6, 6, 6, 0];
         updateBoard(board, true);
@@ -74,10 +86,42 @@ $(document).ready(function() {
         updateStatus("Illegal move: " + data.reason);
     }
 
+    var handleHint = function(data) {
+        updateStatus("Hint: pit " + data.pit + ".");
+    };
+
     var handleBoardState = function(data) {
         nextPlayerId = data.nextPlayerId;
         $("#nextPlayerId span").text(nextPlayerId);
         updateBoard(data.board);
+        updateStatus("Received board state." + (data.remainingMillis
+            ? " " + Math.ceil(data.remainingMillis / 1000) + " seconds left to move."
+            : ""));
+    };
+
+    // Packed board of the delta protocol, see models.event.BoardSnapshot.
+    var seats, pits;
+
+    var updatePackedBoard = function(next) {
+        nextPlayerId = seats[next];
+        $("#nextPlayerId span").text(nextPlayerId);
+        var board = {}, side = pits.length / 2;
+        $.each(seats, function(seat, pid) {
+            board[pid] = pits.slice(seat * side, seat * side + side);
+        });
+        updateBoard(board);
+    };
+
+    var handleBoardSnapshot = function(data) {
+        seats = data.seats;
+        pits = data.pits;
+        updatePackedBoard(data.next);
+    };
+
+    var handleBoardDelta = function(data) {
+        for (var i = 0; i < data.changes.length; i += 2)
+            pits[data.changes[i]] = data.changes[i + 1];
+        updatePackedBoard(data.next);
         updateStatus("Received board state.");
     };
 
@@ -87,33 +131,69 @@ $(document).ready(function() {
     };
 
     var handleGameOver = function(data) {
-        alert("You " + (data.winnerId == playerId ? "win" : "lost") + "!");
+        gameOver = true;
+        if (data.reason == "idle") alert("Game aborted, nobody played for too long.");
+        else if (data.winnerId == null) alert("Draw!");
+        else alert("You " + (data.winnerId == playerId ? "win" : "lost") + "!");
         disableButtons();
+        $("#hint").attr("disabled", true);
     };
 
-    ws.onmessage = function(event) {
-        var data = JSON.parse(event.data);
+    var onmessage = function(event) {
+        var data = (event.data instanceof ArrayBuffer)
+            ? LubangBinary.decode(event.data)
+            : JSON.parse(event.data);
+        // A failed resume starts a session of its own.
+        received = (resuming && data.type == "WaitingForOpponent") ? 1 : received + 1;
+        resuming = false;
+        resumes = 0;
         if ("type" in data)
             switch (data.type) {
                 case "WaitingForOpponent": return handleWaitingForOpponent(data);
                 case "ReadyToStart": return handleReadyToStart(data);
                 case "IllegalMove": return handleIllegalMove(data);
                 case "BoardState": return handleBoardState(data);
+                case "BoardSnapshot": return handleBoardSnapshot(data);
+                case "BoardDelta": return handleBoardDelta(data);
                 case "GameOver": return handleGameOver(data);
+                case "Hint": return handleHint(data);
             }
         updateStatus("Invalid WS event: " + JSON.stringify(data));
     };
 
+    // Reconnects with the number of frames received, and gets the ones missed.
+    var resume = function() {
+        var parts = ws.url.split("?");
+        var query = $.grep((parts[1] || "").split("&"), function(param) {
+            return param && !/^(playerId|token|seq)=/.test(param);
+        });
+        query.push("playerId=" + encodeURIComponent(playerId), "token=" + encodeURIComponent(token || ""),
+                "seq=" + received);
+        var binaryType = ws.binaryType;
+        ws = new WS(parts[0] + "?" + query.join("&"));
+        ws.binaryType = binaryType;
+        resuming = true;
+        listen();
+    };
+
     var onalert = function(event) {
-        updateStatus(
-            ("type" in event && event.type == "close")
-            ? "Connection lost!"
-            : ("Alert received: " + JSON.stringify(event)));
-        ws.close();
+        var closed = "type" in event && event.type == "close";
         disableButtons();
+        if (closed && playerId && !gameOver && resumes < 3) {
+            updateStatus("Connection lost, resuming...");
+            setTimeout(resume, 1000 * ++resumes);
+            return;
+        }
+        updateStatus(closed ? "Connection lost!" : ("Alert received: " + JSON.stringify(event)));
+        ws.close();
+    };
+
+    var listen = function() {
+        ws.onmessage = onmessage;
+        ws.onerror = onalert;
+        ws.onclose = onalert;
     };
 
-    ws.onerror = onalert;
-    ws.onclose = onalert;
+    listen();
 
 });
@@ -0,0 +1,83 @@
+import models.Game;
+import models.bot.AlphaBetaSearch;
+import models.bot.BotConnection;
+import models.bot.TranspositionTable;
+import models.concurrent.GameExecutor;
+import models.player.ConnectedPlayer;
+import models.rules.Board;
+import models.rules.SowingEngine;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AlphaBetaSearchTest {
+
+    /**
+     * Plain minimax reference, returning the outcome of the game for the given seat.
+     */
+    private static int solve(Board board, int seat) {
+        int best = Integer.MIN_VALUE;
+        for (int pos = 0; pos < Board.PITS; pos++) {
+            int score = score(board, seat, pos);
+            if (score != Integer.MIN_VALUE) best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    private static int score(Board board, int seat, int pos) {
+        Board child = new Board();
+        child.copyFrom(board);
+        int result = SowingEngine.move(child, seat, pos);
+        if (result < 0) return Integer.MIN_VALUE;
+        int opponent = Board.opponentOf(seat);
+        if ((result & SowingEngine.GAME_OVER) != 0)
+            return Integer.signum(child.score(seat) - child.score(opponent));
+        if ((result & SowingEngine.EXTRA_TURN) != 0) return solve(child, seat);
+        return -solve(child, opponent);
+    }
+
+    @Test
+    public void testSolvesEndgames() {
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(1 << 16));
+        Random random = new Random(1);
+        for (int game = 0; game < 200; game++) {
+            int[] cells = new int[Board.SIZE];
+            for (int seat = 0; seat < 2; seat++) {
+                for (int stones = 1 + random.nextInt(5); stones > 0; stones--)
+                    cells[seat * Board.SIDE + random.nextInt(Board.PITS)]++;
+                cells[seat * Board.SIDE + Board.STORE] = random.nextInt(6);
+            }
+            Board board = new Board(cells);
+            int move = search.bestMove(board, 0, TimeUnit.SECONDS.toNanos(10));
+            assertThat(score(board, 0, move)).isEqualTo(solve(board, 0));
+        }
+    }
+
+    @Test
+    public void testBotsFinishGame() throws InterruptedException {
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(1 << 16));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(2);
+        ConnectedPlayer[] players = new ConnectedPlayer[2];
+        for (int i = 0; i < players.length; i++) {
+            BotConnection connection = new BotConnection(search, pool, budgetNanos);
+            players[i] = new ConnectedPlayer(connection);
+            connection.bind(players[i].getId());
+        }
+
+        final CountDownLatch over = new CountDownLatch(1);
+        Game game = new Game(players[0], players[1], new Game.ShutdownListener() {
+            @Override
+            public void onGameShutdown(Game game) { over.countDown(); }
+        }, GameExecutor.shared());
+        game.start();
+        assertThat(over.await(30, TimeUnit.SECONDS)).isTrue();
+        pool.shutdown();
+    }
+
+}
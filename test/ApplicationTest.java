@@ -3,7 +3,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Sets;
 import controllers.Application;
+import models.event.BoardDelta;
+import models.event.BoardSnapshot;
 import models.event.BoardState;
+import models.event.GameOver;
 import models.event.IllegalMove;
 import models.event.ReadyToStart;
 import models.event.WaitingForOpponent;
@@ -145,12 +148,86 @@ public class ApplicationTest {
         assertThat(fstBs.board.get(sndWfo.playerId)).isEqualTo(new int[] {0, 7, 7, 7, 1, 7, 1});
 
         // Let 1st player close the connection. 2nd player is expected to
-        // observe a socket close as well.
+        // win by forfeit and observe a socket close as well.
         fstSocket.close();
+        GameOver go = readPojo(sndSocket, GameOver.class);
+        assertThat(go.winnerId).isEqualTo(sndWfo.playerId);
         JsonNode closeEvent = sndSocket.read();
         assertThat(closeEvent).isNotNull();
         assertThat(closeEvent.has("closed")).isTrue();
         assertThat(closeEvent.get("closed").asBoolean()).isTrue();
     }
 
+    @Test
+    public void testJoinWithUnratedId() throws Throwable {
+        MockWebSocketWrapper fstSocket = new MockWebSocketWrapper(Application.join());
+        WaitingForOpponent fstWfo = readPojo(fstSocket, WaitingForOpponent.class);
+
+        // An id neither reserved nor rated is replaced, and the player learns of the fresh one only.
+        MockWebSocketWrapper sndSocket = new MockWebSocketWrapper(
+                Application.join("full", fstWfo.playerId, "6x6", -1L, fstWfo.token));
+        WaitingForOpponent sndWfo = readPojo(sndSocket, WaitingForOpponent.class);
+        assertThat(sndWfo.playerId).isNotEqualTo(fstWfo.playerId);
+        ReadyToStart sndRts = readPojo(sndSocket, ReadyToStart.class);
+        assertThat(sndRts.opponentId).isEqualTo(fstWfo.playerId);
+
+        fstSocket.close();
+        assertThat(readPojo(sndSocket, GameOver.class).winnerId).isEqualTo(sndWfo.playerId);
+    }
+
+    @Test
+    public void testJoinDelta() throws Throwable {
+        // Pair two players speaking the delta protocol.
+        MockWebSocketWrapper fstSocket = new MockWebSocketWrapper(Application.join("delta"));
+        WaitingForOpponent fstWfo = readPojo(fstSocket, WaitingForOpponent.class);
+        MockWebSocketWrapper sndSocket = new MockWebSocketWrapper(Application.join("delta"));
+        WaitingForOpponent sndWfo = readPojo(sndSocket, WaitingForOpponent.class);
+        readPojo(fstSocket, ReadyToStart.class);
+        readPojo(sndSocket, ReadyToStart.class);
+
+        // Both players receive the same snapshot, where the first player sits at seat 0.
+        BoardSnapshot fstSnapshot = readPojo(fstSocket, BoardSnapshot.class);
+        BoardSnapshot sndSnapshot = readPojo(sndSocket, BoardSnapshot.class);
+        assertThat(fstSnapshot).isEqualTo(sndSnapshot);
+        assertThat(fstSnapshot.seats).isEqualTo(new String[] {fstWfo.playerId, sndWfo.playerId});
+        assertThat(fstSnapshot.pits).isEqualTo(new int[] {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0});
+        assertThat(fstSnapshot.next).isEqualTo(0);
+
+        // Moves are followed by the changed pits only.
+        writeMove(fstSocket, 0);
+        BoardDelta fstDelta = readPojo(fstSocket, BoardDelta.class);
+        BoardDelta sndDelta = readPojo(sndSocket, BoardDelta.class);
+        assertThat(fstDelta).isEqualTo(sndDelta);
+        assertThat(fstDelta.changes).isEqualTo(new int[] {0, 0, 1, 7, 2, 7, 3, 7, 4, 7, 5, 7, 6, 1});
+        assertThat(fstDelta.next).isEqualTo(0);
+
+        writeMove(fstSocket, 1);
+        fstDelta = readPojo(fstSocket, BoardDelta.class);
+        assertThat(fstDelta.changes).isEqualTo(new int[] {0, 1, 1, 0, 2, 8, 3, 8, 4, 8, 5, 8, 6, 9, 11, 0});
+        assertThat(fstDelta.next).isEqualTo(1);
+
+        fstSocket.close();
+    }
+
+    @Test
+    public void testJoinVariant() throws Throwable {
+        // Players of a variant wait for their own kind.
+        MockWebSocketWrapper fstSocket = new MockWebSocketWrapper(Application.join("delta", "", "4x4"));
+        readPojo(fstSocket, WaitingForOpponent.class);
+        assertThat(Application.getPendingPlayers().size()).isEqualTo(0);
+        MockWebSocketWrapper sndSocket = new MockWebSocketWrapper(Application.join("delta", "", "4x4"));
+        readPojo(sndSocket, WaitingForOpponent.class);
+        assertThat(readPojo(fstSocket, ReadyToStart.class).variant).isEqualTo("4x4");
+        assertThat(readPojo(sndSocket, ReadyToStart.class).variant).isEqualTo("4x4");
+
+        BoardSnapshot snapshot = readPojo(fstSocket, BoardSnapshot.class);
+        assertThat(snapshot.pits).isEqualTo(new int[] {4, 4, 4, 4, 0, 4, 4, 4, 4, 0});
+        writeMove(fstSocket, 0);
+        BoardDelta delta = readPojo(fstSocket, BoardDelta.class);
+        assertThat(delta.changes).isEqualTo(new int[] {0, 0, 1, 5, 2, 5, 3, 5, 4, 1});
+        assertThat(delta.next).isEqualTo(0);
+
+        fstSocket.close();
+    }
+
 }
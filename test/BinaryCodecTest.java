@@ -0,0 +1,152 @@
+import controllers.Application;
+import models.event.*;
+import org.junit.Test;
+import play.libs.F;
+import play.mvc.WebSocket;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests {@link BinaryCodec} frame layouts and the binary join endpoint.
+ */
+public class BinaryCodecTest {
+
+    private static void assertRoundTrip(Event event) {
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertRoundTrip(new WaitingForOpponent("5f0c9d3e-8a7b-4e62-b1e4-0a6b2c1d9e7f"));
+        assertRoundTrip(new WaitingForOpponent("42", "q2Vd0m1bTjWvY8ZkXh3sLA"));
+        assertRoundTrip(new ReadyToStart("opponent", "next"));
+        assertRoundTrip(new IllegalMove("Invalid pit index: %s", (Object) "\"100%\" ünïcödé"));
+        assertRoundTrip(new GameOver("winner"));
+        assertRoundTrip(new GameOver((String) null));
+        assertRoundTrip(new GameOver(null, GameOver.IDLE));
+        assertRoundTrip(new GameOver("winner", GameOver.FORFEIT));
+        assertRoundTrip(new Hint(5));
+
+        Map<String, int[]> board = new LinkedHashMap<>();
+        board.put("upper", new int[] {0, 7, 7, 7, 7, 7, 1});
+        board.put("lower", new int[] {0, 0, 0, 0, 0, 0, 0xFFFF});
+        assertRoundTrip(new BoardState(board, "lower"));
+
+        assertRoundTrip(new BoardSnapshot(
+                new String[] {"upper", "lower"},
+                new int[] {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0}, 1));
+        assertRoundTrip(new BoardDelta(new int[] {0, 0, 1, 7, 13, 300}, 0));
+        assertRoundTrip(new BoardDelta(new int[] {}, 1));
+    }
+
+    @Test
+    public void testLayout() {
+        assertThat(BinaryCodec.encode(new WaitingForOpponent("ab")))
+                .isEqualTo(new byte[] {BinaryCodec.WAITING_FOR_OPPONENT, 0, 2, 'a', 'b', (byte) 0xFF, (byte) 0xFF});
+        assertThat(BinaryCodec.encode(new WaitingForOpponent("ab", "t")))
+                .isEqualTo(new byte[] {BinaryCodec.WAITING_FOR_OPPONENT, 0, 2, 'a', 'b', 0, 1, 't'});
+        assertThat(BinaryCodec.encode(new GameOver(null, null)))
+                .isEqualTo(new byte[] {BinaryCodec.GAME_OVER, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        assertThat(BinaryCodec.encode(new GameOver(null, GameOver.IDLE)))
+                .isEqualTo(new byte[] {BinaryCodec.GAME_OVER, (byte) 0xFF, (byte) 0xFF, 0, 4, 'i', 'd', 'l', 'e'});
+        assertThat(BinaryCodec.encode(new BoardDelta(new int[] {6, 1, 11, 258}, 1)))
+                .isEqualTo(new byte[] {BinaryCodec.BOARD_DELTA, 1, 2, 6, 0, 1, 11, 1, 2});
+        assertThat(BinaryCodec.encodeMove(3)).isEqualTo(new byte[] {3});
+        assertThat(BinaryCodec.decodeMove(new byte[] {(byte) 200})).isEqualTo(200);
+        assertThat(BinaryCodec.decodeMove(new byte[] {})).isEqualTo(-1);
+        assertThat(BinaryCodec.decodeMove(new byte[] {1, 2})).isEqualTo(-1);
+    }
+
+    private static void assertMalformed(byte[] frame) {
+        try {
+            BinaryCodec.decode(frame);
+            throw new AssertionError("Decoded malformed frame: " + BinaryCodec.toHex(frame));
+        }
+        catch (IllegalArgumentException iae) { /* expected */ }
+    }
+
+    @Test
+    public void testMalformedFrames() {
+        assertMalformed(new byte[] {});
+        assertMalformed(new byte[] {0x7F});
+        assertMalformed(new byte[] {BinaryCodec.WAITING_FOR_OPPONENT, 0, 5, 'a'});
+        assertMalformed(new byte[] {BinaryCodec.BOARD_DELTA, 0, 1, 3});
+        assertMalformed(new byte[] {BinaryCodec.GAME_OVER, (byte) 0xFF, (byte) 0xFF, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnencodableValue() {
+        BinaryCodec.encode(new BoardDelta(new int[] {0, 0x10000}, 0));
+    }
+
+    /**
+     * Binary peer of a game, collecting decoded events.
+     */
+    private static class BinaryPeer {
+
+        final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        final WebSocket.In<byte[]> in = new WebSocket.In<>();
+        final WebSocket.Out<byte[]> out = new WebSocket.Out<byte[]>() {
+            @Override
+            public void write(byte[] frame) { events.add(BinaryCodec.decode(frame)); }
+
+            @Override
+            public void close() {}
+        };
+
+        BinaryPeer(String protocol) { Application.joinBinary(protocol).onReady(in, out); }
+
+        @SuppressWarnings("unchecked")
+        <E extends Event> E read(Class<E> clazz) throws InterruptedException {
+            Event event = events.poll(1, TimeUnit.SECONDS);
+            assertThat(event).isInstanceOf(clazz);
+            return (E) event;
+        }
+
+        void write(byte[] frame) throws Throwable {
+            for (F.Callback<byte[]> callback : in.callbacks)
+                callback.invoke(frame);
+        }
+
+        void close() throws Throwable {
+            for (F.Callback0 callback : in.closeCallbacks)
+                callback.invoke();
+        }
+
+    }
+
+    @Test
+    public void testJoinBinary() throws Throwable {
+        BinaryPeer fst = new BinaryPeer("delta");
+        WaitingForOpponent fstWfo = fst.read(WaitingForOpponent.class);
+        BinaryPeer snd = new BinaryPeer("full");
+        WaitingForOpponent sndWfo = snd.read(WaitingForOpponent.class);
+        assertThat(fst.read(ReadyToStart.class).opponentId).isEqualTo(sndWfo.playerId);
+        assertThat(snd.read(ReadyToStart.class).opponentId).isEqualTo(fstWfo.playerId);
+        assertThat(fst.read(BoardSnapshot.class).seats)
+                .isEqualTo(new String[] {fstWfo.playerId, sndWfo.playerId});
+
+        // Malformed and invalid moves are rejected.
+        fst.write(new byte[] {1, 2});
+        assertThat(fst.read(IllegalMove.class).reason).isEqualTo("Invalid pit index: 0102");
+        fst.write(BinaryCodec.encodeMove(6));
+        assertThat(fst.read(IllegalMove.class).reason).isEqualTo("Invalid pit index: 6");
+
+        // Each peer receives the board update in the form of its protocol.
+        fst.write(BinaryCodec.encodeMove(0));
+        assertThat(fst.read(BoardDelta.class).changes)
+                .isEqualTo(new int[] {0, 0, 1, 7, 2, 7, 3, 7, 4, 7, 5, 7, 6, 1});
+        BoardState bs = snd.read(BoardState.class);
+        assertThat(bs.nextPlayerId).isEqualTo(fstWfo.playerId);
+        assertThat(bs.board.get(fstWfo.playerId)).isEqualTo(new int[] {0, 7, 7, 7, 7, 7, 1});
+
+        fst.close();
+    }
+
+}
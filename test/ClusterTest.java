@@ -0,0 +1,212 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import models.Game;
+import models.cluster.ClusterMessage;
+import models.cluster.ClusterNode;
+import models.cluster.LoopbackBus;
+import models.cluster.MessageBus;
+import models.cluster.TcpBus;
+import models.concurrent.GameExecutor;
+import models.connection.JsonConnection;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import models.rating.Ratings;
+import models.rules.Variant;
+import models.timer.TimingWheel;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Plays games between players connected to different {@link ClusterNode}s.
+ */
+public class ClusterTest {
+
+    private static final List<String> NODE_IDS = Arrays.asList("a", "b");
+    private static final byte[] SECRET = {4, 2};
+
+    /** Number of games started by each node. */
+    private final Map<String, Integer> started = new ConcurrentHashMap<>();
+
+    private static class Client {
+
+        final MockInputWebSocket input = new MockInputWebSocket();
+        final MockOutputWebSocket output = new MockOutputWebSocket();
+        final ConnectedPlayer player = new ConnectedPlayer(
+                new JsonConnection(input.getInputSocket(), output.getOutputSocket(), Protocol.FULL));
+
+        JsonNode next() throws InterruptedException {
+            JsonNode message = output.getMessageQueue().poll(5, TimeUnit.SECONDS);
+            assertThat(message).isNotNull();
+            return message;
+        }
+
+        void awaitClosed() throws InterruptedException {
+            while (!next().has("closed"));
+        }
+
+    }
+
+    private ClusterNode newNode(MessageBus bus) { return newNode(bus, null, 0); }
+
+    /**
+     * Creates a node on the given bus, with the given timers and JOIN timeout if any.
+     */
+    private ClusterNode newNode(MessageBus bus, TimingWheel timers, long joinTimeoutNanos) {
+        final String nodeId = bus.getNodeId();
+        ClusterNode.GameStarter starter = new ClusterNode.GameStarter() {
+            @Override
+            public void startGame(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+                synchronized (started) {
+                    Integer count = started.get(nodeId);
+                    started.put(nodeId, count == null ? 1 : count + 1);
+                }
+                new Game(upperPlayer, lowerPlayer, new Game.ShutdownListener() {
+                    @Override
+                    public void onGameShutdown(Game game) {
+                        for (ConnectedPlayer player : game.getPlayers()) player.getConnection().close();
+                    }
+                }, GameExecutor.DIRECT).start();
+            }
+        };
+        Set<Variant> variants = Collections.singleton(Variant.STANDARD);
+        if (timers == null) return new ClusterNode(bus, NODE_IDS, variants, starter).start();
+        return new ClusterNode(bus, NODE_IDS, variants, starter, Ratings.shared(), timers, joinTimeoutNanos).start();
+    }
+
+    /**
+     * Pairs a player of each given node, plays a move, and leaves.
+     */
+    private static void play(ClusterNode fst, ClusterNode snd) throws Throwable {
+        Client[] clients = {new Client(), new Client()};
+        fst.join(clients[0].player);
+        snd.join(clients[1].player);
+
+        String nextPlayerId = null;
+        for (Client client : clients) {
+            JsonNode ready = client.next();
+            assertThat(ready.get("type").asText()).isEqualTo("ReadyToStart");
+            nextPlayerId = ready.get("nextPlayerId").asText();
+        }
+        Client mover = clients[0].player.getId().equals(nextPlayerId) ? clients[0] : clients[1];
+        Client other = mover == clients[0] ? clients[1] : clients[0];
+
+        // Moves reach the game, wherever it is, and board states reach both players.
+        mover.input.write("0");
+        for (Client client : clients) assertThat(client.next().get("type").asText()).isEqualTo("BoardState");
+
+        // Leaving ends the game, and closes the opponent.
+        other.input.close();
+        mover.awaitClosed();
+    }
+
+    private void testCluster(ClusterNode a, ClusterNode b) throws Throwable {
+        ClusterNode coordinator = a.getCoordinator(Variant.STANDARD).equals("a") ? a : b;
+        ClusterNode member = coordinator == a ? b : a;
+        assertThat(member.getCoordinator(Variant.STANDARD)).isEqualTo(coordinator.getNodeId());
+
+        // Pairs involving a player of the coordinator play there.
+        play(member, coordinator);
+        assertThat(started.get(coordinator.getNodeId())).isEqualTo(1);
+
+        // Pairs of another node are handed over to it.
+        play(member, member);
+        assertThat(started.get(member.getNodeId())).isEqualTo(1);
+        assertThat(started.get(coordinator.getNodeId())).isEqualTo(1);
+        assertThat(coordinator.getMatchmaker(Variant.STANDARD).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testLoopback() throws Throwable {
+        LoopbackBus.Network network = new LoopbackBus.Network();
+        ClusterNode a = newNode(network.join("a"));
+        ClusterNode b = newNode(network.join("b"));
+        try { testCluster(a, b); }
+        finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    public void testCoordinatorDown() throws Throwable {
+        TimingWheel timers = new TimingWheel(1, TimeUnit.MILLISECONDS, 64, "cluster-test");
+        LoopbackBus.Network network = new LoopbackBus.Network();
+        long joinTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        ClusterNode a = newNode(network.join("a"), timers, joinTimeoutNanos);
+        ClusterNode b = newNode(network.join("b"), timers, joinTimeoutNanos);
+        ClusterNode coordinator = a.getCoordinator(Variant.STANDARD).equals("a") ? a : b;
+        ClusterNode member = coordinator == a ? b : a;
+        try {
+            // JOINs to a coordinator that is gone are not acknowledged, hence the member pairs its players itself.
+            coordinator.close();
+            Client[] clients = {new Client(), new Client()};
+            for (Client client : clients) assertThat(member.join(client.player)).isNull();
+            for (Client client : clients) assertThat(client.next().get("type").asText()).isEqualTo("ReadyToStart");
+            assertThat(started.get(member.getNodeId())).isEqualTo(1);
+            assertThat(started.get(coordinator.getNodeId())).isNull();
+
+            // Players joining later skip the coordinator until it is heard from again.
+            assertThat(member.getCoordinator(Variant.STANDARD)).isEqualTo(member.getNodeId());
+            assertThat(member.join(new Client().player)).isNotNull();
+        }
+        finally {
+            member.close();
+            timers.stop();
+        }
+    }
+
+    @Test
+    public void testTcp() throws Throwable {
+        Map<String, InetSocketAddress> addresses = new HashMap<>();
+        for (String nodeId : NODE_IDS) addresses.put(nodeId, new InetSocketAddress("127.0.0.1", freePort()));
+        ClusterNode a = newNode(new TcpBus("a", addresses, SECRET));
+        ClusterNode b = newNode(new TcpBus("b", addresses, SECRET));
+        try { testCluster(a, b); }
+        finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    public void testTcpRejectsStrangers() throws Throwable {
+        Map<String, InetSocketAddress> addresses = new HashMap<>();
+        for (String nodeId : NODE_IDS) addresses.put(nodeId, new InetSocketAddress("127.0.0.1", freePort()));
+        Map<String, InetSocketAddress> strangerAddresses = new HashMap<>(addresses);
+        strangerAddresses.put("b", new InetSocketAddress("127.0.0.1", freePort()));
+        TcpBus a = new TcpBus("a", addresses, SECRET);
+        TcpBus b = new TcpBus("b", addresses, SECRET);
+        TcpBus stranger = new TcpBus("b", strangerAddresses, new byte[] {6});
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        a.start(new MessageBus.Receiver() {
+            @Override
+            public void onMessage(String from, ClusterMessage message) { received.add(from + message.playerId); }
+        });
+        try {
+            // A node not knowing the secret cannot pass for another one.
+            stranger.send("a", ClusterMessage.close("x"));
+            b.send("a", ClusterMessage.close("y"));
+            assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo("by");
+            assertThat(received.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        }
+        finally {
+            stranger.close();
+            b.close();
+            a.close();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) { return socket.getLocalPort(); }
+    }
+
+}
@@ -0,0 +1,64 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import models.event.*;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests that {@link EventEncoder} output is identical to the one of Jackson.
+ */
+public class EventEncoderTest {
+
+    private final static ObjectMapper objectMapper = new ObjectMapper();
+
+    private static void assertIdentical(Event event) {
+        String expected = Json.stringify(objectMapper.valueToTree(event));
+        assertThat(EventEncoder.encode(event)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testEvents() {
+        assertIdentical(new WaitingForOpponent("5f0c9d3e-8a7b-4e62-b1e4-0a6b2c1d9e7f"));
+        assertIdentical(new WaitingForOpponent("42", "q2Vd0m1bTjWvY8ZkXh3sLA"));
+        assertIdentical(new ReadyToStart("opponent", "next"));
+        assertIdentical(new IllegalMove("No stones available at pit %d.", 3));
+        assertIdentical(new GameOver("winner"));
+        assertIdentical(new GameOver((String) null));
+        assertIdentical(new GameOver(null, GameOver.IDLE));
+        assertIdentical(new GameOver("winner", GameOver.FORFEIT));
+        assertIdentical(new Hint(3));
+
+        Map<String, int[]> board = new HashMap<>();
+        board.put("upper", new int[] {0, 7, 7, 7, 7, 7, 1});
+        board.put("lower", new int[] {-1, 0, Integer.MAX_VALUE, Integer.MIN_VALUE, 10, 100, 72});
+        board.put("empty", new int[] {});
+        assertIdentical(new BoardState(board, "upper"));
+        assertIdentical(new BoardState(new HashMap<String, int[]>(), "upper"));
+
+        assertIdentical(new BoardSnapshot(
+                new String[] {"upper", "lower"},
+                new int[] {6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0}, 0));
+        assertIdentical(new BoardDelta(new int[] {0, 0, 1, 7, 6, 1}, 1));
+        assertIdentical(new BoardDelta(new int[] {}, 0));
+    }
+
+    @Test
+    public void testEscaping() {
+        StringBuilder text = new StringBuilder();
+        for (char c = 0; c < 0x800; c++) text.append(c);
+        text.append("  ￿😀");
+        assertIdentical(new IllegalMove(text.toString().replace("%", "%%")));
+        assertIdentical(new WaitingForOpponent(text.toString()));
+
+        // Exercise buffer growth with escape sequences straddling the capacity.
+        StringBuilder controls = new StringBuilder();
+        for (int i = 0; i < 4096; i++) controls.append(i % 3 == 0 ? '\u0001' : 'x');
+        assertIdentical(new GameOver(controls.toString()));
+        assertIdentical(new GameOver("short"));
+    }
+
+}
@@ -0,0 +1,91 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import models.Game;
+import models.concurrent.GameExecutor;
+import models.connection.JsonConnection;
+import models.connection.TokenBucket;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FloodProtectionTest {
+
+    @Test
+    public void testTokenBucket() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        long now = System.nanoTime();
+
+        // A full bucket allows a burst of its capacity.
+        for (int i = 0; i < 3; i++) assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isFalse();
+        assertThat(bucket.getRejected()).isEqualTo(1);
+
+        // A token comes back every 100 ms.
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isFalse();
+
+        assertThat(bucket.getRejected()).isEqualTo(2);
+
+        // An idle bucket fills up to its capacity, but not beyond, and forgets the rejections.
+        now += TimeUnit.SECONDS.toNanos(10);
+        for (int i = 0; i < 3; i++) assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isFalse();
+        assertThat(bucket.getRejected()).isEqualTo(1);
+
+        // A client that never lets the bucket fill up keeps counting.
+        for (int i = 0; i < 5; i++) {
+            now += TimeUnit.MILLISECONDS.toNanos(100);
+            assertThat(bucket.tryAcquire(now)).isTrue();
+            assertThat(bucket.tryAcquire(now)).isFalse();
+        }
+        assertThat(bucket.getRejected()).isEqualTo(6);
+
+        // Fractional rates are fine.
+        TokenBucket slow = new TokenBucket(0.5, 1);
+        assertThat(slow.tryAcquire(now)).isTrue();
+        assertThat(slow.tryAcquire(now + TimeUnit.SECONDS.toNanos(1))).isFalse();
+        assertThat(slow.tryAcquire(now + TimeUnit.SECONDS.toNanos(2))).isTrue();
+    }
+
+    @Test
+    public void testIllegalMoveReplies() throws Throwable {
+        MockInputWebSocket[] inputs = {new MockInputWebSocket(), new MockInputWebSocket()};
+        MockOutputWebSocket[] outputs = {new MockOutputWebSocket(), new MockOutputWebSocket()};
+        ConnectedPlayer[] players = new ConnectedPlayer[2];
+        for (int seat = 0; seat < 2; seat++)
+            players[seat] = new ConnectedPlayer(new JsonConnection(
+                    inputs[seat].getInputSocket(), outputs[seat].getOutputSocket(), Protocol.FULL));
+        new Game(players[0], players[1], new Game.ShutdownListener() {
+            @Override
+            public void onGameShutdown(Game game) {}
+        }, GameExecutor.DIRECT).start();
+        BlockingQueue<JsonNode> lowerMessages = outputs[1].getMessageQueue();
+        assertThat(nextType(lowerMessages)).isEqualTo("ReadyToStart");
+
+        // Only the first few of the illegal moves in a row are answered.
+        for (int i = 0; i < 10; i++) inputs[1].write("0");
+        inputs[0].write("0");
+        for (int i = 0; i < 5; i++) assertThat(nextType(lowerMessages)).isEqualTo("IllegalMove");
+        assertThat(nextType(lowerMessages)).isEqualTo("BoardState");
+
+        // An accepted move starts the streak over.
+        inputs[0].write("1");
+        assertThat(nextType(lowerMessages)).isEqualTo("BoardState");
+        inputs[1].write("0");
+        assertThat(nextType(lowerMessages)).isEqualTo("BoardState");
+        inputs[1].write("0");
+        assertThat(nextType(lowerMessages)).isEqualTo("IllegalMove");
+    }
+
+    private static String nextType(BlockingQueue<JsonNode> messages) throws InterruptedException {
+        JsonNode message = messages.poll(1, TimeUnit.SECONDS);
+        assertThat(message).isNotNull();
+        return message.get("type").asText();
+    }
+
+}
@@ -0,0 +1,91 @@
+import models.Game;
+import models.concurrent.GameExecutor;
+import models.connection.Connection;
+import models.event.Event;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import models.registry.GameRegistry;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests that {@link GameRegistry} routes games to shards by key and keeps its counters straight.
+ */
+public class GameRegistryTest {
+
+    private static class StubConnection extends Connection {
+
+        StubConnection() { super(Protocol.FULL); }
+
+        @Override
+        public void write(Event event) {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void onMove(MoveListener listener) {}
+
+    }
+
+    private static Game newGame() {
+        return new Game(new ConnectedPlayer(new StubConnection()), new ConnectedPlayer(new StubConnection()),
+                new Game.ShutdownListener() {
+                    @Override
+                    public void onGameShutdown(Game game) {}
+                }, GameExecutor.DIRECT);
+    }
+
+    @Test
+    public void testShardRouting() {
+        GameRegistry registry = new GameRegistry(8);
+        int gameCount = 100;
+        for (int i = 0; i < gameCount; i++) {
+            Game game = newGame();
+            registry.add(game);
+            // Adding a game twice counts it once.
+            registry.add(game);
+            assertThat(registry.get(game.getKey())).isSameAs(game);
+            assertThat(registry.shardOf(game.getKey()).getGames()).contains(game);
+        }
+        assertThat(registry.size()).isEqualTo(gameCount);
+        assertThat(registry.getStarted()).isEqualTo(gameCount);
+
+        // Consecutive keys spread over every shard.
+        int active = 0;
+        for (int i = 0; i < registry.getShardCount(); i++) {
+            GameRegistry.Shard shard = registry.getShard(i);
+            assertThat(shard.getIndex()).isEqualTo(i);
+            assertThat(shard.getActive()).isGreaterThan(0);
+            active += shard.getActive();
+        }
+        assertThat(active).isEqualTo(gameCount);
+    }
+
+    @Test
+    public void testRemoveWhileIterating() {
+        GameRegistry registry = new GameRegistry(4);
+        int gameCount = 50;
+        for (int i = 0; i < gameCount; i++) registry.add(newGame());
+
+        Set<Long> visited = new HashSet<>();
+        for (Game game : registry) {
+            assertThat(visited.add(game.getKey())).isTrue();
+            assertThat(registry.remove(game.getKey())).isSameAs(game);
+        }
+        assertThat(visited).hasSize(gameCount);
+        assertThat(registry.size()).isEqualTo(0);
+        assertThat(registry.iterator().hasNext()).isFalse();
+        assertThat(registry.getCompleted()).isEqualTo(gameCount);
+        assertThat(registry.remove(visited.iterator().next())).isNull();
+        assertThat(registry.getCompleted()).isEqualTo(gameCount);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShardCountPowerOfTwo() { new GameRegistry(6); }
+
+}
@@ -0,0 +1,99 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import models.Game;
+import models.concurrent.GameExecutor;
+import models.connection.JsonConnection;
+import models.hint.HintCache;
+import models.hint.HintService;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import models.rules.Board;
+import models.rules.Variant;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests the {@link HintCache}, the {@link HintService} and hints requested in a game.
+ */
+public class HintTest {
+
+    @Test
+    public void testCacheEvictsLeastRecentlyUsed() {
+        HintCache cache = new HintCache(2, 1);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        assertThat(cache.get(1)).isEqualTo(1);
+        // Key 2 is the least recently used one by now.
+        cache.put(3, 3);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(cache.get(2)).isEqualTo(HintCache.MISS);
+        assertThat(cache.get(1)).isEqualTo(1);
+        assertThat(cache.get(3)).isEqualTo(3);
+        assertThat(cache.getHits()).isEqualTo(3);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void testServiceEvaluatesPositionsOnce() {
+        HintCache cache = new HintCache(16, 4);
+        HintService service = new HintService(GameExecutor.DIRECT, null, 0, cache);
+        final AtomicInteger hint = new AtomicInteger(-1);
+        HintService.Listener listener = new HintService.Listener() {
+            @Override
+            public void onHint(int pos) { hint.set(pos); }
+        };
+
+        // The lower seat sees the mirror of the position of the upper seat.
+        Variant variant = Variant.fromName("4x3");
+        Board upper = new Board(variant, new int[]{0, 3, 1, 2, 5, 4, 0, 2, 0, 1});
+        Board lower = new Board(variant, new int[]{4, 0, 2, 0, 1, 0, 3, 1, 2, 5});
+        service.request(upper, 0, listener);
+        int pos = hint.get();
+        assertThat(upper.pit(0, pos)).isGreaterThan(0);
+        assertThat(cache.getMisses()).isEqualTo(1);
+
+        hint.set(-1);
+        service.request(lower, 1, listener);
+        assertThat(hint.get()).isEqualTo(pos);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGameAnswersHintRequests() throws Throwable {
+        MockInputWebSocket[] inputs = {new MockInputWebSocket(), new MockInputWebSocket()};
+        MockOutputWebSocket[] outputs = {new MockOutputWebSocket(), new MockOutputWebSocket()};
+        ConnectedPlayer[] players = new ConnectedPlayer[2];
+        for (int seat = 0; seat < 2; seat++)
+            players[seat] = new ConnectedPlayer(new JsonConnection(
+                    inputs[seat].getInputSocket(), outputs[seat].getOutputSocket(), Protocol.FULL));
+        new Game(players[0], players[1], new Game.ShutdownListener() {
+            @Override
+            public void onGameShutdown(Game game) {}
+        }, GameExecutor.DIRECT).start();
+        BlockingQueue<JsonNode> upperMessages = outputs[0].getMessageQueue();
+        BlockingQueue<JsonNode> lowerMessages = outputs[1].getMessageQueue();
+        assertThat(nextMessage(upperMessages).get("type").asText()).isEqualTo("ReadyToStart");
+        assertThat(nextMessage(lowerMessages).get("type").asText()).isEqualTo("ReadyToStart");
+
+        // Hints are given to the player to move only.
+        inputs[1].write("hint");
+        assertThat(nextMessage(lowerMessages).get("type").asText()).isEqualTo("IllegalMove");
+        inputs[0].write("hint");
+        JsonNode hint = nextMessage(upperMessages);
+        assertThat(hint.get("type").asText()).isEqualTo("Hint");
+        assertThat(hint.get("pit").asInt()).isGreaterThanOrEqualTo(0).isLessThan(Board.PITS);
+    }
+
+    private static JsonNode nextMessage(BlockingQueue<JsonNode> messages) throws InterruptedException {
+        JsonNode message = messages.poll(5, TimeUnit.SECONDS);
+        assertThat(message).isNotNull();
+        return message;
+    }
+
+}
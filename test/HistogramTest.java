@@ -0,0 +1,32 @@
+import models.metrics.Histogram;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests the quantiles reported by {@link Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void testEmpty() {
+        Histogram histogram = new Histogram();
+        assertThat(histogram.quantile(0.99)).isEqualTo(0);
+        assertThat(histogram.getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testQuantiles() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100000; value++) histogram.record(value);
+        assertThat(histogram.getCount()).isEqualTo(100000);
+        assertThat(histogram.getSum()).isEqualTo(100000L * 100001 / 2);
+        // Reported bounds are within an eighth of the exact quantiles.
+        assertThat(histogram.quantile(0.5)).isGreaterThanOrEqualTo(50000).isLessThanOrEqualTo(50000 * 9 / 8);
+        assertThat(histogram.quantile(0.99)).isGreaterThanOrEqualTo(99000).isLessThanOrEqualTo(99000 * 9 / 8);
+        assertThat(histogram.quantile(1)).isGreaterThanOrEqualTo(100000).isLessThanOrEqualTo(100000 * 9 / 8);
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.quantile(1)).isEqualTo(Long.MAX_VALUE);
+    }
+
+}
@@ -0,0 +1,38 @@
+import models.id.IdGenerator;
+import models.id.SequentialIdGenerator;
+import models.id.TokenIdGenerator;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests the sequential and token {@link IdGenerator}s.
+ */
+public class IdGeneratorTest {
+
+    @Test
+    public void testSequentialIds() {
+        IdGenerator generator = new SequentialIdGenerator("n1");
+        assertThat(generator.nextId()).isEqualTo("n1.1");
+        for (int i = 2; i < 36; i++) generator.nextId();
+        assertThat(generator.nextId()).isEqualTo("n1.10");
+        assertThat(new SequentialIdGenerator("").nextId()).isEqualTo("1");
+    }
+
+    @Test
+    public void testTokens() {
+        IdGenerator generator = new TokenIdGenerator(16);
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String token = generator.nextId();
+            assertThat(token).hasSize(22);
+            assertThat(token.matches("[A-Za-z0-9_-]+")).isTrue();
+            tokens.add(token);
+        }
+        assertThat(tokens).hasSize(1000);
+    }
+
+}
@@ -0,0 +1,75 @@
+import models.journal.FileJournal;
+import models.journal.Journal;
+import models.journal.JournalReader;
+import models.journal.JournalReplayer;
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.rules.Variant;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JournalTest {
+
+    /**
+     * Journals the given number of random games, leaving the last one in flight, and returns the record count.
+     */
+    private static long playGames(Journal journal, int gameCount) {
+        Random random = new Random(5);
+        Variant[] variants = {Variant.STANDARD, Variant.fromName("4x3-nocapture")};
+        long records = 0;
+        for (int game = 1; game <= gameCount; game++) {
+            Variant variant = variants[game % variants.length];
+            Board board = new Board(variant);
+            journal.start(game, "g" + game, new String[]{"p" + (2 * game), "p" + (2 * game + 1)}, variant);
+            records++;
+            int seat = 0;
+            while (!board.isOver() && (game < gameCount || records % 10 != 0)) {
+                int pos = random.nextInt(variant.getPits());
+                int result = SowingEngine.move(board, seat, pos);
+                if (result < 0) continue;
+                journal.move(game, seat, pos);
+                records++;
+                if ((result & SowingEngine.EXTRA_TURN) == 0) seat = Board.opponentOf(seat);
+            }
+            if (game < gameCount) {
+                journal.end(game, board);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        File directory = Files.createTempDirectory("journal").toFile();
+        // Tiny segments force a few rollovers.
+        Journal journal = new FileJournal(directory, 1024, TimeUnit.MILLISECONDS.toNanos(1), false);
+        long records = playGames(journal, 200);
+        journal.close();
+        assertThat(directory.list().length).isGreaterThan(1);
+
+        JournalReplayer replayer = new JournalReplayer(0);
+        assertThat(JournalReader.read(directory, replayer)).isEqualTo(records);
+        assertThat(replayer.getInconsistencies()).isEqualTo(0);
+        assertThat(replayer.getInFlight()).isEqualTo(1);
+
+        // A batch torn by a crash is skipped.
+        File[] segments = directory.listFiles();
+        File last = segments[0];
+        for (File segment : segments)
+            if (segment.getName().compareTo(last.getName()) > 0) last = segment;
+        try (FileOutputStream out = new FileOutputStream(last, true)) {
+            out.write(new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5});
+        }
+        assertThat(JournalReader.read(directory, new JournalReplayer(0))).isEqualTo(records);
+    }
+
+}
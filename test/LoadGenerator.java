@@ -0,0 +1,239 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import models.metrics.Histogram;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.HttpRequestEncoder;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseDecoder;
+import org.jboss.netty.handler.codec.http.websocketx.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless load generator simulating concurrent players against a running server.
+ *
+ * Every client joins through the JSON {@code FULL} protocol, plays random
+ * legal moves driven by {@code ReadyToStart} and {@code BoardState} events,
+ * and joins again once its game is over, until the given duration elapses.
+ * Joins, pairs and moves per second, the round trip latency between sending
+ * a move and receiving the resulting board, and error counts are reported
+ * every second. Start a server (preferably in production mode) and type
+ *
+ *   $ activator "test:runMain LoadGenerator ws://localhost:9000/join 2000 60"
+ *
+ * where the arguments are the join URL, the number of clients and the
+ * duration in seconds.
+ */
+public class LoadGenerator {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long RECONNECT_DELAY_MILLIS = 100;
+
+    private final URI uri;
+    private final ClientBootstrap bootstrap;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private volatile boolean running = true;
+
+    private final AtomicLong joins = new AtomicLong();
+    private final AtomicLong pairs = new AtomicLong();
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong illegalMoves = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final Histogram totalRoundTrips = new Histogram();
+    private final AtomicReference<Histogram> roundTrips = new AtomicReference<>(new Histogram());
+
+    public LoadGenerator(URI uri) {
+        this.uri = uri;
+        this.bootstrap = new ClientBootstrap(new NioClientSocketChannelFactory(
+                Executors.newCachedThreadPool(), Executors.newCachedThreadPool()));
+        bootstrap.setOption("tcpNoDelay", true);
+        bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+            @Override
+            public ChannelPipeline getPipeline() {
+                return Channels.pipeline(new HttpResponseDecoder(), new HttpRequestEncoder(), new Client());
+            }
+        });
+    }
+
+    /**
+     * Connects a new client, which reconnects itself until the generator stops.
+     */
+    private void connect() {
+        int port = uri.getPort() == -1 ? 80 : uri.getPort();
+        bootstrap.connect(new InetSocketAddress(uri.getHost(), port)).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (!future.isSuccess()) {
+                    // Back off, rather than hammering a server that refuses connections.
+                    errors.incrementAndGet();
+                    scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() { reconnect(); }
+                    }, RECONNECT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+        });
+    }
+
+    private void reconnect() {
+        if (running) connect();
+    }
+
+    private void recordRoundTrip(long nanos) {
+        roundTrips.get().record(nanos);
+        totalRoundTrips.record(nanos);
+    }
+
+    /**
+     * A single player, confined to the I/O thread of its channel.
+     */
+    private class Client extends SimpleChannelUpstreamHandler {
+
+        private final WebSocketClientHandshaker handshaker =
+                new WebSocketClientHandshakerFactory().newHandshaker(uri, WebSocketVersion.V13, null, false, null);
+        private String playerId;
+        private boolean first;
+        private long sentNanos;
+
+        @Override
+        public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            handshaker.handshake(e.getChannel());
+        }
+
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+            Channel channel = e.getChannel();
+            if (!handshaker.isHandshakeComplete()) {
+                handshaker.finishHandshake(channel, (HttpResponse) e.getMessage());
+                return;
+            }
+            Object frame = e.getMessage();
+            if (frame instanceof TextWebSocketFrame)
+                onEvent(channel, mapper.readTree(((TextWebSocketFrame) frame).getText()));
+            else if (frame instanceof CloseWebSocketFrame)
+                channel.close();
+        }
+
+        private void onEvent(Channel channel, JsonNode event) {
+            switch (event.path("type").asText()) {
+                case "WaitingForOpponent":
+                    playerId = event.get("playerId").asText();
+                    joins.incrementAndGet();
+                    break;
+                case "ReadyToStart":
+                    // Counted once per pair, by the player making the first move.
+                    if (playerId.equals(event.get("nextPlayerId").asText())) {
+                        first = true;
+                        pairs.incrementAndGet();
+                        move(channel, new int[]{6, 6, 6, 6, 6, 6, 0});
+                    }
+                    break;
+                case "BoardState":
+                    if (sentNanos != 0) {
+                        recordRoundTrip(System.nanoTime() - sentNanos);
+                        moves.incrementAndGet();
+                        sentNanos = 0;
+                    }
+                    if (playerId.equals(event.get("nextPlayerId").asText())) {
+                        JsonNode pitsNode = event.get("board").get(playerId);
+                        int[] pits = new int[pitsNode.size()];
+                        for (int i = 0; i < pits.length; i++) pits[i] = pitsNode.get(i).asInt();
+                        move(channel, pits);
+                    }
+                    break;
+                case "IllegalMove":
+                    sentNanos = 0;
+                    illegalMoves.incrementAndGet();
+                    break;
+                case "GameOver":
+                    if (first) games.incrementAndGet();
+                    break;
+                default:
+                    errors.incrementAndGet();
+            }
+        }
+
+        /**
+         * Sows a random non-empty pit among the given ones.
+         */
+        private void move(Channel channel, int[] pits) {
+            int nonEmpty = 0;
+            for (int pos = 0; pos < pits.length - 1; pos++)
+                if (pits[pos] > 0) nonEmpty++;
+            if (nonEmpty == 0) return;
+            int choice = ThreadLocalRandom.current().nextInt(nonEmpty);
+            for (int pos = 0; pos < pits.length - 1; pos++)
+                if (pits[pos] > 0 && choice-- == 0) {
+                    sentNanos = System.nanoTime();
+                    channel.write(new TextWebSocketFrame(Integer.toString(pos)));
+                    return;
+                }
+        }
+
+        @Override
+        public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            // Server closes both connections when the game is over or the opponent leaves.
+            if (running && playerId == null) errors.incrementAndGet();
+            reconnect();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+            errors.incrementAndGet();
+            e.getChannel().close();
+        }
+
+    }
+
+    private void report(double seconds, long[] previous) {
+        long[] current = {joins.get(), pairs.get(), moves.get(), games.get()};
+        Histogram interval = roundTrips.getAndSet(new Histogram());
+        System.out.printf(
+                "joins/s: %8.0f  pairs/s: %8.0f  moves/s: %9.0f  games/s: %7.0f  " +
+                        "rtt p50: %7.3f ms  p99: %7.3f ms  illegal: %d  errors: %d%n",
+                (current[0] - previous[0]) / seconds, (current[1] - previous[1]) / seconds,
+                (current[2] - previous[2]) / seconds, (current[3] - previous[3]) / seconds,
+                (double) interval.quantile(0.5) / NANOS_PER_MILLI,
+                (double) interval.quantile(0.99) / NANOS_PER_MILLI,
+                illegalMoves.get(), errors.get());
+        System.arraycopy(current, 0, previous, 0, current.length);
+    }
+
+    public void run(int clientCount, int durationSeconds) throws InterruptedException {
+        for (int i = 0; i < clientCount; i++) connect();
+        long[] previous = new long[4];
+        long start = System.nanoTime();
+        for (int second = 0; second < durationSeconds; second++) {
+            Thread.sleep(1000);
+            report(1, previous);
+        }
+        running = false;
+        double elapsed = (double) (System.nanoTime() - start) / TimeUnit.SECONDS.toNanos(1);
+        System.out.printf(
+                "Total: %d joins, %d moves, %d games in %.1f s, %.0f moves/s, " +
+                        "rtt p50: %.3f ms, p99: %.3f ms, p999: %.3f ms, %d illegal moves, %d errors%n",
+                joins.get(), moves.get(), games.get(), elapsed, moves.get() / elapsed,
+                (double) totalRoundTrips.quantile(0.5) / NANOS_PER_MILLI,
+                (double) totalRoundTrips.quantile(0.99) / NANOS_PER_MILLI,
+                (double) totalRoundTrips.quantile(0.999) / NANOS_PER_MILLI,
+                illegalMoves.get(), errors.get());
+        scheduler.shutdownNow();
+        bootstrap.releaseExternalResources();
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI uri = new URI(args.length > 0 ? args[0] : "ws://localhost:9000/join");
+        int clientCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        new LoadGenerator(uri).run(clientCount, durationSeconds);
+    }
+
+}
@@ -0,0 +1,53 @@
+import models.concurrent.Mailbox;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests that {@link Mailbox} runs tasks posted from many threads one at a time.
+ */
+public class MailboxTest {
+
+    @Test
+    public void testSerialExecution() throws InterruptedException {
+        final int producerCount = 8;
+        final int taskCount = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final Mailbox mailbox = new Mailbox(executor);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final int[] counter = {0};
+        final CountDownLatch done = new CountDownLatch(producerCount * taskCount);
+
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+                // Unsynchronized on purpose, relies on the mailbox for exclusion.
+                counter[0]++;
+                running.decrementAndGet();
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < producerCount; i++)
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < taskCount; j++) mailbox.post(task);
+                }
+            }).start();
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(overlaps.get()).isEqualTo(0);
+        assertThat(counter[0]).isEqualTo(producerCount * taskCount);
+    }
+
+}
@@ -0,0 +1,175 @@
+import models.connection.Connection;
+import models.event.Event;
+import models.matchmaking.Matchmaker;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Stress tests {@link Matchmaker} with concurrent joins and disconnects.
+ */
+public class MatchmakerTest {
+
+    private static class StubConnection extends Connection {
+
+        StubConnection() { super(Protocol.FULL); }
+
+        @Override
+        public void write(Event event) {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void onMove(MoveListener listener) {}
+
+        void peerClose() { onClosed(); }
+
+    }
+
+    private static ConnectedPlayer newPlayer() { return new ConnectedPlayer(new StubConnection()); }
+
+    private static void peerClose(ConnectedPlayer player) {
+        ((StubConnection) player.getConnection()).peerClose();
+    }
+
+    @Test
+    public void testSequentialPairing() {
+        final List<ConnectedPlayer> pairs = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(new Matchmaker.PairingListener() {
+            @Override
+            public void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+                pairs.add(upperPlayer);
+                pairs.add(lowerPlayer);
+            }
+        });
+
+        ConnectedPlayer fst = newPlayer();
+        ConnectedPlayer snd = newPlayer();
+        ConnectedPlayer trd = newPlayer();
+        matchmaker.join(fst);
+        assertThat(matchmaker.size()).isEqualTo(1);
+
+        // A player leaving the queue is never paired.
+        peerClose(fst);
+        assertThat(matchmaker.size()).isEqualTo(0);
+        matchmaker.join(snd);
+        matchmaker.join(trd);
+        assertThat(pairs).containsExactly(snd, trd);
+        assertThat(matchmaker.size()).isEqualTo(0);
+        assertThat(matchmaker.getEvictedCount()).isEqualTo(1);
+        assertThat(matchmaker.getPairedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testPairWithWaitingTicket() {
+        final List<ConnectedPlayer> pairs = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(new Matchmaker.PairingListener() {
+            @Override
+            public void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+                pairs.add(upperPlayer);
+                pairs.add(lowerPlayer);
+            }
+        });
+
+        ConnectedPlayer fst = newPlayer();
+        ConnectedPlayer bot = newPlayer();
+        Matchmaker.Ticket ticket = matchmaker.join(fst);
+        assertThat(matchmaker.pairWith(ticket, bot)).isTrue();
+        assertThat(pairs).containsExactly(fst, bot);
+        assertThat(matchmaker.size()).isEqualTo(0);
+
+        // A ticket taken by someone else leaves the late comer out of the queue.
+        ConnectedPlayer snd = newPlayer();
+        ConnectedPlayer trd = newPlayer();
+        ticket = matchmaker.join(snd);
+        matchmaker.join(trd);
+        assertThat(matchmaker.pairWith(ticket, newPlayer())).isFalse();
+        assertThat(pairs).hasSize(4);
+        assertThat(matchmaker.size()).isEqualTo(0);
+        matchmaker.join(newPlayer());
+        assertThat(pairs).hasSize(4);
+        assertThat(matchmaker.getPairedCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testConcurrentJoins() throws InterruptedException {
+        final int threadCount = 8;
+        final int joinsPerThread = 20000;
+        final Map<ConnectedPlayer, Boolean> paired = new ConcurrentHashMap<>();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final Matchmaker matchmaker = new Matchmaker(new Matchmaker.PairingListener() {
+            @Override
+            public void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+                if (paired.put(upperPlayer, true) != null) duplicates.incrementAndGet();
+                if (paired.put(lowerPlayer, true) != null) duplicates.incrementAndGet();
+            }
+        });
+
+        final List<ConnectedPlayer> closedBeforeJoin = new ArrayList<>();
+        final List<ConnectedPlayer> everyone = new ArrayList<>();
+        final List<List<ConnectedPlayer>> batches = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < threadCount; i++) {
+            List<ConnectedPlayer> batch = new ArrayList<>();
+            for (int j = 0; j < joinsPerThread; j++) {
+                ConnectedPlayer player = newPlayer();
+                if (random.nextInt(50) == 0) {
+                    peerClose(player);
+                    closedBeforeJoin.add(player);
+                }
+                batch.add(player);
+                everyone.add(player);
+            }
+            batches.add(batch);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final List<ConnectedPlayer> batch = batches.get(i);
+            final Random threadRandom = new Random(i);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (ConnectedPlayer player : batch) {
+                            matchmaker.join(player);
+                            // Disconnect some players while they are likely to be queued.
+                            if (threadRandom.nextInt(20) == 0) peerClose(player);
+                        }
+                    }
+                    catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+                    finally { done.countDown(); }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertThat(duplicates.get()).isEqualTo(0);
+        for (ConnectedPlayer player : closedBeforeJoin)
+            assertThat(paired.containsKey(player)).isFalse();
+
+        // Every live player is paired, except at most one waiting for an opponent.
+        int stranded = 0;
+        for (ConnectedPlayer player : everyone)
+            if (player.getConnection().isOpen() && !paired.containsKey(player))
+                stranded++;
+        assertThat(stranded).isLessThanOrEqualTo(1);
+        assertThat(matchmaker.size()).isEqualTo(stranded);
+        assertThat(matchmaker.getPairedCount()).isEqualTo(paired.size());
+    }
+
+}
@@ -1,4 +1,3 @@
-import com.fasterxml.jackson.databind.JsonNode;
 import play.libs.F;
 import play.mvc.WebSocket;
 
@@ -10,21 +9,21 @@ import java.util.List;
 @ThreadSafe
 class MockInputWebSocket {
 
-    protected final List<F.Callback<JsonNode>> messageListeners = Collections.synchronizedList(new ArrayList<F.Callback<JsonNode>>());
+    protected final List<F.Callback<String>> messageListeners = Collections.synchronizedList(new ArrayList<F.Callback<String>>());
     protected final List<F.Callback0> closeListeners = Collections.synchronizedList(new ArrayList<F.Callback0>());
 
-    protected final WebSocket.In<JsonNode> inputSocket = new WebSocket.In<JsonNode>() {
+    protected final WebSocket.In<String> inputSocket = new WebSocket.In<String>() {
 
         @Override
-        public void onMessage(F.Callback<JsonNode> callback) { messageListeners.add(callback); }
+        public void onMessage(F.Callback<String> callback) { messageListeners.add(callback); }
 
         @Override
         public void onClose(F.Callback0 callback) { closeListeners.add(callback); }
 
     };
 
-    public void write(JsonNode data) throws Throwable {
-        for (F.Callback<JsonNode> listener : messageListeners)
+    public void write(String data) throws Throwable {
+        for (F.Callback<String> listener : messageListeners)
             listener.invoke(data);
     }
 
@@ -33,6 +32,6 @@ class MockInputWebSocket {
             listener.invoke();
     }
 
-    public WebSocket.In<JsonNode> getInputSocket() { return inputSocket; }
+    public WebSocket.In<String> getInputSocket() { return inputSocket; }
 
 }
@@ -14,10 +14,13 @@ class MockOutputWebSocket {
 
     protected final BlockingQueue<JsonNode> messageQueue = new LinkedBlockingQueue<>();
 
-    protected final WebSocket.Out<JsonNode> outputSocket = new WebSocket.Out<JsonNode>() {
+    protected final WebSocket.Out<String> outputSocket = new WebSocket.Out<String>() {
 
         @Override
-        public void write(JsonNode frame) { messageQueue.add(frame); }
+        public void write(String frame) {
+            try { messageQueue.add(objectMapper.readTree(frame)); }
+            catch (IOException e) { throw new RuntimeException("Invalid JSON: " + frame, e); }
+        }
 
         @Override
         public void close() {
@@ -29,6 +32,6 @@ class MockOutputWebSocket {
 
     public BlockingQueue<JsonNode> getMessageQueue() { return messageQueue; }
 
-    public WebSocket.Out<JsonNode> getOutputSocket() { return outputSocket; }
+    public WebSocket.Out<String> getOutputSocket() { return outputSocket; }
 
 }
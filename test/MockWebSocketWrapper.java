@@ -9,9 +9,9 @@ class MockWebSocketWrapper {
 
     protected final MockInputWebSocket mockInput = new MockInputWebSocket();
     protected final MockOutputWebSocket mockOutput = new MockOutputWebSocket();
-    protected final WebSocket<JsonNode> socket;
+    protected final WebSocket<String> socket;
 
-    MockWebSocketWrapper(WebSocket<JsonNode> socket) {
+    MockWebSocketWrapper(WebSocket<String> socket) {
         this.socket = socket;
         socket.onReady(mockInput.getInputSocket(), mockOutput.getOutputSocket());
     }
@@ -20,7 +20,7 @@ class MockWebSocketWrapper {
         return mockOutput.getMessageQueue().poll(1, TimeUnit.SECONDS);
     }
 
-    public void write(JsonNode data) throws Throwable { mockInput.write(data); }
+    public void write(JsonNode data) throws Throwable { mockInput.write(data.toString()); }
 
     public void close() throws Throwable { mockInput.close(); }
 
@@ -0,0 +1,123 @@
+import models.connection.OutboundQueue;
+import models.event.BoardDelta;
+import models.event.BoardState;
+import models.event.Event;
+import models.event.GameOver;
+import models.event.Hint;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class OutboundQueueTest {
+
+    /**
+     * Executor running tasks only when told to, standing in for a busy writer.
+     */
+    private static class ManualExecutor implements Executor {
+
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) { tasks.add(task); }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) task.run();
+        }
+
+    }
+
+    private static class RecordingSink implements OutboundQueue.Sink {
+
+        final List<Event> sent = new ArrayList<>();
+        boolean closed, disconnected;
+
+        @Override
+        public void send(Event event) { sent.add(event); }
+
+        @Override
+        public void close() { closed = true; }
+
+        @Override
+        public void disconnect() { disconnected = true; }
+
+    }
+
+    private static BoardState newBoardState(String nextPlayerId) {
+        return new BoardState(Collections.<String, int[]>emptyMap(), nextPlayerId);
+    }
+
+    @Test
+    public void testCoalescing() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSink sink = new RecordingSink();
+        OutboundQueue queue = new OutboundQueue(executor, 2, OutboundQueue.OverflowPolicy.DISCONNECT, sink);
+
+        // Newer board states supersede the queued one, moving after the events queued since, and do not count
+        // against the capacity.
+        GameOver gameOver = new GameOver("a");
+        queue.offer(newBoardState("a"));
+        queue.offer(gameOver);
+        for (int i = 0; i < 100; i++) queue.offer(newBoardState("b" + i));
+        assertThat(queue.size()).isEqualTo(2);
+        queue.close();
+        assertThat(sink.closed).isFalse();
+
+        executor.runAll();
+        assertThat(sink.sent).hasSize(2);
+        assertThat(sink.sent.get(0)).isSameAs(gameOver);
+        assertThat(((BoardState) sink.sent.get(1)).nextPlayerId).isEqualTo("b99");
+        assertThat(sink.closed).isTrue();
+        assertThat(sink.disconnected).isFalse();
+    }
+
+    @Test
+    public void testOverflow() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSink dropSink = new RecordingSink();
+        OutboundQueue dropQueue = new OutboundQueue(executor, 2, OutboundQueue.OverflowPolicy.DROP, dropSink);
+        RecordingSink disconnectSink = new RecordingSink();
+        OutboundQueue disconnectQueue =
+                new OutboundQueue(executor, 2, OutboundQueue.OverflowPolicy.DISCONNECT, disconnectSink);
+        for (int i = 0; i < 3; i++) {
+            dropQueue.offer(new Hint(i));
+            disconnectQueue.offer(new GameOver("d" + i));
+        }
+        assertThat(disconnectSink.disconnected).isTrue();
+        assertThat(disconnectQueue.size()).isEqualTo(0);
+        assertThat(dropSink.disconnected).isFalse();
+
+        executor.runAll();
+        assertThat(dropSink.sent).hasSize(2);
+        assertThat(((Hint) dropSink.sent.get(1)).pit).isEqualTo(1);
+        assertThat(disconnectSink.sent).isEmpty();
+        assertThat(disconnectSink.closed).isFalse();
+    }
+
+    @Test
+    public void testDeltaOverflow() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSink sink = new RecordingSink();
+        OutboundQueue queue = new OutboundQueue(executor, 2, OutboundQueue.OverflowPolicy.DROP, sink);
+        queue.offer(new BoardDelta(new int[]{0, 0}, 1));
+        queue.offer(new BoardDelta(new int[]{7, 1}, 0));
+        // Hints may go missing, but a missing delta would leave the client with a wrong board.
+        queue.offer(new Hint(3));
+        assertThat(sink.disconnected).isFalse();
+        queue.offer(new BoardDelta(new int[]{0, 0}, 1));
+        assertThat(sink.disconnected).isTrue();
+        assertThat(queue.size()).isEqualTo(0);
+
+        executor.runAll();
+        assertThat(sink.sent).isEmpty();
+        assertThat(sink.closed).isFalse();
+    }
+
+}
@@ -0,0 +1,40 @@
+import models.metrics.Histogram;
+import models.metrics.PrometheusWriter;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests that {@link PrometheusWriter} renders the Prometheus text exposition format.
+ */
+public class PrometheusWriterTest {
+
+    @Test
+    public void testFormat() {
+        Histogram histogram = new Histogram();
+        histogram.record(1500000000L);
+        histogram.record(500000000L);
+        String text = new PrometheusWriter()
+                .gauge("g", "A gauge.", 3)
+                .counter("c", "A counter.", 7)
+                .counter("l", "A labeled counter.", "type", new String[]{"a", "b"}, new long[]{1, 2})
+                .summary("s", "A summary.", histogram)
+                .toString();
+        String[] lines = text.split("\n");
+        assertThat(lines).hasSize(17);
+        assertThat(text).startsWith(
+                "# HELP g A gauge.\n# TYPE g gauge\ng 3\n"
+                + "# HELP c A counter.\n# TYPE c counter\nc 7\n"
+                + "# HELP l A labeled counter.\n# TYPE l counter\nl{type=\"a\"} 1\nl{type=\"b\"} 2\n"
+                + "# HELP s A summary.\n# TYPE s summary\n");
+        assertThat(lines[12]).startsWith("s{quantile=\"0.5\"} ");
+        assertThat(lines[13]).startsWith("s{quantile=\"0.99\"} ");
+        assertThat(lines[14]).startsWith("s{quantile=\"0.999\"} ");
+        // Durations are exposed in seconds.
+        double p999 = Double.parseDouble(lines[14].substring(lines[14].indexOf(' ') + 1));
+        assertThat(p999).isGreaterThanOrEqualTo(1.5).isLessThan(2.0);
+        assertThat(lines[15]).isEqualTo("s_sum 2.0");
+        assertThat(lines[16]).isEqualTo("s_count 2");
+    }
+
+}
@@ -0,0 +1,206 @@
+import models.Game;
+import models.connection.Connection;
+import models.event.Event;
+import models.id.Credentials;
+import models.matchmaking.Matchmaker;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import models.rating.Leaderboard;
+import models.rating.Ratings;
+import models.rating.Standing;
+import models.rules.Board;
+import models.rules.Variant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests Elo ratings, the {@link Leaderboard} and pairing within rating bands.
+ */
+public class RatingTest {
+
+    private static class StubConnection extends Connection {
+
+        StubConnection() { super(Protocol.FULL); }
+
+        @Override
+        public void write(Event event) {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void onMove(MoveListener listener) {}
+
+    }
+
+    private static ConnectedPlayer newPlayer(int rating) {
+        return new ConnectedPlayer(new StubConnection(), Variant.STANDARD, rating);
+    }
+
+    @Test
+    public void testElo() {
+        Ratings ratings = new Ratings(new Credentials(new byte[] {1}), 32);
+        assertThat(ratings.rate(1500, 1500, 1)).isEqualTo(new int[]{1516, 1484});
+        assertThat(ratings.rate(1500, 1500, 0.5)).isEqualTo(new int[]{1500, 1500});
+        // Beating a much weaker player gains little.
+        assertThat(ratings.rate(1900, 1500, 1)).isEqualTo(new int[]{1903, 1497});
+        assertThat(ratings.rate(1900, 1500, 0)).isEqualTo(new int[]{1871, 1529});
+        assertThat(ratings.getRatedGames()).isEqualTo(4);
+    }
+
+    @Test
+    public void testTieIsDraw() throws InterruptedException {
+        final List<Connection.MoveListener> listeners = new ArrayList<>();
+        ConnectedPlayer upper = new ConnectedPlayer(new StubConnection() {
+            @Override
+            public void onMove(MoveListener listener) { listeners.add(listener); }
+        }, Variant.STANDARD, 1500);
+        ConnectedPlayer lower = newPlayer(1500);
+        final CountDownLatch shutdown = new CountDownLatch(1);
+        // The last stone of the upper side lands in its store, leaving both stores at 35.
+        Game game = Game.restore(1, Variant.STANDARD, new int[]{0, 0, 0, 0, 0, 1, 34, 2, 0, 0, 0, 0, 0, 35}, 0,
+                upper, lower, new Game.ShutdownListener() {
+                    @Override
+                    public void onGameShutdown(Game game) { shutdown.countDown(); }
+                });
+        game.start();
+        while (listeners.isEmpty()) Thread.sleep(10);
+        listeners.get(0).onMove(5);
+        assertThat(shutdown.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(game.getOutcome()).isNotNull();
+        assertThat(game.getOutcome().winnerId).isNull();
+        assertThat(new Ratings(new Credentials(new byte[] {1}), 32).rate(1500, 1500, 0.5))
+                .isEqualTo(new int[]{1500, 1500});
+    }
+
+    @Test
+    public void testReclaimTakesToken() {
+        Credentials credentials = new Credentials(new byte[] {1});
+        Ratings ratings = new Ratings(credentials, 32);
+        ratings.update("a", 1600);
+        // A guessed id alone does not carry a rating over.
+        assertThat(ratings.reclaim("a", "", new StubConnection())).isFalse();
+        assertThat(ratings.reclaim("a", credentials.tokenOf("b"), new StubConnection())).isFalse();
+        assertThat(ratings.reclaim("b", credentials.tokenOf("b"), new StubConnection())).isFalse();
+        assertThat(ratings.reclaim("a", credentials.tokenOf("a"), new StubConnection())).isTrue();
+        // One connection at a time.
+        assertThat(ratings.reclaim("a", credentials.tokenOf("a"), new StubConnection())).isFalse();
+    }
+
+    @Test
+    public void testLeaderboard() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("a", 1500);
+        leaderboard.update("b", 1600);
+        leaderboard.update("c", 1500);
+        assertThat(leaderboard.top(2)).containsExactly(new Standing("b", 1600, 1), new Standing("a", 1500, 1));
+        assertThat(leaderboard.rankOf("b")).isEqualTo(1);
+        // Equal ratings share a rank.
+        assertThat(leaderboard.rankOf("a")).isEqualTo(2);
+        assertThat(leaderboard.rankOf("c")).isEqualTo(2);
+        assertThat(leaderboard.rankOf("d")).isEqualTo(0);
+
+        // Updates move players without leaving their former standings behind.
+        leaderboard.update("c", 1700);
+        assertThat(leaderboard.size()).isEqualTo(3);
+        assertThat(leaderboard.top(10)).containsExactly(
+                new Standing("c", 1700, 2), new Standing("b", 1600, 1), new Standing("a", 1500, 1));
+        assertThat(leaderboard.rankOf("a")).isEqualTo(3);
+        assertThat(leaderboard.rankOf(1650)).isEqualTo(2);
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final Leaderboard leaderboard = new Leaderboard();
+        final int threadCount = 4, playersPerThread = 250, gamesPerPlayer = 20;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final int thread = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int game = 0; game < gamesPerPlayer; game++)
+                        for (int player = 0; player < playersPerThread; player++)
+                            leaderboard.update(thread + "-" + player, 1000 + (player * 7 + game * 13) % 1000);
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        int playerCount = threadCount * playersPerThread;
+        assertThat(leaderboard.size()).isEqualTo(playerCount);
+        List<Standing> top = leaderboard.top(playerCount + 1);
+        assertThat(top).hasSize(playerCount);
+        for (int i = 0; i < top.size(); i++) {
+            Standing standing = top.get(i);
+            assertThat(standing.getGames()).isEqualTo(gamesPerPlayer);
+            if (i > 0) assertThat(top.get(i - 1).getRating()).isGreaterThanOrEqualTo(standing.getRating());
+            // Ranks count the players rated higher.
+            int higher = 0;
+            while (top.get(higher).getRating() > standing.getRating()) higher++;
+            assertThat(leaderboard.rankOf(standing.getPlayerId())).isEqualTo(higher + 1);
+        }
+    }
+
+    @Test
+    public void testBandedPairing() throws InterruptedException {
+        final List<ConnectedPlayer> pairs = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(new Matchmaker.PairingListener() {
+            @Override
+            public void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+                pairs.add(upperPlayer);
+                pairs.add(lowerPlayer);
+            }
+        }, 100, 2000);
+
+        // Players far apart wait, while a closer one gets paired right away.
+        ConnectedPlayer strong = newPlayer(2000);
+        ConnectedPlayer weak = newPlayer(1200);
+        ConnectedPlayer average = newPlayer(1250);
+        matchmaker.join(strong);
+        matchmaker.join(weak);
+        assertThat(pairs).isEmpty();
+        matchmaker.join(average);
+        assertThat(pairs).containsExactly(weak, average);
+
+        // Bands widen as players wait.
+        ConnectedPlayer other = newPlayer(1500);
+        matchmaker.join(other);
+        assertThat(pairs).hasSize(2);
+        Thread.sleep(300);
+        matchmaker.rematch();
+        assertThat(pairs).hasSize(4);
+        assertThat(pairs.subList(2, 4)).containsExactly(strong, other);
+        assertThat(matchmaker.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testClosestRatingPaired() {
+        final List<ConnectedPlayer> pairs = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(new Matchmaker.PairingListener() {
+            @Override
+            public void onPaired(ConnectedPlayer upperPlayer, ConnectedPlayer lowerPlayer) {
+                pairs.add(upperPlayer);
+                pairs.add(lowerPlayer);
+            }
+        }, 500, 0);
+
+        // Both waiting players fit, and the closer rated one is paired rather than the longer waiting one.
+        ConnectedPlayer low = newPlayer(1000);
+        ConnectedPlayer high = newPlayer(1800);
+        ConnectedPlayer middle = newPlayer(1450);
+        matchmaker.join(low);
+        matchmaker.join(high);
+        matchmaker.join(middle);
+        assertThat(pairs).containsExactly(high, middle);
+        assertThat(matchmaker.size()).isEqualTo(1);
+    }
+
+}
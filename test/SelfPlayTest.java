@@ -0,0 +1,62 @@
+import models.bot.AlphaBetaSearch;
+import models.bot.TranspositionTable;
+import models.rules.Variant;
+import models.simulation.Policies;
+import models.simulation.SelfPlay;
+import models.simulation.SimulationStats;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests that {@link SelfPlay} tallies reproducible statistics no matter the parallelism.
+ */
+public class SelfPlayTest {
+
+    @Test
+    public void testReproducibleAcrossParallelism() {
+        for (String name : new String[]{"6x6", "4x3-noextra"}) {
+            SelfPlay selfPlay = new SelfPlay(
+                    Variant.fromName(name), Policies.Kind.GREEDY, Policies.Kind.RANDOM, null, 0, 42);
+            SimulationStats sequential = selfPlay.run(new ForkJoinPool(1), 2000);
+            SimulationStats parallel = selfPlay.run(new ForkJoinPool(4), 2000);
+            assertThat(parallel.toString()).isEqualTo(sequential.toString());
+
+            assertThat(sequential.getGames()).isEqualTo(2000);
+            assertThat(sequential.getSeatWins(0) + sequential.getSeatWins(1) + sequential.getDraws())
+                    .isEqualTo(2000);
+            assertThat(sequential.getPolicyWins(0) + sequential.getPolicyWins(1))
+                    .isEqualTo(sequential.getSeatWins(0) + sequential.getSeatWins(1));
+            long lengths = 0;
+            for (int plies = 0; plies <= SimulationStats.MAX_PLIES; plies++)
+                lengths += sequential.getLengthCount(plies);
+            assertThat(lengths).isEqualTo(2000);
+            assertThat(sequential.lengthQuantile(0.5)).isLessThanOrEqualTo(sequential.lengthQuantile(0.99));
+
+            // Greedy play beats random play by a wide margin.
+            assertThat(sequential.getPolicyWins(0)).isGreaterThan(3 * sequential.getPolicyWins(1));
+        }
+        // Variants without the capture rule never capture.
+        assertThat(new SelfPlay(Variant.fromName("4x3-nocapture"), Policies.Kind.RANDOM, Policies.Kind.RANDOM,
+                null, 0, 0).run(new ForkJoinPool(2), 500).getCaptures()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSearchPolicy() {
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(1 << 16));
+        SimulationStats stats = new SelfPlay(Variant.STANDARD, Policies.Kind.SEARCH, Policies.Kind.RANDOM,
+                search, TimeUnit.MILLISECONDS.toNanos(1), 0).run(new ForkJoinPool(2), 20);
+        assertThat(stats.getGames()).isEqualTo(20);
+        assertThat(stats.getPolicyWins(0)).isGreaterThan(stats.getPolicyWins(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSearchPlaysStandardOnly() {
+        new SelfPlay(Variant.fromName("4x4"), Policies.Kind.SEARCH, Policies.Kind.RANDOM,
+                new AlphaBetaSearch(new TranspositionTable(1 << 10)), 0, 0);
+    }
+
+}
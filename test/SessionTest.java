@@ -0,0 +1,166 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import models.Game;
+import models.concurrent.GameExecutor;
+import models.connection.JsonConnection;
+import models.event.Hint;
+import models.event.WaitingForOpponent;
+import models.id.Credentials;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import models.session.Session;
+import models.session.Sessions;
+import models.timer.TimingWheel;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests that a {@link Session} lets a player resume its game after a disconnect.
+ */
+public class SessionTest {
+
+    private final TimingWheel timers = new TimingWheel(10, TimeUnit.MILLISECONDS, 64, "session-test");
+    private final MockInputWebSocket[] inputs = new MockInputWebSocket[2];
+    private final MockOutputWebSocket[] outputs = new MockOutputWebSocket[2];
+    private final CountDownLatch shutdown = new CountDownLatch(1);
+    private final AtomicReference<Game> ended = new AtomicReference<>();
+    private final Credentials credentials = new Credentials(new byte[] {1, 2, 3, 4});
+
+    @After
+    public void tearDown() { timers.stop(); }
+
+    private JsonConnection connect(int seat) {
+        inputs[seat] = new MockInputWebSocket();
+        outputs[seat] = new MockOutputWebSocket();
+        return new JsonConnection(
+                inputs[seat].getInputSocket(), outputs[seat].getOutputSocket(), Protocol.FULL, GameExecutor.DIRECT);
+    }
+
+    private void startGame(Sessions sessions) {
+        ConnectedPlayer[] players = new ConnectedPlayer[2];
+        for (int seat = 0; seat < 2; seat++) {
+            String id = seat == 0 ? "upper" : "lower";
+            Session session = sessions.open(connect(seat));
+            assertThat(sessions.register(id, session)).isTrue();
+            session.write(new WaitingForOpponent(id, credentials.tokenOf(id)));
+            players[seat] = new ConnectedPlayer(session, id);
+        }
+        new Game(players[0], players[1], new Game.ShutdownListener() {
+            @Override
+            public void onGameShutdown(Game game) {
+                ended.set(game);
+                shutdown.countDown();
+            }
+        }, GameExecutor.DIRECT).start();
+    }
+
+    @Test
+    public void testResumeReplaysMissedFrames() throws Throwable {
+        Sessions sessions = new Sessions(credentials, timers, TimeUnit.MINUTES.toNanos(1), 8);
+        startGame(sessions);
+        assertThat(types(outputs[1].getMessageQueue(), 2)).containsExactly("WaitingForOpponent", "ReadyToStart");
+
+        // The game goes on while the lower player is away.
+        inputs[1].close();
+        inputs[0].write("1");
+        assertThat(types(outputs[0].getMessageQueue(), 3))
+                .containsExactly("WaitingForOpponent", "ReadyToStart", "BoardState");
+        assertThat(shutdown.getCount()).isEqualTo(1);
+
+        // Frames sent before the disconnect but lost on the way are sent again, followed by the events written since.
+        String token = credentials.tokenOf("lower");
+        assertThat(sessions.resume("lower", token, connect(1), 3)).isFalse();
+        assertThat(sessions.resume("lower", token, connect(1), 1)).isTrue();
+        assertThat(types(outputs[1].getMessageQueue(), 2)).containsExactly("ReadyToStart", "BoardState");
+        assertThat(outputs[1].getMessageQueue()).isEmpty();
+
+        // Moves arrive through the new socket.
+        inputs[1].write("0");
+        assertThat(types(outputs[0].getMessageQueue(), 1)).containsExactly("BoardState");
+        assertThat(shutdown.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testResumeReplaysMoreThanOutboundCapacity() throws Throwable {
+        Sessions sessions = new Sessions(credentials, timers, TimeUnit.MINUTES.toNanos(1), 128);
+        Session session = sessions.open(connect(1));
+        assertThat(sessions.register("lower", session)).isTrue();
+        session.write(new WaitingForOpponent("lower", credentials.tokenOf("lower")));
+        inputs[1].close();
+        for (int i = 0; i < 100; i++) session.write(new Hint(i % 6));
+
+        // The new socket is drained only once the whole replay is queued, well past the outbound capacity.
+        final Queue<Runnable> pending = new ArrayDeque<>();
+        MockOutputWebSocket output = new MockOutputWebSocket();
+        JsonConnection socket = new JsonConnection(new MockInputWebSocket().getInputSocket(),
+                output.getOutputSocket(), Protocol.FULL, new Executor() {
+                    @Override
+                    public void execute(Runnable task) { pending.add(task); }
+                });
+        assertThat(sessions.resume("lower", credentials.tokenOf("lower"), socket, 0)).isTrue();
+        while (!pending.isEmpty()) pending.poll().run();
+        assertThat(socket.isOpen()).isTrue();
+        List<String> types = types(output.getMessageQueue(), 101);
+        assertThat(types.get(0)).isEqualTo("WaitingForOpponent");
+        assertThat(types.subList(1, 101)).excludes("WaitingForOpponent");
+        assertThat(output.getMessageQueue()).isEmpty();
+        assertThat(session.getSentCount()).isEqualTo(101);
+    }
+
+    @Test
+    public void testExpiredSessionEndsGame() throws Throwable {
+        Sessions sessions = new Sessions(credentials, timers, TimeUnit.MILLISECONDS.toNanos(50), 8);
+        startGame(sessions);
+        inputs[1].close();
+        assertThat(shutdown.await(5, TimeUnit.SECONDS)).isTrue();
+        // The player who did not come back forfeits.
+        assertThat(ended.get().getOutcome().winnerId).isEqualTo("upper");
+        JsonNode gameOver = outputs[0].getMessageQueue().poll(5, TimeUnit.SECONDS);
+        while (gameOver != null && !gameOver.get("type").asText().equals("GameOver"))
+            gameOver = outputs[0].getMessageQueue().poll(5, TimeUnit.SECONDS);
+        assertThat(gameOver).isNotNull();
+        assertThat(gameOver.get("winnerId").asText()).isEqualTo("upper");
+        assertThat(sessions.resume("lower", credentials.tokenOf("lower"), connect(1), 2)).isFalse();
+    }
+
+    @Test
+    public void testWrongTokenCannotResume() throws Throwable {
+        Sessions sessions = new Sessions(credentials, timers, TimeUnit.MINUTES.toNanos(1), 8);
+        startGame(sessions);
+        assertThat(types(outputs[1].getMessageQueue(), 2)).containsExactly("WaitingForOpponent", "ReadyToStart");
+
+        // Neither the token of the opponent, another key, nor no token at all takes the session over.
+        MockOutputWebSocket attached = outputs[1];
+        assertThat(sessions.resume("lower", credentials.tokenOf("upper"), connect(1), 1)).isFalse();
+        assertThat(sessions.resume("lower", new Credentials(new byte[] {5}).tokenOf("lower"), connect(1), 1)).isFalse();
+        assertThat(sessions.resume("lower", "", connect(1), 1)).isFalse();
+        assertThat(sessions.resume("lower", null, connect(1), 1)).isFalse();
+
+        // The player stays attached through its own socket.
+        inputs[0].write("1");
+        assertThat(types(attached.getMessageQueue(), 1)).containsExactly("BoardState");
+        assertThat(outputs[1].getMessageQueue()).isEmpty();
+    }
+
+    private static List<String> types(BlockingQueue<JsonNode> messages, int count) throws InterruptedException {
+        List<String> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            JsonNode message = messages.poll(5, TimeUnit.SECONDS);
+            assertThat(message).isNotNull();
+            types.add(message.get("type").asText());
+        }
+        return types;
+    }
+
+}
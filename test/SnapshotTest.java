@@ -0,0 +1,105 @@
+import models.connection.Connection;
+import models.event.Event;
+import models.id.Credentials;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.rules.Variant;
+import models.snapshot.Reservation;
+import models.snapshot.Reservations;
+import models.snapshot.SnapshotReader;
+import models.snapshot.SnapshotWriter;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SnapshotTest {
+
+    private static class StubConnection extends Connection {
+
+        StubConnection() { super(Protocol.FULL); }
+
+        @Override
+        public void write(Event event) {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void onMove(MoveListener listener) {}
+
+    }
+
+    private static final Credentials credentials = new Credentials(new byte[] {1, 2, 3});
+
+    private static ConnectedPlayer reconnect(String id) { return new ConnectedPlayer(new StubConnection(), id); }
+
+    private static boolean claim(Reservations reservations, ConnectedPlayer player) {
+        return reservations.claim(player, credentials.tokenOf(player.getId()));
+    }
+
+    @Test
+    public void testSuspendAndRestore() throws IOException {
+        Variant variant = Variant.fromName("4x3-noextra");
+        Board board = new Board(variant);
+        SowingEngine.move(board, 0, 2);
+        SowingEngine.move(board, 1, 3);
+        File file = File.createTempFile("snapshot", ".bin");
+        try (SnapshotWriter writer = new SnapshotWriter(file, credentials)) {
+            writer.write(7, new String[]{"a", "b"}, board, 1);
+            writer.write(9, new String[]{"c", "d"}, new Board(), 0);
+        }
+
+        final List<Reservation> complete = new ArrayList<>();
+        final List<Reservation> expired = new ArrayList<>();
+        Reservations reservations = new Reservations(new Reservations.Listener() {
+            @Override
+            public void onReservationComplete(Reservation reservation) { complete.add(reservation); }
+
+            @Override
+            public void onReservationExpired(Reservation reservation) { expired.add(reservation); }
+        }, 0);
+        assertThat(SnapshotReader.read(file, reservations)).isEqualTo(2);
+        assertThat(reservations.size()).isEqualTo(4);
+
+        // Unknown ids and wrong tokens claim nothing, and a game resumes once both players are back.
+        assertThat(claim(reservations, reconnect("x"))).isFalse();
+        assertThat(reservations.claim(reconnect("b"), credentials.tokenOf("a"))).isFalse();
+        assertThat(reservations.claim(reconnect("b"), new Credentials(new byte[] {4}).tokenOf("b"))).isFalse();
+        assertThat(reservations.claim(reconnect("b"), "")).isFalse();
+        assertThat(reservations.verify("b", credentials.tokenOf("b"))).isTrue();
+        ConnectedPlayer b = reconnect("b");
+        assertThat(claim(reservations, b)).isTrue();
+        assertThat(complete).isEmpty();
+        ConnectedPlayer a = reconnect("a");
+        assertThat(claim(reservations, a)).isTrue();
+        assertThat(complete).hasSize(1);
+        Reservation reservation = complete.get(0);
+        assertThat(reservation.getGameKey()).isEqualTo(7);
+        assertThat(reservation.getNextSeat()).isEqualTo(1);
+        assertThat(reservation.getVariant()).isEqualTo(variant);
+        assertThat(reservation.getPlayer(0)).isSameAs(a);
+        assertThat(reservation.getPlayer(1)).isSameAs(b);
+        assertThat(reservation.getCells()).hasSize(board.size());
+        for (int i = 0; i < board.size(); i++)
+            assertThat(reservation.getCells()[i]).isEqualTo(board.cell(i));
+
+        // Players whose opponents never return are handed back on expiry.
+        ConnectedPlayer c = reconnect("c");
+        assertThat(claim(reservations, c)).isTrue();
+        assertThat(reservations.expire()).containsOnly(c);
+        assertThat(reservations.size()).isEqualTo(0);
+        assertThat(claim(reservations, reconnect("d"))).isFalse();
+        assertThat(complete).hasSize(1);
+        // The journal learns that the expired game ended.
+        assertThat(expired).hasSize(1);
+        assertThat(expired.get(0).getGameKey()).isEqualTo(9);
+    }
+
+}
@@ -0,0 +1,108 @@
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.rules.Variant;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests {@link SowingEngine} against the stone-by-stone sowing it replaced.
+ */
+public class SowingEngineTest {
+
+    /**
+     * Reference implementation: the former {@code Game.onMove} loop, along with the rules of the variant.
+     *
+     * @return whether the mover gets another turn
+     */
+    private static boolean referenceMove(Variant variant, int[][] sides, int seat, int pos) {
+        int[] pits = sides[seat];
+        int size = pits[pos];
+        pits[pos] = 0;
+        for (int i = 0; i < size; i++)
+            pits[(pos + i + 1) % pits.length]++;
+        int lastPos = (pos + size) % pits.length;
+        if (lastPos == pits.length - 1) return variant.hasExtraTurn();
+        if (variant.hasCapture() && pits[lastPos] == 1) {
+            int[] opponentsPits = sides[1 - seat];
+            int opponentsPos = pits.length - lastPos - 2;
+            int opponentsSize = opponentsPits[opponentsPos];
+            opponentsPits[opponentsPos] = 0;
+            pits[lastPos] = 0;
+            pits[pits.length - 1] += opponentsSize + 1;
+        }
+        return false;
+    }
+
+    private static boolean referenceIsOver(int[] pits) {
+        int size = 0;
+        for (int i = 0; i < pits.length - 1; i++) size += pits[i];
+        return (size == 0);
+    }
+
+    @Test
+    public void testInvalidMoves() {
+        Board board = new Board();
+        assertThat(SowingEngine.move(board, 0, -1)).isEqualTo(SowingEngine.INVALID_PIT);
+        assertThat(SowingEngine.move(board, 0, Board.PITS)).isEqualTo(SowingEngine.INVALID_PIT);
+        assertThat(SowingEngine.move(board, 0, 0)).isEqualTo(SowingEngine.EXTRA_TURN);
+        assertThat(SowingEngine.move(board, 0, 0)).isEqualTo(SowingEngine.EMPTY_PIT);
+        assertThat(board.side(0)).isEqualTo(new int[] {0, 7, 7, 7, 7, 7, 1});
+    }
+
+    @Test
+    public void testVariantNames() {
+        assertThat(Variant.fromName("6x6")).isSameAs(Variant.STANDARD);
+        assertThat(Variant.fromName("6x4-noextra-nocapture").getName()).isEqualTo("6x4-nocapture-noextra");
+        assertThat(Variant.fromName("4x3").getPits()).isEqualTo(4);
+        assertThat(Variant.fromName("4x3").getStones()).isEqualTo(3);
+        for (String malformed : new String[] {"", "6", "x6", "6x", "0x6", "6x99", "6x6-noextra-noextra", "6x6-foo"})
+            assertThat(Variant.fromName(malformed)).isNull();
+    }
+
+    @Test
+    public void testRandomGames() {
+        Random random = new Random(42);
+        Variant[] variants = {
+                Variant.STANDARD,
+                Variant.fromName("6x4"),
+                Variant.fromName("4x3-nocapture"),
+                Variant.fromName("5x8-noextra")
+        };
+        for (int game = 0; game < 20000; game++) {
+            Variant variant = variants[game % variants.length];
+            Board board = new Board(variant);
+            // Shadows the board through the generic path.
+            Board generic = new Board(variant);
+            int[][] sides = {board.side(0), board.side(1)};
+            int seat = 0;
+            while (true) {
+                int pos = random.nextInt(variant.getPits());
+                if (sides[seat][pos] == 0) {
+                    assertThat(SowingEngine.move(board, seat, pos)).isEqualTo(SowingEngine.EMPTY_PIT);
+                    continue;
+                }
+                int result = SowingEngine.move(board, seat, pos);
+                assertThat(SowingEngine.moveGeneric(generic, seat, pos)).isEqualTo(result);
+                boolean extraTurn = referenceMove(variant, sides, seat, pos);
+                assertThat(result).isGreaterThanOrEqualTo(0);
+                assertThat((result & SowingEngine.EXTRA_TURN) != 0).isEqualTo(extraTurn);
+                for (int s = 0; s < 2; s++)
+                    if (!Arrays.equals(board.side(s), sides[s]))
+                        throw new AssertionError(String.format(
+                                "game %d of %s: expected %s, found %s",
+                                game, variant, Arrays.toString(sides[s]), Arrays.toString(board.side(s))));
+                for (int s = 0; s < 2; s++) assertThat(generic.side(s)).isEqualTo(sides[s]);
+                boolean over = referenceIsOver(sides[0]) || referenceIsOver(sides[1]);
+                assertThat((result & SowingEngine.GAME_OVER) != 0).isEqualTo(over);
+                assertThat(board.isOver()).isEqualTo(over);
+                if (over) break;
+                if (!extraTurn) seat = Board.opponentOf(seat);
+            }
+        }
+    }
+
+}
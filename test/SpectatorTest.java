@@ -0,0 +1,65 @@
+import models.concurrent.GameExecutor;
+import models.event.GameOver;
+import models.spectator.Audience;
+import models.spectator.Spectator;
+import org.junit.Test;
+import play.libs.F;
+import play.mvc.WebSocket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SpectatorTest {
+
+    private static class RecordingSocket implements WebSocket.Out<String> {
+
+        final List<String> frames = new ArrayList<>();
+        boolean closed;
+
+        @Override
+        public void write(String frame) { frames.add(frame); }
+
+        @Override
+        public void close() { closed = true; }
+
+    }
+
+    @Test
+    public void testBroadcast() throws Throwable {
+        Audience audience = new Audience(GameExecutor.DIRECT);
+        List<RecordingSocket> sockets = new ArrayList<>();
+        List<WebSocket.In<String>> inputs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecordingSocket socket = new RecordingSocket();
+            WebSocket.In<String> in = new WebSocket.In<>();
+            audience.add(new Spectator(in, socket), "initial");
+            sockets.add(socket);
+            inputs.add(in);
+        }
+        assertThat(audience.size()).isEqualTo(3);
+
+        // The very same frame reaches every spectator.
+        GameOver event = new GameOver("a");
+        assertThat(event.toJson()).isSameAs(event.toJson());
+        audience.broadcast(event.toJson());
+        for (RecordingSocket socket : sockets) {
+            assertThat(socket.frames).hasSize(2);
+            assertThat(socket.frames.get(1)).isSameAs(event.toJson());
+        }
+
+        // Spectators leaving are dropped on the next broadcast.
+        for (F.Callback0 callback : inputs.get(1).closeCallbacks) callback.invoke();
+        audience.broadcast("next");
+        assertThat(audience.size()).isEqualTo(2);
+        assertThat(sockets.get(1).frames).hasSize(2);
+        assertThat(sockets.get(2).frames).hasSize(3);
+
+        audience.close();
+        assertThat(audience.isEmpty()).isTrue();
+        assertThat(sockets.get(0).closed).isTrue();
+        assertThat(sockets.get(1).closed).isFalse();
+    }
+
+}
@@ -0,0 +1,80 @@
+import models.rules.Board;
+import models.rules.SowingEngine;
+import models.tablebase.Tablebase;
+import models.tablebase.TablebaseGenerator;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TablebaseTest {
+
+    private static final int MAX_STONES = 6;
+
+    /**
+     * Plain minimax reference, returning the stones the given seat can still gain over its opponent.
+     */
+    private static int solve(Board board, int seat) {
+        if (board.isOver()) return 0;
+        int best = Integer.MIN_VALUE;
+        for (int pos = 0; pos < Board.PITS; pos++) {
+            Board child = new Board();
+            child.copyFrom(board);
+            int result = SowingEngine.move(child, seat, pos);
+            if (result < 0) continue;
+            int value = child.score(seat) - board.score(seat);
+            if ((result & SowingEngine.GAME_OVER) == 0)
+                value += (result & SowingEngine.EXTRA_TURN) != 0
+                        ? solve(child, seat)
+                        : -solve(child, Board.opponentOf(seat));
+            best = Math.max(best, value);
+        }
+        return best;
+    }
+
+    @Test
+    public void testGeneratedValues() throws IOException {
+        byte[] values = new TablebaseGenerator(MAX_STONES).generate();
+        // Ranking is a bijection, since every position got solved.
+        for (byte value : values) assertThat(value).isNotEqualTo(Byte.MIN_VALUE);
+
+        File file = File.createTempFile("tablebase", ".bin");
+        file.deleteOnExit();
+        TablebaseGenerator.write(file, MAX_STONES, values);
+        Tablebase tablebase = Tablebase.map(file);
+        assertThat(tablebase.getMaxStones()).isEqualTo(MAX_STONES);
+
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            int[] cells = new int[Board.SIZE];
+            for (int stones = 2 + random.nextInt(MAX_STONES - 1); stones > 0; stones--)
+                cells[random.nextInt(2) * Board.SIDE + random.nextInt(Board.PITS)]++;
+            cells[Board.STORE] = random.nextInt(10);
+            Board board = new Board(cells);
+            if (board.isOver()) continue;
+            int seat = random.nextInt(2);
+            assertThat(tablebase.covers(board)).isTrue();
+            assertThat(tablebase.value(board, seat)).isEqualTo(solve(board, seat));
+        }
+    }
+
+    @Test
+    public void testRejectsBadStoneCounts() throws IOException {
+        File file = File.createTempFile("tablebase", ".bin");
+        file.deleteOnExit();
+        for (int maxStones : new int[]{-1, 73, Integer.MAX_VALUE}) {
+            TablebaseGenerator.write(file, maxStones, new byte[0]);
+            try {
+                Tablebase.map(file);
+                throw new AssertionError("Mapped a tablebase of " + maxStones + " stones.");
+            }
+            catch (IOException expected) {
+                assertThat(expected.getMessage()).contains("out of range");
+            }
+        }
+    }
+
+}
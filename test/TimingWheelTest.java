@@ -0,0 +1,114 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import models.Game;
+import models.concurrent.GameExecutor;
+import models.connection.JsonConnection;
+import models.event.GameOver;
+import models.player.ConnectedPlayer;
+import models.player.Protocol;
+import models.timer.TimingWheel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TimingWheelTest {
+
+    @Test
+    public void testScheduleAndCancel() throws InterruptedException {
+        // A tiny wheel makes timeouts wrap around it a few times.
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 4, "test-wheel");
+        int count = 100;
+        final AtomicLongArray firedNanos = new AtomicLongArray(count);
+        final CountDownLatch latch = new CountDownLatch(count / 2);
+        long start = System.nanoTime();
+        List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            timeouts.add(wheel.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    firedNanos.set(index, System.nanoTime());
+                    latch.countDown();
+                }
+            }, i / 2, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 1; i < count; i += 2) assertThat(timeouts.get(i).cancel()).isTrue();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        // Let cancelled ones have their chance to misfire.
+        Thread.sleep(20);
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 1) assertThat(firedNanos.get(i)).isEqualTo(0);
+            else {
+                assertThat(timeouts.get(i).isExpired()).isTrue();
+                assertThat(firedNanos.get(i) - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(i / 2));
+            }
+        }
+        assertThat(wheel.size()).isEqualTo(0);
+        assertThat(timeouts.get(0).cancel()).isFalse();
+        wheel.stop();
+    }
+
+    @Test
+    public void testTurnTimeout() throws Throwable {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 64, "test-wheel");
+        MockInputWebSocket[] inputs = {new MockInputWebSocket(), new MockInputWebSocket()};
+        MockOutputWebSocket[] outputs = {new MockOutputWebSocket(), new MockOutputWebSocket()};
+        ConnectedPlayer[] players = new ConnectedPlayer[2];
+        for (int seat = 0; seat < 2; seat++)
+            players[seat] = new ConnectedPlayer(new JsonConnection(
+                    inputs[seat].getInputSocket(), outputs[seat].getOutputSocket(), Protocol.FULL));
+        final CountDownLatch shutdown = new CountDownLatch(1);
+        Game game = new Game(players[0], players[1], new Game.ShutdownListener() {
+            @Override
+            public void onGameShutdown(Game game) { shutdown.countDown(); }
+        }, GameExecutor.DIRECT).withTimers(wheel, TimeUnit.MILLISECONDS.toNanos(200), 0);
+        game.start();
+
+        // The board state tells the time left, and the clock restarts on every move.
+        inputs[0].write("0");
+        JsonNode state = null;
+        for (int i = 0; i < 2; i++) state = outputs[1].getMessageQueue().poll(1, TimeUnit.SECONDS);
+        assertThat(state.get("type").asText()).isEqualTo("BoardState");
+        assertThat(state.get("remainingMillis").asInt()).isGreaterThan(100).isLessThanOrEqualTo(200);
+
+        // The upper player got an extra turn and lets the clock run out.
+        assertThat(shutdown.await(2, TimeUnit.SECONDS)).isTrue();
+        JsonNode gameOver = outputs[1].getMessageQueue().poll(1, TimeUnit.SECONDS);
+        assertThat(gameOver.get("type").asText()).isEqualTo("GameOver");
+        assertThat(gameOver.get("winnerId").asText()).isEqualTo(players[1].getId());
+        assertThat(gameOver.get("reason").asText()).isEqualTo(GameOver.FORFEIT);
+        wheel.stop();
+    }
+
+    @Test
+    public void testIdleAbort() throws Throwable {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 64, "test-wheel");
+        MockInputWebSocket[] inputs = {new MockInputWebSocket(), new MockInputWebSocket()};
+        MockOutputWebSocket[] outputs = {new MockOutputWebSocket(), new MockOutputWebSocket()};
+        ConnectedPlayer[] players = new ConnectedPlayer[2];
+        for (int seat = 0; seat < 2; seat++)
+            players[seat] = new ConnectedPlayer(new JsonConnection(
+                    inputs[seat].getInputSocket(), outputs[seat].getOutputSocket(), Protocol.FULL));
+        final CountDownLatch shutdown = new CountDownLatch(1);
+        new Game(players[0], players[1], new Game.ShutdownListener() {
+            @Override
+            public void onGameShutdown(Game game) { shutdown.countDown(); }
+        }, GameExecutor.DIRECT).withTimers(wheel, 0, TimeUnit.MILLISECONDS.toNanos(50)).start();
+
+        // An abort tells neither a winner nor a draw.
+        assertThat(shutdown.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(outputs[0].getMessageQueue().poll(1, TimeUnit.SECONDS).get("type").asText())
+                .isEqualTo("ReadyToStart");
+        JsonNode gameOver = outputs[0].getMessageQueue().poll(1, TimeUnit.SECONDS);
+        assertThat(gameOver.get("type").asText()).isEqualTo("GameOver");
+        assertThat(gameOver.get("winnerId").isNull()).isTrue();
+        assertThat(gameOver.get("reason").asText()).isEqualTo(GameOver.IDLE);
+        wheel.stop();
+    }
+
+}